@@ -0,0 +1,38 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.audit;
+
+import java.util.List;
+
+import com.ibm.fhir.audit.beans.AuditLogEntry;
+
+/**
+ * An audit log service which separates the serialization of an audit log entry from its publication, so that
+ * serialized events can be queued, batched and spooled by {@link com.ibm.fhir.audit.impl.AsyncAuditLogService}.
+ */
+public interface AuditEventSink extends AuditLogService {
+
+    /**
+     * Serializes the passed audit log entry to the event which is published by this sink.
+     *
+     * @param logEntry
+     *            - The audit log entry to be serialized.
+     * @return the serialized event, or null if the entry is not logged by this sink
+     * @throws Exception
+     */
+    String serialize(AuditLogEntry logEntry) throws Exception;
+
+    /**
+     * Publishes the passed events, in order, and returns once all of them have been accepted by the destination.
+     *
+     * @param events
+     *            - The serialized events.
+     * @throws Exception
+     *             - If any of the events could not be published; the caller may publish the whole batch again.
+     */
+    void publish(List<String> events) throws Exception;
+}
@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2020
+ * (C) Copyright IBM Corp. 2020, 2021
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -22,8 +22,24 @@ public final class AuditLogServiceConstants {
     public static final String PROPERTY_AUDIT_KAFKA_APIKEY = "kafkaApiKey";
     public static final String PROPERTY_AUDIT_MAPPER = "mapper";
 
+    // The properties of the asynchronous audit log pipeline, within the "async" property group
+    public static final String PROPERTY_AUDIT_ASYNC = "async";
+    public static final String PROPERTY_AUDIT_ASYNC_ENABLED = "enabled";
+    public static final String PROPERTY_AUDIT_ASYNC_QUEUE_SIZE = "queueSize";
+    public static final String PROPERTY_AUDIT_ASYNC_BATCH_SIZE = "batchSize";
+    public static final String PROPERTY_AUDIT_ASYNC_FLUSH_INTERVAL_MS = "flushIntervalMs";
+    public static final String PROPERTY_AUDIT_ASYNC_RETRY_INTERVAL_MS = "retryIntervalMs";
+    public static final String PROPERTY_AUDIT_ASYNC_BACKPRESSURE = "backpressure";
+    public static final String PROPERTY_AUDIT_ASYNC_SPOOL_DIRECTORY = "spoolDirectory";
+
     public static final String DEFAULT_MAPPER = "cadf";
 
+    public static final int DEFAULT_AUDIT_ASYNC_QUEUE_SIZE = 10000;
+    public static final int DEFAULT_AUDIT_ASYNC_BATCH_SIZE = 500;
+    public static final int DEFAULT_AUDIT_ASYNC_FLUSH_INTERVAL_MS = 1000;
+    public static final int DEFAULT_AUDIT_ASYNC_RETRY_INTERVAL_MS = 5000;
+    public static final String DEFAULT_AUDIT_ASYNC_BACKPRESSURE = "block";
+
     public static final String KAFKA_USERNAME = "token";
 
     public static final String DEFAULT_AUDIT_KAFKA_TOPIC = "FHIR_AUDIT";
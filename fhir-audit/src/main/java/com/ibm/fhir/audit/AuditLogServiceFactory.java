@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2016, 2020
+ * (C) Copyright IBM Corp. 2016, 2021
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -11,6 +11,7 @@ import java.util.logging.Logger;
 import org.owasp.encoder.Encode;
 
 import com.ibm.fhir.audit.configuration.ConfigurationTranslator;
+import com.ibm.fhir.audit.impl.AsyncAuditLogService;
 import com.ibm.fhir.config.FHIRConfigHelper;
 import com.ibm.fhir.config.FHIRConfiguration;
 import com.ibm.fhir.config.PropertyGroup;
@@ -69,9 +70,16 @@ public class AuditLogServiceFactory {
                     serviceClass = Class.forName(serviceClassName);
                     if (AuditLogService.class.isAssignableFrom(serviceClass)) {
                         try {
-                            serviceInstance = (AuditLogService)serviceClass.newInstance();
+                            AuditLogService service = (AuditLogService)serviceClass.newInstance();
                             auditLogProperties = FHIRConfigHelper.getPropertyGroup(FHIRConfiguration.PROPERTY_AUDIT_SERVICE_PROPERTIES);
-                            serviceInstance.initialize(auditLogProperties);
+                            if (isAsync(auditLogProperties)) {
+                                if (!(service instanceof AuditEventSink)) {
+                                    throw new IllegalArgumentException(serviceClassName + " does not support asynchronous audit logging");
+                                }
+                                service = new AsyncAuditLogService((AuditEventSink) service);
+                            }
+                            service.initialize(auditLogProperties);
+                            serviceInstance = service;
                             log.info("Successfully initialized audit log service: " + serviceClassName);
                         } catch(IllegalAccessException | InstantiationException e) {
                             errMsg.append("Could not instantiate " + serviceClassName + NEWLINE + e.toString());
@@ -97,6 +105,36 @@ public class AuditLogServiceFactory {
         log.exiting(CLASSNAME, METHODNAME);
     }
 
+    /**
+     * Indicates whether the audit log properties enable the asynchronous audit log pipeline.
+     */
+    private static boolean isAsync(PropertyGroup auditLogProperties) {
+        if (auditLogProperties == null) {
+            return false;
+        }
+        PropertyGroup asyncProperties = auditLogProperties.getPropertyGroup(AuditLogServiceConstants.PROPERTY_AUDIT_ASYNC);
+        return asyncProperties != null
+                && asyncProperties.getBooleanProperty(AuditLogServiceConstants.PROPERTY_AUDIT_ASYNC_ENABLED, Boolean.FALSE);
+    }
+
+    /**
+     * Stops the audit log service cached by this factory class, if it was created, so that any events which it
+     * buffers are published before the server stops.
+     */
+    public static synchronized void stopService() {
+        final String METHODNAME = "stopService";
+        log.entering(CLASSNAME, METHODNAME);
+
+        if (serviceInstance != null) {
+            try {
+                serviceInstance.stop(FHIRConfigHelper.getPropertyGroup(FHIRConfiguration.PROPERTY_AUDIT_SERVICE_PROPERTIES));
+            } catch (Exception e) {
+                log.warning("Failure stopping audit log service: " + e.toString());
+            }
+        }
+        log.exiting(CLASSNAME, METHODNAME);
+    }
+
     /**
      * Resets the singleton instance of the audit logger service object that is cached by this factory class,
      * then creates, caches, and returns a new service object instance.
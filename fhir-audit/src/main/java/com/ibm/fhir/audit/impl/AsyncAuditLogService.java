@@ -0,0 +1,359 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.audit.impl;
+
+import static com.ibm.fhir.audit.AuditLogServiceConstants.DEFAULT_AUDIT_ASYNC_BACKPRESSURE;
+import static com.ibm.fhir.audit.AuditLogServiceConstants.DEFAULT_AUDIT_ASYNC_BATCH_SIZE;
+import static com.ibm.fhir.audit.AuditLogServiceConstants.DEFAULT_AUDIT_ASYNC_FLUSH_INTERVAL_MS;
+import static com.ibm.fhir.audit.AuditLogServiceConstants.DEFAULT_AUDIT_ASYNC_QUEUE_SIZE;
+import static com.ibm.fhir.audit.AuditLogServiceConstants.DEFAULT_AUDIT_ASYNC_RETRY_INTERVAL_MS;
+import static com.ibm.fhir.audit.AuditLogServiceConstants.PROPERTY_AUDIT_ASYNC;
+import static com.ibm.fhir.audit.AuditLogServiceConstants.PROPERTY_AUDIT_ASYNC_BACKPRESSURE;
+import static com.ibm.fhir.audit.AuditLogServiceConstants.PROPERTY_AUDIT_ASYNC_BATCH_SIZE;
+import static com.ibm.fhir.audit.AuditLogServiceConstants.PROPERTY_AUDIT_ASYNC_FLUSH_INTERVAL_MS;
+import static com.ibm.fhir.audit.AuditLogServiceConstants.PROPERTY_AUDIT_ASYNC_QUEUE_SIZE;
+import static com.ibm.fhir.audit.AuditLogServiceConstants.PROPERTY_AUDIT_ASYNC_RETRY_INTERVAL_MS;
+import static com.ibm.fhir.audit.AuditLogServiceConstants.PROPERTY_AUDIT_ASYNC_SPOOL_DIRECTORY;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.ibm.fhir.audit.AuditEventSink;
+import com.ibm.fhir.audit.AuditLogService;
+import com.ibm.fhir.audit.beans.AuditLogEntry;
+import com.ibm.fhir.config.PropertyGroup;
+import com.ibm.fhir.exception.FHIRException;
+
+/**
+ * An audit log service which decouples the callers of {@link #logEntry(AuditLogEntry)} from the publication of
+ * their events by an {@link AuditEventSink}.
+ *
+ * <p>Entries are serialized on the calling thread and put on a bounded queue. A single flusher thread takes the
+ * events from the queue and publishes them in batches of up to {@code batchSize} events, or whatever has arrived
+ * {@code flushIntervalMs} after the first event of a batch. When the queue is full, the configured
+ * {@link Backpressure} mode applies.
+ *
+ * <p>If a spool directory is configured, batches which fail to publish are appended to an {@link AuditSpool} and
+ * subsequent batches are appended behind them until the spool has been replayed, so events are published in the
+ * order in which they were queued and survive an outage of the destination and a restart of the server. Without a
+ * spool, a failed batch is retried every {@code retryIntervalMs} while the queue fills up behind it.
+ */
+public class AsyncAuditLogService implements AuditLogService {
+    private static final String CLASSNAME = AsyncAuditLogService.class.getName();
+    private static final Logger logger = java.util.logging.Logger.getLogger(CLASSNAME);
+
+    private static final long STOP_TIMEOUT_MS = 30000;
+
+    /**
+     * What {@link AsyncAuditLogService#logEntry(AuditLogEntry)} does when the queue is full.
+     */
+    public enum Backpressure {
+        /**
+         * Wait for space in the queue
+         */
+        BLOCK,
+        /**
+         * Discard the event and count it
+         */
+        DROP,
+        /**
+         * Append the event to the spool; events spilled this way may be published before events which were
+         * queued earlier
+         */
+        SPILL;
+
+        public static Backpressure from(String value) {
+            for (Backpressure backpressure : values()) {
+                if (backpressure.name().equalsIgnoreCase(value)) {
+                    return backpressure;
+                }
+            }
+            throw new IllegalArgumentException("Invalid audit backpressure mode: " + value);
+        }
+    }
+
+    private final AuditEventSink sink;
+
+    private BlockingQueue<String> queue;
+    private int batchSize;
+    private long flushIntervalMs;
+    private long retryIntervalMs;
+    private Backpressure backpressure;
+    private AuditSpool spool;
+    private Thread flusher;
+    private volatile boolean running;
+
+    // the time (System.nanoTime) before which the spool is not replayed after a failure
+    private long nextReplay;
+
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong spooledCount = new AtomicLong();
+
+    /**
+     * @param sink
+     *            - The audit log service which serializes and publishes the events.
+     */
+    public AsyncAuditLogService(AuditEventSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * @return the audit log service which publishes the events
+     */
+    public AuditEventSink getSink() {
+        return sink;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return sink.isEnabled();
+    }
+
+    /**
+     * Initializes the sink, then starts the flusher thread with the settings of the "async" property group.
+     */
+    @Override
+    public void initialize(PropertyGroup auditLogProperties) throws Exception {
+        final String METHODNAME = "initialize";
+        logger.entering(CLASSNAME, METHODNAME);
+
+        sink.initialize(auditLogProperties);
+
+        PropertyGroup asyncProperties = (auditLogProperties != null) ? auditLogProperties.getPropertyGroup(PROPERTY_AUDIT_ASYNC) : null;
+        int queueSize = DEFAULT_AUDIT_ASYNC_QUEUE_SIZE;
+        batchSize = DEFAULT_AUDIT_ASYNC_BATCH_SIZE;
+        flushIntervalMs = DEFAULT_AUDIT_ASYNC_FLUSH_INTERVAL_MS;
+        retryIntervalMs = DEFAULT_AUDIT_ASYNC_RETRY_INTERVAL_MS;
+        backpressure = Backpressure.from(DEFAULT_AUDIT_ASYNC_BACKPRESSURE);
+        String spoolDirectory = null;
+        if (asyncProperties != null) {
+            queueSize = asyncProperties.getIntProperty(PROPERTY_AUDIT_ASYNC_QUEUE_SIZE, queueSize);
+            batchSize = asyncProperties.getIntProperty(PROPERTY_AUDIT_ASYNC_BATCH_SIZE, batchSize);
+            flushIntervalMs = asyncProperties.getIntProperty(PROPERTY_AUDIT_ASYNC_FLUSH_INTERVAL_MS, (int) flushIntervalMs);
+            retryIntervalMs = asyncProperties.getIntProperty(PROPERTY_AUDIT_ASYNC_RETRY_INTERVAL_MS, (int) retryIntervalMs);
+            backpressure = Backpressure.from(asyncProperties.getStringProperty(PROPERTY_AUDIT_ASYNC_BACKPRESSURE, DEFAULT_AUDIT_ASYNC_BACKPRESSURE));
+            spoolDirectory = asyncProperties.getStringProperty(PROPERTY_AUDIT_ASYNC_SPOOL_DIRECTORY, null);
+        }
+        if (queueSize < 1 || batchSize < 1 || flushIntervalMs < 0 || retryIntervalMs < 0) {
+            throw new FHIRException("Invalid asynchronous audit log settings: queueSize=" + queueSize + ", batchSize=" + batchSize
+                    + ", flushIntervalMs=" + flushIntervalMs + ", retryIntervalMs=" + retryIntervalMs);
+        }
+        if (backpressure == Backpressure.SPILL && spoolDirectory == null) {
+            throw new FHIRException("The audit backpressure mode 'spill' requires a spool directory");
+        }
+
+        queue = new ArrayBlockingQueue<>(queueSize);
+        if (spoolDirectory != null) {
+            spool = new AuditSpool(Paths.get(spoolDirectory));
+        }
+
+        nextReplay = System.nanoTime();
+        running = true;
+        flusher = new Thread(this::run, "fhir-audit-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        logger.info("Started asynchronous audit logging: queueSize=" + queueSize + ", batchSize=" + batchSize
+                + ", flushIntervalMs=" + flushIntervalMs + ", backpressure=" + backpressure + ", spoolDirectory=" + spoolDirectory);
+
+        logger.exiting(CLASSNAME, METHODNAME);
+    }
+
+    /**
+     * Stops accepting entries, publishes (or spools) the queued events, then stops the sink.
+     */
+    @Override
+    public void stop(PropertyGroup auditLogProperties) throws Exception {
+        final String METHODNAME = "stop";
+        logger.entering(CLASSNAME, METHODNAME);
+
+        running = false;
+        if (flusher != null) {
+            flusher.join(flushIntervalMs + STOP_TIMEOUT_MS);
+            if (flusher.isAlive()) {
+                logger.warning("Audit flusher did not stop; " + queue.size() + " queued events are lost");
+                flusher.interrupt();
+            }
+        }
+        if (spool != null) {
+            spool.close();
+        }
+        if (droppedCount.get() > 0) {
+            logger.warning("Dropped " + droppedCount.get() + " audit events because the queue was full");
+        }
+        sink.stop(auditLogProperties);
+
+        logger.exiting(CLASSNAME, METHODNAME);
+    }
+
+    @Override
+    public void logEntry(AuditLogEntry logEntry) throws Exception {
+        if (!running) {
+            // stopped (or never started); there is no flusher left to publish the event
+            droppedCount.incrementAndGet();
+            return;
+        }
+        String event = sink.serialize(logEntry);
+        if (event == null) {
+            return;
+        }
+        switch (backpressure) {
+        case BLOCK:
+            queue.put(event);
+            break;
+        case DROP:
+            if (!queue.offer(event)) {
+                droppedCount.incrementAndGet();
+            }
+            break;
+        case SPILL:
+            if (!queue.offer(event)) {
+                spool.append(Collections.singletonList(event));
+                spooledCount.incrementAndGet();
+            }
+            break;
+        }
+    }
+
+    /**
+     * @return the number of events which were published by the sink
+     */
+    public long getPublishedCount() {
+        return publishedCount.get();
+    }
+
+    /**
+     * @return the number of events which were discarded because the queue was full or the service was stopped
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return the number of events which were appended to the spool
+     */
+    public long getSpooledCount() {
+        return spooledCount.get();
+    }
+
+    /**
+     * @return the number of queued events
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private void run() {
+        List<String> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                nextBatch(batch);
+                flush(batch);
+            } catch (InterruptedException e) {
+                logger.warning("Audit flusher interrupted; " + (batch.size() + queue.size()) + " events are lost");
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable t) {
+                logger.log(Level.SEVERE, "Unable to publish or spool " + batch.size() + " audit events", t);
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Wait up to the flush interval for the first event, then until the batch is full or the flush interval has
+     * passed since the first event.
+     */
+    private void nextBatch(List<String> batch) throws InterruptedException {
+        String event = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (event == null) {
+            return;
+        }
+        batch.add(event);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() == batchSize || remaining <= 0 || !running) {
+                break;
+            }
+            event = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (event == null) {
+                break;
+            }
+            batch.add(event);
+        }
+    }
+
+    private void flush(List<String> batch) throws Exception {
+        if (spool != null && spool.hasPending()) {
+            if (!batch.isEmpty()) {
+                // keep the order of the events behind those which are already spooled
+                spool.append(batch);
+                spooledCount.addAndGet(batch.size());
+            }
+            replay();
+            return;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        while (true) {
+            try {
+                sink.publish(batch);
+                publishedCount.addAndGet(batch.size());
+                return;
+            } catch (Exception e) {
+                if (spool != null) {
+                    logger.log(Level.WARNING, "Unable to publish " + batch.size() + " audit events; spooling them", e);
+                    spool.append(batch);
+                    spooledCount.addAndGet(batch.size());
+                    nextReplay = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryIntervalMs);
+                    return;
+                }
+                if (!running) {
+                    throw e;
+                }
+                logger.log(Level.WARNING, "Unable to publish " + batch.size() + " audit events; retrying in " + retryIntervalMs + "ms", e);
+                Thread.sleep(retryIntervalMs);
+            }
+        }
+    }
+
+    /**
+     * Publish the spooled events in batches until the spool is empty or the sink fails. A failure postpones the
+     * next replay by the retry interval, except while stopping, when there is no next replay.
+     */
+    private void replay() throws IOException {
+        if (System.nanoTime() - nextReplay < 0 || !running) {
+            return;
+        }
+        while (spool.hasPending()) {
+            List<String> events = spool.read(batchSize);
+            try {
+                sink.publish(events);
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Unable to replay the audit spool; retrying in " + retryIntervalMs + "ms", e);
+                nextReplay = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryIntervalMs);
+                return;
+            }
+            spool.commit();
+            publishedCount.addAndGet(events.size());
+        }
+        logger.info("Replayed the audit spool");
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.audit.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * An append-only file of serialized audit events which could not be published yet.
+ *
+ * <p>Each event is stored as its length in bytes followed by its UTF-8 encoding. Events are read back in the order in
+ * which they were appended and the position of the first unpublished event is kept in a separate offset file, so that
+ * the remaining events are replayed after a restart. Events which were published but not yet committed when the
+ * server stopped are published again. The file is truncated once all of its events have been published.
+ *
+ * <p>A spool directory must not be shared by more than one server.
+ */
+class AuditSpool implements Closeable {
+    private static final Logger logger = java.util.logging.Logger.getLogger(AuditSpool.class.getName());
+
+    static final String SPOOL_FILE_NAME = "audit.spool";
+    static final String OFFSET_FILE_NAME = "audit.spool.offset";
+
+    private final Path offsetFile;
+    private final FileChannel channel;
+
+    // the position of the first event which has not been published
+    private long readOffset;
+
+    // the position after the events returned by the last read
+    private long pendingOffset;
+
+    AuditSpool(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.offsetFile = directory.resolve(OFFSET_FILE_NAME);
+        this.channel = FileChannel.open(directory.resolve(SPOOL_FILE_NAME), StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        if (Files.exists(offsetFile)) {
+            readOffset = ByteBuffer.wrap(Files.readAllBytes(offsetFile)).getLong();
+        }
+        if (readOffset < 0 || readOffset > channel.size()) {
+            logger.warning("Ignoring invalid audit spool offset " + readOffset);
+            readOffset = 0;
+        }
+        pendingOffset = readOffset;
+
+        // drop an event which was only partially written when the server stopped
+        long end = readOffset;
+        long size = channel.size();
+        int count = 0;
+        ByteBuffer length = ByteBuffer.allocate(4);
+        while (end + 4 <= size) {
+            length.clear();
+            readFully(length, end);
+            long next = end + 4 + length.getInt(0);
+            if (length.getInt(0) < 0 || next > size) {
+                break;
+            }
+            end = next;
+            count++;
+        }
+        if (end < size) {
+            logger.warning("Truncating " + (size - end) + " bytes of an incomplete event from the audit spool");
+            channel.truncate(end);
+        }
+        if (count > 0) {
+            logger.info("Audit spool contains " + count + " unpublished events");
+        }
+    }
+
+    /**
+     * Append the passed events and force them to the storage device.
+     */
+    synchronized void append(List<String> events) throws IOException {
+        List<byte[]> encoded = new ArrayList<>(events.size());
+        int capacity = 0;
+        for (String event : events) {
+            byte[] bytes = event.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            capacity += 4 + bytes.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(capacity);
+        for (byte[] bytes : encoded) {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+        buffer.flip();
+        long position = channel.size();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        channel.force(false);
+    }
+
+    /**
+     * @return true if the spool contains events which have not been published
+     */
+    synchronized boolean hasPending() throws IOException {
+        return readOffset < channel.size();
+    }
+
+    /**
+     * Read up to {@code max} of the oldest unpublished events. The events are returned again by the next read unless
+     * {@link #commit()} is called first.
+     */
+    synchronized List<String> read(int max) throws IOException {
+        List<String> events = new ArrayList<>();
+        long position = readOffset;
+        long size = channel.size();
+        ByteBuffer length = ByteBuffer.allocate(4);
+        while (events.size() < max && position < size) {
+            length.clear();
+            readFully(length, position);
+            ByteBuffer event = ByteBuffer.allocate(length.getInt(0));
+            readFully(event, position + 4);
+            events.add(new String(event.array(), StandardCharsets.UTF_8));
+            position += 4 + event.capacity();
+        }
+        pendingOffset = position;
+        return events;
+    }
+
+    /**
+     * Mark the events returned by the last read as published.
+     */
+    synchronized void commit() throws IOException {
+        readOffset = pendingOffset;
+        if (readOffset == channel.size()) {
+            channel.truncate(0);
+            readOffset = pendingOffset = 0;
+        }
+        Path tmp = offsetFile.resolveSibling(OFFSET_FILE_NAME + ".tmp");
+        Files.write(tmp, ByteBuffer.allocate(8).putLong(readOffset).array());
+        Files.move(tmp, offsetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int count = channel.read(buffer, position);
+            if (count < 0) {
+                throw new IOException("Unexpected end of the audit spool");
+            }
+            position += count;
+        }
+    }
+}
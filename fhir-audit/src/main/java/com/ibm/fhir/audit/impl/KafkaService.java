@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2019, 2020
+ * (C) Copyright IBM Corp. 2019, 2021
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -8,6 +8,10 @@ package com.ibm.fhir.audit.impl;
 
 import static com.ibm.fhir.audit.AuditLogServiceConstants.IGNORED_AUDIT_EVENT_TYPE;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -17,7 +21,7 @@ import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.errors.InterruptException;
 
-import com.ibm.fhir.audit.AuditLogService;
+import com.ibm.fhir.audit.AuditEventSink;
 import com.ibm.fhir.audit.beans.AuditLogEntry;
 import com.ibm.fhir.audit.configuration.ConfigurationTranslator;
 import com.ibm.fhir.audit.mapper.MapperFactory;
@@ -29,7 +33,7 @@ import com.ibm.fhir.exception.FHIRException;
  * KafkaService orchestrates the call to Kafka so
  * mappers and translators can be swapped out.
  */
-public class KafkaService implements AuditLogService {
+public class KafkaService implements AuditEventSink {
     private static final String CLASSNAME = KafkaService.class.getName();
     private static final Logger logger = java.util.logging.Logger.getLogger(CLASSNAME);
 
@@ -73,29 +77,47 @@ public class KafkaService implements AuditLogService {
         final String METHODNAME = "logEntry";
         logger.entering(CLASSNAME, METHODNAME);
 
+        String eventString = serialize(logEntry);
+        if (eventString != null) {
+            // Block till the message is sent to kafka server.
+            publish(Collections.singletonList(eventString));
+        }
+
+        logger.exiting(CLASSNAME, METHODNAME);
+    }
+
+    @Override
+    public String serialize(AuditLogEntry logEntry) throws Exception {
         if (this.isLoggableOperation(logEntry)) {
             // Skip Ignored Audit Event Types
             // Eventually this should be picked from the Properties files
             // Rather than this map
             if (!IGNORED_AUDIT_EVENT_TYPE.contains(logEntry.getEventType())) {
-                String eventString = MapperFactory.getMapper(mapperType)
+                return MapperFactory.getMapper(mapperType)
                         .init(auditLogProperties)
                         .map(logEntry)
                         .serialize();
-
-                if (logger.isLoggable(Level.FINE)) {
-                    logger.fine("Sending to Topic '" + topic + "'" + size(eventString));
-                }
-                ProducerRecord<String, String> record = new ProducerRecord<>(topic, eventString);
-                // Block till the message is sent to kafka server.
-                RecordMetadata metadata = this.producer.send(record).get();
-                if (logger.isLoggable(Level.FINE)) {
-                    logger.fine(" Record Produced to Topic '" + metadata.topic() + "' at time " + metadata.timestamp());
-                }
             }
         }
+        return null;
+    }
 
-        logger.exiting(CLASSNAME, METHODNAME);
+    @Override
+    public void publish(List<String> events) throws Exception {
+        // Hand all records to the producer before waiting, so that a batch is sent in as few requests as possible.
+        List<Future<RecordMetadata>> futures = new ArrayList<>(events.size());
+        for (String eventString : events) {
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine("Sending to Topic '" + topic + "'" + size(eventString));
+            }
+            futures.add(this.producer.send(new ProducerRecord<>(topic, eventString)));
+        }
+        for (Future<RecordMetadata> future : futures) {
+            RecordMetadata metadata = future.get();
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine(" Record Produced to Topic '" + metadata.topic() + "' at time " + metadata.timestamp());
+            }
+        }
     }
 
     @Override
@@ -0,0 +1,255 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.audit.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import javax.json.Json;
+import javax.json.JsonObjectBuilder;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.audit.AuditEventSink;
+import com.ibm.fhir.audit.beans.AuditLogEntry;
+import com.ibm.fhir.audit.beans.Context;
+import com.ibm.fhir.config.PropertyGroup;
+
+public class AsyncAuditLogServiceTest {
+    private Path spoolDirectory;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        spoolDirectory = Files.createTempDirectory("audit-spool-test");
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        for (Path file : Files.newDirectoryStream(spoolDirectory)) {
+            Files.delete(file);
+        }
+        Files.delete(spoolDirectory);
+    }
+
+    @Test
+    public void testBatchBySize() throws Exception {
+        StubSink sink = new StubSink();
+        AsyncAuditLogService service = start(sink, properties().add("batchSize", 10).add("flushIntervalMs", 500));
+        log(service, 0, 25);
+        waitFor(() -> sink.events().size() == 25);
+        service.stop(null);
+
+        assertEquals(sink.events(), events(0, 25));
+        assertEquals(sink.batches.get(0).size(), 10);
+        assertEquals(service.getPublishedCount(), 25);
+        assertTrue(sink.stopped);
+    }
+
+    @Test
+    public void testBatchByTime() throws Exception {
+        StubSink sink = new StubSink();
+        AsyncAuditLogService service = start(sink, properties().add("batchSize", 100).add("flushIntervalMs", 50));
+        log(service, 0, 3);
+        waitFor(() -> sink.events().size() == 3);
+        service.stop(null);
+
+        assertEquals(sink.batches.size(), 1);
+        assertEquals(sink.events(), events(0, 3));
+    }
+
+    @Test
+    public void testDrop() throws Exception {
+        StubSink sink = new StubSink();
+        sink.blocked = new CountDownLatch(1);
+        AsyncAuditLogService service = start(sink, properties().add("queueSize", 2).add("batchSize", 1).add("backpressure", "drop"));
+        log(service, 0, 10);
+        assertTrue(service.getDroppedCount() >= 7);
+        sink.blocked.countDown();
+        service.stop(null);
+
+        assertEquals(sink.events().size() + service.getDroppedCount(), 10);
+    }
+
+    @Test
+    public void testSpoolAndReplayInOrder() throws Exception {
+        StubSink sink = new StubSink();
+        sink.failures.set(3);
+        AsyncAuditLogService service = start(sink, properties()
+            .add("batchSize", 5)
+            .add("flushIntervalMs", 10)
+            .add("retryIntervalMs", 10)
+            .add("spoolDirectory", spoolDirectory.toString()));
+        log(service, 0, 20);
+        waitFor(() -> sink.events().size() == 20);
+        service.stop(null);
+
+        assertEquals(sink.events(), events(0, 20));
+        assertTrue(service.getSpooledCount() > 0);
+        assertEquals(Files.size(spoolDirectory.resolve(AuditSpool.SPOOL_FILE_NAME)), 0);
+    }
+
+    @Test
+    public void testSpoolSurvivesRestart() throws Exception {
+        StubSink sink = new StubSink();
+        sink.failures.set(Integer.MAX_VALUE);
+        AsyncAuditLogService service = start(sink, properties()
+            .add("flushIntervalMs", 10)
+            .add("spoolDirectory", spoolDirectory.toString()));
+        log(service, 0, 10);
+        waitFor(() -> service.getSpooledCount() == 10);
+        service.stop(null);
+        assertTrue(sink.events().isEmpty());
+
+        StubSink restarted = new StubSink();
+        AsyncAuditLogService restartedService = start(restarted, properties()
+            .add("flushIntervalMs", 10)
+            .add("spoolDirectory", spoolDirectory.toString()));
+        log(restartedService, 10, 15);
+        waitFor(() -> restarted.events().size() == 15);
+        restartedService.stop(null);
+
+        assertEquals(restarted.events(), events(0, 15));
+    }
+
+    @Test
+    public void testSpill() throws Exception {
+        StubSink sink = new StubSink();
+        sink.blocked = new CountDownLatch(1);
+        AsyncAuditLogService service = start(sink, properties()
+            .add("queueSize", 2)
+            .add("batchSize", 1)
+            .add("flushIntervalMs", 10)
+            .add("backpressure", "spill")
+            .add("spoolDirectory", spoolDirectory.toString()));
+        log(service, 0, 10);
+        assertTrue(service.getSpooledCount() >= 7);
+        assertEquals(service.getDroppedCount(), 0);
+        sink.blocked.countDown();
+        waitFor(() -> sink.events().size() == 10);
+        service.stop(null);
+
+        List<String> published = new ArrayList<>(sink.events());
+        Collections.sort(published);
+        assertEquals(published, events(0, 10));
+    }
+
+    @Test
+    public void testLoggingAfterStop() throws Exception {
+        StubSink sink = new StubSink();
+        AsyncAuditLogService service = start(sink, properties());
+        service.stop(null);
+        log(service, 0, 1);
+        assertTrue(sink.events().isEmpty());
+        assertEquals(service.getDroppedCount(), 1);
+    }
+
+    private JsonObjectBuilder properties() {
+        return Json.createObjectBuilder().add("enabled", true);
+    }
+
+    private AsyncAuditLogService start(StubSink sink, JsonObjectBuilder asyncProperties) throws Exception {
+        AsyncAuditLogService service = new AsyncAuditLogService(sink);
+        service.initialize(new PropertyGroup(Json.createObjectBuilder().add("async", asyncProperties).build()));
+        return service;
+    }
+
+    private void log(AsyncAuditLogService service, int from, int to) throws Exception {
+        for (int i = from; i < to; i++) {
+            AuditLogEntry entry = new AuditLogEntry("fhir-server", "fhir-create", null, null, "default");
+            entry.setContext(new Context());
+            entry.setDescription(event(i));
+            service.logEntry(entry);
+        }
+    }
+
+    private static String event(int i) {
+        return String.format("event-%03d", i);
+    }
+
+    private static List<String> events(int from, int to) {
+        List<String> events = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            events.add(event(i));
+        }
+        return events;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * An in-process sink which records the published batches and can be made to fail or block.
+     */
+    private static class StubSink implements AuditEventSink {
+        final List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger failures = new AtomicInteger();
+        volatile CountDownLatch blocked;
+        volatile boolean stopped;
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public void initialize(PropertyGroup auditLogProperties) {
+        }
+
+        @Override
+        public void stop(PropertyGroup auditLogProperties) {
+            stopped = true;
+        }
+
+        @Override
+        public void logEntry(AuditLogEntry logEntry) throws Exception {
+            publish(Collections.singletonList(serialize(logEntry)));
+        }
+
+        @Override
+        public String serialize(AuditLogEntry logEntry) {
+            return isLoggableOperation(logEntry) ? logEntry.getDescription() : null;
+        }
+
+        @Override
+        public void publish(List<String> events) throws Exception {
+            if (blocked != null) {
+                blocked.await(10, TimeUnit.SECONDS);
+            }
+            if (failures.getAndUpdate(n -> (n > 0) ? n - 1 : 0) > 0) {
+                throw new Exception("broker unavailable");
+            }
+            batches.add(new ArrayList<>(events));
+        }
+
+        List<String> events() {
+            List<String> events = new ArrayList<>();
+            synchronized (batches) {
+                for (List<String> batch : batches) {
+                    events.addAll(batch);
+                }
+            }
+            return events;
+        }
+    }
+}
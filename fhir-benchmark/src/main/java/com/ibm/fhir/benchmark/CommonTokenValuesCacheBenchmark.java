@@ -0,0 +1,130 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.ibm.fhir.persistence.jdbc.cache.CommonTokenValuesCacheImpl;
+import com.ibm.fhir.persistence.jdbc.cache.LRUCache;
+import com.ibm.fhir.persistence.jdbc.cache.StripedLRUCache;
+import com.ibm.fhir.persistence.jdbc.dto.CommonTokenValue;
+
+/**
+ * Measures contention on the shared token value cache under concurrent ingestion-like load:
+ * mostly lookups, with a small batch of updates applied after every few "transactions".
+ * The synchronized {@link LRUCache} benchmarks reproduce the locking used before the cache was striped.
+ */
+@Threads(32)
+public class CommonTokenValuesCacheBenchmark {
+    private static final int CODE_SYSTEMS = 100;
+    private static final int CACHE_SIZE = 10000;
+    private static final int KEYS = 20000;
+
+    @State(Scope.Benchmark)
+    public static class CacheState {
+        @Param({ "10" })
+        int updatePercent;
+
+        CommonTokenValue[] keys;
+        LRUCache<CommonTokenValue, Long> synchronizedCache;
+        StripedLRUCache<CommonTokenValue, Long> stripedCache;
+        CommonTokenValuesCacheImpl commonTokenValuesCache;
+
+        @Setup
+        public void setUp() {
+            keys = new CommonTokenValue[KEYS];
+            for (int i = 0; i < KEYS; i++) {
+                keys[i] = new CommonTokenValue(i % CODE_SYSTEMS, "value" + i);
+            }
+            synchronizedCache = new LRUCache<>(CACHE_SIZE);
+            stripedCache = new StripedLRUCache<>(CACHE_SIZE);
+            commonTokenValuesCache = new CommonTokenValuesCacheImpl(CODE_SYSTEMS, CACHE_SIZE);
+
+            LinkedHashMap<CommonTokenValue, Long> prefill = new LinkedHashMap<>();
+            for (int i = 0; i < CACHE_SIZE; i++) {
+                prefill.put(keys[i], (long) i);
+            }
+            synchronizedCache.update(prefill);
+            stripedCache.update(prefill);
+            for (int i = 0; i < CODE_SYSTEMS; i++) {
+                commonTokenValuesCache.addCodeSystem("system" + i, i);
+            }
+            prefill.forEach((key, id) -> commonTokenValuesCache.addTokenValue(key, id));
+            commonTokenValuesCache.updateSharedMaps();
+        }
+
+        LinkedHashMap<CommonTokenValue, Long> updates(ThreadLocalRandom random) {
+            LinkedHashMap<CommonTokenValue, Long> updates = new LinkedHashMap<>();
+            for (int i = 0; i < 10; i++) {
+                int index = random.nextInt(KEYS);
+                updates.put(keys[index], (long) index);
+            }
+            return updates;
+        }
+    }
+
+    @Benchmark
+    public Long synchronizedLRUCache(CacheState state) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextInt(100) < state.updatePercent) {
+            LinkedHashMap<CommonTokenValue, Long> updates = state.updates(random);
+            synchronized (state.synchronizedCache) {
+                state.synchronizedCache.update(updates);
+            }
+            return null;
+        }
+        synchronized (state.synchronizedCache) {
+            return state.synchronizedCache.get(state.keys[random.nextInt(KEYS)]);
+        }
+    }
+
+    @Benchmark
+    public Long stripedLRUCache(CacheState state) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextInt(100) < state.updatePercent) {
+            state.stripedCache.update(state.updates(random));
+            return null;
+        }
+        return state.stripedCache.get(state.keys[random.nextInt(KEYS)]);
+    }
+
+    @Benchmark
+    public Long commonTokenValuesCache(CacheState state) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int index = random.nextInt(KEYS);
+        Long result = state.commonTokenValuesCache.getCommonTokenValueId("system" + (index % CODE_SYSTEMS), "value" + index);
+        if (random.nextInt(100) < state.updatePercent) {
+            // end of "transaction"
+            if (result == null) {
+                state.commonTokenValuesCache.addTokenValue(state.keys[index], index);
+            }
+            state.commonTokenValuesCache.updateSharedMaps();
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options opt = new OptionsBuilder()
+                .include(CommonTokenValuesCacheBenchmark.class.getSimpleName())
+                .warmupIterations(3)
+                .measurementIterations(3)
+                .forks(1)
+                .build();
+        new Runner(opt).run();
+    }
+}
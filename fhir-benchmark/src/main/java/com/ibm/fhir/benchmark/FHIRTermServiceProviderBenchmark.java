@@ -0,0 +1,156 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.benchmark;
+
+import static com.ibm.fhir.model.type.String.string;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.ibm.fhir.model.resource.CodeSystem;
+import com.ibm.fhir.model.resource.CodeSystem.Concept;
+import com.ibm.fhir.model.type.Boolean;
+import com.ibm.fhir.model.type.Code;
+import com.ibm.fhir.model.type.Uri;
+import com.ibm.fhir.model.type.code.CodeSystemContentMode;
+import com.ibm.fhir.model.type.code.CodeSystemHierarchyMeaning;
+import com.ibm.fhir.model.type.code.PublicationStatus;
+import com.ibm.fhir.term.service.provider.ConceptStoreTermServiceProvider;
+import com.ibm.fhir.term.service.provider.DefaultTermServiceProvider;
+import com.ibm.fhir.term.spi.FHIRTermServiceProvider;
+import com.ibm.fhir.term.store.ConceptStoreWriter;
+
+/**
+ * Compares the in-memory {@link DefaultTermServiceProvider} with the disk-backed
+ * {@link ConceptStoreTermServiceProvider} on a generated code system with a balanced IS_A hierarchy.
+ */
+public class FHIRTermServiceProviderBenchmark {
+    private static final String URL = "http://ibm.com/fhir/CodeSystem/benchmark";
+    private static final String VERSION = "1.0.0";
+    private static final int BRANCHING_FACTOR = 10;
+
+    @State(Scope.Benchmark)
+    public static class FHIRTermServiceProviderState {
+        @Param({ "10000", "100000" })
+        public int size;
+
+        @Param({ "default", "conceptStore" })
+        public String provider;
+
+        Path directory;
+        CodeSystem codeSystem;
+        FHIRTermServiceProvider termServiceProvider;
+        List<Code> codes;
+        Concept root;
+        Concept branch;
+        Random random = new Random(42);
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            codeSystem = buildCodeSystem(size);
+            codes = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                codes.add(Code.of(code(i)));
+            }
+            if ("conceptStore".equals(provider)) {
+                directory = Files.createTempDirectory("concept-store-benchmark");
+                new ConceptStoreWriter(codeSystem).write(directory.resolve(ConceptStoreWriter.getFileName(URL, VERSION)));
+                termServiceProvider = new ConceptStoreTermServiceProvider(directory);
+                codeSystem = codeSystem.toBuilder().concept(new ArrayList<>()).content(CodeSystemContentMode.NOT_PRESENT).build();
+            } else {
+                termServiceProvider = new DefaultTermServiceProvider();
+            }
+            root = termServiceProvider.findConcept(codeSystem, codes.get(0));
+            branch = termServiceProvider.findConcept(codeSystem, codes.get(1));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            if (termServiceProvider instanceof ConceptStoreTermServiceProvider) {
+                ((ConceptStoreTermServiceProvider) termServiceProvider).close();
+                for (Path file : Files.newDirectoryStream(directory)) {
+                    Files.delete(file);
+                }
+                Files.delete(directory);
+            }
+        }
+
+        Code randomCode() {
+            return codes.get(random.nextInt(codes.size()));
+        }
+    }
+
+    @Benchmark
+    public Concept findConcept(FHIRTermServiceProviderState state) {
+        return state.termServiceProvider.findConcept(state.codeSystem, state.randomCode());
+    }
+
+    @Benchmark
+    public Concept subsumes(FHIRTermServiceProviderState state) {
+        return state.termServiceProvider.findConcept(state.codeSystem, state.branch, state.randomCode());
+    }
+
+    @Benchmark
+    public Set<Concept> closure(FHIRTermServiceProviderState state) {
+        return state.termServiceProvider.getConcepts(state.codeSystem, state.branch);
+    }
+
+    private static String code(int i) {
+        return "C" + i;
+    }
+
+    /**
+     * Build a code system in which concept i is the parent of the concepts i * BRANCHING_FACTOR + 1 to
+     * i * BRANCHING_FACTOR + BRANCHING_FACTOR.
+     */
+    private static CodeSystem buildCodeSystem(int size) {
+        return CodeSystem.builder()
+                .url(Uri.of(URL))
+                .version(string(VERSION))
+                .status(PublicationStatus.ACTIVE)
+                .caseSensitive(Boolean.TRUE)
+                .hierarchyMeaning(CodeSystemHierarchyMeaning.IS_A)
+                .content(CodeSystemContentMode.COMPLETE)
+                .concept(buildConcept(0, size))
+                .build();
+    }
+
+    private static Concept buildConcept(int i, int size) {
+        Concept.Builder builder = Concept.builder()
+                .code(Code.of(code(i)))
+                .display(string("Concept " + i));
+        for (int child = i * BRANCHING_FACTOR + 1; child <= i * BRANCHING_FACTOR + BRANCHING_FACTOR && child < size; child++) {
+            builder.concept(buildConcept(child, size));
+        }
+        return builder.build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options opt = new OptionsBuilder()
+                .include(FHIRTermServiceProviderBenchmark.class.getSimpleName())
+                .warmupIterations(2)
+                .measurementIterations(3)
+                .forks(1)
+                .build();
+        new Runner(opt).run();
+    }
+}
@@ -11,10 +11,12 @@ import java.util.Collection;
 import java.util.List;
 
 import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.Profiler;
 import org.openjdk.jmh.profile.StackProfiler;
 import org.openjdk.jmh.results.RunResult;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 import org.openjdk.jmh.runner.options.TimeValue;
@@ -28,6 +30,7 @@ public class FHIRBenchmarkRunner {
 
     private final Class<?> benchmarkClass;
     private final List<String> properties = new ArrayList<>();
+    private final List<Class<? extends Profiler>> profilers = new ArrayList<>();
 
     public FHIRBenchmarkRunner(Class<?> benchmarkClass) {
         this.benchmarkClass = benchmarkClass;
@@ -38,11 +41,19 @@ public class FHIRBenchmarkRunner {
         return this;
     }
 
+    /**
+     * Add a profiler (e.g. GCProfiler for allocation rates) in addition to the default StackProfiler
+     */
+    public FHIRBenchmarkRunner profiler(Class<? extends Profiler> profiler) {
+        profilers.add(profiler);
+        return this;
+    }
+
     /**
      * Run without overriding any parameters
      */
     public Collection<RunResult> run() throws RunnerException {
-        Options opt = new OptionsBuilder()
+        ChainedOptionsBuilder builder = new OptionsBuilder()
                 .include(".*" + benchmarkClass.getSimpleName() + ".*")
                 .jvmArgsPrepend("-Xms2g", "-Xmx2g")
                 .jvmArgsAppend(properties.toArray(new String[properties.size()]))
@@ -55,8 +66,11 @@ public class FHIRBenchmarkRunner {
                 .forks(2)
                 .threads(1)
 //              .mode(Mode.AverageTime)
-                .addProfiler(StackProfiler.class)
-                .build();
+                .addProfiler(StackProfiler.class);
+        for (Class<? extends Profiler> profiler : profilers) {
+            builder.addProfiler(profiler);
+        }
+        Options opt = builder.build();
         return new Runner(opt).run();
     }
 
@@ -64,7 +78,7 @@ public class FHIRBenchmarkRunner {
      * Run and override the 'exampleName' param with the passed fileName
      */
     public Collection<RunResult> run(String fileName) throws RunnerException {
-        Options opt = new OptionsBuilder()
+        ChainedOptionsBuilder builder = new OptionsBuilder()
                 .include(".*" + benchmarkClass.getSimpleName() + ".*")
                 .jvmArgsPrepend("-Xms4g", "-Xmx4g")
                 .jvmArgsAppend(properties.toArray(new String[properties.size()]))
@@ -77,8 +91,11 @@ public class FHIRBenchmarkRunner {
                 .forks(1)
 //              .mode(Mode.AverageTime)
                 .addProfiler(StackProfiler.class)
-                .param("exampleName", fileName)
-                .build();
+                .param("exampleName", fileName);
+        for (Class<? extends Profiler> profiler : profilers) {
+            builder.addProfiler(profiler);
+        }
+        Options opt = builder.build();
         return new Runner(opt).run();
     }
 
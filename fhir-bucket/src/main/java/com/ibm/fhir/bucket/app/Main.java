@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2020
+ * (C) Copyright IBM Corp. 2020, 2021
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -9,6 +9,8 @@ package com.ibm.fhir.bucket.app;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -35,6 +37,7 @@ import com.ibm.fhir.bucket.interop.InteropWorkload;
 import com.ibm.fhir.bucket.persistence.FhirBucketSchema;
 import com.ibm.fhir.bucket.persistence.MergeResourceTypes;
 import com.ibm.fhir.bucket.persistence.MergeResourceTypesPostgres;
+import com.ibm.fhir.bucket.reindex.DrivePartitionedReindexOperation;
 import com.ibm.fhir.bucket.reindex.DriveReindexOperation;
 import com.ibm.fhir.bucket.scanner.BundleBreakerResourceProcessor;
 import com.ibm.fhir.bucket.scanner.COSReader;
@@ -182,6 +185,8 @@ public class Main {
 
     private DriveReindexOperation driveReindexOperation;
 
+    private DrivePartitionedReindexOperation drivePartitionedReindexOperation;
+
     // the _tstamp parameter if we are executing $reindex custom operation calls. Disabled when null
     private String reindexTstampParam;
 
@@ -191,6 +196,15 @@ public class Main {
     // How many reindex calls should we run in parallel
     private int reindexConcurrentRequests = 1;
 
+    // Split the reindex into one range of logical resource ids per concurrent request
+    private boolean reindexPartitioned = false;
+
+    // Where the progress of a partitioned reindex is saved. Disabled when null
+    private String reindexCheckpointFile;
+
+    // The search parameters to reindex. All of them when empty
+    private List<String> reindexSearchParameters = new ArrayList<>();
+
     /**
      * Parse command line arguments
      * @param args
@@ -386,6 +400,23 @@ public class Main {
                     throw new IllegalArgumentException("missing value for --reindex-concurrent-requests");
                 }
                 break;
+            case "--reindex-partitioned":
+                this.reindexPartitioned = true;
+                break;
+            case "--reindex-checkpoint-file":
+                if (i < args.length + 1) {
+                    this.reindexCheckpointFile = args[++i];
+                } else {
+                    throw new IllegalArgumentException("missing value for --reindex-checkpoint-file");
+                }
+                break;
+            case "--reindex-search-parameter":
+                if (i < args.length + 1) {
+                    this.reindexSearchParameters.add(args[++i]);
+                } else {
+                    throw new IllegalArgumentException("missing value for --reindex-search-parameter");
+                }
+                break;
             default:
                 throw new IllegalArgumentException("Bad arg: " + arg);
             }
@@ -688,6 +719,10 @@ public class Main {
             driveReindexOperation.signalStop();
         }
 
+        if (drivePartitionedReindexOperation != null) {
+            drivePartitionedReindexOperation.signalStop();
+        }
+
         if (cmsPayerWorkload != null) {
             cmsPayerWorkload.signalStop();
         }
@@ -712,6 +747,10 @@ public class Main {
             driveReindexOperation.waitForStop();
         }
 
+        if (drivePartitionedReindexOperation != null) {
+            drivePartitionedReindexOperation.waitForStop();
+        }
+
         if (cmsPayerWorkload != null) {
             cmsPayerWorkload.waitForStop();
         }
@@ -830,8 +869,14 @@ public class Main {
         }
 
         // Optionally start the $reindex loops
-        if (this.reindexTstampParam != null) {
-            this.driveReindexOperation = new DriveReindexOperation(fhirClient, reindexConcurrentRequests, reindexTstampParam, reindexResourceCount);
+        if (this.reindexTstampParam != null && this.reindexPartitioned) {
+            Path checkpointFile = this.reindexCheckpointFile != null ? Paths.get(this.reindexCheckpointFile) : null;
+            this.drivePartitionedReindexOperation = new DrivePartitionedReindexOperation(fhirClient, reindexConcurrentRequests, reindexTstampParam, reindexResourceCount,
+                reindexSearchParameters, checkpointFile);
+            this.drivePartitionedReindexOperation.init();
+        } else if (this.reindexTstampParam != null) {
+            this.driveReindexOperation = new DriveReindexOperation(fhirClient, reindexConcurrentRequests, reindexTstampParam, reindexResourceCount,
+                reindexSearchParameters);
             this.driveReindexOperation.init();
         }
 
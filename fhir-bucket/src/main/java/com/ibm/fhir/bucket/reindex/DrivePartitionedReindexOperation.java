@@ -0,0 +1,403 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.bucket.reindex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.http.HttpStatus;
+
+import com.ibm.fhir.bucket.client.FHIRBucketClient;
+import com.ibm.fhir.bucket.client.FHIRBucketClientUtil;
+import com.ibm.fhir.bucket.client.FhirServerResponse;
+import com.ibm.fhir.model.resource.OperationOutcome;
+import com.ibm.fhir.model.resource.OperationOutcome.Issue;
+import com.ibm.fhir.model.resource.Parameters;
+import com.ibm.fhir.model.resource.Parameters.Parameter;
+import com.ibm.fhir.model.resource.Resource;
+
+/**
+ * Drives the $reindex custom operation in parallel over disjoint ranges of logical resource ids.
+ * The logical resources are split into one range per worker thread. Each worker walks its range
+ * in ascending order, one batch per call, passing the checkpoint returned by the previous call.
+ * Because the ranges don't overlap, the workers don't compete for the same rows. The progress of
+ * each range can be saved to a checkpoint file, so an interrupted reindex resumes where it stopped.
+ */
+public class DrivePartitionedReindexOperation {
+    private static final Logger logger = Logger.getLogger(DrivePartitionedReindexOperation.class.getName());
+
+    private static final String REINDEX_COMPLETE = "Reindex complete";
+
+    // the number of ranges, each processed by its own thread
+    private final int partitionCount;
+
+    // flag to indicate if we should be running
+    private volatile boolean running = true;
+
+    // thread pool for processing requests
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+
+    private final FHIRBucketClient fhirClient;
+
+    private final String url = "$reindex";
+
+    private final String tstampParam;
+
+    private final int resourceCountParam;
+
+    // The search parameters to reindex. All of them when empty
+    private final List<String> searchParameters;
+
+    // where the progress of each range is saved. Disabled when null
+    private final Path checkpointFile;
+
+    private final List<ReindexPartition> partitions = new ArrayList<>();
+
+    private Thread monitorThread;
+
+    /**
+     * Public constructor
+     * @param fhirClient the FHIR client
+     * @param partitionCount the number of ranges, each processed by its own thread
+     * @param tstampParam the reindex tstamp
+     * @param resourceCountParam the max number of resources reindexed by each call
+     * @param searchParameters the codes or canonical URLs of the search parameters to reindex. Reindexes all of them when empty
+     * @param checkpointFile where the progress of each range is saved. Can be null
+     */
+    public DrivePartitionedReindexOperation(FHIRBucketClient fhirClient, int partitionCount, String tstampParam, int resourceCountParam,
+        List<String> searchParameters, Path checkpointFile) {
+        this.fhirClient = fhirClient;
+        this.partitionCount = partitionCount;
+        this.tstampParam = tstampParam;
+        this.resourceCountParam = resourceCountParam;
+        this.searchParameters = searchParameters;
+        this.checkpointFile = checkpointFile;
+    }
+
+    /**
+     * The progress of one range of logical resource ids
+     */
+    private static class ReindexPartition {
+        // the range is (afterLogicalResourceId, toLogicalResourceId]. No upper bound when toLogicalResourceId is null
+        final long afterLogicalResourceId;
+        final Long toLogicalResourceId;
+
+        // the last logical resource id processed in the range
+        volatile long cursor;
+        volatile boolean done;
+
+        ReindexPartition(long afterLogicalResourceId, Long toLogicalResourceId, long cursor, boolean done) {
+            this.afterLogicalResourceId = afterLogicalResourceId;
+            this.toLogicalResourceId = toLogicalResourceId;
+            this.cursor = cursor;
+            this.done = done;
+        }
+
+        @Override
+        public String toString() {
+            return afterLogicalResourceId + "," + (toLogicalResourceId != null ? toLogicalResourceId : "") + "," + cursor + "," + done;
+        }
+
+        static ReindexPartition parse(String value) {
+            String[] parts = value.split(",", -1);
+            return new ReindexPartition(Long.parseLong(parts[0]), parts[1].isEmpty() ? null : Long.parseLong(parts[1]),
+                Long.parseLong(parts[2]), Boolean.parseBoolean(parts[3]));
+        }
+    }
+
+    /**
+     * Syntactic sugar for providing string values
+     * @param str
+     * @return
+     */
+    private static com.ibm.fhir.model.type.String str(String str) {
+        return com.ibm.fhir.model.type.String.of(str);
+    }
+
+    private static com.ibm.fhir.model.type.Integer intValue(int val) {
+        return com.ibm.fhir.model.type.Integer.of(val);
+    }
+
+    /**
+     * Start the main loop
+     */
+    public void init() {
+        if (!running) {
+            throw new IllegalStateException("Already shutdown");
+        }
+
+        logger.info("Starting monitor thread");
+        this.monitorThread = new Thread(() -> monitorLoop());
+        this.monitorThread.start();
+    }
+
+    /**
+     * The main monitor loop. Splits the logical resources into ranges, starts a worker
+     * for each range and saves the progress until all the ranges are done.
+     */
+    public void monitorLoop() {
+        if (!loadCheckpoint()) {
+            // Ask the server for the current max logical resource id. The empty range
+            // also acts as a probe to check that the operation works before we start
+            Long maxLogicalResourceId = null;
+            while (this.running && maxLogicalResourceId == null) {
+                logger.info("monitor probe - checking reindex operation");
+                Parameters result = callOnce(0, 0L);
+                if (result != null) {
+                    maxLogicalResourceId = Long.parseLong(getStringValue(result, "maxLogicalResourceId"));
+                } else {
+                    safeSleep(5000);
+                }
+            }
+            if (maxLogicalResourceId == null) {
+                return;
+            }
+
+            // The last range has no upper bound, so it also picks up resources created during the reindex
+            long size = maxLogicalResourceId / partitionCount + 1;
+            for (int i=0; i<partitionCount; i++) {
+                long after = i * size;
+                partitions.add(new ReindexPartition(after, i < partitionCount - 1 ? after + size : null, after, false));
+            }
+            saveCheckpoint();
+        }
+
+        logger.info("Test probe successful - starting " + partitions.size() + " range workers");
+        for (ReindexPartition partition : partitions) {
+            if (!this.running) {
+                break;
+            }
+            if (!partition.done) {
+                pool.execute(() -> callReindexOperation(partition));
+
+                // Slow down the ramp-up so we don't hit a new server with
+                // hundreds of requests in one go
+                safeSleep(1000);
+            }
+        }
+
+        while (this.running && partitions.stream().anyMatch(p -> !p.done)) {
+            safeSleep(5000);
+            saveCheckpoint();
+        }
+        saveCheckpoint();
+
+        if (partitions.stream().allMatch(p -> p.done)) {
+            logger.info("Reindex - all done");
+            this.running = false;
+        }
+    }
+
+    /**
+     * Repeatedly call the $reindex operation for the given range until the range is done
+     * @param partition
+     */
+    private void callReindexOperation(ReindexPartition partition) {
+        while (this.running && !partition.done) {
+            Parameters result = callOnce(partition.cursor, partition.toLogicalResourceId);
+            if (result == null) {
+                // nothing is lost, because the next call starts from the same checkpoint
+                safeSleep(5000);
+            } else if (isComplete(result)) {
+                if (partition.cursor == partition.afterLogicalResourceId) {
+                    partition.done = true;
+                    logger.info("Reindex range complete: (" + partition.afterLogicalResourceId + ", " + partition.toLogicalResourceId + "]");
+                } else {
+                    // Resources which were locked by another transaction when we passed them were
+                    // skipped, so go over the range once more to pick them up
+                    partition.cursor = partition.afterLogicalResourceId;
+                }
+            } else {
+                partition.cursor = Long.parseLong(getStringValue(result, "lastLogicalResourceId"));
+            }
+        }
+    }
+
+    /**
+     * Make one call to the FHIR server $reindex operation for the given range
+     * @param afterLogicalResourceId
+     * @param toLogicalResourceId
+     * @return the Parameters returned by the call, or null if the call failed
+     */
+    private Parameters callOnce(long afterLogicalResourceId, Long toLogicalResourceId) {
+        Parameters.Builder builder = Parameters.builder()
+                .parameter(Parameter.builder().name(str("tstamp")).value(str(tstampParam)).build())
+                .parameter(Parameter.builder().name(str("resourceCount")).value(intValue(resourceCountParam)).build())
+                .parameter(Parameter.builder().name(str("afterLogicalResourceId")).value(str(Long.toString(afterLogicalResourceId))).build());
+        if (toLogicalResourceId != null) {
+            builder.parameter(Parameter.builder().name(str("toLogicalResourceId")).value(str(Long.toString(toLogicalResourceId))).build());
+        }
+        for (String searchParameter : searchParameters) {
+            builder.parameter(Parameter.builder().name(str("searchParameter")).value(str(searchParameter)).build());
+        }
+        String requestBody = FHIRBucketClientUtil.resourceToString(builder.build());
+
+        long start = System.nanoTime();
+        FhirServerResponse response = fhirClient.post(url, requestBody);
+        long end = System.nanoTime();
+
+        double elapsed = (end - start) / 1e9;
+        logger.info(String.format("called $reindex (%d, %s]: %d %s [took %5.3f s]", afterLogicalResourceId, toLogicalResourceId,
+            response.getStatusCode(), response.getStatusMessage(), elapsed));
+
+        if (response.getStatusCode() == HttpStatus.SC_OK) {
+            Resource resource = response.getResource();
+            if (resource != null && resource.is(Parameters.class)) {
+                return (Parameters) resource;
+            } else if (resource != null) {
+                logger.severe("FHIR Server reindex response is not a Parameters resource: " + response.getStatusCode() + " " + response.getStatusMessage());
+                logger.severe("Actual response: " + FHIRBucketClientUtil.resourceToString(resource));
+            } else {
+                // this would be a bit weird
+                logger.severe("FHIR Server reindex operation returned no Parameters: " + response.getStatusCode() + " " + response.getStatusMessage());
+            }
+        } else {
+            logger.severe("FHIR Server reindex operation returned an error: " + response.getStatusCode() + " " + response.getStatusMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Check the result to see if the server is telling us the range is done
+     * @param result
+     * @return
+     */
+    private boolean isComplete(Parameters result) {
+        for (Parameter parameter : result.getParameter()) {
+            if ("return".equals(parameter.getName().getValue()) && parameter.getResource() != null
+                    && parameter.getResource().is(OperationOutcome.class)) {
+                List<Issue> issues = parameter.getResource().as(OperationOutcome.class).getIssue();
+                return issues.size() == 1 && issues.get(0).getDiagnostics() != null
+                        && REINDEX_COMPLETE.equals(issues.get(0).getDiagnostics().getValue());
+            }
+        }
+        return false;
+    }
+
+    private String getStringValue(Parameters result, String name) {
+        for (Parameter parameter : result.getParameter()) {
+            if (name.equals(parameter.getName().getValue()) && parameter.getValue() != null) {
+                return parameter.getValue().as(com.ibm.fhir.model.type.String.class).getValue();
+            }
+        }
+        throw new IllegalStateException("FHIR Server reindex response is missing parameter: " + name);
+    }
+
+    /**
+     * Resume from the checkpoint file if it was written for the same tstamp and number of ranges
+     * @return true if the ranges were loaded from the checkpoint file
+     */
+    private boolean loadCheckpoint() {
+        if (checkpointFile == null || !Files.exists(checkpointFile)) {
+            return false;
+        }
+
+        Properties checkpoint = new Properties();
+        try (InputStream in = Files.newInputStream(checkpointFile)) {
+            checkpoint.load(in);
+        } catch (IOException x) {
+            logger.log(Level.WARNING, "Unable to read reindex checkpoint file: " + checkpointFile, x);
+            return false;
+        }
+
+        if (!tstampParam.equals(checkpoint.getProperty("tstamp"))
+                || !Integer.toString(partitionCount).equals(checkpoint.getProperty("partitionCount"))) {
+            logger.info("Ignoring reindex checkpoint file for a different tstamp or number of ranges: " + checkpointFile);
+            return false;
+        }
+
+        for (int i=0; i<partitionCount; i++) {
+            partitions.add(ReindexPartition.parse(checkpoint.getProperty("partition." + i)));
+        }
+        logger.info("Resuming reindex from checkpoint file: " + checkpointFile);
+        return true;
+    }
+
+    /**
+     * Save the progress of each range to the checkpoint file. The file is replaced
+     * atomically, so a crash leaves either the old or the new checkpoint
+     */
+    private void saveCheckpoint() {
+        if (checkpointFile == null) {
+            return;
+        }
+
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty("tstamp", tstampParam);
+        checkpoint.setProperty("partitionCount", Integer.toString(partitionCount));
+        for (int i=0; i<partitions.size(); i++) {
+            checkpoint.setProperty("partition." + i, partitions.get(i).toString());
+        }
+
+        Path tmp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                checkpoint.store(out, "fhir-bucket reindex checkpoint: after,to,cursor,done");
+            }
+            Files.move(tmp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException x) {
+            logger.log(Level.WARNING, "Unable to write reindex checkpoint file: " + checkpointFile, x);
+        }
+    }
+
+    /**
+     * Sleep for the given number of ms, or until interrupted
+     * @param ms
+     */
+    protected void safeSleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException x) {
+            // NOP
+        }
+    }
+
+    /**
+     * Program is stopping, so tell the threads they can stop too
+     */
+    public void signalStop() {
+        this.running = false;
+
+        // make sure the pool doesn't start new work
+        pool.shutdown();
+    }
+
+    /**
+     * Wait until things are stopped
+     */
+    public void waitForStop() {
+        if (this.running) {
+            signalStop();
+        }
+
+        try {
+            pool.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException x) {
+            logger.warning("Wait for pool shutdown interrupted");
+        }
+
+        try {
+            // break any sleep inside the monitorThread
+            this.monitorThread.interrupt();
+            this.monitorThread.join();
+        } catch (InterruptedException x) {
+            logger.warning("Interrupted waiting for monitorThread completion");
+        }
+    }
+}
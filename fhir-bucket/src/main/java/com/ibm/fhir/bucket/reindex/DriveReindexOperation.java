@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2020
+ * (C) Copyright IBM Corp. 2020, 2021
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -59,18 +59,23 @@ public class DriveReindexOperation {
      * Public constructor
      * @param client the FHIR client
      * @param maxConcurrentRequests the number of threads to spin up
+     * @param tstampParam the reindex tstamp
+     * @param resourceCountParam the max number of resources reindexed by each call
+     * @param searchParameters the codes or canonical URLs of the search parameters to reindex. Reindexes all of them when empty
      */
-    public DriveReindexOperation(FHIRBucketClient fhirClient, int maxConcurrentRequests, String tstampParam, int resourceCountParam) {
+    public DriveReindexOperation(FHIRBucketClient fhirClient, int maxConcurrentRequests, String tstampParam, int resourceCountParam, List<String> searchParameters) {
         this.fhirClient = fhirClient;
         this.maxConcurrentRequests = maxConcurrentRequests;
 
-        Parameters parameters = Parameters.builder()
+        Parameters.Builder builder = Parameters.builder()
                 .parameter(Parameter.builder().name(str("tstamp")).value(str(tstampParam)).build())
-                .parameter(Parameter.builder().name(str("resourceCount")).value(intValue(resourceCountParam)).build())
-                .build();
+                .parameter(Parameter.builder().name(str("resourceCount")).value(intValue(resourceCountParam)).build());
+        for (String searchParameter : searchParameters) {
+            builder.parameter(Parameter.builder().name(str("searchParameter")).value(str(searchParameter)).build());
+        }
 
         // Serialize into the requestBody string used by all the threads
-        this.requestBody = FHIRBucketClientUtil.resourceToString(parameters);
+        this.requestBody = FHIRBucketClientUtil.resourceToString(builder.build());
 
         if (logger.isLoggable(Level.FINE)) {
             logger.fine("Reindex request parameters: " + requestBody);
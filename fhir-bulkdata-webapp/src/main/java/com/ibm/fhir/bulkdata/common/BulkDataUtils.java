@@ -6,15 +6,18 @@
 
 package com.ibm.fhir.bulkdata.common;
 
-import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.StringReader;
+import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.URLConnection;
 import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -47,8 +50,6 @@ import com.ibm.cloud.objectstorage.services.s3.model.UploadPartRequest;
 import com.ibm.cloud.objectstorage.services.s3.model.UploadPartResult;
 import com.ibm.fhir.bulkdata.jbatch.load.data.ImportTransientUserData;
 import com.ibm.fhir.exception.FHIROperationException;
-import com.ibm.fhir.model.format.Format;
-import com.ibm.fhir.model.parser.FHIRParser;
 import com.ibm.fhir.model.parser.exception.FHIRParserException;
 import com.ibm.fhir.model.resource.OperationOutcome;
 import com.ibm.fhir.model.resource.Resource;
@@ -142,18 +143,19 @@ public class BulkDataUtils {
     }
 
     /**
-     * @param resReader - the buffer reader to read FHIR resource from.
+     * @param resReader - the line reader to read FHIR resource from.
      * @param numOfProcessedLines - number of the already processed lines.
      * @param fhirResources - List holds the FHIR resources.
      * @param isSkipProcessed - if need to skip the processed lines before read.
+     * @param dataSource - the name of the data source, for logging.
      * @return - the number of parsing failures.
      * @throws Exception
      */
-    private static int getFhirResourceFromBufferReader(BufferedReader resReader, int numOfProcessedLines, List<Resource> fhirResources,
+    private static int getFhirResourceFromLineReader(OffsetLineReader resReader, int numOfProcessedLines, List<Resource> fhirResources,
             boolean isSkipProcessed, String dataSource) throws Exception {
-        int exported = 0;
         int lineRed = 0;
-        int parseFailures = 0;
+        int maxRead = adapter.getImportNumberOfFhirResourcesPerRead(null);
+        List<String> resLines = new ArrayList<>(maxRead);
 
         String resLine = null;
         do {
@@ -163,23 +165,40 @@ public class BulkDataUtils {
                 if (isSkipProcessed && lineRed <= numOfProcessedLines) {
                     continue;
                 }
-                try {
-                    fhirResources.add(FHIRParser.parser(Format.JSON).parse(new StringReader(resLine)));
-                    exported++;
+                resLines.add(resLine);
+            }
+        } while (resLine != null && resLines.size() < maxRead);
 
-                    // Per Code Review, this could be a trap if always compare ==.
-                    if (exported >= adapter.getImportNumberOfFhirResourcesPerRead(null)) {
-                        break;
-                    }
-                } catch (FHIRParserException e) {
-                    // Log and skip the invalid FHIR resource.
-                    parseFailures++;
-                    logger.log(Level.INFO, "getFhirResourceFromBufferReader: " + "Failed to parse line "
-                            + (numOfProcessedLines + exported + parseFailures) + " of [" + dataSource + "].", e);
-                    continue;
-                }
+        return parseFhirResources(resLines, numOfProcessedLines, fhirResources, dataSource);
+    }
+
+    /**
+     * Parse the lines of an import chunk in parallel, see {@link ParallelImportStage}.
+     *
+     * @param resLines - the ndjson lines to parse.
+     * @param numOfProcessedLines - number of the already processed lines, for logging.
+     * @param fhirResources - List holds the FHIR resources, in the order of the lines.
+     * @param dataSource - the name of the data source, for logging.
+     * @return - the number of parsing failures.
+     * @throws Exception
+     */
+    public static int parseFhirResources(List<String> resLines, long numOfProcessedLines, List<Resource> fhirResources, String dataSource)
+            throws Exception {
+        int parseFailures = 0;
+        List<ParallelImportStage.Result<Resource>> results = ParallelImportStage.parse(resLines);
+        for (int i = 0; i < results.size(); i++) {
+            ParallelImportStage.Result<Resource> result = results.get(i);
+            if (result.isSuccess()) {
+                fhirResources.add(result.getValue());
+            } else if (result.getException() instanceof FHIRParserException) {
+                // Log and skip the invalid FHIR resource.
+                parseFailures++;
+                logger.log(Level.INFO, "parseFhirResources: " + "Failed to parse line "
+                        + (numOfProcessedLines + i + 1) + " of [" + dataSource + "].", result.getException());
+            } else {
+                throw result.getException();
             }
-        } while (resLine != null);
+        }
         return parseFailures;
     }
 
@@ -193,9 +212,9 @@ public class BulkDataUtils {
             transientUserData.setInputStream(null);
         }
 
-        if (transientUserData.getBufferReader() != null) {
-            transientUserData.getBufferReader().close();
-            transientUserData.setBufferReader(null);
+        if (transientUserData.getLineReader() != null) {
+            transientUserData.getLineReader().close();
+            transientUserData.setLineReader(null);
         }
     }
 
@@ -204,31 +223,42 @@ public class BulkDataUtils {
      * @param bucketName - COS/S3 bucket name to read from.
      * @param itemName - COS/S3 object name to read from.
      * @param numOfLinesToSkip - number of lines to skip before read.
+     * @param numOfBytesToSkip - byte offset of the first line to read, lines are only skipped if this is 0.
      * @param fhirResources - List holds the FHIR resources.
      * @param transientUserData - transient user data for the chunk.
      * @return - number of parsing failures.
      * @throws Exception
      */
     public static int readFhirResourceFromObjectStore(AmazonS3 cosClient, String bucketName, String itemName,
-           int numOfLinesToSkip, List<Resource> fhirResources, ImportTransientUserData transientUserData) throws Exception {
+           int numOfLinesToSkip, long numOfBytesToSkip, List<Resource> fhirResources, ImportTransientUserData transientUserData) throws Exception {
         int parseFailures = 0;
         int retryTimes = IMPORT_RETRY_TIMES;
         do {
             try {
-                if (transientUserData.getBufferReader() == null) {
-                    S3Object item = cosClient.getObject(new GetObjectRequest(bucketName, itemName));
+                if (transientUserData.getLineReader() == null) {
+                    if (isEndOfImportFile(numOfBytesToSkip, transientUserData)) {
+                        break;
+                    }
+                    GetObjectRequest request = new GetObjectRequest(bucketName, itemName);
+                    if (numOfBytesToSkip > 0) {
+                        // Resume from the checkpoint with a ranged GET instead of reading through the processed lines.
+                        request.setRange(numOfBytesToSkip);
+                    }
+                    S3Object item = cosClient.getObject(request);
                     S3ObjectInputStream s3InStream = item.getObjectContent();
                     transientUserData.setInputStream(s3InStream);
-                    BufferedReader resReader = new BufferedReader(new InputStreamReader(s3InStream));
-                    transientUserData.setBufferReader(resReader);
-                    // Skip the already processed lines after opening the input stream for first read.
-                    parseFailures = getFhirResourceFromBufferReader(transientUserData.getBufferReader(), numOfLinesToSkip, fhirResources, true, itemName);
+                    transientUserData.setLineReader(new OffsetLineReader(s3InStream, numOfBytesToSkip));
+                    // Skip the already processed lines after opening the input stream for first read, if no byte offset is available.
+                    parseFailures += getFhirResourceFromLineReader(transientUserData.getLineReader(), numOfLinesToSkip, fhirResources, numOfBytesToSkip == 0, itemName);
                 } else {
-                    parseFailures = getFhirResourceFromBufferReader(transientUserData.getBufferReader(), numOfLinesToSkip, fhirResources, false, itemName);
+                    parseFailures += getFhirResourceFromLineReader(transientUserData.getLineReader(), numOfLinesToSkip, fhirResources, false, itemName);
                 }
                 break;
             } catch (Exception ex) {
-                // Prepare for retry, skip all the processed lines in previous batches and this batch.
+                // Prepare for retry, resume right after the last line which was read completely.
+                if (transientUserData.getLineReader() != null) {
+                    numOfBytesToSkip = transientUserData.getLineReader().getOffset();
+                }
                 numOfLinesToSkip = numOfLinesToSkip + fhirResources.size() + parseFailures;
                 cleanupTransientUserData(transientUserData, true);
                 logger.warning("readFhirResourceFromObjectStore: Error proccesing file [" + itemName + "] - " + ex.getMessage());
@@ -253,23 +283,26 @@ public class BulkDataUtils {
     /**
      * @param filePath - file path to the ndjson file.
      * @param numOfLinesToSkip - number of lines to skip before read.
+     * @param numOfBytesToSkip - byte offset of the first line to read, lines are only skipped if this is 0.
      * @param fhirResources - List holds the FHIR resources.
      * @param transientUserData - transient user data for the chunk.
      * @return - number of parsing failures.
      * @throws Exception
      */
-    public static int readFhirResourceFromLocalFile(String filePath, int numOfLinesToSkip, List<Resource> fhirResources,
+    public static int readFhirResourceFromLocalFile(String filePath, int numOfLinesToSkip, long numOfBytesToSkip, List<Resource> fhirResources,
             ImportTransientUserData transientUserData) throws Exception {
         int parseFailures = 0;
 
         try {
-            if (transientUserData.getBufferReader() == null) {
-                BufferedReader resReader = Files.newBufferedReader(Paths.get(filePath));
-                transientUserData.setBufferReader(resReader);
-                // Skip the already processed lines after opening the input stream for first read.
-                parseFailures = getFhirResourceFromBufferReader(transientUserData.getBufferReader(), numOfLinesToSkip, fhirResources, true, filePath);
+            if (transientUserData.getLineReader() == null) {
+                FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+                // Seek straight to the first unprocessed line.
+                channel.position(numOfBytesToSkip);
+                transientUserData.setLineReader(new OffsetLineReader(Channels.newInputStream(channel), numOfBytesToSkip));
+                // Skip the already processed lines after opening the input stream for first read, if no byte offset is available.
+                parseFailures = getFhirResourceFromLineReader(transientUserData.getLineReader(), numOfLinesToSkip, fhirResources, numOfBytesToSkip == 0, filePath);
             } else {
-                parseFailures = getFhirResourceFromBufferReader(transientUserData.getBufferReader(), numOfLinesToSkip, fhirResources, false, filePath);
+                parseFailures = getFhirResourceFromLineReader(transientUserData.getLineReader(), numOfLinesToSkip, fhirResources, false, filePath);
             }
         } catch (Exception ex) {
             // Clean up.
@@ -286,30 +319,46 @@ public class BulkDataUtils {
     /**
      * @param dataUrl - URL to the ndjson file.
      * @param numOfLinesToSkip - number of lines to skip before read.
+     * @param numOfBytesToSkip - byte offset of the first line to read, lines are only skipped if this is 0.
      * @param fhirResources - List holds the FHIR resources.
      * @param transientUserData - transient user data for the chunk.
      * @return - number of parsing failures.
      * @throws Exception
      */
-    public static int readFhirResourceFromHttps(String dataUrl, int numOfLinesToSkip, List<Resource> fhirResources,
+    public static int readFhirResourceFromHttps(String dataUrl, int numOfLinesToSkip, long numOfBytesToSkip, List<Resource> fhirResources,
             ImportTransientUserData transientUserData) throws Exception {
         int parseFailures = 0;
         int retryTimes = IMPORT_RETRY_TIMES;
         do {
             try {
-                if (transientUserData.getBufferReader() == null) {
-                    InputStream inputStream = new URL(dataUrl).openConnection().getInputStream();
+                if (transientUserData.getLineReader() == null) {
+                    if (isEndOfImportFile(numOfBytesToSkip, transientUserData)) {
+                        break;
+                    }
+                    URLConnection connection = new URL(dataUrl).openConnection();
+                    if (numOfBytesToSkip > 0) {
+                        // Resume from the checkpoint with a range request instead of reading through the processed lines.
+                        connection.setRequestProperty("Range", "bytes=" + numOfBytesToSkip + "-");
+                    }
+                    InputStream inputStream = connection.getInputStream();
                     transientUserData.setInputStream(inputStream);
-                    BufferedReader resReader = new BufferedReader(new InputStreamReader(inputStream));
-                    transientUserData.setBufferReader(resReader);
-                    // Skip the already processed lines after opening the input stream for first read.
-                    parseFailures = getFhirResourceFromBufferReader(transientUserData.getBufferReader(), numOfLinesToSkip, fhirResources, true, dataUrl);
+                    if (numOfBytesToSkip > 0 && !(connection instanceof HttpURLConnection
+                            && ((HttpURLConnection) connection).getResponseCode() == HttpURLConnection.HTTP_PARTIAL)) {
+                        // The server ignored the range, so discard the processed bytes without parsing them.
+                        skipFully(inputStream, numOfBytesToSkip);
+                    }
+                    transientUserData.setLineReader(new OffsetLineReader(inputStream, numOfBytesToSkip));
+                    // Skip the already processed lines after opening the input stream for first read, if no byte offset is available.
+                    parseFailures += getFhirResourceFromLineReader(transientUserData.getLineReader(), numOfLinesToSkip, fhirResources, numOfBytesToSkip == 0, dataUrl);
                 } else {
-                    parseFailures = getFhirResourceFromBufferReader(transientUserData.getBufferReader(), numOfLinesToSkip, fhirResources, false, dataUrl);
+                    parseFailures += getFhirResourceFromLineReader(transientUserData.getLineReader(), numOfLinesToSkip, fhirResources, false, dataUrl);
                 }
                 break;
             } catch (Exception ex) {
-                // Prepare for retry, skip all the processed lines in previous batches and this batch.
+                // Prepare for retry, resume right after the last line which was read completely.
+                if (transientUserData.getLineReader() != null) {
+                    numOfBytesToSkip = transientUserData.getLineReader().getOffset();
+                }
                 numOfLinesToSkip = numOfLinesToSkip + fhirResources.size() + parseFailures;
                 cleanupTransientUserData(transientUserData, true);
                 logger.warning("readFhirResourceFromHttps: Error proccesing file [" + dataUrl + "] - " + ex.getMessage());
@@ -325,6 +374,29 @@ public class BulkDataUtils {
         return parseFailures;
     }
 
+    /**
+     * Ranged reads past the end of an object are rejected by the server, so check the offset against the
+     * import file size (when known) before opening the stream.
+     */
+    private static boolean isEndOfImportFile(long numOfBytesToSkip, ImportTransientUserData transientUserData) {
+        return numOfBytesToSkip > 0 && transientUserData.getImportFileSize() > 0
+                && numOfBytesToSkip >= transientUserData.getImportFileSize();
+    }
+
+    private static void skipFully(InputStream inputStream, long numOfBytesToSkip) throws IOException {
+        long remaining = numOfBytesToSkip;
+        while (remaining > 0) {
+            long skipped = inputStream.skip(remaining);
+            if (skipped <= 0) {
+                if (inputStream.read() == -1) {
+                    break;
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
     /**
      * Validate the input resource and throw if there are validation errors
      *
@@ -334,7 +406,20 @@ public class BulkDataUtils {
      */
     public static List<OperationOutcome.Issue> validateInput(Resource resource)
             throws FHIRValidationException, FHIROperationException {
-        List<OperationOutcome.Issue> issues = FHIRValidator.validator().validate(resource);
+        return validateInput(FHIRValidator.validator(), resource);
+    }
+
+    /**
+     * Validate the input resource with the given validator and throw if there are validation errors
+     *
+     * @param validator
+     * @param resource
+     * @throws FHIRValidationException
+     * @throws FHIROperationException
+     */
+    public static List<OperationOutcome.Issue> validateInput(FHIRValidator validator, Resource resource)
+            throws FHIRValidationException, FHIROperationException {
+        List<OperationOutcome.Issue> issues = validator.validate(resource);
         if (!issues.isEmpty()) {
             boolean includesFailure = false;
             for (OperationOutcome.Issue issue : issues) {
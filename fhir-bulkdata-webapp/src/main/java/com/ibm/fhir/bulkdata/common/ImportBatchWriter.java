@@ -0,0 +1,52 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.bulkdata.common;
+
+import java.util.List;
+import java.util.logging.Logger;
+
+import com.ibm.fhir.exception.FHIROperationException;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.persistence.FHIRPersistence;
+import com.ibm.fhir.persistence.SingleResourceResult;
+import com.ibm.fhir.persistence.context.FHIRPersistenceContext;
+
+/**
+ * Writes the resources of an $import chunk with a single {@link FHIRPersistence#createOrUpdateBatch} call.
+ *
+ * <p>A resource which can't be written on its own is reported as a failed result by the batch call. When the batch
+ * call itself fails, some of the resources may already have been written in the chunk's transaction, and on some
+ * databases the transaction can no longer be used. The resources are therefore not written again one at a time;
+ * the error is rethrown so that the chunk fails and its transaction is rolled back by the batch framework.
+ */
+public class ImportBatchWriter {
+    private static final Logger logger = Logger.getLogger(ImportBatchWriter.class.getName());
+
+    private ImportBatchWriter() {
+        // No Operation
+    }
+
+    /**
+     * Create or update each of the given resources.
+     *
+     * @param persistence
+     * @param context
+     * @param resources
+     * @return the results, in the same order as the resources. A resource which could not be written has a result
+     *         with success false and an OperationOutcome describing the error
+     * @throws FHIROperationException if the batch failed; the chunk's transaction must be rolled back
+     */
+    public static List<SingleResourceResult<Resource>> createOrUpdate(FHIRPersistence persistence, FHIRPersistenceContext context,
+            List<Resource> resources) throws FHIROperationException {
+        try {
+            return persistence.createOrUpdateBatch(context, resources);
+        } catch (FHIROperationException e) {
+            logger.warning("Batch write of " + resources.size() + " resources failed; error: " + e.getMessage());
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.bulkdata.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads UTF-8 lines from an NDJSON input stream while keeping track of the byte offset
+ * of the next unread line, so that an import can be checkpointed and later resumed by
+ * seeking directly to that offset instead of re-reading all of the preceding lines.
+ */
+public class OffsetLineReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream(BUFFER_SIZE);
+    private int pos = 0;
+    private int limit = 0;
+
+    // Byte offset (in the underlying file or object) of the next unread line.
+    private long offset;
+
+    /**
+     * @param in - the input stream, already positioned at startOffset.
+     * @param startOffset - the byte offset in the file or object at which the stream starts.
+     */
+    public OffsetLineReader(InputStream in, long startOffset) {
+        this.in = in;
+        this.offset = startOffset;
+    }
+
+    /**
+     * Read the next line, without the line terminator ("\n" or "\r\n").
+     *
+     * @return the line, or null if the end of the stream has been reached.
+     * @throws IOException
+     */
+    public String readLine() throws IOException {
+        line.reset();
+        long consumed = 0;
+        boolean eol = false;
+        while (!eol) {
+            if (pos >= limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                pos = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    if (consumed == 0) {
+                        return null;
+                    }
+                    break;
+                }
+            }
+            int start = pos;
+            while (pos < limit && buffer[pos] != '\n') {
+                pos++;
+            }
+            line.write(buffer, start, pos - start);
+            consumed += pos - start;
+            if (pos < limit) {
+                // skip over the '\n'
+                pos++;
+                consumed++;
+                eol = true;
+            }
+        }
+
+        // The offset only moves once a complete line has been read, so a failure part way
+        // through a line leaves it pointing at the start of that line.
+        offset += consumed;
+
+        byte[] bytes = line.toByteArray();
+        int length = bytes.length;
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the byte offset of the next unread line.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.bulkdata.common;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import com.ibm.fhir.exception.FHIRException;
+import com.ibm.fhir.model.format.Format;
+import com.ibm.fhir.model.parser.FHIRParser;
+import com.ibm.fhir.model.resource.OperationOutcome.Issue;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.operation.bulkdata.config.ConfigurationFactory;
+import com.ibm.fhir.validation.FHIRValidator;
+
+/**
+ * Parses and validates the resources of an $import chunk in parallel on a bounded fork-join pool
+ * which is shared by all the import partitions.
+ *
+ * <p>FHIRJsonParser is not thread-safe, so each worker thread uses its own parser and validator instance.
+ * Results are returned in the same order as the input, so the writer sees the resources in file order.
+ */
+public class ParallelImportStage {
+    private static final int PARALLELISM = ConfigurationFactory.getInstance().getCoreImportParallelism();
+
+    // No pool is created when the parallelism is 1; the work is then done on the calling thread.
+    private static final ForkJoinPool POOL = PARALLELISM > 1 ? new ForkJoinPool(PARALLELISM) : null;
+
+    private static final ThreadLocal<FHIRParser> PARSER = ThreadLocal.withInitial(() -> FHIRParser.parser(Format.JSON));
+    private static final ThreadLocal<FHIRValidator> VALIDATOR = ThreadLocal.withInitial(FHIRValidator::validator);
+
+    private ParallelImportStage() {
+        // No Operation
+    }
+
+    /**
+     * Parse each NDJSON line into a resource.
+     *
+     * @param lines
+     * @return the parse results, in the same order as the lines
+     * @throws FHIRException if the parallel stage could not be run
+     */
+    public static List<Result<Resource>> parse(List<String> lines) throws FHIRException {
+        return process(lines, line -> PARSER.get().parse(new StringReader(line)));
+    }
+
+    /**
+     * Validate each resource, see {@link BulkDataUtils#validateInput(FHIRValidator, Resource)}.
+     *
+     * @param resources
+     * @return the validation results, in the same order as the resources
+     * @throws FHIRException if the parallel stage could not be run
+     */
+    public static List<Result<List<Issue>>> validate(List<Resource> resources) throws FHIRException {
+        return process(resources, resource -> BulkDataUtils.validateInput(VALIDATOR.get(), resource));
+    }
+
+    private static <T, R> List<Result<R>> process(List<T> items, Task<T, R> task) throws FHIRException {
+        if (POOL == null || items.size() < 2) {
+            List<Result<R>> results = new ArrayList<>(items.size());
+            for (T item : items) {
+                results.add(run(task, item));
+            }
+            return results;
+        }
+
+        try {
+            // An ordered parallel stream keeps the encounter order when collected.
+            return POOL.submit(() -> items.parallelStream()
+                        .map(item -> run(task, item))
+                        .collect(Collectors.toList()))
+                    .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FHIRException("Interrupted while processing the import chunk", e);
+        } catch (ExecutionException e) {
+            throw new FHIRException("Failed to process the import chunk", e.getCause());
+        }
+    }
+
+    private static <T, R> Result<R> run(Task<T, R> task, T item) {
+        long startTime = System.currentTimeMillis();
+        try {
+            R value = task.apply(item);
+            return new Result<>(value, null, startTime, System.currentTimeMillis());
+        } catch (Exception e) {
+            return new Result<>(null, e, startTime, System.currentTimeMillis());
+        }
+    }
+
+    @FunctionalInterface
+    private interface Task<T, R> {
+        R apply(T item) throws Exception;
+    }
+
+    /**
+     * The outcome of processing a single item; either a value or the exception which was thrown.
+     */
+    public static class Result<R> {
+        private final R value;
+        private final Exception exception;
+        private final long startTime;
+        private final long endTime;
+
+        private Result(R value, Exception exception, long startTime, long endTime) {
+            this.value = value;
+            this.exception = exception;
+            this.startTime = startTime;
+            this.endTime = endTime;
+        }
+
+        public boolean isSuccess() {
+            return exception == null;
+        }
+
+        public R getValue() {
+            return value;
+        }
+
+        public Exception getException() {
+            return exception;
+        }
+
+        public long getStartTime() {
+            return startTime;
+        }
+
+        public long getEndTime() {
+            return endTime;
+        }
+    }
+}
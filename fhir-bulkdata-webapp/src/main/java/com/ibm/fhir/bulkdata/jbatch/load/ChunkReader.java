@@ -140,7 +140,7 @@ public class ChunkReader extends AbstractItemReader {
         wrapper.registerTransient(chunkData);
 
         long readStartTimeInMilliSeconds = System.currentTimeMillis();
-        wrapper.readResources(numOfLinesToSkip, ctx.getImportPartitionWorkitem());
+        wrapper.readResources(numOfLinesToSkip, chunkData.getNumOfProcessedBytes(), ctx.getImportPartitionWorkitem());
 
         long numOfParseFailures = wrapper.getNumberOfParseFailures();
         long numOfLoaded = wrapper.getNumberOfLoaded();
@@ -149,6 +149,7 @@ public class ChunkReader extends AbstractItemReader {
 
         chunkData.addToTotalReadMilliSeconds(System.currentTimeMillis() - readStartTimeInMilliSeconds);
         chunkData.setNumOfParseFailures(numOfParseFailures);
+        chunkData.setNumOfReadBytes(wrapper.getNumberOfReadBytes());
 
         if (logger.isLoggable(Level.FINE)) {
             logger.fine("readItem: loaded '" + numOfLoaded + "' '" + ctx.getPartitionResourceType() + "' from '" + ctx.getImportPartitionWorkitem() + "'");
@@ -8,6 +8,7 @@ package com.ibm.fhir.bulkdata.jbatch.load;
 
 import java.io.Serializable;
 import java.sql.Date;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -26,7 +27,8 @@ import javax.inject.Inject;
 import javax.ws.rs.core.Response;
 
 import com.ibm.fhir.bulkdata.audit.BulkAuditLogger;
-import com.ibm.fhir.bulkdata.common.BulkDataUtils;
+import com.ibm.fhir.bulkdata.common.ImportBatchWriter;
+import com.ibm.fhir.bulkdata.common.ParallelImportStage;
 import com.ibm.fhir.bulkdata.jbatch.context.BatchContextAdapter;
 import com.ibm.fhir.bulkdata.jbatch.load.data.ImportTransientUserData;
 import com.ibm.fhir.bulkdata.provider.Provider;
@@ -36,6 +38,7 @@ import com.ibm.fhir.exception.FHIROperationException;
 import com.ibm.fhir.model.format.Format;
 import com.ibm.fhir.model.generator.FHIRGenerator;
 import com.ibm.fhir.model.resource.OperationOutcome;
+import com.ibm.fhir.model.resource.OperationOutcome.Issue;
 import com.ibm.fhir.model.resource.Resource;
 import com.ibm.fhir.model.util.FHIRUtil;
 import com.ibm.fhir.operation.bulkdata.config.ConfigurationAdapter;
@@ -44,6 +47,7 @@ import com.ibm.fhir.operation.bulkdata.model.type.BulkDataContext;
 import com.ibm.fhir.operation.bulkdata.model.type.OperationFields;
 import com.ibm.fhir.operation.bulkdata.model.type.StorageType;
 import com.ibm.fhir.persistence.FHIRPersistence;
+import com.ibm.fhir.persistence.SingleResourceResult;
 import com.ibm.fhir.persistence.context.FHIRPersistenceContext;
 import com.ibm.fhir.persistence.context.FHIRPersistenceContextFactory;
 import com.ibm.fhir.persistence.helper.FHIRPersistenceHelper;
@@ -120,17 +124,25 @@ public class ChunkWriter extends AbstractItemWriter {
             // Validate the resources first if required.
             if (adapter.shouldStorageProviderValidateResources(ctx.getSource())) {
                 long validationStartTimeInMilliSeconds = System.currentTimeMillis();
+                List<Resource> resourcesToValidate = new ArrayList<>();
                 for (Object objResJsonList : arg0) {
                     @SuppressWarnings("unchecked")
                     List<Resource> fhirResourceList = (List<Resource>) objResJsonList;
+                    resourcesToValidate.addAll(fhirResourceList);
+                }
 
-                    for (Resource fhirResource : fhirResourceList) {
-                        long startTime = System.currentTimeMillis();
-                        javax.ws.rs.core.Response.Status status = javax.ws.rs.core.Response.Status.PRECONDITION_FAILED;
-                        try {
-                            BulkDataUtils.validateInput(fhirResource);
+                // The resources are validated in parallel, and the results are handled in order on this thread.
+                List<ParallelImportStage.Result<List<Issue>>> validationResults = ParallelImportStage.validate(resourcesToValidate);
+                for (int i = 0; i < resourcesToValidate.size(); i++) {
+                    Resource fhirResource = resourcesToValidate.get(i);
+                    ParallelImportStage.Result<List<Issue>> validationResult = validationResults.get(i);
+                    javax.ws.rs.core.Response.Status status = javax.ws.rs.core.Response.Status.PRECONDITION_FAILED;
+                    try {
+                        if (validationResult.isSuccess()) {
                             status = javax.ws.rs.core.Response.Status.OK;
-                        } catch (FHIRValidationException | FHIROperationException e) {
+                        } else if (validationResult.getException() instanceof FHIRValidationException
+                                || validationResult.getException() instanceof FHIROperationException) {
+                            Exception e = validationResult.getException();
                             logger.warning("Failed to validate '" + fhirResource.getId() + "' due to error: " + e.getMessage());
                             failedNum++;
                             failValidationIds.add(fhirResource.getId());
@@ -140,12 +152,14 @@ public class ChunkWriter extends AbstractItemWriter {
                                 FHIRGenerator.generator(Format.JSON).generate(operationOutCome, chunkData.getBufferStreamForImportError());
                                 chunkData.getBufferStreamForImportError().write(NDJSON_LINESEPERATOR);
                             }
-                        } finally {
-                            if (auditLogger.shouldLog()) {
-                                long endTime = System.currentTimeMillis();
-                                String location = "@source:" + ctx.getSource() + "/" + ctx.getImportPartitionWorkitem();
-                                auditLogger.logValidateOnImport(fhirResource, new Date(startTime), new Date(endTime), status, location, ctx.getUsers());
-                            }
+                        } else {
+                            throw validationResult.getException();
+                        }
+                    } finally {
+                        if (auditLogger.shouldLog()) {
+                            String location = "@source:" + ctx.getSource() + "/" + ctx.getImportPartitionWorkitem();
+                            auditLogger.logValidateOnImport(fhirResource, new Date(validationResult.getStartTime()), new Date(validationResult.getEndTime()),
+                                    status, location, ctx.getUsers());
                         }
                     }
                 }
@@ -166,53 +180,50 @@ public class ChunkWriter extends AbstractItemWriter {
                     && (StorageType.AWSS3.equals(type) || StorageType.IBMCOS.equals(type));
 
             try {
+                // Write all the resources which passed validation in a single batch
+                List<Resource> batch = new ArrayList<>();
                 for (Object objResJsonList : arg0) {
                     @SuppressWarnings("unchecked")
                     List<Resource> fhirResourceList = (List<Resource>) objResJsonList;
 
                     for (Resource fhirResource : fhirResourceList) {
-                        try {
-                            String id = fhirResource.getId();
-                            processedNum++;
-                            // Skip the resources which failed the validation
-                            if (failValidationIds.contains(id)) {
-                                continue;
-                            }
-                            OperationOutcome operationOutcome;
-                            if (id == null) {
-                                long startTime = System.currentTimeMillis();
-                                operationOutcome =
-                                        fhirPersistence.create(persistenceContext, fhirResource).getOutcome();
-                                if (auditLogger.shouldLog()) {
-                                    long endTime = System.currentTimeMillis();
-                                    String location = "@source:" + ctx.getSource() + "/" + ctx.getImportPartitionWorkitem();
-                                    auditLogger.logCreateOnImport(fhirResource, new Date(startTime), new Date(endTime), Response.Status.CREATED, location, "BulkDataOperator");
-                                }
-                            } else {
-                                long startTime = System.currentTimeMillis();
-                                operationOutcome =
-                                        fhirPersistence.update(persistenceContext, id, fhirResource).getOutcome();
-                                if (auditLogger.shouldLog()) {
-                                    long endTime = System.currentTimeMillis();
-                                    String location = "@source:" + ctx.getSource() + "/" + ctx.getImportPartitionWorkitem();
-                                    auditLogger.logUpdateOnImport(fhirResource, null, new Date(startTime), new Date(endTime), Response.Status.OK, location, "BulkDataOperator");
-                                }
-                            }
+                        processedNum++;
+                        // Skip the resources which failed the validation
+                        if (!failValidationIds.contains(fhirResource.getId())) {
+                            batch.add(fhirResource);
+                        }
+                    }
+                }
 
-                            succeededNum++;
-                            if (collectImportOperationOutcomes && operationOutcome != null) {
-                                FHIRGenerator.generator(Format.JSON).generate(operationOutcome, chunkData.getBufferStreamForImport());
-                                chunkData.getBufferStreamForImport().write(NDJSON_LINESEPERATOR);
-                            }
-                        } catch (FHIROperationException e) {
-                            logger.warning("Failed to import '" + fhirResource.getId() + "' due to error: " + e.getMessage());
-                            failedNum++;
-                            if (collectImportOperationOutcomes) {
-                                OperationOutcome operationOutCome = FHIRUtil.buildOperationOutcome(e, false);
-                                FHIRGenerator.generator(Format.JSON).generate(operationOutCome, chunkData.getBufferStreamForImportError());
-                                chunkData.getBufferStreamForImportError().write(NDJSON_LINESEPERATOR);
+                long startTime = System.currentTimeMillis();
+                List<SingleResourceResult<Resource>> results = ImportBatchWriter.createOrUpdate(fhirPersistence, persistenceContext, batch);
+                long endTime = System.currentTimeMillis();
+
+                String location = "@source:" + ctx.getSource() + "/" + ctx.getImportPartitionWorkitem();
+                for (int i = 0; i < batch.size(); i++) {
+                    Resource fhirResource = batch.get(i);
+                    SingleResourceResult<Resource> result = results.get(i);
+                    OperationOutcome operationOutcome = result.getOutcome();
+                    if (result.isSuccess()) {
+                        succeededNum++;
+                        if (auditLogger.shouldLog()) {
+                            if (fhirResource.getId() == null) {
+                                auditLogger.logCreateOnImport(result.getResource(), new Date(startTime), new Date(endTime), Response.Status.CREATED, location, "BulkDataOperator");
+                            } else {
+                                auditLogger.logUpdateOnImport(result.getResource(), null, new Date(startTime), new Date(endTime), Response.Status.OK, location, "BulkDataOperator");
                             }
                         }
+                        if (collectImportOperationOutcomes && operationOutcome != null) {
+                            FHIRGenerator.generator(Format.JSON).generate(operationOutcome, chunkData.getBufferStreamForImport());
+                            chunkData.getBufferStreamForImport().write(NDJSON_LINESEPERATOR);
+                        }
+                    } else {
+                        logger.warning("Failed to import '" + fhirResource.getId() + "'");
+                        failedNum++;
+                        if (collectImportOperationOutcomes && operationOutcome != null) {
+                            FHIRGenerator.generator(Format.JSON).generate(operationOutcome, chunkData.getBufferStreamForImportError());
+                            chunkData.getBufferStreamForImportError().write(NDJSON_LINESEPERATOR);
+                        }
                     }
                 }
             } finally {
@@ -224,11 +235,13 @@ public class ChunkWriter extends AbstractItemWriter {
 
             chunkData.addToTotalWriteMilliSeconds(System.currentTimeMillis() - writeStartTimeInMilliSeconds);
             chunkData.addToNumOfProcessedResources(processedNum + chunkData.getNumOfParseFailures());
+            chunkData.addToNumOfProcessedBytes(chunkData.getNumOfReadBytes());
             chunkData.addToNumOfImportedResources(succeededNum);
             chunkData.addToNumOfImportFailures(failedNum + chunkData.getNumOfParseFailures());
 
-            // Reset NumOfParseFailures for next batch.
+            // Reset NumOfParseFailures and NumOfReadBytes for next batch.
             chunkData.setNumOfParseFailures(0);
+            chunkData.setNumOfReadBytes(0);
             if (logger.isLoggable(Level.FINE)) {
                 logger.fine("writeItems: processed '" + processedNum + "' '" + ctx.getPartitionResourceType() + "' from '" + chunkData.getImportPartitionWorkitem()
                         + "'");
@@ -21,6 +21,8 @@ public class ImportCheckPointData implements Serializable {
 
     // Values for metrics calculation.
     protected long numOfProcessedResources = 0;
+    // Byte offset of the first unprocessed line in the import file, 0 if unknown.
+    protected long numOfProcessedBytes = 0;
     protected long numOfImportedResources = 0;
     protected long numOfImportFailures = 0;
     protected long totalReadMilliSeconds = 0;
@@ -35,6 +37,8 @@ public class ImportCheckPointData implements Serializable {
 
     // Parsing failures in current batch.
     protected long numOfParseFailures = 0;
+    // Bytes read from the import file in current batch.
+    protected long numOfReadBytes = 0;
     // Fhir resource type processed in this partition.
     protected String importPartitionResourceType;
 
@@ -76,6 +80,18 @@ public class ImportCheckPointData implements Serializable {
         this.numOfProcessedResources += numOfProcessedResources;
     }
 
+    public long getNumOfProcessedBytes() {
+        return numOfProcessedBytes;
+    }
+
+    public void setNumOfProcessedBytes(long numOfProcessedBytes) {
+        this.numOfProcessedBytes = numOfProcessedBytes;
+    }
+
+    public void addToNumOfProcessedBytes(long numOfProcessedBytes) {
+        this.numOfProcessedBytes += numOfProcessedBytes;
+    }
+
     public long getNumOfImportedResources() {
         return numOfImportedResources;
     }
@@ -116,6 +132,7 @@ public class ImportCheckPointData implements Serializable {
         return ImportCheckPointData.Builder.builder()
                 .importPartitionWorkitem(userData.getImportPartitionWorkitem())
                 .numOfProcessedResources(userData.getNumOfProcessedResources())
+                .numOfProcessedBytes(userData.getNumOfProcessedBytes())
                 .importPartitionResourceType(userData.getImportPartitionResourceType())
                 .numOfImportedResources(userData.getNumOfImportedResources())
                 .numOfImportFailures(userData.getNumOfImportFailures())
@@ -195,6 +212,14 @@ public class ImportCheckPointData implements Serializable {
         this.numOfParseFailures += numOfParseFailures;
     }
 
+    public long getNumOfReadBytes() {
+        return numOfReadBytes;
+    }
+
+    public void setNumOfReadBytes(long numOfReadBytes) {
+        this.numOfReadBytes = numOfReadBytes;
+    }
+
     public long getTotalReadMilliSeconds() {
         return totalReadMilliSeconds;
     }
@@ -251,6 +276,7 @@ public class ImportCheckPointData implements Serializable {
 
         protected String importPartitionWorkitem;
         protected long numOfProcessedResources;
+        protected long numOfProcessedBytes;
         protected String importPartitionResourceType;
         protected long numOfImportedResources;
         protected long numOfImportFailures;
@@ -286,6 +312,11 @@ public class ImportCheckPointData implements Serializable {
             return this;
         }
 
+        public Builder numOfProcessedBytes(long numOfProcessedBytes) {
+            this.numOfProcessedBytes = numOfProcessedBytes;
+            return this;
+        }
+
         public Builder importPartitionResourceType(String importPartitionResourceType) {
             this.importPartitionResourceType = importPartitionResourceType;
             return this;
@@ -370,6 +401,7 @@ public class ImportCheckPointData implements Serializable {
             ImportCheckPointData importCheckPointData = new ImportCheckPointData();
             importCheckPointData.importPartitionWorkitem = this.importPartitionWorkitem;
             importCheckPointData.numOfProcessedResources = this.numOfProcessedResources;
+            importCheckPointData.numOfProcessedBytes = this.numOfProcessedBytes;
             importCheckPointData.importPartitionResourceType = this.importPartitionResourceType;
             importCheckPointData.numOfImportedResources = this.numOfImportedResources;
             importCheckPointData.numOfImportFailures = this.numOfImportFailures;
@@ -393,6 +425,7 @@ public class ImportCheckPointData implements Serializable {
     @Override
     public String toString() {
         return "ImportCheckPointData [importPartitionWorkitem=" + importPartitionWorkitem + ", numOfProcessedResources=" + numOfProcessedResources
+                + ", numOfProcessedBytes=" + numOfProcessedBytes
                 + ", numOfImportedResources=" + numOfImportedResources + ", numOfImportFailures=" + numOfImportFailures + ", totalReadMilliSeconds="
                 + totalReadMilliSeconds + ", totalWriteMilliSeconds=" + totalWriteMilliSeconds + ", totalValidationMilliSeconds=" + totalValidationMilliSeconds
                 + ", importFileSize=" + importFileSize + ", inFlyRateBeginMilliSeconds=" + inFlyRateBeginMilliSeconds + ", numOfToBeImported="
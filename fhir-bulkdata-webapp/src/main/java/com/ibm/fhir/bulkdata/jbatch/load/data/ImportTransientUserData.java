@@ -6,12 +6,12 @@
 
 package com.ibm.fhir.bulkdata.jbatch.load.data;
 
-import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.util.List;
 
 import com.ibm.cloud.objectstorage.services.s3.model.PartETag;
+import com.ibm.fhir.bulkdata.common.OffsetLineReader;
 
 public class ImportTransientUserData extends ImportCheckPointData {
 
@@ -24,7 +24,7 @@ public class ImportTransientUserData extends ImportCheckPointData {
     private ByteArrayOutputStream bufferStreamForImport = new ByteArrayOutputStream();
 
     private InputStream inputStream = null;
-    private BufferedReader bufferReader = null;
+    private OffsetLineReader lineReader = null;
 
     protected ImportTransientUserData() {
         super();
@@ -46,12 +46,12 @@ public class ImportTransientUserData extends ImportCheckPointData {
         this.inputStream = inputStream;
     }
 
-    public BufferedReader getBufferReader() {
-        return bufferReader;
+    public OffsetLineReader getLineReader() {
+        return lineReader;
     }
 
-    public void setBufferReader(BufferedReader bufferReader) {
-        this.bufferReader = bufferReader;
+    public void setLineReader(OffsetLineReader lineReader) {
+        this.lineReader = lineReader;
     }
 
     /**
@@ -64,6 +64,7 @@ public class ImportTransientUserData extends ImportCheckPointData {
         return ImportTransientUserData.Builder.builder()
                 .importPartitionWorkitem(importCheckPointData.importPartitionWorkitem)
                 .numOfProcessedResources(importCheckPointData.numOfProcessedResources)
+                .numOfProcessedBytes(importCheckPointData.numOfProcessedBytes)
                 .importPartitionResourceType(importCheckPointData.importPartitionResourceType)
                 .numOfImportedResources(importCheckPointData.numOfImportedResources)
                 .numOfImportFailures(importCheckPointData.numOfImportFailures)
@@ -99,6 +100,11 @@ public class ImportTransientUserData extends ImportCheckPointData {
             return (Builder) super.numOfProcessedResources(numOfProcessedResources);
         }
 
+        @Override
+        public Builder numOfProcessedBytes(long numOfProcessedBytes) {
+            return (Builder) super.numOfProcessedBytes(numOfProcessedBytes);
+        }
+
         @Override
         public Builder importPartitionResourceType(String importPartitionResourceType) {
             return (Builder) super.importPartitionResourceType(importPartitionResourceType);
@@ -184,6 +190,7 @@ public class ImportTransientUserData extends ImportCheckPointData {
             ImportTransientUserData importTransientUserData = new ImportTransientUserData();
             importTransientUserData.importPartitionWorkitem = this.importPartitionWorkitem;
             importTransientUserData.numOfProcessedResources = this.numOfProcessedResources;
+            importTransientUserData.numOfProcessedBytes = this.numOfProcessedBytes;
             importTransientUserData.importPartitionResourceType = this.importPartitionResourceType;
             importTransientUserData.numOfImportedResources = this.numOfImportedResources;
             importTransientUserData.numOfImportFailures = this.numOfImportFailures;
@@ -207,8 +214,8 @@ public class ImportTransientUserData extends ImportCheckPointData {
     @Override
     public String toString() {
         return "ImportTransientUserData [bufferStreamForImportError=" + bufferStreamForImportError + ", bufferStreamForImport=" + bufferStreamForImport
-                + ", inputStream=" + inputStream + ", bufferReader=" + bufferReader + ", importPartitionWorkitem=" + importPartitionWorkitem
-                + ", numOfProcessedResources=" + numOfProcessedResources + ", numOfImportedResources=" + numOfImportedResources + ", numOfImportFailures="
+                + ", inputStream=" + inputStream + ", lineReader=" + lineReader + ", importPartitionWorkitem=" + importPartitionWorkitem
+                + ", numOfProcessedResources=" + numOfProcessedResources + ", numOfProcessedBytes=" + numOfProcessedBytes + ", numOfImportedResources=" + numOfImportedResources + ", numOfImportFailures="
                 + numOfImportFailures + ", totalReadMilliSeconds=" + totalReadMilliSeconds + ", totalWriteMilliSeconds=" + totalWriteMilliSeconds
                 + ", totalValidationMilliSeconds=" + totalValidationMilliSeconds + ", importFileSize=" + importFileSize + ", inFlyRateBeginMilliSeconds="
                 + inFlyRateBeginMilliSeconds + ", numOfToBeImported=" + numOfToBeImported + ", numOfParseFailures=" + numOfParseFailures
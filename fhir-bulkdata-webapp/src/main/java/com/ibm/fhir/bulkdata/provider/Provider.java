@@ -29,12 +29,14 @@ public interface Provider {
 
     /**
      * reads from a given workitem (or file) in a source
-     * and skips a certain noumber of lines
+     * starting at the given byte offset, or if the byte offset is 0,
+     * after skipping a certain number of lines
      * @param numOfLinesToSkip
+     * @param numOfBytesToSkip
      * @param workItem
      * @throws FHIRException
      */
-    void readResources(long numOfLinesToSkip, String workItem) throws FHIRException;
+    void readResources(long numOfLinesToSkip, long numOfBytesToSkip, String workItem) throws FHIRException;
 
     /**
      * gets the read resources.
@@ -69,6 +71,14 @@ public interface Provider {
 
     long getNumberOfLoaded() throws FHIRException;
 
+    /**
+     * gets the number of bytes consumed by the last read, so the next read can start at the following byte offset.
+     *
+     * @return
+     * @throws FHIRException
+     */
+    long getNumberOfReadBytes() throws FHIRException;
+
     void registerTransient(ImportTransientUserData transientUserData);
 
     void registerTransient(long executionId, ExportTransientUserData transientUserData, String cosBucketPathPrefix, String fhirResourceType, boolean isExportPublic) throws Exception;
@@ -6,20 +6,21 @@
 
 package com.ibm.fhir.bulkdata.provider.impl;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.ibm.fhir.bulkdata.common.BulkDataUtils;
+import com.ibm.fhir.bulkdata.common.OffsetLineReader;
 import com.ibm.fhir.bulkdata.dto.ReadResultDTO;
 import com.ibm.fhir.bulkdata.jbatch.export.data.ExportTransientUserData;
 import com.ibm.fhir.bulkdata.jbatch.load.data.ImportTransientUserData;
@@ -27,8 +28,6 @@ import com.ibm.fhir.bulkdata.provider.Provider;
 import com.ibm.fhir.exception.FHIRException;
 import com.ibm.fhir.model.format.Format;
 import com.ibm.fhir.model.generator.FHIRGenerator;
-import com.ibm.fhir.model.parser.FHIRParser;
-import com.ibm.fhir.model.parser.exception.FHIRParserException;
 import com.ibm.fhir.model.resource.Resource;
 import com.ibm.fhir.operation.bulkdata.config.ConfigurationAdapter;
 import com.ibm.fhir.operation.bulkdata.config.ConfigurationFactory;
@@ -45,6 +44,7 @@ public class FileProvider implements Provider {
 
     private String source = null;
     private long parseFailures = 0l;
+    private long readBytes = 0l;
     @SuppressWarnings("unused")
     private ImportTransientUserData transientUserData = null;
     private List<Resource> resources = new ArrayList<>();
@@ -57,7 +57,6 @@ public class FileProvider implements Provider {
     private long bSize = 0;
 
     private OutputStream out = null;
-    private BufferedReader br = null;
 
     private ConfigurationAdapter configuration = ConfigurationFactory.getInstance();
 
@@ -80,39 +79,30 @@ public class FileProvider implements Provider {
     }
 
     @Override
-    public void readResources(long numOfLinesToSkip, String workItem) throws FHIRException {
+    public void readResources(long numOfLinesToSkip, long numOfBytesToSkip, String workItem) throws FHIRException {
         resources = new ArrayList<>();
-        try {
-            long line = 0;
-            try {
-                if (br == null) {
-                    br = Files.newBufferedReader(Paths.get(getFilePath(workItem)));
-                }
-                for (int i = 0; i <= numOfLinesToSkip; i++) {
-                    line++;
-                    br.readLine(); // We know the file has at least this number.
+        try (FileChannel channel = FileChannel.open(Paths.get(getFilePath(workItem)), StandardOpenOption.READ)) {
+            // Seek straight to the first unprocessed line rather than reading through the processed ones.
+            channel.position(numOfBytesToSkip);
+            OffsetLineReader reader = new OffsetLineReader(Channels.newInputStream(channel), numOfBytesToSkip);
+
+            if (numOfBytesToSkip == 0) {
+                // No byte offset was checkpointed, e.g. the job was started by an older release, so skip by lines.
+                long skipped = 0;
+                while (skipped < numOfLinesToSkip && reader.readLine() != null) {
+                    skipped++;
                 }
+            }
 
-                String resourceStr = br.readLine();
-                int chunkRead = 0;
-                int maxRead = configuration.getImportNumberOfFhirResourcesPerRead(null);
-                while (resourceStr != null && chunkRead <= maxRead) {
-                    line++;
-                    chunkRead++;
-                    try {
-                        resources.add(FHIRParser.parser(Format.JSON).parse(new StringReader(resourceStr)));
-                    } catch (FHIRParserException e) {
-                        // Log and skip the invalid FHIR resource.
-                        parseFailures++;
-                        logger.log(Level.INFO, "readResources: " + "Failed to parse line " + line + " of [" + source + "].", e);
-                    }
-                    resourceStr = br.readLine();
-                }
-            } finally {
-                if (br != null) {
-                    br.close();
-                }
+            int maxRead = configuration.getImportNumberOfFhirResourcesPerRead(null);
+            List<String> lines = new ArrayList<>(maxRead);
+            String resourceStr = null;
+            while (lines.size() < maxRead && (resourceStr = reader.readLine()) != null) {
+                lines.add(resourceStr);
             }
+            // Parse the lines in parallel; invalid FHIR resources are logged and skipped.
+            parseFailures += BulkDataUtils.parseFhirResources(lines, numOfLinesToSkip, resources, source);
+            readBytes = reader.getOffset() - numOfBytesToSkip;
         } catch (Exception e) {
             throw new FHIRException("Unable to read from Local File", e);
         }
@@ -138,6 +128,11 @@ public class FileProvider implements Provider {
         return this.resources.size();
     }
 
+    @Override
+    public long getNumberOfReadBytes() throws FHIRException {
+        return readBytes;
+    }
+
     @Override
     public void registerTransient(long executionId, ExportTransientUserData transientUserData, String cosBucketPathPrefix, String fhirResourceType,
         boolean isExportPublic) throws Exception {
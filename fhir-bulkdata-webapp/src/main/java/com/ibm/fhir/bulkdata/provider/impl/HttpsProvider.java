@@ -25,6 +25,7 @@ import com.ibm.fhir.model.resource.Resource;
  */
 public class HttpsProvider implements Provider {
     private long parseFailures = 0l;
+    private long readBytes = 0l;
     private ImportTransientUserData transientUserData = null;
     private List<Resource> resources = new ArrayList<>();
 
@@ -71,9 +72,12 @@ public class HttpsProvider implements Provider {
     }
 
     @Override
-    public void readResources(long numOfLinesToSkip, String workItem) throws FHIRException {
+    public void readResources(long numOfLinesToSkip, long numOfBytesToSkip, String workItem) throws FHIRException {
         try {
-            parseFailures = BulkDataUtils.readFhirResourceFromHttps(workItem, (int) numOfLinesToSkip, resources, transientUserData);
+            parseFailures = BulkDataUtils.readFhirResourceFromHttps(workItem, (int) numOfLinesToSkip, numOfBytesToSkip, resources, transientUserData);
+            if (transientUserData.getLineReader() != null) {
+                readBytes = transientUserData.getLineReader().getOffset() - numOfBytesToSkip;
+            }
         } catch (Exception e) {
             throw new FHIRException("Unable to read from Https File", e);
         }
@@ -84,6 +88,11 @@ public class HttpsProvider implements Provider {
         return this.resources.size();
     }
 
+    @Override
+    public long getNumberOfReadBytes() throws FHIRException {
+        return readBytes;
+    }
+
     @Override
     public void registerTransient(long executionId, ExportTransientUserData transientUserData, String cosBucketPathPrefix, String fhirResourceType,
         boolean isExportPublic) {
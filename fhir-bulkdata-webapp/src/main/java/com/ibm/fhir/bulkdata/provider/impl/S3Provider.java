@@ -57,6 +57,7 @@ public class S3Provider implements Provider {
     private ExportTransientUserData chunkData = null;
 
     private long parseFailures = 0l;
+    private long readBytes = 0l;
 
     private List<Resource> resources = new ArrayList<>();
     private AmazonS3 client = null;
@@ -240,9 +241,17 @@ public class S3Provider implements Provider {
     }
 
     @Override
-    public void readResources(long numOfLinesToSkip, String workItem) throws FHIRException {
+    public long getNumberOfReadBytes() throws FHIRException {
+        return readBytes;
+    }
+
+    @Override
+    public void readResources(long numOfLinesToSkip, long numOfBytesToSkip, String workItem) throws FHIRException {
         try {
-            parseFailures = BulkDataUtils.readFhirResourceFromObjectStore(client, bucketName, workItem, (int) numOfLinesToSkip, resources, transientUserData);
+            parseFailures = BulkDataUtils.readFhirResourceFromObjectStore(client, bucketName, workItem, (int) numOfLinesToSkip, numOfBytesToSkip, resources, transientUserData);
+            if (transientUserData.getLineReader() != null) {
+                readBytes = transientUserData.getLineReader().getOffset() - numOfBytesToSkip;
+            }
         } catch (Exception e) {
             throw new FHIRException("Unable to read from S3 File", e);
         }
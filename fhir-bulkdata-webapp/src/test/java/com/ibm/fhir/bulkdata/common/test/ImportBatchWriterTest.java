@@ -0,0 +1,95 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.bulkdata.common.test;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+import static org.testng.AssertJUnit.fail;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.bulkdata.common.ImportBatchWriter;
+import com.ibm.fhir.model.resource.Patient;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.persistence.FHIRPersistence;
+import com.ibm.fhir.persistence.SingleResourceResult;
+import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
+
+public class ImportBatchWriterTest {
+
+    /**
+     * A persistence layer whose batch write records each resource it writes, and fails after writing
+     * the given number of resources.
+     */
+    private FHIRPersistence persistence(int failAfter, List<String> written) {
+        return (FHIRPersistence) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { FHIRPersistence.class },
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                case "createOrUpdateBatch":
+                    @SuppressWarnings("unchecked")
+                    List<Resource> resources = (List<Resource>) args[1];
+                    List<SingleResourceResult<Resource>> results = new ArrayList<>();
+                    for (Resource resource : resources) {
+                        if (written.size() == failAfter) {
+                            throw new FHIRPersistenceException("batch failed");
+                        }
+                        written.add(resource.getClass().getSimpleName() + "/" + resource.getId());
+                        results.add(new SingleResourceResult.Builder<Resource>().success(true).resource(resource).build());
+                    }
+                    return results;
+                case "create":
+                case "update":
+                    Resource resource = (Resource) args[args.length - 1];
+                    written.add(resource.getClass().getSimpleName() + "/" + resource.getId());
+                    return new SingleResourceResult.Builder<Resource>().success(true).resource(resource).build();
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+
+    private List<Resource> resources() {
+        return Arrays.asList(
+            Patient.builder().id("1").active(com.ibm.fhir.model.type.Boolean.TRUE).build(),
+            Patient.builder().id("2").active(com.ibm.fhir.model.type.Boolean.TRUE).build(),
+            Patient.builder().id("3").active(com.ibm.fhir.model.type.Boolean.TRUE).build(),
+            Patient.builder().id("4").active(com.ibm.fhir.model.type.Boolean.TRUE).build());
+    }
+
+    @Test
+    public void testBatchSucceeds() throws Exception {
+        List<String> written = new ArrayList<>();
+        List<SingleResourceResult<Resource>> results = ImportBatchWriter.createOrUpdate(persistence(-1, written), null, resources());
+
+        assertEquals(4, results.size());
+        for (SingleResourceResult<Resource> result : results) {
+            assertTrue(result.isSuccess());
+        }
+        assertEquals(Arrays.asList("Patient/1", "Patient/2", "Patient/3", "Patient/4"), written);
+    }
+
+    @Test
+    public void testBatchFailsHalfway() throws Exception {
+        List<String> written = new ArrayList<>();
+        try {
+            ImportBatchWriter.createOrUpdate(persistence(2, written), null, resources());
+            fail("the batch failure should fail the chunk");
+        } catch (FHIRPersistenceException e) {
+            assertEquals("batch failed", e.getMessage());
+        }
+
+        // nothing is written again in the failed transaction, so no resource is duplicated
+        assertEquals(Arrays.asList("Patient/1", "Patient/2"), written);
+        assertEquals(written.size(), new HashSet<>(written).size());
+    }
+}
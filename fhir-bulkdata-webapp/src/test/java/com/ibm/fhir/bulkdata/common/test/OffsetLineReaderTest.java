@@ -0,0 +1,58 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.bulkdata.common.test;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.bulkdata.common.OffsetLineReader;
+
+public class OffsetLineReaderTest {
+    private static final String NDJSON = "{\"resourceType\":\"Patient\"}\n"
+            + "{\"resourceType\":\"Patient\",\"name\":[{\"family\":\"Müller\"}]}\r\n"
+            + "\n"
+            + "{\"resourceType\":\"Observation\"}";
+
+    @Test
+    public void testReadLines() throws Exception {
+        byte[] bytes = NDJSON.getBytes(StandardCharsets.UTF_8);
+        try (OffsetLineReader reader = new OffsetLineReader(new ByteArrayInputStream(bytes), 0)) {
+            assertEquals("{\"resourceType\":\"Patient\"}", reader.readLine());
+            assertEquals(27, reader.getOffset());
+            assertEquals("{\"resourceType\":\"Patient\",\"name\":[{\"family\":\"Müller\"}]}", reader.readLine());
+            assertEquals("", reader.readLine());
+            assertEquals("{\"resourceType\":\"Observation\"}", reader.readLine());
+            assertNull(reader.readLine());
+            assertEquals(bytes.length, reader.getOffset());
+        }
+    }
+
+    @Test
+    public void testResumeFromOffset() throws Exception {
+        byte[] bytes = NDJSON.getBytes(StandardCharsets.UTF_8);
+        long offset;
+        try (OffsetLineReader reader = new OffsetLineReader(new ByteArrayInputStream(bytes), 0)) {
+            reader.readLine();
+            reader.readLine();
+            offset = reader.getOffset();
+        }
+
+        // Seek directly to the checkpointed offset, the way a ranged read would
+        ByteArrayInputStream in = new ByteArrayInputStream(bytes, (int) offset, bytes.length - (int) offset);
+        try (OffsetLineReader reader = new OffsetLineReader(in, offset)) {
+            assertEquals("", reader.readLine());
+            assertEquals("{\"resourceType\":\"Observation\"}", reader.readLine());
+            assertNull(reader.readLine());
+            assertEquals(bytes.length, reader.getOffset());
+        }
+    }
+}
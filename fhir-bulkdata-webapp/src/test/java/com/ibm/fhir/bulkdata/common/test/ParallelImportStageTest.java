@@ -0,0 +1,79 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.bulkdata.common.test;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.bulkdata.common.BulkDataUtils;
+import com.ibm.fhir.bulkdata.common.ParallelImportStage;
+import com.ibm.fhir.model.parser.exception.FHIRParserException;
+import com.ibm.fhir.model.resource.OperationOutcome.Issue;
+import com.ibm.fhir.model.resource.Patient;
+import com.ibm.fhir.model.resource.Resource;
+
+public class ParallelImportStageTest {
+
+    private List<String> buildLines(int count) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (i % 10 == 7) {
+                lines.add("{\"resourceType\":\"Patient\",");
+            } else {
+                lines.add("{\"resourceType\":\"Patient\",\"id\":\"" + i + "\"}");
+            }
+        }
+        return lines;
+    }
+
+    @Test
+    public void testParseKeepsOrder() throws Exception {
+        List<String> lines = buildLines(200);
+        List<ParallelImportStage.Result<Resource>> results = ParallelImportStage.parse(lines);
+        assertEquals(200, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            ParallelImportStage.Result<Resource> result = results.get(i);
+            if (i % 10 == 7) {
+                assertFalse(result.isSuccess());
+                assertTrue(result.getException() instanceof FHIRParserException);
+            } else {
+                assertTrue(result.isSuccess());
+                assertEquals(Integer.toString(i), result.getValue().getId());
+            }
+        }
+    }
+
+    @Test
+    public void testParseFhirResources() throws Exception {
+        List<Resource> resources = new ArrayList<>();
+        int parseFailures = BulkDataUtils.parseFhirResources(buildLines(20), 0, resources, "test");
+        assertEquals(2, parseFailures);
+        assertEquals(18, resources.size());
+        assertEquals("0", resources.get(0).getId());
+        assertEquals("19", resources.get(17).getId());
+    }
+
+    @Test
+    public void testValidateKeepsOrder() throws Exception {
+        List<Resource> resources = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            resources.add(Patient.builder().id(Integer.toString(i)).build());
+        }
+        List<ParallelImportStage.Result<List<Issue>>> results = ParallelImportStage.validate(resources);
+        assertEquals(50, results.size());
+        for (ParallelImportStage.Result<List<Issue>> result : results) {
+            assertTrue(result.isSuccess());
+            assertTrue(result.getEndTime() >= result.getStartTime());
+        }
+    }
+}
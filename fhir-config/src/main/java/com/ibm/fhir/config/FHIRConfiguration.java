@@ -36,6 +36,12 @@ public class FHIRConfiguration {
     public static final String PROPERTY_CAPABILITY_STATEMENT_CACHE = "fhirServer/core/capabilityStatementCacheTimeout";
     public static final String PROPERTY_EXTENDED_CODEABLE_CONCEPT_VALIDATION = "fhirServer/core/extendedCodeableConceptValidation";
     public static final String PROPERTY_DISABLED_OPERATIONS = "fhirServer/core/disabledOperations";
+    public static final String PROPERTY_SEARCH_PAYLOAD_PASSTHROUGH = "fhirServer/core/searchPayloadPassthrough";
+    public static final String PROPERTY_VALIDATION_PARALLELISM = "fhirServer/core/validationParallelism";
+    public static final String PROPERTY_VALIDATION_CACHE_SIZE = "fhirServer/core/validationCacheSize";
+
+    // Terminology properties
+    public static final String PROPERTY_TERM_CONCEPT_STORE_DIRECTORY = "fhirServer/term/conceptStoreDirectory";
 
     // Resources properties
     public static final String PROPERTY_RESOURCES = "fhirServer/resources";
@@ -73,6 +79,10 @@ public class FHIRConfiguration {
 
     // Notification config properties
     public static final String PROPERTY_NOTIFICATION_RESOURCE_TYPES = "fhirServer/notifications/common/includeResourceTypes";
+    public static final String PROPERTY_NOTIFICATION_DISPATCHER_ENABLED = "fhirServer/notifications/common/dispatcher/enabled";
+    public static final String PROPERTY_NOTIFICATION_DISPATCHER_BUFFER_SIZE = "fhirServer/notifications/common/dispatcher/bufferSize";
+    public static final String PROPERTY_NOTIFICATION_DISPATCHER_OVERFLOW_POLICY = "fhirServer/notifications/common/dispatcher/overflowPolicy";
+    public static final String PROPERTY_NOTIFICATION_DISPATCHER_COALESCE = "fhirServer/notifications/common/dispatcher/coalesce";
     public static final String PROPERTY_WEBSOCKET_ENABLED = "fhirServer/notifications/websocket/enabled";
     public static final String PROPERTY_KAFKA_ENABLED = "fhirServer/notifications/kafka/enabled";
     public static final String PROPERTY_KAFKA_TOPICNAME = "fhirServer/notifications/kafka/topicName";
@@ -102,6 +112,10 @@ public class FHIRConfiguration {
     public static final String PROPERTY_JDBC_ENABLE_RESOURCE_TYPES_CACHE = "fhirServer/persistence/jdbc/enableResourceTypesCache";
     public static final String PROPERTY_JDBC_EXTERNAL_REF_SYSTEM_CACHE_SIZE = "fhirServer/persistence/jdbc/externalRefSystemCacheSize";
     public static final String PROPERTY_JDBC_EXTERNAL_REF_VALUE_CACHE_SIZE = "fhirServer/persistence/jdbc/externalRefValueCacheSize";
+    public static final String PROPERTY_JDBC_SEARCH_CONVERSION_PARALLELISM = "fhirServer/persistence/jdbc/searchConversionParallelism";
+    public static final String PROPERTY_JDBC_SEARCH_CONVERSION_THRESHOLD = "fhirServer/persistence/jdbc/searchConversionThreshold";
+    public static final String PROPERTY_JDBC_PAYLOAD_STORE_DIRECTORY = "fhirServer/persistence/jdbc/payloadStoreDirectory";
+    public static final String PROPERTY_JDBC_COMPRESSION_DICTIONARY_DIRECTORY = "fhirServer/persistence/jdbc/compressionDictionaryDirectory";
 
     // Optimizer options within a datasource definition
     public static final String PROPERTY_JDBC_SEARCH_OPTIMIZER_OPTIONS = "searchOptimizerOptions";
@@ -24,12 +24,16 @@ import java.util.StringJoiner;
 import javax.annotation.Generated;
 import javax.json.Json;
 import javax.json.JsonArray;
+import javax.json.JsonBuilderFactory;
 import javax.json.JsonNumber;
 import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
 import javax.json.JsonReader;
 import javax.json.JsonReaderFactory;
 import javax.json.JsonString;
 import javax.json.JsonValue;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParserFactory;
 
 import com.ibm.fhir.model.parser.FHIRParser;
 import com.ibm.fhir.model.parser.FHIRAbstractParser;
@@ -41,6 +45,7 @@ import com.ibm.fhir.model.type.Boolean;
 import com.ibm.fhir.model.type.Integer;
 import com.ibm.fhir.model.type.String;
 import com.ibm.fhir.model.util.ElementFilter;
+import com.ibm.fhir.model.util.ModelSupport;
 
 import net.jcip.annotations.NotThreadSafe;
 
@@ -49,6 +54,8 @@ import net.jcip.annotations.NotThreadSafe;
 public class FHIRJsonParser extends FHIRAbstractParser {
     public static boolean DEBUG = false;
     private static final JsonReaderFactory JSON_READER_FACTORY = Json.createReaderFactory(null);
+    private static final JsonParserFactory JSON_PARSER_FACTORY = Json.createParserFactory(null);
+    private static final JsonBuilderFactory JSON_BUILDER_FACTORY = Json.createBuilderFactory(null);
 
     private final Stack<java.lang.String> stack = new Stack<>();
 
@@ -62,6 +69,15 @@ public class FHIRJsonParser extends FHIRAbstractParser {
     }
 
     public <T extends Resource> T parseAndFilter(InputStream in, Collection<java.lang.String> elementsToInclude) throws FHIRParserException {
+        if (isStreaming()) {
+            try (JsonParser jsonParser = JSON_PARSER_FACTORY.createParser(nonClosingInputStream(in), StandardCharsets.UTF_8)) {
+                return parseAndFilter(jsonParser, elementsToInclude);
+            } catch (FHIRParserException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new FHIRParserException(e.getMessage(), getPath(), e);
+            }
+        }
         try (JsonReader jsonReader = JSON_READER_FACTORY.createReader(nonClosingInputStream(in), StandardCharsets.UTF_8)) {
             JsonObject jsonObject = jsonReader.readObject();
             return parseAndFilter(jsonObject, elementsToInclude);
@@ -78,6 +94,15 @@ public class FHIRJsonParser extends FHIRAbstractParser {
     }
 
     public <T extends Resource> T parseAndFilter(Reader reader, Collection<java.lang.String> elementsToInclude) throws FHIRParserException {
+        if (isStreaming()) {
+            try (JsonParser jsonParser = JSON_PARSER_FACTORY.createParser(nonClosingReader(reader))) {
+                return parseAndFilter(jsonParser, elementsToInclude);
+            } catch (FHIRParserException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new FHIRParserException(e.getMessage(), getPath(), e);
+            }
+        }
         try (JsonReader jsonReader = JSON_READER_FACTORY.createReader(nonClosingReader(reader))) {
             JsonObject jsonObject = jsonReader.readObject();
             return parseAndFilter(jsonObject, elementsToInclude);
@@ -107,6 +132,91 @@ public class FHIRJsonParser extends FHIRAbstractParser {
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private <T extends Resource> T parseAndFilter(JsonParser jsonParser, Collection<java.lang.String> elementsToInclude) throws FHIRParserException {
+        try {
+            reset();
+            JsonParser.Event event = jsonParser.next();
+            if (event != JsonParser.Event.START_OBJECT) {
+                throw new IllegalArgumentException("Expected: START_OBJECT but found: " + event);
+            }
+            JsonObjectBuilder builder = JSON_BUILDER_FACTORY.createObjectBuilder();
+            java.lang.String resourceTypeName = null;
+            ElementFilter elementFilter = null;
+            java.util.List<Bundle.Entry> entries = null;
+            while ((event = jsonParser.next()) == JsonParser.Event.KEY_NAME) {
+                java.lang.String key = jsonParser.getString();
+                event = jsonParser.next();
+                if (elementFilter != null && !elementFilter.includes(key)) {
+                    skipValue(jsonParser, event);
+                } else if ("Bundle".equals(resourceTypeName) && "entry".equals(key)) {
+                    entries = parseBundleEntries(jsonParser, event);
+                } else {
+                    JsonValue jsonValue = jsonParser.getValue();
+                    if ("resourceType".equals(key) && jsonValue.getValueType() == JsonValue.ValueType.STRING) {
+                        resourceTypeName = ((JsonString) jsonValue).getString();
+                        Class<?> resourceType = ModelSupport.getResourceType(resourceTypeName);
+                        if (elementsToInclude != null && resourceType != null) {
+                            elementFilter = new ElementFilter(resourceType, elementsToInclude);
+                        }
+                    }
+                    builder.add(key, jsonValue);
+                }
+            }
+            JsonObject jsonObject = builder.build();
+            Class<?> resourceType = getResourceType(jsonObject);
+            if (elementsToInclude != null) {
+                if (elementFilter == null) {
+                    elementFilter = new ElementFilter(resourceType, elementsToInclude);
+                }
+                jsonObject = elementFilter.apply(jsonObject);
+            }
+            Resource resource = parseResource(resourceType.getSimpleName(), jsonObject, -1);
+            if (entries != null) {
+                resource = ((Bundle) resource).toBuilder().entry(entries).build();
+            }
+            return (T) resource;
+        } catch (Exception e) {
+            throw new FHIRParserException(e.getMessage(), getPath(), e);
+        }
+    }
+
+    private java.util.List<Bundle.Entry> parseBundleEntries(JsonParser jsonParser, JsonParser.Event event) {
+        if (event != JsonParser.Event.START_ARRAY) {
+            throw new IllegalArgumentException("Expected: START_ARRAY but found: " + event + " for element: entry");
+        }
+        stackPush("Bundle", -1);
+        java.util.List<Bundle.Entry> entries = new java.util.ArrayList<>();
+        int elementIndex = 0;
+        while ((event = jsonParser.next()) != JsonParser.Event.END_ARRAY) {
+            if (event != JsonParser.Event.START_OBJECT) {
+                throw new IllegalArgumentException("Expected: START_OBJECT but found: " + event + " for element: entry");
+            }
+            entries.add(parseBundleEntry("entry", jsonParser.getObject(), elementIndex++));
+        }
+        stackPop();
+        return entries;
+    }
+
+    private void skipValue(JsonParser jsonParser, JsonParser.Event event) {
+        if (event != JsonParser.Event.START_OBJECT && event != JsonParser.Event.START_ARRAY) {
+            return;
+        }
+        int depth = 1;
+        while (depth > 0) {
+            event = jsonParser.next();
+            if (event == JsonParser.Event.START_OBJECT || event == JsonParser.Event.START_ARRAY) {
+                depth++;
+            } else if (event == JsonParser.Event.END_OBJECT || event == JsonParser.Event.END_ARRAY) {
+                depth--;
+            }
+        }
+    }
+
+    private boolean isStreaming() {
+        return getPropertyOrDefault(FHIRParser.PROPERTY_STREAMING, java.lang.Boolean.FALSE, java.lang.Boolean.class);
+    }
+
     private void reset() {
         stack.clear();
     }
@@ -116,6 +226,9 @@ public class FHIRJsonParser extends FHIRAbstractParser {
         if (FHIRParser.PROPERTY_IGNORE_UNRECOGNIZED_ELEMENTS.equals(name)) {
             return true;
         }
+        if (FHIRParser.PROPERTY_STREAMING.equals(name)) {
+            return true;
+        }
         return false;
     }
 
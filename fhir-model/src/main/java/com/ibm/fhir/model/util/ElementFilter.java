@@ -38,10 +38,17 @@ public class ElementFilter implements Function<JsonObject, JsonObject> {
         includeElements.addAll(elements);
     }
 
+    /**
+     * @return true if the top-level element with the passed name is retained by this filter
+     */
+    public boolean includes(String elementName) {
+        return includeElements.contains(elementName);
+    }
+
     @Override
     public JsonObject apply(JsonObject jsonObject) {
         JsonObjectBuilder builder = BUILDER_FACTORY.createObjectBuilder();
-        jsonObject.entrySet().stream().filter(e -> includeElements.contains(e.getKey()))
+        jsonObject.entrySet().stream().filter(e -> includes(e.getKey()))
             .forEach(e -> builder.add(e.getKey(), e.getValue()));
         return builder.build();
     }
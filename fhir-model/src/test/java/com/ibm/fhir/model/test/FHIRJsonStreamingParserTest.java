@@ -0,0 +1,128 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.model.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.examples.ExamplesUtil;
+import com.ibm.fhir.model.format.Format;
+import com.ibm.fhir.model.parser.FHIRJsonParser;
+import com.ibm.fhir.model.parser.FHIRParser;
+import com.ibm.fhir.model.parser.exception.FHIRParserException;
+import com.ibm.fhir.model.resource.Bundle;
+import com.ibm.fhir.model.resource.Patient;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.util.JsonSupport;
+
+public class FHIRJsonStreamingParserTest {
+    private static final String[] EXAMPLES = {
+        "json/spec/bundle-transaction.json",
+        "json/spec/bundle-response.json",
+        "json/spec/patient-example.json",
+        "json/spec/observation-example.json"
+    };
+
+    @Test
+    public void testStreamingMatchesTreeParser() throws Exception {
+        for (String example : EXAMPLES) {
+            Resource expected;
+            try (Reader reader = ExamplesUtil.resourceReader(example)) {
+                expected = FHIRParser.parser(Format.JSON).parse(reader);
+            }
+            Resource actual;
+            try (Reader reader = ExamplesUtil.resourceReader(example)) {
+                actual = streamingParser().parse(reader);
+            }
+            assertEquals(actual, expected, example);
+        }
+    }
+
+    @Test
+    public void testStreamingInputStream() throws Exception {
+        String json = "{\"id\":\"1\",\"resourceType\":\"Bundle\",\"type\":\"collection\",\"entry\":[{\"resource\":{\"resourceType\":\"Patient\",\"id\":\"a\"}},{\"resource\":{\"resourceType\":\"Patient\",\"id\":\"b\"}}]}";
+        Bundle bundle = streamingParser().parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(bundle.getEntry().size(), 2);
+        assertEquals(bundle.getEntry().get(1).getResource().getId(), "b");
+    }
+
+    @Test
+    public void testStreamingBundleEntryFirst() throws Exception {
+        // resourceType is not the first key, so the entry array cannot be streamed and is materialized instead
+        String json = "{\"entry\":[{\"resource\":{\"resourceType\":\"Patient\",\"id\":\"a\"}}],\"resourceType\":\"Bundle\",\"type\":\"collection\"}";
+        Bundle bundle = streamingParser().parse(new StringReader(json));
+        assertEquals(bundle.getEntry().size(), 1);
+    }
+
+    @Test
+    public void testStreamingParseAndFilter() throws Exception {
+        String json = "{\"resourceType\":\"Patient\",\"id\":\"a\",\"name\":[{\"family\":\"Doe\"}],\"contact\":[{\"name\":{\"family\":\"Roe\"}}],\"gender\":\"male\"}";
+        FHIRJsonParser parser = streamingParser().as(FHIRJsonParser.class);
+        Patient patient = parser.parseAndFilter(new StringReader(json), Arrays.asList("gender"));
+        assertEquals(patient.getId(), "a");
+        assertNotNull(patient.getGender());
+        assertTrue(patient.getName().isEmpty());
+        assertTrue(patient.getContact().isEmpty());
+        assertNull(patient.getBirthDate());
+    }
+
+    @Test
+    public void testStreamingParseAndFilterMatchesTreeParser() throws Exception {
+        for (String example : EXAMPLES) {
+            Resource unfiltered;
+            try (Reader reader = ExamplesUtil.resourceReader(example)) {
+                unfiltered = FHIRParser.parser(Format.JSON).parse(reader);
+            }
+            // the element sets used for _summary=true and _elements=id,meta
+            List<List<String>> elementSets = Arrays.asList(
+                new ArrayList<>(JsonSupport.getSummaryElementNames(unfiltered.getClass())),
+                Arrays.asList("id", "meta"));
+            for (List<String> elements : elementSets) {
+                Resource expected;
+                try (Reader reader = ExamplesUtil.resourceReader(example)) {
+                    expected = FHIRParser.parser(Format.JSON).as(FHIRJsonParser.class).parseAndFilter(reader, elements);
+                }
+                Resource actual;
+                try (Reader reader = ExamplesUtil.resourceReader(example)) {
+                    actual = streamingParser().as(FHIRJsonParser.class).parseAndFilter(reader, elements);
+                }
+                assertEquals(actual, expected, example + " " + elements);
+            }
+        }
+    }
+
+    @Test
+    public void testStreamingInvalidEntry() throws Exception {
+        String json = "{\"resourceType\":\"Bundle\",\"type\":\"collection\",\"entry\":[{\"resource\":{\"resourceType\":\"Patient\",\"bogus\":true}}]}";
+        try {
+            streamingParser().parse(new StringReader(json));
+            fail();
+        } catch (FHIRParserException e) {
+            assertTrue(e.getMessage().startsWith("Unrecognized element"));
+            assertTrue(e.getPath().startsWith("Bundle.entry[0]"));
+        }
+    }
+
+    private FHIRParser streamingParser() {
+        FHIRParser parser = FHIRParser.parser(Format.JSON);
+        parser.setProperty(FHIRParser.PROPERTY_STREAMING, true);
+        return parser;
+    }
+}
@@ -0,0 +1,397 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.notification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.ibm.fhir.notification.exception.FHIRNotificationException;
+
+/**
+ * Delivers notification events to subscribers on a dedicated consumer thread per subscriber, so that publishing an
+ * event never waits for a subscriber and a slow subscriber only delays its own events.
+ *
+ * <p>Each subscription buffers its undelivered events in a bounded {@link RingBuffer}; the {@link OverflowPolicy}
+ * decides what happens when it is full. With coalescing, an event for a resource which still has an undelivered
+ * event in the buffer replaces that event, so a subscriber which falls behind receives only the latest state of each
+ * resource.
+ */
+public class FHIRNotificationDispatcher {
+    private static final Logger log = java.util.logging.Logger.getLogger(FHIRNotificationDispatcher.class.getName());
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long BLOCK_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * What happens to an event for a subscriber whose buffer is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * The publishing thread waits until the subscriber has taken an event from its buffer. A subscriber which
+         * takes nothing for a second is considered stalled, and the event is discarded.
+         */
+        BLOCK("block"),
+        /**
+         * The event is discarded.
+         */
+        DROP_NEWEST("dropNewest"),
+        /**
+         * The oldest undelivered event is discarded to make room for the event.
+         */
+        DROP_OLDEST("dropOldest");
+
+        private final String value;
+
+        OverflowPolicy(String value) {
+            this.value = value;
+        }
+
+        public String value() {
+            return value;
+        }
+
+        public static OverflowPolicy from(String value) {
+            for (OverflowPolicy policy : values()) {
+                if (policy.value.equalsIgnoreCase(value)) {
+                    return policy;
+                }
+            }
+            throw new IllegalArgumentException("Invalid notification overflow policy: " + value);
+        }
+    }
+
+    private final int bufferSize;
+    private final OverflowPolicy overflowPolicy;
+    private final boolean coalesce;
+    private final Consumer<FHIRNotificationSubscriber> onFailure;
+    private final Map<FHIRNotificationSubscriber, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+    /**
+     * @param bufferSize
+     *     the number of undelivered events which are buffered per subscriber
+     * @param overflowPolicy
+     *     what happens to an event for a subscriber whose buffer is full
+     * @param coalesce
+     *     whether an undelivered event is replaced by a later event for the same resource
+     * @param onFailure
+     *     called, on the consumer thread, with a subscriber which failed with a {@link FHIRNotificationException}
+     */
+    public FHIRNotificationDispatcher(int bufferSize, OverflowPolicy overflowPolicy, boolean coalesce,
+            Consumer<FHIRNotificationSubscriber> onFailure) {
+        this.bufferSize = bufferSize;
+        this.overflowPolicy = overflowPolicy;
+        this.coalesce = coalesce;
+        this.onFailure = onFailure;
+    }
+
+    /**
+     * Start a consumer thread for the passed subscriber.
+     */
+    public void add(FHIRNotificationSubscriber subscriber) {
+        subscriptions.computeIfAbsent(subscriber, s -> new Subscription(s).start());
+    }
+
+    /**
+     * Stop the consumer thread of the passed subscriber; its undelivered events are discarded.
+     */
+    public void remove(FHIRNotificationSubscriber subscriber) {
+        Subscription subscription = subscriptions.remove(subscriber);
+        if (subscription != null) {
+            subscription.stop();
+        }
+    }
+
+    /**
+     * Buffer the passed event for each subscriber.
+     */
+    public void dispatch(FHIRNotificationEvent event) {
+        for (Subscription subscription : subscriptions.values()) {
+            subscription.offer(event);
+        }
+    }
+
+    /**
+     * @return the current subscriptions, whose counters describe the progress of each subscriber
+     */
+    public List<Subscription> getSubscriptions() {
+        return new ArrayList<>(subscriptions.values());
+    }
+
+    /**
+     * Stop all consumer threads; undelivered events are discarded.
+     */
+    public void shutdown() {
+        shutdown(0);
+    }
+
+    /**
+     * Stop accepting events and stop all consumer threads once they have delivered their buffered events, or once
+     * the timeout has expired, whichever comes first. Events which are still undelivered at that point are discarded.
+     *
+     * @param timeoutMillis
+     *     the maximum time to wait for the buffered events to be delivered
+     */
+    public void shutdown(long timeoutMillis) {
+        List<Subscription> stopping = new ArrayList<>(subscriptions.values());
+        subscriptions.clear();
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (Subscription subscription : stopping) {
+            subscription.drain(deadline);
+        }
+        for (Subscription subscription : stopping) {
+            subscription.stop();
+            subscription.awaitTermination(deadline);
+            log.info("Stopped notification dispatch to " + subscription.getSubscriber().getClass().getSimpleName()
+                    + ": dispatched=" + subscription.getDispatchedCount() + ", delivered=" + subscription.getDeliveredCount()
+                    + ", dropped=" + subscription.getDroppedCount() + ", coalesced=" + subscription.getCoalescedCount()
+                    + ", undelivered=" + subscription.getLag());
+        }
+    }
+
+    /**
+     * The resource of an event, across versions
+     */
+    private static String key(FHIRNotificationEvent event) {
+        String location = event.getLocation();
+        int history = (location != null) ? location.indexOf("/_history") : -1;
+        return event.getTenantId() + "|" + event.getDatasourceId() + "|" + ((history != -1) ? location.substring(0, history) : location);
+    }
+
+    /**
+     * A buffered event; with coalescing, the event itself is held in the map of latest events by resource
+     */
+    private static class Entry {
+        final String key;
+        final FHIRNotificationEvent event;
+        final long dispatchTime;
+
+        Entry(String key, FHIRNotificationEvent event) {
+            this.key = key;
+            this.event = event;
+            this.dispatchTime = System.nanoTime();
+        }
+    }
+
+    /**
+     * The buffer, consumer thread and counters of a single subscriber.
+     */
+    public class Subscription implements Runnable {
+        private final FHIRNotificationSubscriber subscriber;
+        private final RingBuffer<Entry> buffer = new RingBuffer<>(bufferSize);
+        private final Map<String, FHIRNotificationEvent> latest = coalesce ? new ConcurrentHashMap<>() : null;
+        private final Thread consumer;
+        private volatile boolean active = true;
+        private volatile boolean waiting;
+
+        private final AtomicLong dispatchedCount = new AtomicLong();
+        private final AtomicLong deliveredCount = new AtomicLong();
+        private final AtomicLong droppedCount = new AtomicLong();
+        private final AtomicLong coalescedCount = new AtomicLong();
+        private volatile long lastDeliveryDelay;
+
+        private Subscription(FHIRNotificationSubscriber subscriber) {
+            this.subscriber = subscriber;
+            this.consumer = new Thread(this, "fhir-notification-dispatcher-" + THREAD_COUNT.incrementAndGet());
+            this.consumer.setDaemon(true);
+        }
+
+        private Subscription start() {
+            consumer.start();
+            return this;
+        }
+
+        private void stop() {
+            active = false;
+            LockSupport.unpark(consumer);
+        }
+
+        /**
+         * Wait until the buffered events are delivered or the deadline has passed
+         */
+        private void drain(long deadline) {
+            while (active && buffer.size() > 0 && System.nanoTime() - deadline < 0) {
+                LockSupport.parkNanos(BLOCK_PARK_NANOS);
+            }
+        }
+
+        /**
+         * Wait until the consumer thread has finished the delivery it is in, or the deadline has passed
+         */
+        private void awaitTermination(long deadline) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining > 0) {
+                try {
+                    consumer.join(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        /**
+         * Count a discarded event, and log a warning on the first drop and then each time the count doubles, so
+         * that an overflowing subscriber shows up in the log without flooding it
+         */
+        private void dropped() {
+            long count = droppedCount.incrementAndGet();
+            if ((count & (count - 1)) == 0) {
+                log.warning("Notification buffer of " + subscriber.getClass().getSimpleName() + " is full; "
+                        + count + " events were dropped so far (overflowPolicy=" + overflowPolicy.value() + ")");
+            }
+        }
+
+        public FHIRNotificationSubscriber getSubscriber() {
+            return subscriber;
+        }
+
+        /**
+         * @return the number of events which are buffered and not yet delivered
+         */
+        public int getLag() {
+            return buffer.size();
+        }
+
+        /**
+         * @return the time in milliseconds between the dispatch and the delivery of the last delivered event
+         */
+        public long getLastDeliveryDelayMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(lastDeliveryDelay);
+        }
+
+        /**
+         * @return the number of events which were dispatched to this subscriber
+         */
+        public long getDispatchedCount() {
+            return dispatchedCount.get();
+        }
+
+        /**
+         * @return the number of events which were delivered to this subscriber
+         */
+        public long getDeliveredCount() {
+            return deliveredCount.get();
+        }
+
+        /**
+         * @return the number of events which were discarded because the buffer was full
+         */
+        public long getDroppedCount() {
+            return droppedCount.get();
+        }
+
+        /**
+         * @return the number of events which were replaced by a later event for the same resource
+         */
+        public long getCoalescedCount() {
+            return coalescedCount.get();
+        }
+
+        private void offer(FHIRNotificationEvent event) {
+            dispatchedCount.incrementAndGet();
+            if (coalesce) {
+                String key = key(event);
+                if (latest.put(key, event) != null) {
+                    // the resource already has an entry in the buffer, which now delivers this event
+                    coalescedCount.incrementAndGet();
+                    return;
+                }
+                if (!enqueue(new Entry(key, null))) {
+                    // remove whatever is there, because no entry in the buffer refers to it
+                    latest.remove(key);
+                }
+            } else {
+                enqueue(new Entry(null, event));
+            }
+        }
+
+        private boolean enqueue(Entry entry) {
+            long deadline = 0;
+            while (!buffer.offer(entry)) {
+                switch (overflowPolicy) {
+                case BLOCK:
+                    if (!active) {
+                        return false;
+                    }
+                    if (deadline == 0) {
+                        deadline = System.nanoTime() + BLOCK_TIMEOUT_NANOS;
+                    } else if (System.nanoTime() - deadline > 0) {
+                        // don't hold the request thread any longer for a stalled subscriber
+                        dropped();
+                        return false;
+                    }
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                    break;
+                case DROP_NEWEST:
+                    dropped();
+                    return false;
+                case DROP_OLDEST:
+                    Entry oldest = buffer.poll();
+                    if (oldest != null) {
+                        if (coalesce) {
+                            latest.remove(oldest.key);
+                        }
+                        dropped();
+                    }
+                    break;
+                }
+            }
+            if (waiting) {
+                LockSupport.unpark(consumer);
+            }
+            return true;
+        }
+
+        @Override
+        public void run() {
+            while (active) {
+                Entry entry = buffer.poll();
+                if (entry == null) {
+                    // announce the wait before checking again, so that a producer which adds an entry after the
+                    // check sees the flag and unparks this thread
+                    waiting = true;
+                    entry = buffer.poll();
+                    if (entry == null) {
+                        LockSupport.park(this);
+                        waiting = false;
+                        continue;
+                    }
+                    waiting = false;
+                }
+                deliver(entry);
+            }
+        }
+
+        private void deliver(Entry entry) {
+            FHIRNotificationEvent event = coalesce ? latest.remove(entry.key) : entry.event;
+            if (event == null) {
+                return;
+            }
+            try {
+                subscriber.notify(event);
+                deliveredCount.incrementAndGet();
+                lastDeliveryDelay = System.nanoTime() - entry.dispatchTime;
+            } catch (FHIRNotificationException e) {
+                log.log(Level.WARNING, FHIRNotificationDispatcher.class.getName() + ": unable to publish event", e);
+                active = false;
+                onFailure.accept(subscriber);
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, FHIRNotificationDispatcher.class.getName() + ": unable to publish event", e);
+            }
+        }
+    }
+}
@@ -16,7 +16,9 @@ import java.util.logging.Logger;
 
 import com.ibm.fhir.config.FHIRConfiguration;
 import com.ibm.fhir.config.FHIRRequestContext;
+import com.ibm.fhir.config.PropertyGroup;
 import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.notification.FHIRNotificationDispatcher.OverflowPolicy;
 import com.ibm.fhir.notification.exception.FHIRNotificationException;
 import com.ibm.fhir.persistence.interceptor.FHIRPersistenceEvent;
 import com.ibm.fhir.persistence.interceptor.FHIRPersistenceInterceptor;
@@ -28,9 +30,13 @@ import com.ibm.fhir.persistence.interceptor.impl.FHIRPersistenceInterceptorMgr;
  */
 public class FHIRNotificationService implements FHIRPersistenceInterceptor {
     private static final Logger log = java.util.logging.Logger.getLogger(FHIRNotificationService.class.getName());
+    private static final int DEFAULT_DISPATCHER_BUFFER_SIZE = 1024;
+    private static final long DISPATCHER_SHUTDOWN_TIMEOUT_MILLIS = 10000;
     private List<FHIRNotificationSubscriber> subscribers = new CopyOnWriteArrayList<>();
     private static final FHIRNotificationService INSTANCE = new FHIRNotificationService();
     private Set<String> includedResourceTypes = Collections.synchronizedSortedSet(new TreeSet<String>());
+    // null if events are published synchronously
+    private FHIRNotificationDispatcher dispatcher;
 
     private FHIRNotificationService() {
         log.entering(this.getClass().getName(), "FHIRNotificationService");
@@ -40,6 +46,7 @@ public class FHIRNotificationService implements FHIRPersistenceInterceptor {
             FHIRPersistenceInterceptorMgr.getInstance().addPrioritizedInterceptor(this);
 
             initNotificationResourceTypes();
+            initDispatcher();
         } catch (Throwable t) {
             throw new RuntimeException("Unexpected error during initialization.", t);
         }
@@ -58,17 +65,36 @@ public class FHIRNotificationService implements FHIRPersistenceInterceptor {
                 + (includedResourceTypes.isEmpty() ? "ALL" : includedResourceTypes.toString()) + "'");
     }
 
+    private void initDispatcher() throws Exception {
+        PropertyGroup fhirConfig = FHIRConfiguration.getInstance().loadConfiguration();
+        if (fhirConfig.getBooleanProperty(FHIRConfiguration.PROPERTY_NOTIFICATION_DISPATCHER_ENABLED, Boolean.TRUE)) {
+            int bufferSize = fhirConfig.getIntProperty(FHIRConfiguration.PROPERTY_NOTIFICATION_DISPATCHER_BUFFER_SIZE, DEFAULT_DISPATCHER_BUFFER_SIZE);
+            OverflowPolicy overflowPolicy = OverflowPolicy.from(fhirConfig.getStringProperty(FHIRConfiguration.PROPERTY_NOTIFICATION_DISPATCHER_OVERFLOW_POLICY,
+                OverflowPolicy.DROP_OLDEST.value()));
+            boolean coalesce = fhirConfig.getBooleanProperty(FHIRConfiguration.PROPERTY_NOTIFICATION_DISPATCHER_COALESCE, Boolean.FALSE);
+            dispatcher = new FHIRNotificationDispatcher(bufferSize, overflowPolicy, coalesce, this::unsubscribe);
+            log.info("Notification service will dispatch events asynchronously: bufferSize=" + bufferSize
+                    + ", overflowPolicy=" + overflowPolicy.value() + ", coalesce=" + coalesce);
+        }
+    }
+
     public static FHIRNotificationService getInstance() {
         return INSTANCE;
     }
 
     /**
-     * Method for broadcasting message to each subscriber.
+     * Method for broadcasting message to each subscriber. With the dispatcher enabled, the event is only buffered
+     * for each subscriber, which receives it on its own thread.
      *
      * @param event
      */
     public void publish(FHIRNotificationEvent event) {
         log.entering(this.getClass().getName(), "publish");
+        if (dispatcher != null) {
+            dispatcher.dispatch(event);
+            log.exiting(this.getClass().getName(), "publish");
+            return;
+        }
         for (FHIRNotificationSubscriber subscriber : subscribers) {
             try {
                 subscriber.notify(event);
@@ -90,6 +116,9 @@ public class FHIRNotificationService implements FHIRPersistenceInterceptor {
         try {
             if (!subscribers.contains(subscriber)) {
                 subscribers.add(subscriber);
+                if (dispatcher != null) {
+                    dispatcher.add(subscriber);
+                }
             }
         } finally {
             log.exiting(this.getClass().getName(), "subscribe");
@@ -107,6 +136,9 @@ public class FHIRNotificationService implements FHIRPersistenceInterceptor {
             if (subscribers.contains(subscriber)) {
                 subscribers.remove(subscriber);
             }
+            if (dispatcher != null) {
+                dispatcher.remove(subscriber);
+            }
         } finally {
             log.exiting(this.getClass().getName(), "unsubscribe");
         }
@@ -127,6 +159,28 @@ public class FHIRNotificationService implements FHIRPersistenceInterceptor {
         }
     }
 
+    /**
+     * Deliver the events which are buffered by the dispatcher, if any, and stop its consumer threads. Called when the
+     * server stops, before the subscribers themselves are shut down.
+     */
+    public void shutdown() {
+        log.entering(this.getClass().getName(), "shutdown");
+        try {
+            if (dispatcher != null) {
+                dispatcher.shutdown(DISPATCHER_SHUTDOWN_TIMEOUT_MILLIS);
+            }
+        } finally {
+            log.exiting(this.getClass().getName(), "shutdown");
+        }
+    }
+
+    /**
+     * @return the dispatcher which delivers events to the subscribers, or null if events are published synchronously
+     */
+    public FHIRNotificationDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
     ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     // The following set of methods are from the FHIRPersistenceInterceptor interface and are implemented here to allow
     // the notification service to be registered as a persistence interceptor. All we really need to do in these methods
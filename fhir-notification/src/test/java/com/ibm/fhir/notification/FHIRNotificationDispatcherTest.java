@@ -0,0 +1,259 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.notification;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.notification.FHIRNotificationDispatcher.OverflowPolicy;
+import com.ibm.fhir.notification.FHIRNotificationDispatcher.Subscription;
+import com.ibm.fhir.notification.exception.FHIRNotificationException;
+
+public class FHIRNotificationDispatcherTest {
+
+    @Test
+    public void testRingBuffer() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(3);
+        assertEquals(buffer.capacity(), 4);
+        for (int lap = 0; lap < 3; lap++) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(buffer.offer(i));
+            }
+            assertEquals(buffer.offer(4), false);
+            assertEquals(buffer.size(), 4);
+            for (int i = 0; i < 4; i++) {
+                assertEquals(buffer.poll(), Integer.valueOf(i));
+            }
+            assertNull(buffer.poll());
+        }
+    }
+
+    @Test
+    public void testDeliveryInOrder() throws Exception {
+        FHIRNotificationDispatcher dispatcher = new FHIRNotificationDispatcher(16, OverflowPolicy.BLOCK, false, s -> { });
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        dispatcher.add(subscriber);
+        for (int i = 0; i < 100; i++) {
+            dispatcher.dispatch(event("Patient/" + i, 1));
+        }
+        waitFor(() -> subscriber.events.size() == 100);
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            expected.add("Patient/" + i + "/_history/1");
+        }
+        assertEquals(subscriber.locations(), expected);
+        Subscription subscription = dispatcher.getSubscriptions().get(0);
+        assertEquals(subscription.getDeliveredCount(), 100);
+        assertEquals(subscription.getDroppedCount(), 0);
+        assertEquals(subscription.getLag(), 0);
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void testSlowSubscriberIsIsolated() throws Exception {
+        FHIRNotificationDispatcher dispatcher = new FHIRNotificationDispatcher(4, OverflowPolicy.DROP_NEWEST, false, s -> { });
+        RecordingSubscriber slow = new RecordingSubscriber();
+        slow.blocked = new CountDownLatch(1);
+        RecordingSubscriber fast = new RecordingSubscriber();
+        dispatcher.add(slow);
+        dispatcher.add(fast);
+
+        // the fast subscriber receives each event while the slow one is stuck on its first
+        for (int i = 0; i < 20; i++) {
+            dispatcher.dispatch(event("Patient/" + i, 1));
+            int count = i + 1;
+            waitFor(() -> fast.events.size() == count);
+        }
+
+        Subscription slowSubscription = dispatcher.getSubscriptions().stream()
+                .filter(s -> s.getSubscriber() == slow).findFirst().get();
+        assertTrue(slowSubscription.getDroppedCount() >= 15);
+        assertTrue(slowSubscription.getLag() <= 4);
+
+        slow.blocked.countDown();
+        waitFor(() -> slowSubscription.getLag() == 0 && slowSubscription.getDeliveredCount() + slowSubscription.getDroppedCount() == 20);
+        // the events which were kept are delivered in order
+        List<String> locations = slow.locations();
+        List<String> sorted = new ArrayList<>(locations);
+        Collections.sort(sorted, (a, b) -> Integer.compare(id(a), id(b)));
+        assertEquals(locations, sorted);
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+        FHIRNotificationDispatcher dispatcher = new FHIRNotificationDispatcher(4, OverflowPolicy.DROP_OLDEST, false, s -> { });
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        subscriber.blocked = new CountDownLatch(1);
+        dispatcher.add(subscriber);
+
+        for (int i = 0; i < 20; i++) {
+            dispatcher.dispatch(event("Patient/" + i, 1));
+        }
+        subscriber.blocked.countDown();
+        Subscription subscription = dispatcher.getSubscriptions().get(0);
+        waitFor(() -> subscription.getLag() == 0 && subscription.getDeliveredCount() + subscription.getDroppedCount() == 20);
+
+        // the latest events are kept
+        List<String> locations = subscriber.locations();
+        assertEquals(locations.get(locations.size() - 1), "Patient/19/_history/1");
+        assertEquals(locations.get(locations.size() - 4), "Patient/16/_history/1");
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void testBlockTimesOut() throws Exception {
+        FHIRNotificationDispatcher dispatcher = new FHIRNotificationDispatcher(2, OverflowPolicy.BLOCK, false, s -> { });
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        subscriber.blocked = new CountDownLatch(1);
+        dispatcher.add(subscriber);
+        Subscription subscription = dispatcher.getSubscriptions().get(0);
+
+        // the consumer is stuck on the first event and the next two fill the buffer
+        dispatcher.dispatch(event("Patient/0", 1));
+        waitFor(() -> subscription.getLag() == 0);
+        dispatcher.dispatch(event("Patient/1", 1));
+        dispatcher.dispatch(event("Patient/2", 1));
+
+        // a stalled subscriber holds the publishing thread only until the wait times out
+        long start = System.nanoTime();
+        dispatcher.dispatch(event("Patient/3", 1));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000);
+        assertEquals(subscription.getDroppedCount(), 1);
+
+        subscriber.blocked.countDown();
+        waitFor(() -> subscription.getDeliveredCount() == 3);
+        assertEquals(subscriber.locations(), Arrays.asList("Patient/0/_history/1", "Patient/1/_history/1", "Patient/2/_history/1"));
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void testCoalesce() throws Exception {
+        FHIRNotificationDispatcher dispatcher = new FHIRNotificationDispatcher(16, OverflowPolicy.BLOCK, true, s -> { });
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        subscriber.blocked = new CountDownLatch(1);
+        dispatcher.add(subscriber);
+
+        // the consumer blocks on the first event while the updates of the others are buffered
+        dispatcher.dispatch(event("Patient/0", 1));
+        for (int version = 1; version <= 10; version++) {
+            dispatcher.dispatch(event("Patient/1", version));
+            dispatcher.dispatch(event("Patient/2", version));
+        }
+        subscriber.blocked.countDown();
+        Subscription subscription = dispatcher.getSubscriptions().get(0);
+        waitFor(() -> subscription.getDeliveredCount() + subscription.getCoalescedCount() == 21);
+
+        List<String> locations = subscriber.locations();
+        assertEquals(locations.get(locations.size() - 2), "Patient/1/_history/10");
+        assertEquals(locations.get(locations.size() - 1), "Patient/2/_history/10");
+        assertTrue(subscription.getCoalescedCount() >= 16);
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void testFailingSubscriberIsRemoved() throws Exception {
+        List<FHIRNotificationSubscriber> failed = new CopyOnWriteArrayList<>();
+        FHIRNotificationDispatcher dispatcher = new FHIRNotificationDispatcher(16, OverflowPolicy.BLOCK, false, failed::add);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        subscriber.fail = true;
+        dispatcher.add(subscriber);
+        dispatcher.dispatch(event("Patient/1", 1));
+        waitFor(() -> failed.contains(subscriber));
+        dispatcher.remove(subscriber);
+        assertTrue(dispatcher.getSubscriptions().isEmpty());
+    }
+
+    @Test
+    public void testShutdownDeliversBufferedEvents() throws Exception {
+        FHIRNotificationDispatcher dispatcher = new FHIRNotificationDispatcher(16, OverflowPolicy.BLOCK, false, s -> { });
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        subscriber.blocked = new CountDownLatch(1);
+        dispatcher.add(subscriber);
+        for (int i = 0; i < 10; i++) {
+            dispatcher.dispatch(event("Patient/" + i, 1));
+        }
+
+        // the subscriber is still stuck on its first event when the shutdown starts
+        Thread release = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            subscriber.blocked.countDown();
+        });
+        release.start();
+        dispatcher.shutdown(10000);
+
+        assertEquals(subscriber.events.size(), 10);
+        assertTrue(dispatcher.getSubscriptions().isEmpty());
+        // events dispatched after the shutdown are not delivered
+        dispatcher.dispatch(event("Patient/10", 1));
+        assertEquals(subscriber.events.size(), 10);
+    }
+
+    private static FHIRNotificationEvent event(String resource, int version) {
+        FHIRNotificationEvent event = new FHIRNotificationEvent();
+        event.setOperationType("update");
+        event.setLocation(resource + "/_history/" + version);
+        event.setTenantId("default");
+        event.setDatasourceId("default");
+        return event;
+    }
+
+    private static int id(String location) {
+        return Integer.parseInt(location.split("/")[1]);
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    private static class RecordingSubscriber implements FHIRNotificationSubscriber {
+        final List<FHIRNotificationEvent> events = new CopyOnWriteArrayList<>();
+        volatile CountDownLatch blocked;
+        volatile boolean fail;
+
+        @Override
+        public void notify(FHIRNotificationEvent event) throws FHIRNotificationException {
+            if (fail) {
+                throw new FHIRNotificationException("subscriber unavailable");
+            }
+            if (blocked != null) {
+                try {
+                    blocked.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            events.add(event);
+        }
+
+        List<String> locations() {
+            return events.stream().map(FHIRNotificationEvent::getLocation).collect(Collectors.toList());
+        }
+    }
+}
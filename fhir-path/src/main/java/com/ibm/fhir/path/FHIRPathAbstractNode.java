@@ -10,6 +10,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Objects;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -18,14 +19,19 @@ public abstract class FHIRPathAbstractNode implements FHIRPathNode {
     protected final String path;
     protected final FHIRPathType type;
     protected final FHIRPathSystemValue value;
-    protected final Collection<FHIRPathNode> children;
+    private volatile Collection<FHIRPathNode> children;
+    private Supplier<Collection<FHIRPathNode>> childrenLoader;
     
     protected FHIRPathAbstractNode(Builder builder) {
         name = builder.name;
         path = builder.path;
         type = Objects.requireNonNull(builder.type);
         value = builder.value;
-        children = Collections.unmodifiableCollection(builder.children);
+        if (builder.childrenLoader != null) {
+            childrenLoader = builder.childrenLoader;
+        } else {
+            children = Collections.unmodifiableCollection(builder.children);
+        }
     }
     
     @Override
@@ -53,9 +59,24 @@ public abstract class FHIRPathAbstractNode implements FHIRPathNode {
         return value;
     }
     
+    /**
+     * Get the children of this node. Children of nodes that were built with a children loader are loaded on
+     * first access and memoized.
+     */
     @Override
     public Collection<FHIRPathNode> children() {
-        return children;
+        Collection<FHIRPathNode> result = children;
+        if (result == null) {
+            synchronized (this) {
+                result = children;
+                if (result == null) {
+                    result = Collections.unmodifiableCollection(childrenLoader.get());
+                    children = result;
+                    childrenLoader = null;
+                }
+            }
+        }
+        return result;
     }
     
     @Override
@@ -95,6 +116,7 @@ public abstract class FHIRPathAbstractNode implements FHIRPathNode {
         protected String path;
         protected FHIRPathSystemValue value;
         protected Collection<FHIRPathNode> children = new ArrayList<>();
+        protected Supplier<Collection<FHIRPathNode>> childrenLoader;
         
         protected Builder(FHIRPathType type) {
             super();
@@ -135,6 +157,19 @@ public abstract class FHIRPathAbstractNode implements FHIRPathNode {
             return this;
         }
         
+        /**
+         * Defer the creation of the children of the node being built until they are first accessed
+         * 
+         * @param childrenLoader
+         *     the supplier that loads the children; children added directly to this builder are ignored
+         * @return
+         *     a reference to this builder
+         */
+        Builder childrenLoader(Supplier<Collection<FHIRPathNode>> childrenLoader) {
+            this.childrenLoader = childrenLoader;
+            return this;
+        }
+        
         @Override
         public abstract FHIRPathNode build();
     }
@@ -19,23 +19,37 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import com.ibm.fhir.model.resource.Resource;
 import com.ibm.fhir.model.type.Element;
 import com.ibm.fhir.model.type.Quantity;
 import com.ibm.fhir.model.visitor.PathAwareVisitor;
+import com.ibm.fhir.model.visitor.Visitable;
 
 /**
  * A tree of {@link FHIRPathNode} nodes created from a {@link Resource} or an {@link Element}
+ *
+ * <p>A tree is either built eagerly, with a node for every element of the resource or element, or lazily, where the
+ * children of a node are created on first navigation and memoized. Lazy trees avoid materializing the parts of large
+ * resources that an expression never visits; both kinds of tree have the same shape once fully navigated.
  */
 public class FHIRPathTree {
     private final FHIRPathNode root;
     private final Map<String, FHIRPathNode> pathNodeMap;
+    private final boolean lazy;
 
     private FHIRPathTree(FHIRPathNode root, Map<String, FHIRPathNode> pathNodeMap) {
         this.root = root;
         this.pathNodeMap = Collections.unmodifiableMap(pathNodeMap);
+        this.lazy = false;
+    }
+
+    private FHIRPathTree(LazyTreeBuilder builder) {
+        this.root = builder.root;
+        this.pathNodeMap = builder.pathNodeMap;
+        this.lazy = true;
     }
 
     /**
@@ -57,7 +71,44 @@ public class FHIRPathTree {
      *     the node at the location given by the path parameter if exists, otherwise null
      */
     public FHIRPathNode getNode(String path) {
-        return pathNodeMap.get(path);
+        if (!lazy) {
+            return pathNodeMap.get(path);
+        }
+        if (path == null) {
+            return null;
+        }
+        FHIRPathNode node = pathNodeMap.get(path);
+        return (node != null) ? node : findNode(root, path);
+    }
+
+    /**
+     * Descend from the passed node along the nodes whose path is a prefix of the path parameter,
+     * creating the nodes of a lazy tree along the way
+     */
+    private FHIRPathNode findNode(FHIRPathNode node, String path) {
+        while (node != null && !path.equals(node.path())) {
+            FHIRPathNode next = null;
+            for (FHIRPathNode child : node.children()) {
+                String childPath = child.path();
+                if (childPath != null && path.startsWith(childPath) &&
+                        (path.length() == childPath.length() || path.charAt(childPath.length()) == '.')) {
+                    next = child;
+                    break;
+                }
+            }
+            node = next;
+        }
+        return node;
+    }
+
+    /**
+     * Indicates whether the children of the nodes in this FHIRPathTree are created on first navigation
+     *
+     * @return
+     *     true if this FHIRPathTree was created lazily, otherwise false
+     */
+    public boolean isLazy() {
+        return lazy;
     }
 
     /**
@@ -75,7 +126,7 @@ public class FHIRPathTree {
 
         int index = node.path().lastIndexOf(".");
         if (index != -1) {
-            return pathNodeMap.get(node.path().substring(0, index));
+            return getNode(node.path().substring(0, index));
         }
 
         return null;
@@ -166,6 +217,212 @@ public class FHIRPathTree {
         return new FHIRPathTree(visitor.getRoot(), visitor.getPathNodeMap());
     }
 
+    /**
+     * Static factory method for creating lazy FHIRPathTree instances from a {@link Resource}
+     *
+     * <p>The root node is created immediately; the children of each node are created when {@link FHIRPathNode#children()}
+     * is first called on that node.
+     *
+     * @param resource
+     *     the resource
+     * @return
+     *     a new lazy FHIRPathTree instance
+     */
+    public static FHIRPathTree lazyTree(Resource resource) {
+        Objects.requireNonNull(resource);
+        return new FHIRPathTree(new LazyTreeBuilder(resource));
+    }
+
+    /**
+     * Static factory method for creating lazy FHIRPathTree instances from an {@link Element}
+     *
+     * <p>The root node is created immediately; the children of each node are created when {@link FHIRPathNode#children()}
+     * is first called on that node.
+     *
+     * @param element
+     *     the element
+     * @return
+     *     a new lazy FHIRPathTree instance
+     */
+    public static FHIRPathTree lazyTree(Element element) {
+        Objects.requireNonNull(element);
+        return new FHIRPathTree(new LazyTreeBuilder(element));
+    }
+
+    /**
+     * Creates the nodes of a lazy tree one level at a time
+     */
+    private static class LazyTreeBuilder {
+        private final Map<String, FHIRPathNode> pathNodeMap = new ConcurrentHashMap<>();
+        private final FHIRPathNode root;
+
+        private LazyTreeBuilder(Visitable visitable) {
+            ExpandingVisitor visitor = new ExpandingVisitor(this, null);
+            if (visitable instanceof Resource) {
+                ((Resource) visitable).accept(visitor);
+            } else {
+                ((Element) visitable).accept(visitor);
+            }
+            root = visitor.getBuilder().path(visitor.getBasePath()).build();
+            pathNodeMap.put(root.path(), root);
+        }
+
+        /**
+         * Create the children of the node with the passed name and path that wraps the passed visitable
+         */
+        private Collection<FHIRPathNode> expand(String name, String path, Visitable visitable) {
+            ExpandingVisitor visitor = new ExpandingVisitor(this, path);
+            if (visitable instanceof Resource) {
+                ((Resource) visitable).accept(name, -1, visitor);
+            } else {
+                ((Element) visitable).accept(name, -1, visitor);
+            }
+            return visitor.getBuilder().children;
+        }
+    }
+
+    /**
+     * Visits a single node and its direct children. The node is built up in the same way as the
+     * {@link BuildingVisitor} would build it, except that each of its children is built with a children loader
+     * instead of its own children.
+     */
+    private static class ExpandingVisitor extends PathAwareVisitor {
+        private final LazyTreeBuilder treeBuilder;
+        private final Stack<FHIRPathAbstractNode.Builder> builderStack = new Stack<>();
+        private String basePath;
+        private int prefixLength;
+        private FHIRPathAbstractNode.Builder builder;
+
+        private ExpandingVisitor(LazyTreeBuilder treeBuilder, String basePath) {
+            this.treeBuilder = treeBuilder;
+            this.basePath = basePath;
+        }
+
+        private FHIRPathAbstractNode.Builder getBuilder() {
+            return builder;
+        }
+
+        private String getBasePath() {
+            return basePath;
+        }
+
+        @Override
+        public boolean preVisit(Element element) {
+            // the node itself and its direct children
+            return builderStack.size() < 2;
+        }
+
+        @Override
+        public boolean preVisit(Resource resource) {
+            return builderStack.size() < 2;
+        }
+
+        private void push(FHIRPathAbstractNode.Builder builder) {
+            if (builderStack.isEmpty()) {
+                String path = getPath();
+                if (basePath == null) {
+                    basePath = path;
+                }
+                prefixLength = path.length();
+            }
+            builderStack.push(builder);
+        }
+
+        private void build(Visitable visitable) {
+            FHIRPathAbstractNode.Builder builder = builderStack.pop();
+            if (builderStack.isEmpty()) {
+                this.builder = builder;
+                return;
+            }
+            String path = basePath + getPath().substring(prefixLength);
+            String name = builder.name;
+            FHIRPathNode node = builder.path(path)
+                    .childrenLoader(() -> treeBuilder.expand(name, path, visitable))
+                    .build();
+            treeBuilder.pathNodeMap.put(path, node);
+            builderStack.peek().children(node);
+        }
+
+        @Override
+        protected void doVisitEnd(String elementName, int elementIndex, Element element) {
+            build(element);
+        }
+
+        @Override
+        protected void doVisitEnd(String elementName, int elementIndex, Resource resource) {
+            build(resource);
+        }
+
+        @Override
+        protected void doVisitStart(String elementName, int elementIndex, Element element) {
+            if (element instanceof Quantity) {
+                Quantity quantity = (Quantity) element;
+                push(FHIRPathQuantityNode.builder(quantity).name(elementName));
+                FHIRPathQuantityValue value = FHIRPathQuantityValue.quantityValue(quantity);
+                if (value != null) {
+                    builderStack.peek().value(value);
+                }
+            } else {
+                push(FHIRPathElementNode.builder(element).name(elementName));
+            }
+        }
+
+        @Override
+        protected void doVisitStart(String elementName, int elementIndex, Resource resource) {
+            push(FHIRPathResourceNode.builder(resource).name(elementName));
+        }
+
+        @Override
+        public void visit(java.lang.String elementName, BigDecimal value) {
+            builderStack.peek().value(FHIRPathDecimalValue.decimalValue(elementName, value));
+        }
+
+        @Override
+        public void visit(java.lang.String elementName, byte[] value) {
+            builderStack.peek().value(FHIRPathStringValue.stringValue(elementName, Base64.getEncoder().encodeToString(value)));
+        }
+
+        @Override
+        public void visit(java.lang.String elementName, java.lang.Boolean value) {
+            builderStack.peek().value(FHIRPathBooleanValue.booleanValue(elementName, value));
+        }
+
+        @Override
+        public void visit(java.lang.String elementName, java.lang.Integer value) {
+            builderStack.peek().value(FHIRPathIntegerValue.integerValue(elementName, value));
+        }
+
+        @Override
+        public void doVisit(java.lang.String elementName, java.lang.String value) {
+            builderStack.peek().value(FHIRPathStringValue.stringValue(elementName, value));
+        }
+
+        @Override
+        public void visit(java.lang.String elementName, LocalDate value) {
+            builderStack.peek().value(FHIRPathDateTimeValue.dateTimeValue(elementName, value));
+        }
+
+        @Override
+        public void visit(java.lang.String elementName, LocalTime value) {
+            builderStack.peek().value(FHIRPathTimeValue.timeValue(elementName, value));
+        }
+
+        @Override
+        public void visit(java.lang.String elementName, Year value) {
+            builderStack.peek().value(FHIRPathDateTimeValue.dateTimeValue(elementName, value));
+        }
+
+        @Override
+        public void visit(java.lang.String elementName, YearMonth value) {
+            builderStack.peek().value(FHIRPathDateTimeValue.dateTimeValue(elementName, value));
+        }
+
+        @Override
+        public void visit(java.lang.String elementName, ZonedDateTime value) {
+            builderStack.peek().value(FHIRPathDateTimeValue.dateTimeValue(elementName, value));
+        }
+    }
+
     private static class BuildingVisitor extends PathAwareVisitor {
         private Stack<FHIRPathNode.Builder> builderStack = new Stack<>();
         private FHIRPathNode root;
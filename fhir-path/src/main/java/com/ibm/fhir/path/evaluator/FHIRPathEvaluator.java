@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2019, 2020
+ * (C) Copyright IBM Corp. 2019, 2021
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -96,8 +96,8 @@ public class FHIRPathEvaluator {
     public static final Collection<FHIRPathNode> SINGLETON_TRUE = singleton(FHIRPathBooleanValue.TRUE);
     public static final Collection<FHIRPathNode> SINGLETON_FALSE = singleton(FHIRPathBooleanValue.FALSE);
 
-    private static final int EXPRESSION_CONTEXT_CACHE_MAX_ENTRIES = 512;
-    private static final Map<String, ExpressionContext> EXPRESSION_CONTEXT_CACHE = createLRUCache(EXPRESSION_CONTEXT_CACHE_MAX_ENTRIES);
+    private static final int EXPRESSION_CACHE_MAX_ENTRIES = 512;
+    private static final Map<String, FHIRPathExpression> EXPRESSION_CACHE = createLRUCache(EXPRESSION_CACHE_MAX_ENTRIES);
 
     private final EvaluatingVisitor visitor = new EvaluatingVisitor();
 
@@ -252,12 +252,115 @@ public class FHIRPathEvaluator {
         try {
             evaluationContext.setExternalConstant("context", initialContext);
             setDateTimeConstants(evaluationContext);
-            return visitor.evaluate(evaluationContext, getExpressionContext(expr), initialContext);
+            return visitor.evaluate(evaluationContext, getExpression(expr), initialContext);
         } catch (Exception e) {
             throw new FHIRPathException("An error occurred while evaluating expression: " + expr, e);
         }
     }
 
+    /**
+     * Evaluate a compiled FHIRPath expression against a {@link Resource}
+     *
+     * @param resource
+     *     the resource
+     * @param expression
+     *     the compiled FHIRPath expression to evaluate
+     * @return
+     *     the result of evaluation as a non-null, potentially empty collection of FHIRPath nodes
+     * @throws NullPointerException
+     *     if any of the parameters are null
+     * @throws FHIRPathException
+     *     if an exception occurs during evaluation
+     */
+    public Collection<FHIRPathNode> evaluate(Resource resource, FHIRPathExpression expression) throws FHIRPathException {
+        return evaluate(new EvaluationContext(resource), expression);
+    }
+
+    /**
+     * Evaluate a compiled FHIRPath expression against an {@link Element}
+     *
+     * @param element
+     *     the element
+     * @param expression
+     *     the compiled FHIRPath expression to evaluate
+     * @return
+     *     the result of evaluation as a non-null, potentially empty collection of FHIRPath nodes
+     * @throws NullPointerException
+     *     if any of the parameters are null
+     * @throws FHIRPathException
+     *     if an exception occurs during evaluation
+     */
+    public Collection<FHIRPathNode> evaluate(Element element, FHIRPathExpression expression) throws FHIRPathException {
+        return evaluate(new EvaluationContext(element), expression);
+    }
+
+    /**
+     * Evaluate a compiled FHIRPath expression using an existing evaluation context
+     *
+     * @param evaluationContext
+     *     the evaluation context
+     * @param expression
+     *     the compiled FHIRPath expression to evaluate
+     * @return
+     *     the result of evaluation as a non-null, potentially empty collection of FHIRPath nodes
+     * @throws NullPointerException
+     *     if any of the parameters are null
+     * @throws FHIRPathException
+     *     if an exception occurs during evaluation
+     */
+    public Collection<FHIRPathNode> evaluate(EvaluationContext evaluationContext, FHIRPathExpression expression) throws FHIRPathException {
+        return evaluate(evaluationContext, expression, evaluationContext.getTree().getRoot());
+    }
+
+    /**
+     * Evaluate a compiled FHIRPath expression using an existing evaluation context against a FHIRPath node
+     *
+     * @param evaluationContext
+     *     the evaluation context
+     * @param expression
+     *     the compiled FHIRPath expression to evaluate
+     * @param node
+     *     the FHIRPath node
+     * @return
+     *     the result of evaluation as a non-null, potentially empty collection of FHIRPath nodes
+     * @throws NullPointerException
+     *     if any of the parameters are null
+     * @throws FHIRPathException
+     *     if an exception occurs during evaluation
+     */
+    public Collection<FHIRPathNode> evaluate(EvaluationContext evaluationContext, FHIRPathExpression expression, FHIRPathNode node) throws FHIRPathException {
+        return evaluate(evaluationContext, expression, singleton(node));
+    }
+
+    /**
+     * Evaluate a compiled FHIRPath expression using an existing EvaluationContext against a collection of FHIRPath nodes
+     *
+     * @param evaluationContext
+     *     the evaluation context
+     * @param expression
+     *     the compiled FHIRPath expression to evaluate
+     * @param initialContext
+     *     the initial context as a non-null, potentially empty collection of FHIRPath nodes
+     * @return
+     *     the result of evaluation as a collection of FHIRPath nodes
+     * @throws NullPointerException
+     *     if any of the parameters are null
+     * @throws FHIRPathException
+     *     if an exception occurs during evaluation
+     */
+    public Collection<FHIRPathNode> evaluate(EvaluationContext evaluationContext, FHIRPathExpression expression, Collection<FHIRPathNode> initialContext) throws FHIRPathException {
+        Objects.requireNonNull(evaluationContext);
+        Objects.requireNonNull(expression);
+        Objects.requireNonNull(initialContext);
+        try {
+            evaluationContext.setExternalConstant("context", initialContext);
+            setDateTimeConstants(evaluationContext);
+            return visitor.evaluate(evaluationContext, expression, initialContext);
+        } catch (Exception e) {
+            throw new FHIRPathException("An error occurred while evaluating expression: " + expression.getExpr(), e);
+        }
+    }
+
     private void setDateTimeConstants(EvaluationContext evaluationContext) {
         ZonedDateTime now = ZonedDateTime.now();
         evaluationContext.setExternalConstant("now", singleton(dateTimeValue(now)));
@@ -265,8 +368,37 @@ public class FHIRPathEvaluator {
         evaluationContext.setExternalConstant("timeOfDay", singleton(timeValue(LocalTime.from(now))));
     }
 
-    private static ExpressionContext getExpressionContext(String expr) {
-        return EXPRESSION_CONTEXT_CACHE.computeIfAbsent(Objects.requireNonNull(expr), FHIRPathUtil::compile);
+    private static FHIRPathExpression getExpression(String expr) {
+        return EXPRESSION_CACHE.computeIfAbsent(Objects.requireNonNull(expr), e -> new FHIRPathExpression(e, FHIRPathUtil.compile(e)));
+    }
+
+    /**
+     * Compile a FHIRPath expression into an immutable, thread-safe {@link FHIRPathExpression} that can be evaluated
+     * repeatedly, by any number of FHIRPathEvaluator instances, without being parsed or planned again
+     *
+     * @param expr
+     *     the FHIRPath expression to compile
+     * @return
+     *     the compiled FHIRPath expression
+     * @throws NullPointerException
+     *     if the passed expression is null
+     * @throws FHIRPathException
+     *     if the expression cannot be compiled
+     */
+    public static FHIRPathExpression compile(String expr) throws FHIRPathException {
+        Objects.requireNonNull(expr);
+        try {
+            return getExpression(expr);
+        } catch (Exception e) {
+            throw new FHIRPathException("An error occurred while compiling expression: " + expr, e);
+        }
+    }
+
+    /**
+     * Evaluate an expression that does not depend on the evaluation context (used for constant folding)
+     */
+    static Collection<FHIRPathNode> evaluateConstant(ExpressionContext expressionContext) {
+        return new EvaluatingVisitor().evaluate(new EvaluationContext(), expressionContext, empty());
     }
 
     /**
@@ -289,6 +421,7 @@ public class FHIRPathEvaluator {
         private static final Map<String, Collection<FHIRPathNode>> LITERAL_CACHE = createLRUCache(LITERAL_CACHE_MAX_ENTRIES);
 
         private EvaluationContext evaluationContext;
+        private FHIRPathExpression expression;
         private final Stack<Collection<FHIRPathNode>> contextStack = new Stack<>();
 
         private int indentLevel = 0;
@@ -304,6 +437,15 @@ public class FHIRPathEvaluator {
             return Collections.unmodifiableCollection(result);
         }
 
+        private Collection<FHIRPathNode> evaluate(EvaluationContext evaluationContext, FHIRPathExpression expression, Collection<FHIRPathNode> initialContext) {
+            try {
+                this.expression = expression;
+                return evaluate(evaluationContext, expression.getExpressionContext(), initialContext);
+            } finally {
+                this.expression = null;
+            }
+        }
+
         private EvaluationContext getEvaluationContext() {
             return evaluationContext;
         }
@@ -313,6 +455,30 @@ public class FHIRPathEvaluator {
             indentLevel = 0;
         }
 
+        @Override
+        public Collection<FHIRPathNode> visit(ParseTree tree) {
+            if (expression != null) {
+                Collection<FHIRPathNode> constant = expression.getConstant(tree);
+                if (constant != null) {
+                    return constant;
+                }
+            }
+            return tree.accept(this);
+        }
+
+        /**
+         * Resolve the type named by the passed type specifier or type name argument, using the compiled expression when available
+         */
+        private FHIRPathType resolveType(ParseTree typeName) {
+            if (expression != null) {
+                FHIRPathType type = expression.getType(typeName);
+                if (type != null) {
+                    return type;
+                }
+            }
+            return FHIRPathType.from(typeName.getText().replace("`", ""));
+        }
+
         private Collection<FHIRPathNode> all(List<ExpressionContext> arguments) {
             if (arguments.size() != 1) {
                 throw unexpectedNumberOfArguments(arguments.size(), "all");
@@ -336,9 +502,9 @@ public class FHIRPathEvaluator {
             }
             Collection<FHIRPathNode> result = new ArrayList<>();
             ExpressionContext typeName = arguments.iterator().next();
-            String identifier = typeName.getText().replace("`", "");
-            FHIRPathType type = FHIRPathType.from(identifier);
+            FHIRPathType type = resolveType(typeName);
             if (type == null) {
+                String identifier = typeName.getText().replace("`", "");
                 throw new IllegalArgumentException(String.format("Argument '%s' cannot be resolved to a valid type identifier", identifier));
             }
             for (FHIRPathNode node : getCurrentContext()) {
@@ -353,7 +519,7 @@ public class FHIRPathEvaluator {
             return result;
         }
 
-        private Set<String> closure(FHIRPathType type) {
+        static Set<String> closure(FHIRPathType type) {
             if (SYSTEM_NAMESPACE.equals(type.namespace())) {
                 return Collections.emptySet();
             }
@@ -415,8 +581,7 @@ public class FHIRPathEvaluator {
             }
 
             ExpressionContext typeName = arguments.iterator().next();
-            String identifier = typeName.getText().replace("`", "");
-            FHIRPathType type = FHIRPathType.from(identifier);
+            FHIRPathType type = resolveType(typeName);
             if (type == null) {
                 return SINGLETON_FALSE;
             }
@@ -430,9 +595,9 @@ public class FHIRPathEvaluator {
             }
             Collection<FHIRPathNode> result = new ArrayList<>();
             ExpressionContext typeName = arguments.get(0);
-            String identifier = typeName.getText().replace("`", "");
-            FHIRPathType type = FHIRPathType.from(identifier);
+            FHIRPathType type = resolveType(typeName);
             if (type == null) {
+                String identifier = typeName.getText().replace("`", "");
                 throw new IllegalArgumentException(String.format("Argument '%s' cannot be resolved to a valid type identifier", identifier));
             }
             for (FHIRPathNode node : getCurrentContext()) {
@@ -998,9 +1163,9 @@ public class FHIRPathEvaluator {
 
             Collection<FHIRPathNode> result = "is".equals(operator) ? SINGLETON_FALSE : new ArrayList<>();
 
-            String qualifiedIdentifier = getString(visit(ctx.typeSpecifier()));
-            FHIRPathType type = FHIRPathType.from(qualifiedIdentifier);
+            FHIRPathType type = resolveType(ctx.typeSpecifier());
             if (type == null) {
+                String qualifiedIdentifier = ctx.typeSpecifier().getText().replace("`", "");
                 throw new IllegalArgumentException(String.format("Argument '%s' cannot be resolved to a valid type identifier", qualifiedIdentifier));
             }
 
@@ -1041,7 +1206,10 @@ public class FHIRPathEvaluator {
         public Collection<FHIRPathNode> visitLiteralTerm(FHIRPathParser.LiteralTermContext ctx) {
             debug(ctx);
             indentLevel++;
-            Collection<FHIRPathNode> result = LITERAL_CACHE.computeIfAbsent(ctx.getText(), t -> visitChildren(ctx));
+            Collection<FHIRPathNode> result = (expression != null) ? expression.getConstant(ctx) : null;
+            if (result == null) {
+                result = LITERAL_CACHE.computeIfAbsent(ctx.getText(), t -> visitChildren(ctx));
+            }
             indentLevel--;
             return result;
         }
@@ -1199,10 +1367,13 @@ public class FHIRPathEvaluator {
 
             String functionName = getString(visit(ctx.identifier()));
 
-            List<ExpressionContext> arguments = new ArrayList<ExpressionContext>();
-            ParamListContext paramList = ctx.paramList();
-            if (paramList != null) {
-                arguments.addAll(ctx.paramList().expression());
+            List<ExpressionContext> arguments = (expression != null) ? expression.getArguments(ctx) : null;
+            if (arguments == null) {
+                arguments = new ArrayList<ExpressionContext>();
+                ParamListContext paramList = ctx.paramList();
+                if (paramList != null) {
+                    arguments.addAll(ctx.paramList().expression());
+                }
             }
 
             Collection<FHIRPathNode> currentContext = getCurrentContext();
@@ -1236,7 +1407,10 @@ public class FHIRPathEvaluator {
                 result = where(arguments);
                 break;
             default:
-                FHIRPathFunction function = FHIRPathFunction.registry().getFunction(functionName);
+                FHIRPathFunction function = (expression != null) ? expression.getFunction(ctx) : null;
+                if (function == null) {
+                    function = FHIRPathFunction.registry().getFunction(functionName);
+                }
                 if (function == null) {
                     throw new IllegalArgumentException("Function: '" + functionName + "' not found");
                 }
@@ -1377,8 +1551,6 @@ public class FHIRPathEvaluator {
          */
         public EvaluationContext(Resource resource) {
             this(FHIRPathTree.tree(resource));
-            externalConstantMap.put("rootResource", singleton(tree.getRoot()));
-            externalConstantMap.put("resource", singleton(tree.getRoot()));
         }
 
         /**
@@ -1391,8 +1563,23 @@ public class FHIRPathEvaluator {
             this(FHIRPathTree.tree(element));
         }
 
-        private EvaluationContext(FHIRPathTree tree) {
+        /**
+         * Create an evaluation context where the root of the passed tree is the context root.
+         * If the root is a resource node, sets %resource and %rootResource external constants to the root node,
+         * but these can be overridden.
+         *
+         * <p>Use this constructor with {@link FHIRPathTree#lazyTree(Resource)} to only create the nodes that
+         * are navigated during evaluation.
+         *
+         * @param tree
+         *     the FHIRPath tree, or null for stand-alone expressions
+         */
+        public EvaluationContext(FHIRPathTree tree) {
             this.tree = tree;
+            if (tree != null && tree.getRoot().isResourceNode()) {
+                externalConstantMap.put("rootResource", singleton(tree.getRoot()));
+                externalConstantMap.put("resource", singleton(tree.getRoot()));
+            }
         }
 
         /**
@@ -1549,5 +1736,18 @@ public class FHIRPathEvaluator {
         public boolean hasIssues() {
             return !issues.isEmpty();
         }
+
+        /**
+         * Create a copy of this evaluation context with the same tree and external constants, but without the
+         * constraint and supplemental issues, so that the copy can be used on another thread
+         *
+         * @return
+         *     a copy of this evaluation context
+         */
+        public EvaluationContext copy() {
+            EvaluationContext copy = new EvaluationContext(tree);
+            copy.externalConstantMap.putAll(externalConstantMap);
+            return copy;
+        }
     }
 }
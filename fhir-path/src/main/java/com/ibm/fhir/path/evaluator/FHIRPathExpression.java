@@ -0,0 +1,244 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.path.evaluator;
+
+import static com.ibm.fhir.path.FHIRPathStringValue.stringValue;
+import static com.ibm.fhir.path.util.FHIRPathUtil.singleton;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import com.ibm.fhir.path.FHIRPathNode;
+import com.ibm.fhir.path.FHIRPathParser;
+import com.ibm.fhir.path.FHIRPathParser.ExpressionContext;
+import com.ibm.fhir.path.FHIRPathParser.FunctionContext;
+import com.ibm.fhir.path.FHIRPathType;
+import com.ibm.fhir.path.function.FHIRPathFunction;
+import com.ibm.fhir.path.util.FHIRPathUtil;
+
+/**
+ * An immutable, thread-safe, compiled FHIRPath expression.
+ *
+ * <p>In addition to the parse tree, a compiled expression holds an evaluation plan that is computed once:
+ * <ul>
+ * <li>constant sub-expressions (literals and operators applied only to literals) are folded into their result</li>
+ * <li>identifiers are resolved to their string values</li>
+ * <li>function names, arguments and {@link FHIRPathFunction} implementations are resolved from the function registry</li>
+ * <li>type specifiers used by the 'is' and 'as' operators and the 'is', 'as' and 'ofType' functions are resolved to a {@link FHIRPathType}</li>
+ * </ul>
+ *
+ * <p>Function implementations are resolved when the expression is compiled; functions registered with the
+ * {@link com.ibm.fhir.path.function.registry.FHIRPathFunctionRegistry} afterwards are only picked up by expressions
+ * that reference a name that could not be resolved at compile time.
+ *
+ * @see FHIRPathEvaluator#compile(String)
+ */
+public final class FHIRPathExpression {
+    private final String expr;
+    private final ExpressionContext expressionContext;
+    private final Map<ParseTree, Collection<FHIRPathNode>> constants;
+    private final Map<ParseTree, FHIRPathType> types;
+    private final Map<FunctionContext, List<ExpressionContext>> arguments;
+    private final Map<FunctionContext, FHIRPathFunction> functions;
+
+    FHIRPathExpression(String expr, ExpressionContext expressionContext) {
+        this.expr = Objects.requireNonNull(expr);
+        this.expressionContext = Objects.requireNonNull(expressionContext);
+        Planner planner = new Planner();
+        planner.plan(expressionContext);
+        constants = Collections.unmodifiableMap(planner.constants);
+        types = Collections.unmodifiableMap(planner.types);
+        arguments = Collections.unmodifiableMap(planner.arguments);
+        functions = Collections.unmodifiableMap(planner.functions);
+    }
+
+    /**
+     * Get the text of the FHIRPath expression that was compiled
+     *
+     * @return
+     *     the text of the FHIRPath expression
+     */
+    public String getExpr() {
+        return expr;
+    }
+
+    @Override
+    public String toString() {
+        return expr;
+    }
+
+    ExpressionContext getExpressionContext() {
+        return expressionContext;
+    }
+
+    /**
+     * @return the precomputed result for the passed parse tree node or null if it must be evaluated
+     */
+    Collection<FHIRPathNode> getConstant(ParseTree tree) {
+        return constants.get(tree);
+    }
+
+    /**
+     * @return the resolved type for the passed type specifier or type name argument or null if it could not be resolved
+     */
+    FHIRPathType getType(ParseTree tree) {
+        return types.get(tree);
+    }
+
+    List<ExpressionContext> getArguments(FunctionContext ctx) {
+        return arguments.get(ctx);
+    }
+
+    FHIRPathFunction getFunction(FunctionContext ctx) {
+        return functions.get(ctx);
+    }
+
+    /**
+     * Computes the evaluation plan for a parse tree in a single pass
+     */
+    private static class Planner {
+        private final Map<ParseTree, Collection<FHIRPathNode>> constants = new IdentityHashMap<>();
+        private final Map<ParseTree, FHIRPathType> types = new IdentityHashMap<>();
+        private final Map<FunctionContext, List<ExpressionContext>> arguments = new IdentityHashMap<>();
+        private final Map<FunctionContext, FHIRPathFunction> functions = new IdentityHashMap<>();
+
+        /**
+         * Plan the passed parse tree node and its children
+         *
+         * @return
+         *     true if the node evaluates to the same result regardless of the evaluation context
+         */
+        private boolean plan(ParseTree tree) {
+            if (tree instanceof TerminalNode) {
+                return true;
+            }
+
+            boolean constant = true;
+            for (int i = 0; i < tree.getChildCount(); i++) {
+                // plan every child, even after a non-constant child has been found
+                constant &= plan(tree.getChild(i));
+            }
+
+            if (tree instanceof FHIRPathParser.IdentifierContext) {
+                String text = tree.getText();
+                constants.put(tree, singleton(stringValue(text.startsWith("`") ? text.substring(1, text.length() - 1) : text)));
+                return true;
+            }
+
+            if (tree instanceof FHIRPathParser.QualifiedIdentifierContext) {
+                constants.put(tree, singleton(stringValue(tree.getText().replace("`", ""))));
+                return true;
+            }
+
+            if (tree instanceof FHIRPathParser.TypeSpecifierContext) {
+                resolveType(tree);
+                return true;
+            }
+
+            if (tree instanceof FunctionContext) {
+                planFunction((FunctionContext) tree);
+                return false;
+            }
+
+            if (!constant || !isFoldable(tree)) {
+                return false;
+            }
+
+            if (tree instanceof ExpressionContext) {
+                Collection<FHIRPathNode> result = fold((ExpressionContext) tree);
+                if (result == null) {
+                    return false;
+                }
+                constants.put(tree, result);
+            }
+
+            return true;
+        }
+
+        private void planFunction(FunctionContext ctx) {
+            List<ExpressionContext> args = (ctx.paramList() != null) ?
+                    Collections.unmodifiableList(new ArrayList<>(ctx.paramList().expression())) : Collections.emptyList();
+            arguments.put(ctx, args);
+
+            String functionName = FHIRPathUtil.getString(constants.get(ctx.identifier()));
+            switch (functionName) {
+            case "as":
+            case "is":
+            case "ofType":
+                if (args.size() == 1) {
+                    resolveType(args.get(0));
+                }
+                break;
+            case "all":
+            case "exists":
+            case "iif":
+            case "select":
+            case "trace":
+            case "where":
+                break;
+            default:
+                FHIRPathFunction function = FHIRPathFunction.registry().getFunction(functionName);
+                if (function != null) {
+                    functions.put(ctx, function);
+                }
+                break;
+            }
+        }
+
+        private void resolveType(ParseTree tree) {
+            FHIRPathType type = FHIRPathType.from(tree.getText().replace("`", ""));
+            if (type != null) {
+                types.put(tree, type);
+            }
+        }
+
+        /**
+         * @return true if the node may be folded when all of its children are constant
+         */
+        private boolean isFoldable(ParseTree tree) {
+            return tree instanceof FHIRPathParser.LiteralContext ||
+                    tree instanceof FHIRPathParser.LiteralTermContext ||
+                    tree instanceof FHIRPathParser.ParenthesizedTermContext ||
+                    tree instanceof FHIRPathParser.QuantityContext ||
+                    tree instanceof FHIRPathParser.UnitContext ||
+                    tree instanceof FHIRPathParser.DateTimePrecisionContext ||
+                    tree instanceof FHIRPathParser.PluralDateTimePrecisionContext ||
+                    tree instanceof FHIRPathParser.TermExpressionContext ||
+                    tree instanceof FHIRPathParser.PolarityExpressionContext ||
+                    tree instanceof FHIRPathParser.MultiplicativeExpressionContext ||
+                    tree instanceof FHIRPathParser.AdditiveExpressionContext ||
+                    tree instanceof FHIRPathParser.TypeExpressionContext ||
+                    tree instanceof FHIRPathParser.UnionExpressionContext ||
+                    tree instanceof FHIRPathParser.InequalityExpressionContext ||
+                    tree instanceof FHIRPathParser.EqualityExpressionContext ||
+                    tree instanceof FHIRPathParser.MembershipExpressionContext ||
+                    tree instanceof FHIRPathParser.AndExpressionContext ||
+                    tree instanceof FHIRPathParser.OrExpressionContext ||
+                    tree instanceof FHIRPathParser.ImpliesExpressionContext;
+        }
+
+        /**
+         * @return the result of evaluating the constant expression or null if it cannot be evaluated at compile time
+         */
+        private Collection<FHIRPathNode> fold(ExpressionContext ctx) {
+            try {
+                return Collections.unmodifiableList(new ArrayList<>(FHIRPathEvaluator.evaluateConstant(ctx)));
+            } catch (Exception e) {
+                // leave it to evaluation time to report the error
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.path.evaluator;
+
+import static com.ibm.fhir.path.util.FHIRPathUtil.isSingleton;
+import static com.ibm.fhir.path.util.FHIRPathUtil.singleton;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import com.ibm.fhir.path.FHIRPathNode;
+import com.ibm.fhir.path.FHIRPathParser;
+import com.ibm.fhir.path.FHIRPathParser.ExpressionContext;
+import com.ibm.fhir.path.FHIRPathType;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator.EvaluationContext;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator.EvaluatingVisitor;
+import com.ibm.fhir.path.exception.FHIRPathException;
+import com.ibm.fhir.path.util.FHIRPathUtil;
+
+/**
+ * An immutable, thread-safe group of compiled FHIRPath expressions that are evaluated against the same context.
+ *
+ * <p>Expressions that are a union of simple paths (e.g. {@code Patient.name | Person.name}), optionally followed by an
+ * 'as' type operator (e.g. {@code (Observation.value as Quantity)}), are merged into a single path-prefix plan. Each
+ * distinct path prefix in the group is navigated once per evaluation, and the matching nodes are routed to every
+ * expression that shares it. All other expressions are evaluated individually with a {@link FHIRPathEvaluator}.
+ *
+ * @param <K>
+ *     the type of the keys used to identify the expressions in the group
+ */
+public final class FHIRPathExpressionGroup<K> {
+    private final Map<K, FHIRPathExpression> expressions;
+    private final Map<K, List<Branch>> plans;
+    private final Step root = new Step(null, 0);
+    private final int stepCount;
+
+    /**
+     * Create a group from the passed compiled expressions
+     *
+     * @param expressions
+     *     the compiled expressions keyed by an identifier; iteration order is preserved
+     */
+    public FHIRPathExpressionGroup(Map<K, FHIRPathExpression> expressions) {
+        this.expressions = Collections.unmodifiableMap(new LinkedHashMap<>(Objects.requireNonNull(expressions)));
+        Map<K, List<Branch>> plans = new LinkedHashMap<>();
+        int[] counter = { 1 };
+        for (Map.Entry<K, FHIRPathExpression> entry : this.expressions.entrySet()) {
+            List<List<String>> paths = new ArrayList<>();
+            List<FHIRPathType> types = new ArrayList<>();
+            if (plan(entry.getValue(), entry.getValue().getExpressionContext(), paths, types)) {
+                List<Branch> branches = new ArrayList<>();
+                for (int i = 0; i < paths.size(); i++) {
+                    Step step = root;
+                    for (String identifier : paths.get(i)) {
+                        step = step.child(identifier, counter);
+                    }
+                    branches.add(new Branch(step, types.get(i)));
+                }
+                plans.put(entry.getKey(), Collections.unmodifiableList(branches));
+            }
+        }
+        this.plans = Collections.unmodifiableMap(plans);
+        this.stepCount = counter[0];
+    }
+
+    /**
+     * Get the keys of the expressions in this group
+     *
+     * @return
+     *     the keys of the expressions in this group, in the order they were passed in
+     */
+    public Set<K> keys() {
+        return expressions.keySet();
+    }
+
+    /**
+     * Get the compiled expression with the passed key
+     *
+     * @param key
+     *     the key
+     * @return
+     *     the compiled expression with the passed key or null if there is no such expression in this group
+     */
+    public FHIRPathExpression getExpression(K key) {
+        return expressions.get(key);
+    }
+
+    /**
+     * Indicates whether the expression with the passed key is evaluated through the shared path-prefix plan
+     *
+     * @param key
+     *     the key
+     * @return
+     *     true if the expression with the passed key is part of the shared plan, otherwise false
+     */
+    public boolean isPlanned(K key) {
+        return plans.containsKey(key);
+    }
+
+    /**
+     * Navigate the shared path-prefix plan against the root of the tree of the passed evaluation context
+     *
+     * @param evaluationContext
+     *     the evaluation context
+     * @return
+     *     an evaluation from which the results of the individual expressions can be retrieved
+     */
+    public Evaluation evaluate(EvaluationContext evaluationContext) {
+        Objects.requireNonNull(evaluationContext);
+        return new Evaluation(evaluationContext);
+    }
+
+    /**
+     * Collect the path and the optional type filter of each branch of the passed parse tree
+     *
+     * @return
+     *     false if the parse tree cannot be evaluated through the shared plan
+     */
+    private boolean plan(FHIRPathExpression expression, ExpressionContext ctx, List<List<String>> paths, List<FHIRPathType> types) {
+        while (ctx instanceof FHIRPathParser.TermExpressionContext &&
+                ((FHIRPathParser.TermExpressionContext) ctx).term() instanceof FHIRPathParser.ParenthesizedTermContext) {
+            ctx = ((FHIRPathParser.ParenthesizedTermContext) ((FHIRPathParser.TermExpressionContext) ctx).term()).expression();
+        }
+
+        if (ctx instanceof FHIRPathParser.UnionExpressionContext) {
+            FHIRPathParser.UnionExpressionContext union = (FHIRPathParser.UnionExpressionContext) ctx;
+            return plan(expression, union.expression(0), paths, types) && plan(expression, union.expression(1), paths, types);
+        }
+
+        FHIRPathType type = null;
+        if (ctx instanceof FHIRPathParser.TypeExpressionContext) {
+            FHIRPathParser.TypeExpressionContext typeExpression = (FHIRPathParser.TypeExpressionContext) ctx;
+            type = expression.getType(typeExpression.typeSpecifier());
+            if (!"as".equals(typeExpression.getChild(1).getText()) || type == null) {
+                return false;
+            }
+            ctx = typeExpression.expression();
+        }
+
+        List<String> identifiers = new ArrayList<>();
+        if (!path(expression, ctx, identifiers)) {
+            return false;
+        }
+        paths.add(identifiers);
+        types.add(type);
+        return true;
+    }
+
+    /**
+     * Collect the identifiers of a simple path of member invocations
+     *
+     * @return
+     *     false if the parse tree is not a simple path
+     */
+    private boolean path(FHIRPathExpression expression, ExpressionContext ctx, List<String> identifiers) {
+        if (ctx instanceof FHIRPathParser.InvocationExpressionContext) {
+            FHIRPathParser.InvocationExpressionContext invocationExpression = (FHIRPathParser.InvocationExpressionContext) ctx;
+            return path(expression, invocationExpression.expression(), identifiers) &&
+                    member(expression, invocationExpression.invocation(), identifiers);
+        }
+        if (ctx instanceof FHIRPathParser.TermExpressionContext) {
+            FHIRPathParser.TermContext term = ((FHIRPathParser.TermExpressionContext) ctx).term();
+            if (term instanceof FHIRPathParser.InvocationTermContext) {
+                return member(expression, ((FHIRPathParser.InvocationTermContext) term).invocation(), identifiers);
+            }
+        }
+        return false;
+    }
+
+    private boolean member(FHIRPathExpression expression, FHIRPathParser.InvocationContext invocation, List<String> identifiers) {
+        if (invocation instanceof FHIRPathParser.MemberInvocationContext) {
+            Collection<FHIRPathNode> identifier = expression.getConstant(((FHIRPathParser.MemberInvocationContext) invocation).identifier());
+            if (identifier != null) {
+                identifiers.add(FHIRPathUtil.getString(identifier));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Navigate from the passed context using the same semantics as a member invocation in the {@link FHIRPathEvaluator}
+     */
+    private static Collection<FHIRPathNode> navigate(Collection<FHIRPathNode> context, String identifier) {
+        if (isSingleton(context)) {
+            FHIRPathNode node = context.iterator().next();
+            if (EvaluatingVisitor.closure(node.type()).contains(identifier)) {
+                return context;
+            }
+        }
+        List<FHIRPathNode> result = new ArrayList<>();
+        for (FHIRPathNode node : context) {
+            for (FHIRPathNode child : node.children()) {
+                if (identifier.equals(child.name())) {
+                    result.add(child);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A node in the path-prefix trie; each step is the navigation of one identifier from its parent step
+     */
+    private static class Step {
+        private final String identifier;
+        private final int index;
+        private final Map<String, Step> children = new LinkedHashMap<>();
+
+        private Step(String identifier, int index) {
+            this.identifier = identifier;
+            this.index = index;
+        }
+
+        private Step child(String identifier, int[] counter) {
+            return children.computeIfAbsent(identifier, k -> new Step(k, counter[0]++));
+        }
+    }
+
+    /**
+     * One side of a union: the end of a path in the trie and an optional 'as' type filter
+     */
+    private static class Branch {
+        private final Step step;
+        private final FHIRPathType type;
+
+        private Branch(Step step, FHIRPathType type) {
+            this.step = step;
+            this.type = type;
+        }
+
+        private Collection<FHIRPathNode> filter(Collection<FHIRPathNode> nodes) {
+            if (type == null) {
+                return nodes;
+            }
+            List<FHIRPathNode> result = new ArrayList<>();
+            for (FHIRPathNode node : nodes) {
+                if (type.isAssignableFrom(node.type())) {
+                    result.add(node);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The result of navigating the shared plan for a single evaluation context. Not thread-safe.
+     */
+    public final class Evaluation {
+        private final EvaluationContext evaluationContext;
+        private final Collection<?>[] results = new Collection<?>[stepCount];
+        private FHIRPathEvaluator evaluator;
+
+        private Evaluation(EvaluationContext evaluationContext) {
+            this.evaluationContext = evaluationContext;
+            results[root.index] = singleton(evaluationContext.getTree().getRoot());
+            navigate(root);
+        }
+
+        /**
+         * Single depth-first traversal of the trie; steps that match nothing are not descended
+         */
+        private void navigate(Step step) {
+            Collection<FHIRPathNode> context = get(step);
+            for (Step child : step.children.values()) {
+                results[child.index] = context.isEmpty() ? Collections.emptyList() : FHIRPathExpressionGroup.navigate(context, child.identifier);
+                navigate(child);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private Collection<FHIRPathNode> get(Step step) {
+            return (Collection<FHIRPathNode>) results[step.index];
+        }
+
+        /**
+         * Get the result of the expression with the passed key
+         *
+         * @param key
+         *     the key
+         * @return
+         *     the result of evaluation as a non-null, potentially empty collection of FHIRPath nodes
+         * @throws IllegalArgumentException
+         *     if there is no expression with the passed key in the group
+         * @throws FHIRPathException
+         *     if an exception occurs while evaluating an expression that is not part of the shared plan
+         */
+        public Collection<FHIRPathNode> getResult(K key) throws FHIRPathException {
+            List<Branch> branches = plans.get(key);
+            if (branches == null) {
+                FHIRPathExpression expression = expressions.get(key);
+                if (expression == null) {
+                    throw new IllegalArgumentException("No expression with key: " + key);
+                }
+                if (evaluator == null) {
+                    evaluator = FHIRPathEvaluator.evaluator();
+                }
+                return evaluator.evaluate(evaluationContext, expression);
+            }
+
+            if (branches.size() == 1) {
+                Branch branch = branches.get(0);
+                return Collections.unmodifiableCollection(branch.filter(get(branch.step)));
+            }
+
+            // same semantics as the union operator
+            Set<FHIRPathNode> union = new LinkedHashSet<>();
+            for (Branch branch : branches) {
+                union.addAll(branch.filter(get(branch.step)));
+            }
+            return Collections.unmodifiableCollection(new ArrayList<>(union));
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.path.test;
+
+import static com.ibm.fhir.model.type.String.string;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.examples.ExamplesUtil;
+import com.ibm.fhir.model.format.Format;
+import com.ibm.fhir.model.parser.FHIRParser;
+import com.ibm.fhir.model.resource.Bundle;
+import com.ibm.fhir.model.resource.Patient;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.resource.SearchParameter;
+import com.ibm.fhir.model.type.Boolean;
+import com.ibm.fhir.model.type.HumanName;
+import com.ibm.fhir.model.type.code.ResourceType;
+import com.ibm.fhir.path.FHIRPathNode;
+import com.ibm.fhir.path.FHIRPathTree;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator.EvaluationContext;
+import com.ibm.fhir.path.evaluator.FHIRPathExpression;
+import com.ibm.fhir.path.evaluator.FHIRPathExpressionGroup;
+import com.ibm.fhir.path.exception.FHIRPathException;
+
+public class FHIRPathExpressionGroupTest {
+    private static final String[] EXAMPLES = {
+        "json/spec/patient-example.json",
+        "json/spec/observation-example-bloodpressure.json",
+        "json/spec/observation-example-f001-glucose.json",
+        "json/spec/claim-example.json",
+        "json/spec/condition-example.json",
+        "json/spec/questionnaireresponse-example.json",
+        "json/spec/bundle-transaction.json"
+    };
+
+    private List<SearchParameter> searchParameters;
+
+    @BeforeClass
+    public void loadSearchParameters() throws Exception {
+        searchParameters = new ArrayList<>();
+        try (Reader reader = ExamplesUtil.resourceReader("json/spec/search-parameters.json")) {
+            Bundle bundle = FHIRParser.parser(Format.JSON).parse(reader);
+            for (Bundle.Entry entry : bundle.getEntry()) {
+                if (entry.getResource() instanceof SearchParameter) {
+                    searchParameters.add((SearchParameter) entry.getResource());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSearchParameterExpressions() throws Exception {
+        FHIRPathEvaluator evaluator = FHIRPathEvaluator.evaluator();
+        for (String example : EXAMPLES) {
+            Resource resource;
+            try (Reader reader = ExamplesUtil.resourceReader(example)) {
+                resource = FHIRParser.parser(Format.JSON).parse(reader);
+            }
+            String resourceType = resource.getClass().getSimpleName();
+
+            Map<SearchParameter, FHIRPathExpression> expressions = new LinkedHashMap<>();
+            for (SearchParameter parameter : searchParameters) {
+                if (parameter.getExpression() != null && appliesTo(parameter, resourceType)) {
+                    expressions.put(parameter, FHIRPathEvaluator.compile(parameter.getExpression().getValue()));
+                }
+            }
+            FHIRPathExpressionGroup<SearchParameter> group = new FHIRPathExpressionGroup<>(expressions);
+
+            EvaluationContext evaluationContext = new EvaluationContext(FHIRPathTree.lazyTree(resource));
+            FHIRPathExpressionGroup<SearchParameter>.Evaluation evaluation = group.evaluate(evaluationContext);
+
+            for (SearchParameter parameter : group.keys()) {
+                String expr = parameter.getExpression().getValue();
+                Collection<FHIRPathNode> expected = null;
+                try {
+                    expected = evaluator.evaluate(new EvaluationContext(resource), expr);
+                } catch (FHIRPathException e) {
+                    assertFalse(group.isPlanned(parameter), expr);
+                }
+                try {
+                    Collection<FHIRPathNode> actual = evaluation.getResult(parameter);
+                    assertEquals(new ArrayList<>(actual), new ArrayList<>(expected), example + ": " + expr);
+                } catch (FHIRPathException e) {
+                    assertTrue(expected == null, expr);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPlanned() throws Exception {
+        Map<String, FHIRPathExpression> expressions = new LinkedHashMap<>();
+        expressions.put("name", FHIRPathEvaluator.compile("Patient.name"));
+        expressions.put("family", FHIRPathEvaluator.compile("Patient.name.family | Person.name.family"));
+        expressions.put("quantity", FHIRPathEvaluator.compile("(Observation.value as Quantity) | (Observation.value as SampledData)"));
+        expressions.put("where", FHIRPathEvaluator.compile("Patient.name.where(family = 'Doe')"));
+        expressions.put("is", FHIRPathEvaluator.compile("Patient.active is boolean"));
+        FHIRPathExpressionGroup<String> group = new FHIRPathExpressionGroup<>(expressions);
+
+        assertTrue(group.isPlanned("name"));
+        assertTrue(group.isPlanned("family"));
+        assertTrue(group.isPlanned("quantity"));
+        assertFalse(group.isPlanned("where"));
+        assertFalse(group.isPlanned("is"));
+
+        Patient patient = Patient.builder()
+                .active(Boolean.TRUE)
+                .name(HumanName.builder().family(string("Doe")).build())
+                .name(HumanName.builder().family(string("Doe")).build())
+                .build();
+        FHIRPathExpressionGroup<String>.Evaluation evaluation = group.evaluate(new EvaluationContext(patient));
+        assertEquals(evaluation.getResult("name").size(), 2);
+        // union removes duplicates
+        assertEquals(evaluation.getResult("family").size(), 1);
+        assertEquals(evaluation.getResult("quantity").size(), 0);
+        assertEquals(evaluation.getResult("where").size(), 2);
+        assertEquals(evaluation.getResult("is"), FHIRPathEvaluator.SINGLETON_TRUE);
+
+        try {
+            evaluation.getResult("bogus");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private boolean appliesTo(SearchParameter parameter, String resourceType) {
+        for (ResourceType base : parameter.getBase()) {
+            String value = base.getValue();
+            if (value.equals(resourceType) || "Resource".equals(value) || "DomainResource".equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
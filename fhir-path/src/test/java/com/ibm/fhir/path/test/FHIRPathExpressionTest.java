@@ -0,0 +1,115 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.path.test;
+
+import static com.ibm.fhir.model.type.String.string;
+import static com.ibm.fhir.path.evaluator.FHIRPathEvaluator.SINGLETON_FALSE;
+import static com.ibm.fhir.path.evaluator.FHIRPathEvaluator.SINGLETON_TRUE;
+import static com.ibm.fhir.path.util.FHIRPathUtil.getIntegerValue;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.model.resource.Patient;
+import com.ibm.fhir.model.type.Boolean;
+import com.ibm.fhir.model.type.HumanName;
+import com.ibm.fhir.path.FHIRPathNode;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator;
+import com.ibm.fhir.path.evaluator.FHIRPathExpression;
+import com.ibm.fhir.path.exception.FHIRPathException;
+
+public class FHIRPathExpressionTest {
+    private static final Patient PATIENT = Patient.builder()
+            .active(Boolean.TRUE)
+            .name(HumanName.builder().family(string("Doe")).given(string("John")).build())
+            .name(HumanName.builder().family(string("Roe")).build())
+            .build();
+
+    @Test
+    public void testCompileIsCached() throws Exception {
+        assertSame(FHIRPathEvaluator.compile("Patient.name.family"), FHIRPathEvaluator.compile("Patient.name.family"));
+    }
+
+    @Test
+    public void testCompiledMatchesString() throws Exception {
+        String[] exprs = {
+            "Patient.name.family",
+            "Patient.name.where(family = 'Doe').given",
+            "Patient.name.count() + 2 * 3",
+            "Patient.active is Boolean",
+            "Patient.name.first().family.ofType(string)",
+            "(1 + 2) * 3 = 9 and 'a' & 'b' = 'ab'",
+            "Patient.name.exists(given.exists())",
+            "iif(Patient.active, 'yes', 'no')"
+        };
+        FHIRPathEvaluator evaluator = FHIRPathEvaluator.evaluator();
+        for (String expr : exprs) {
+            FHIRPathExpression expression = FHIRPathEvaluator.compile(expr);
+            assertEquals(evaluator.evaluate(PATIENT, expression), evaluator.evaluate(PATIENT, expr), expr);
+        }
+    }
+
+    @Test
+    public void testConstantFolding() throws Exception {
+        FHIRPathEvaluator evaluator = FHIRPathEvaluator.evaluator();
+        Collection<FHIRPathNode> result = evaluator.evaluate(PATIENT, FHIRPathEvaluator.compile("Patient.name.count() + (1 + 2) * 3"));
+        assertEquals(getIntegerValue(result).integer().intValue(), 11);
+
+        assertEquals(evaluator.evaluate(PATIENT, FHIRPathEvaluator.compile("1 + 1 = 2")), SINGLETON_TRUE);
+        assertEquals(evaluator.evaluate(PATIENT, FHIRPathEvaluator.compile("1 / 0")).size(), 0);
+        assertEquals(evaluator.evaluate(PATIENT, FHIRPathEvaluator.compile("Patient.active and (1 > 2)")), SINGLETON_FALSE);
+    }
+
+    @Test
+    public void testCompileInvalidExpression() {
+        try {
+            FHIRPathEvaluator.compile("Patient.name.(");
+            fail();
+        } catch (FHIRPathException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testUnknownFunction() throws Exception {
+        FHIRPathExpression expression = FHIRPathEvaluator.compile("Patient.name.bogus()");
+        try {
+            FHIRPathEvaluator.evaluator().evaluate(PATIENT, expression);
+            fail();
+        } catch (FHIRPathException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testConcurrentEvaluation() throws Exception {
+        FHIRPathExpression expression = FHIRPathEvaluator.compile("Patient.name.where(family = 'Doe').given.count() = 1");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Collection<FHIRPathNode>>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                Callable<Collection<FHIRPathNode>> task = () -> FHIRPathEvaluator.evaluator().evaluate(PATIENT, expression);
+                futures.add(executor.submit(task));
+            }
+            for (Future<Collection<FHIRPathNode>> future : futures) {
+                assertEquals(future.get(), SINGLETON_TRUE);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
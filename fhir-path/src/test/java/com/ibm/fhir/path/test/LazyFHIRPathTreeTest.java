@@ -0,0 +1,121 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.path.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.examples.ExamplesUtil;
+import com.ibm.fhir.model.format.Format;
+import com.ibm.fhir.model.parser.FHIRParser;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.type.HumanName;
+import com.ibm.fhir.path.FHIRPathNode;
+import com.ibm.fhir.path.FHIRPathTree;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator.EvaluationContext;
+
+public class LazyFHIRPathTreeTest {
+    private static final String[] EXAMPLES = {
+        "json/spec/bundle-transaction.json",
+        "json/spec/patient-example.json",
+        "json/spec/observation-example-bloodpressure.json",
+        "json/spec/questionnaireresponse-example.json"
+    };
+
+    @Test
+    public void testLazyTreeMatchesTree() throws Exception {
+        for (String example : EXAMPLES) {
+            Resource resource = parse(example);
+            FHIRPathTree tree = FHIRPathTree.tree(resource);
+            FHIRPathTree lazyTree = FHIRPathTree.lazyTree(resource);
+            assertTrue(lazyTree.isLazy());
+
+            List<FHIRPathNode> expected = tree.getRoot().stream().collect(Collectors.toList());
+            List<FHIRPathNode> actual = lazyTree.getRoot().stream().collect(Collectors.toList());
+            assertEquals(actual.size(), expected.size(), example);
+
+            Iterator<FHIRPathNode> iterator = actual.iterator();
+            for (FHIRPathNode node : expected) {
+                FHIRPathNode other = iterator.next();
+                assertSame(other.getClass(), node.getClass(), node.path());
+                assertEquals(other.name(), node.name(), node.path());
+                assertEquals(other.path(), node.path());
+                assertEquals(other.type(), node.type(), node.path());
+                assertEquals(other.getValue(), node.getValue(), node.path());
+                assertEquals(other.children().size(), node.children().size(), node.path());
+                if (node.path() != null) {
+                    assertEquals(lazyTree.getParent(other), tree.getParent(node), node.path());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGetNodeBeforeNavigation() throws Exception {
+        Resource resource = parse("json/spec/bundle-transaction.json");
+        FHIRPathTree tree = FHIRPathTree.tree(resource);
+        String path = "Bundle.entry[1].resource.name[0].given[0]";
+
+        FHIRPathNode node = FHIRPathTree.lazyTree(resource).getNode(path);
+        assertNotNull(node);
+        assertEquals(node, tree.getNode(path));
+        assertEquals(node.path(), path);
+
+        FHIRPathTree lazyTree = FHIRPathTree.lazyTree(resource);
+        assertNull(lazyTree.getNode("Bundle.entry[1].resource.bogus"));
+        assertNull(lazyTree.getNode("Bundle.entry[100]"));
+        assertNull(lazyTree.getNode(null));
+        assertSame(lazyTree.getNode("Bundle.entry[1].resource.name[0]"),
+            lazyTree.getParent(lazyTree.getNode(path)));
+    }
+
+    @Test
+    public void testElementLazyTree() throws Exception {
+        HumanName name = HumanName.builder()
+                .id("someId")
+                .family(com.ibm.fhir.model.type.String.of("Doe"))
+                .given(com.ibm.fhir.model.type.String.of("John"))
+                .build();
+        FHIRPathTree tree = FHIRPathTree.tree(name);
+        FHIRPathTree lazyTree = FHIRPathTree.lazyTree(name);
+        assertEquals(lazyTree.getRoot().getValue(), tree.getRoot().getValue());
+        assertEquals(lazyTree.getNode("HumanName.given[0]"), tree.getNode("HumanName.given[0]"));
+    }
+
+    @Test
+    public void testEvaluateLazyTree() throws Exception {
+        String[] exprs = {
+            "Bundle.entry.resource.name.given",
+            "Bundle.entry.request.where(method = 'PUT').url",
+            "%resource.entry.count()",
+            "Bundle.descendants().ofType(HumanName).family"
+        };
+        Resource resource = parse("json/spec/bundle-transaction.json");
+        FHIRPathEvaluator evaluator = FHIRPathEvaluator.evaluator();
+        for (String expr : exprs) {
+            assertEquals(evaluator.evaluate(new EvaluationContext(FHIRPathTree.lazyTree(resource)), expr),
+                evaluator.evaluate(new EvaluationContext(resource), expr), expr);
+        }
+    }
+
+    private Resource parse(String example) throws Exception {
+        try (Reader reader = ExamplesUtil.resourceReader(example)) {
+            return FHIRParser.parser(Format.JSON).parse(reader);
+        }
+    }
+}
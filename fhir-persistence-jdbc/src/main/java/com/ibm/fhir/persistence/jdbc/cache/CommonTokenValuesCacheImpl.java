@@ -29,11 +29,12 @@ public class CommonTokenValuesCacheImpl implements ICommonTokenValuesCache {
 
     private final ThreadLocal<LinkedHashMap<CommonTokenValue, Long>> commonTokenValues = new ThreadLocal<>();
 
-    // The lru cache shared at the server level
-    private final LRUCache<String, Integer> codeSystemsCache;
+    // The lru cache shared at the server level. Striped, so that concurrent
+    // lookups and updates don't all contend for a single monitor
+    private final StripedLRUCache<String, Integer> codeSystemsCache;
 
     // The lru cache shared at the server level
-    private final LRUCache<CommonTokenValue, Long> tokenValuesCache;
+    private final StripedLRUCache<CommonTokenValue, Long> tokenValuesCache;
 
 
     /**
@@ -43,8 +44,8 @@ public class CommonTokenValuesCacheImpl implements ICommonTokenValuesCache {
     public CommonTokenValuesCacheImpl(int codeSystemCacheSize, int tokenValueCacheSize) {
 
         // LRU cache for quick lookup of code-systems and token-values
-        codeSystemsCache = new LRUCache<>(codeSystemCacheSize);
-        tokenValuesCache = new LRUCache<>(tokenValueCacheSize);
+        codeSystemsCache = new StripedLRUCache<>(codeSystemCacheSize);
+        tokenValuesCache = new StripedLRUCache<>(tokenValueCacheSize);
     }
 
     /**
@@ -55,9 +56,7 @@ public class CommonTokenValuesCacheImpl implements ICommonTokenValuesCache {
 
         LinkedHashMap<String,Integer> sysMap = codeSystems.get();
         if (sysMap != null) {
-            synchronized(this.codeSystemsCache) {
-                codeSystemsCache.update(sysMap);
-            }
+            codeSystemsCache.update(sysMap);
 
             // clear the thread-local cache
             sysMap.clear();
@@ -65,9 +64,7 @@ public class CommonTokenValuesCacheImpl implements ICommonTokenValuesCache {
 
         LinkedHashMap<CommonTokenValue,Long> valMap = commonTokenValues.get();
         if (valMap != null) {
-            synchronized(this.tokenValuesCache) {
-                tokenValuesCache.update(valMap);
-            }
+            tokenValuesCache.update(valMap);
 
             // clear the thread-local cache
             valMap.clear();
@@ -89,9 +86,7 @@ public class CommonTokenValuesCacheImpl implements ICommonTokenValuesCache {
         }
 
         // See if it's in the shared cache
-        synchronized (this.codeSystemsCache) {
-            result = codeSystemsCache.get(codeSystem);
-        }
+        result = codeSystemsCache.get(codeSystem);
 
         if (result != null) {
             // We found it in the shared cache, so update our thread-local
@@ -130,21 +125,17 @@ public class CommonTokenValuesCacheImpl implements ICommonTokenValuesCache {
             }
         }
 
-        // If we still have keys to find, look them up in the shared cache (which we need to lock first)
-        if (needToFindSystems.size() > 0) {
-            synchronized (this.codeSystemsCache) {
-                for (ResourceTokenValueRec xr: needToFindSystems) {
-                    Integer id = codeSystemsCache.get(xr.getCodeSystemValue());
-                    if (id != null) {
-                        xr.setCodeSystemValueId(id);
-
-                        // Update the local cache with this value
-                        addCodeSystem(xr.getCodeSystemValue(), id);
-                    } else {
-                        // cache miss so add this record to the miss list for further processing
-                        misses.add(xr);
-                    }
-                }
+        // If we still have keys to find, look them up in the shared cache
+        for (ResourceTokenValueRec xr: needToFindSystems) {
+            Integer id = codeSystemsCache.get(xr.getCodeSystemValue());
+            if (id != null) {
+                xr.setCodeSystemValueId(id);
+
+                // Update the local cache with this value
+                addCodeSystem(xr.getCodeSystemValue(), id);
+            } else {
+                // cache miss so add this record to the miss list for further processing
+                misses.add(xr);
             }
         }
     }
@@ -178,22 +169,18 @@ public class CommonTokenValuesCacheImpl implements ICommonTokenValuesCache {
             }
         }
 
-        // If we still have keys to find, look them up in the shared cache (which we need to lock first)
-        if (needToFindValues.size() > 0) {
-            synchronized (this.tokenValuesCache) {
-                for (ResourceTokenValueRec tv: needToFindValues) {
-                    CommonTokenValue key = new CommonTokenValue(tv.getCodeSystemValueId(), tv.getTokenValue());
-                    Long id = tokenValuesCache.get(key);
-                    if (id != null) {
-                        tv.setCommonTokenValueId(id);
-
-                        // Update the local cache with this value
-                        addTokenValue(key, id);
-                    } else {
-                        // cache miss so add this record to the miss list for further processing
-                        misses.add(tv);
-                    }
-                }
+        // If we still have keys to find, look them up in the shared cache
+        for (ResourceTokenValueRec tv: needToFindValues) {
+            CommonTokenValue key = new CommonTokenValue(tv.getCodeSystemValueId(), tv.getTokenValue());
+            Long id = tokenValuesCache.get(key);
+            if (id != null) {
+                tv.setCommonTokenValueId(id);
+
+                // Update the local cache with this value
+                addTokenValue(key, id);
+            } else {
+                // cache miss so add this record to the miss list for further processing
+                misses.add(tv);
             }
         }
     }
@@ -233,13 +220,8 @@ public class CommonTokenValuesCacheImpl implements ICommonTokenValuesCache {
         commonTokenValues.remove();
 
         // clear the shared caches too
-        synchronized (this.codeSystemsCache) {
-            this.codeSystemsCache.clear();
-        }
-
-        synchronized (this.tokenValuesCache) {
-            this.tokenValuesCache.clear();
-        }
+        this.codeSystemsCache.clear();
+        this.tokenValuesCache.clear();
     }
 
     @Override
@@ -261,9 +243,7 @@ public class CommonTokenValuesCacheImpl implements ICommonTokenValuesCache {
 
     @Override
     public void prefillCodeSystems(Map<String, Integer> codeSystems) {
-        synchronized(codeSystemsCache) {
-            codeSystemsCache.putAll(codeSystems);
-        }
+        codeSystemsCache.putAll(codeSystems);
     }
 
     @Override
@@ -279,9 +259,7 @@ public class CommonTokenValuesCacheImpl implements ICommonTokenValuesCache {
             result = valMap != null ? valMap.get(key) : null;
             if (result == null) {
                 // not found in the local cache, try the shared cache
-                synchronized (tokenValuesCache) {
-                    result = tokenValuesCache.get(key);
-                }
+                result = tokenValuesCache.get(key);
 
                 if (result != null) {
                     // add to the local cache so we can find it again without locking
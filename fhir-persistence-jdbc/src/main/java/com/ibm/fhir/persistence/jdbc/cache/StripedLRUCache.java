@@ -0,0 +1,195 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.cache;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A thread-safe LRU cache which splits its entries over a number of independently
+ * locked stripes, each of which is an {@link LRUCache}. Reads only take the read lock
+ * of a single stripe, so concurrent lookups never block each other, and updates only
+ * block lookups of keys which hash to the same stripe.
+ *
+ * <p>The eviction order is the same as {@link LRUCache#update(LinkedHashMap)}: entries
+ * are refreshed when they are updated, not when they are read. Each stripe holds an
+ * equal share of the maximum size, so eviction is LRU per stripe rather than across
+ * the whole cache. Small caches use a single stripe and behave exactly like an
+ * {@link LRUCache}. Null values are not permitted in this implementation.
+ */
+public class StripedLRUCache<K,V> {
+
+    // The default number of stripes; must be a power of 2
+    private static final int DEFAULT_STRIPES = 16;
+
+    // Don't split the cache into stripes smaller than this
+    private static final int MIN_STRIPE_SIZE = 64;
+
+    private final Stripe<K,V>[] stripes;
+    private final int mask;
+
+    /**
+     * Public constructor
+     * @param maxSize the maximum number of entries in the cache
+     */
+    public StripedLRUCache(int maxSize) {
+        this(maxSize, DEFAULT_STRIPES);
+    }
+
+    /**
+     * Public constructor
+     * @param maxSize the maximum number of entries in the cache
+     * @param maxStripes the maximum number of stripes; rounded down to a power of 2
+     */
+    @SuppressWarnings("unchecked")
+    public StripedLRUCache(int maxSize, int maxStripes) {
+        if (maxSize < 1 || maxStripes < 1) {
+            throw new IllegalArgumentException("maxSize and maxStripes must be positive");
+        }
+        int count = Integer.highestOneBit(Math.max(1, Math.min(maxStripes, maxSize / MIN_STRIPE_SIZE)));
+        int stripeSize = (maxSize + count - 1) / count;
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe<>(stripeSize);
+        }
+        this.mask = count - 1;
+    }
+
+    private Stripe<K,V> stripeFor(Object key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & mask];
+    }
+
+    /**
+     * Get the value for the given key
+     * @param key
+     * @return the cached value, or null if the key is not in the cache
+     */
+    public V get(K key) {
+        Stripe<K,V> stripe = stripeFor(key);
+        stripe.lock.readLock().lock();
+        try {
+            return stripe.cache.get(key);
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Add all the entries of the given map to the cache
+     * @param entries
+     */
+    public void putAll(Map<K,V> entries) {
+        update(entries);
+    }
+
+    /**
+     * Update this cache with the updates in the given map, in the order defined by its entrySet.
+     * Each stripe is locked once, however many of the updates it receives.
+     * @param updates
+     */
+    public void update(Map<K,V> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+
+        if (stripes.length == 1) {
+            stripes[0].update(updates);
+            return;
+        }
+
+        // Partition the updates by stripe, preserving their order
+        List<LinkedHashMap<K,V>> partitions = new ArrayList<>(stripes.length);
+        for (int i = 0; i < stripes.length; i++) {
+            partitions.add(null);
+        }
+        for (Map.Entry<K,V> entry: updates.entrySet()) {
+            int h = entry.getKey().hashCode();
+            int index = (h ^ (h >>> 16)) & mask;
+            LinkedHashMap<K,V> partition = partitions.get(index);
+            if (partition == null) {
+                partition = new LinkedHashMap<>();
+                partitions.set(index, partition);
+            }
+            partition.put(entry.getKey(), entry.getValue());
+        }
+
+        for (int i = 0; i < stripes.length; i++) {
+            LinkedHashMap<K,V> partition = partitions.get(i);
+            if (partition != null) {
+                stripes[i].update(partition);
+            }
+        }
+    }
+
+    /**
+     * Remove all entries from the cache
+     */
+    public void clear() {
+        for (Stripe<K,V> stripe: stripes) {
+            stripe.lock.writeLock().lock();
+            try {
+                stripe.cache.clear();
+            } finally {
+                stripe.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * @return the current number of entries in the cache
+     */
+    public int size() {
+        int result = 0;
+        for (Stripe<K,V> stripe: stripes) {
+            stripe.lock.readLock().lock();
+            try {
+                result += stripe.cache.size();
+            } finally {
+                stripe.lock.readLock().unlock();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of stripes used by this cache
+     */
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * A single LRU segment of the cache and its lock. The underlying {@link LRUCache} keeps
+     * insertion order, so {@link LRUCache#get(Object)} does not modify the map and can be
+     * called concurrently under the read lock.
+     */
+    private static class Stripe<K,V> {
+        private final LRUCache<K,V> cache;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private Stripe(int maxSize) {
+            this.cache = new LRUCache<>(maxSize);
+        }
+
+        private void update(Map<K,V> updates) {
+            lock.writeLock().lock();
+            try {
+                for (Map.Entry<K, V> entry: updates.entrySet()) {
+                    cache.remove(entry.getKey());
+                    cache.put(entry.getKey(), entry.getValue());
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+}
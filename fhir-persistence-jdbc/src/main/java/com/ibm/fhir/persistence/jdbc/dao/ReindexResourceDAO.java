@@ -14,7 +14,12 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -31,7 +36,9 @@ import com.ibm.fhir.persistence.jdbc.dao.api.ResourceIndexRecord;
 import com.ibm.fhir.persistence.jdbc.dao.impl.JDBCIdentityCacheImpl;
 import com.ibm.fhir.persistence.jdbc.dao.impl.ParameterVisitorBatchDAO;
 import com.ibm.fhir.persistence.jdbc.dao.impl.ResourceDAOImpl;
+import com.ibm.fhir.persistence.jdbc.dto.CompositeParmVal;
 import com.ibm.fhir.persistence.jdbc.dto.ExtractedParameterValue;
+import com.ibm.fhir.persistence.jdbc.dto.Resource;
 import com.ibm.fhir.persistence.jdbc.impl.ParameterTransactionDataImpl;
 
 /**
@@ -70,6 +77,17 @@ public class ReindexResourceDAO extends ResourceDAOImpl {
             + "OFFSET ? ROWS FETCH FIRST 1 ROWS ONLY "
             ;
 
+    // Read the current version of each of a list of logical resources of the same type
+    private static final String READ_CURRENT_RESOURCES = ""
+            + "  SELECT R.RESOURCE_ID, R.LOGICAL_RESOURCE_ID, R.VERSION_ID, R.LAST_UPDATED, R.IS_DELETED, R.DATA, LR.LOGICAL_ID "
+            + "    FROM %s_RESOURCES R, %s_LOGICAL_RESOURCES LR "
+            + "   WHERE R.RESOURCE_ID = LR.CURRENT_RESOURCE_ID "
+            + "     AND LR.LOGICAL_RESOURCE_ID IN "
+            ;
+
+    private static final String[] PARAMETER_TABLES = { "_str_values", "_number_values", "_date_values", "_latlng_values",
+            "_resource_token_refs", "_quantity_values" };
+
     /**
      * Public constructor
      * @param connection
@@ -259,6 +277,255 @@ public class ReindexResourceDAO extends ResourceDAOImpl {
         return result;
     }
 
+    /**
+     * Claim up to count resources with a logical_resource_id in the range (afterLogicalResourceId, toLogicalResourceId]
+     * which need to be reindexed, in ascending order of logical_resource_id, and set the resource type of each. The
+     * claimed records are locked until the end of the transaction.
+     * @param reindexTstamp
+     * @param resourceTypeId optional resource type to limit the claim to
+     * @param afterLogicalResourceId
+     * @param toLogicalResourceId optional upper bound of the range
+     * @param count
+     * @return the claimed records, in ascending order of logical_resource_id
+     * @throws Exception
+     */
+    public List<ResourceIndexRecord> getResourcesToReindex(Instant reindexTstamp, Integer resourceTypeId, long afterLogicalResourceId,
+            Long toLogicalResourceId, int count) throws Exception {
+        List<ResourceIndexRecord> result = getNextResources(reindexTstamp, resourceTypeId, afterLogicalResourceId, toLogicalResourceId, count);
+
+        if (!result.isEmpty()) {
+            // one lookup for the whole batch, instead of a query per record
+            Map<Integer, String> resourceTypeNames = new HashMap<>();
+            for (Map.Entry<String, Integer> entry : readAllResourceTypeNames().entrySet()) {
+                resourceTypeNames.put(entry.getValue(), entry.getKey());
+            }
+            for (ResourceIndexRecord rir : result) {
+                rir.setResourceType(resourceTypeNames.get(rir.getResourceTypeId()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Pick and lock the next batch of resources to process from the given range. This uses
+     * the same optimistic locking pattern as {@link #getNextResource(SecureRandom, Instant, Integer, String)},
+     * but selects and updates the whole batch at once. Specializations for different databases may
+     * use different techniques to optimize locking/concurrency control
+     * @param reindexTstamp
+     * @param resourceTypeId
+     * @param afterLogicalResourceId
+     * @param toLogicalResourceId
+     * @param count
+     * @return
+     * @throws Exception
+     */
+    protected List<ResourceIndexRecord> getNextResources(Instant reindexTstamp, Integer resourceTypeId, long afterLogicalResourceId,
+            Long toLogicalResourceId, int count) throws Exception {
+        List<ResourceIndexRecord> candidates = new ArrayList<>(count);
+
+        // no need to close
+        Connection connection = getConnection();
+        IDatabaseTranslator translator = getTranslator();
+
+        // Walking the primary key in order means each call reads only the part of the range
+        // it claims, instead of scanning past the rows already processed
+        final StringBuilder select = new StringBuilder();
+        select.append("  SELECT lr.logical_resource_id, lr.resource_type_id, lr.logical_id, lr.reindex_txid ");
+        select.append("    FROM logical_resources lr ");
+        select.append("   WHERE lr.logical_resource_id > ? ");
+        if (toLogicalResourceId != null) {
+            select.append(" AND lr.logical_resource_id <= ? ");
+        }
+        if (resourceTypeId != null) {
+            select.append(" AND lr.resource_type_id = ? ");
+        }
+        select.append("     AND lr.reindex_tstamp < ? ");
+        select.append("ORDER BY lr.logical_resource_id ");
+        select.append("FETCH FIRST ").append(count).append(" ROWS ONLY ");
+
+        try (PreparedStatement stmt = connection.prepareStatement(select.toString())) {
+            int a = 1;
+            stmt.setLong(a++, afterLogicalResourceId);
+            if (toLogicalResourceId != null) {
+                stmt.setLong(a++, toLogicalResourceId);
+            }
+            if (resourceTypeId != null) {
+                stmt.setInt(a++, resourceTypeId);
+            }
+            stmt.setTimestamp(a++, Timestamp.from(reindexTstamp));
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                candidates.add(new ResourceIndexRecord(rs.getLong(1), rs.getInt(2), rs.getString(3), rs.getLong(4)));
+            }
+        } catch (SQLException x) {
+            logger.log(Level.SEVERE, select.toString(), x);
+            throw translator.translate(x);
+        }
+
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+
+        // Now try and lock the whole batch. Any record whose reindex_txid has changed since the select
+        // was processed by another thread, so we leave it out of the batch
+        final String UPDATE = ""
+                + " UPDATE logical_resources  "
+                + "    SET reindex_tstamp = ?, "
+                + "        reindex_txid = ? "
+                + "  WHERE logical_resource_id = ? "
+                + "    AND reindex_txid = ? ";
+
+        List<ResourceIndexRecord> result = new ArrayList<>(candidates.size());
+        try (PreparedStatement stmt = connection.prepareStatement(UPDATE)) {
+            for (ResourceIndexRecord rir : candidates) {
+                stmt.setTimestamp(1, Timestamp.from(reindexTstamp));
+                stmt.setLong(2, rir.getTransactionId() + 1L);
+                stmt.setLong(3, rir.getLogicalResourceId());
+                stmt.setLong(4, rir.getTransactionId());
+                stmt.addBatch();
+            }
+            int[] rowsAffected = stmt.executeBatch();
+            for (int i = 0; i < rowsAffected.length; i++) {
+                if (rowsAffected[i] != 0) {
+                    result.add(candidates.get(i));
+                }
+            }
+        } catch (SQLException x) {
+            logger.log(Level.SEVERE, UPDATE, x);
+            throw translator.translate(x);
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the highest logical_resource_id currently allocated, which is used to split the
+     * logical resources into ranges for parallel reindexing
+     * @return the highest logical_resource_id, or 0 if there are no resources
+     * @throws Exception
+     */
+    public long getMaxLogicalResourceId() throws Exception {
+        final String SELECT = "SELECT MAX(logical_resource_id) FROM logical_resources";
+
+        // no need to close
+        Connection connection = getConnection();
+        try (PreparedStatement stmt = connection.prepareStatement(SELECT)) {
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException x) {
+            logger.log(Level.SEVERE, SELECT, x);
+            throw translator.translate(x);
+        }
+    }
+
+    /**
+     * Read the current version of each of the given logical resources, which must all be of the given type
+     * @param resourceType
+     * @param logicalResourceIds
+     * @return the resource DTOs keyed by logical_resource_id. Resources which no longer exist are missing.
+     * @throws Exception
+     */
+    public Map<Long, Resource> readCurrentResources(String resourceType, Collection<Long> logicalResourceIds) throws Exception {
+        Map<Long, Resource> result = new HashMap<>();
+        if (logicalResourceIds.isEmpty()) {
+            return result;
+        }
+
+        // the ids are numbers we read from the database, so they can go straight into the statement
+        StringBuilder select = new StringBuilder(String.format(READ_CURRENT_RESOURCES, resourceType, resourceType));
+        select.append("(");
+        boolean first = true;
+        for (Long logicalResourceId : logicalResourceIds) {
+            if (!first) {
+                select.append(",");
+            }
+            select.append(logicalResourceId);
+            first = false;
+        }
+        select.append(")");
+
+        // no need to close
+        Connection connection = getConnection();
+        try (PreparedStatement stmt = connection.prepareStatement(select.toString())) {
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                Resource dto = createDTO(rs);
+                result.put(dto.getLogicalResourceId(), dto);
+            }
+        } catch (SQLException x) {
+            logger.log(Level.SEVERE, select.toString(), x);
+            throw translator.translate(x);
+        }
+        return result;
+    }
+
+    /**
+     * Reindex a batch of resources of the same type by deleting their existing parameters and replacing
+     * them with those passed in. The deletes are sent as one JDBC batch per parameter table, and the
+     * inserts of all the resources go through a single parameter batch DAO.
+     * @param tablePrefix
+     * @param parameters the extracted parameters of each resource, keyed by logical_resource_id
+     * @throws Exception
+     */
+    public void updateParameters(String tablePrefix, Map<Long, List<ExtractedParameterValue>> parameters) throws Exception {
+        updateParameters(tablePrefix, parameters, null);
+    }
+
+    /**
+     * Reindex a batch of resources of the same type by deleting their existing values of the named parameters
+     * and replacing them with those passed in. The values of all the other parameters are left as they are.
+     * @param tablePrefix
+     * @param parameters the extracted parameters of each resource, keyed by logical_resource_id
+     * @param parameterNames the names of the parameters to replace, or null to replace all of them
+     * @throws Exception
+     */
+    public void updateParameters(String tablePrefix, Map<Long, List<ExtractedParameterValue>> parameters, Collection<String> parameterNames) throws Exception {
+        final String METHODNAME = "updateParameters() for " + tablePrefix + " batch of " + parameters.size();
+        logger.entering(CLASSNAME, METHODNAME);
+
+        // no need to close
+        Connection connection = getConnection();
+
+        JDBCIdentityCache identityCache = new JDBCIdentityCacheImpl(getCache(), this, parameterDao, getResourceReferenceDAO());
+        List<Integer> parameterNameIds = null;
+        if (parameterNames != null) {
+            if (parameterNames.isEmpty()) {
+                // nothing to replace
+                logger.exiting(CLASSNAME, METHODNAME);
+                return;
+            }
+            parameterNameIds = new ArrayList<>(parameterNames.size());
+            for (String parameterName : parameterNames) {
+                parameterNameIds.add(identityCache.getParameterNameId(parameterName));
+            }
+        }
+
+        for (String table : PARAMETER_TABLES) {
+            deleteFromParameterTable(connection, tablePrefix + table, parameters.keySet(), parameterNameIds);
+        }
+
+        try (ParameterVisitorBatchDAO pvd = new ParameterVisitorBatchDAO(connection, null, tablePrefix, false, 0, 100,
+            identityCache, getResourceReferenceDAO(), getTransactionData())) {
+            for (Map.Entry<Long, List<ExtractedParameterValue>> entry : parameters.entrySet()) {
+                if (entry.getValue() != null) {
+                    // composites of the parameters we keep still hold their composite ids
+                    int firstCompositeId = 0;
+                    if (parameterNameIds != null && entry.getValue().stream().anyMatch(p -> p instanceof CompositeParmVal)) {
+                        firstCompositeId = getNextCompositeId(connection, tablePrefix, entry.getKey());
+                    }
+                    pvd.setLogicalResourceId(entry.getKey(), firstCompositeId);
+                    for (ExtractedParameterValue p: entry.getValue()) {
+                        p.accept(pvd);
+                    }
+                }
+            }
+        } catch (SQLException x) {
+            logger.log(Level.SEVERE, "inserting parameters", x);
+            throw translator.translate(x);
+        }
+        logger.exiting(CLASSNAME, METHODNAME);
+    }
+
     /**
      * Reindex the resource by deleting existing parameters and replacing them with those passed in
      * @param tablePrefix
@@ -283,12 +550,9 @@ public class ReindexResourceDAO extends ResourceDAOImpl {
 
         // existing resource, so need to delete all its parameters
         // delete composites first, or else the foreign keys there restrict deletes on referenced tables
-        deleteFromParameterTable(connection, tablePrefix + "_str_values", logicalResourceId);
-        deleteFromParameterTable(connection, tablePrefix + "_number_values", logicalResourceId);
-        deleteFromParameterTable(connection, tablePrefix + "_date_values", logicalResourceId);
-        deleteFromParameterTable(connection, tablePrefix + "_latlng_values", logicalResourceId);
-        deleteFromParameterTable(connection, tablePrefix + "_resource_token_refs", logicalResourceId);
-        deleteFromParameterTable(connection, tablePrefix + "_quantity_values", logicalResourceId);
+        for (String table : PARAMETER_TABLES) {
+            deleteFromParameterTable(connection, tablePrefix + table, logicalResourceId);
+        }
 
         if (parameters != null) {
             JDBCIdentityCache identityCache = new JDBCIdentityCacheImpl(getCache(), this, parameterDao, getResourceReferenceDAO());
@@ -305,6 +569,62 @@ public class ReindexResourceDAO extends ResourceDAOImpl {
         logger.exiting(CLASSNAME, METHODNAME);
     }
 
+    /**
+     * Reindex the resource by deleting its existing values of the named parameters and replacing them with
+     * those passed in
+     * @param tablePrefix
+     * @param parameters
+     * @param logicalId
+     * @param logicalResourceId
+     * @param parameterNames the names of the parameters to replace, or null to replace all of them
+     * @throws Exception
+     */
+    public void updateParameters(String tablePrefix, List<ExtractedParameterValue> parameters, String logicalId, long logicalResourceId,
+        Collection<String> parameterNames) throws Exception {
+        if (parameterNames == null) {
+            updateParameters(tablePrefix, parameters, logicalId, logicalResourceId);
+        } else {
+            updateParameters(tablePrefix, Collections.singletonMap(logicalResourceId, parameters), parameterNames);
+        }
+    }
+
+    /**
+     * Get the composite_id which follows the highest composite_id of the given resource
+     * @param conn
+     * @param tablePrefix
+     * @param logicalResourceId
+     * @return
+     * @throws SQLException
+     */
+    protected int getNextCompositeId(Connection conn, String tablePrefix, long logicalResourceId) throws SQLException {
+        StringBuilder select = new StringBuilder("SELECT MAX(composite_id) FROM (");
+        for (int i = 0; i < PARAMETER_TABLES.length; i++) {
+            if (i > 0) {
+                select.append(" UNION ALL ");
+            }
+            select.append("SELECT composite_id FROM ").append(tablePrefix).append(PARAMETER_TABLES[i]).append(" WHERE logical_resource_id = ?");
+        }
+        select.append(") cids");
+
+        final String SQL = select.toString();
+        try (PreparedStatement stmt = conn.prepareStatement(SQL)) {
+            for (int i = 0; i < PARAMETER_TABLES.length; i++) {
+                stmt.setLong(i + 1, logicalResourceId);
+            }
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                int maxCompositeId = rs.getInt(1);
+                if (!rs.wasNull()) {
+                    return maxCompositeId + 1;
+                }
+            }
+            return 0;
+        } catch (SQLException x) {
+            logger.log(Level.SEVERE, SQL, x);
+            throw translator.translate(x);
+        }
+    }
+
     /**
      * Delete all parameters for the given resourceId from the parameters table
      * @param conn
@@ -323,4 +643,42 @@ public class ReindexResourceDAO extends ResourceDAOImpl {
             throw translator.translate(x);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Delete all parameters for the given resourceIds from the parameters table as a single JDBC batch
+     * @param conn
+     * @param tableName
+     * @param logicalResourceIds
+     * @param parameterNameIds if not null, only the parameters with these parameter_name_ids are deleted
+     * @throws SQLException
+     */
+    protected void deleteFromParameterTable(Connection conn, String tableName, Iterable<Long> logicalResourceIds,
+        List<Integer> parameterNameIds) throws SQLException {
+        StringBuilder dml = new StringBuilder("DELETE FROM " + tableName + " WHERE logical_resource_id = ?");
+        if (parameterNameIds != null) {
+            dml.append(" AND parameter_name_id IN (");
+            for (int i = 0; i < parameterNameIds.size(); i++) {
+                dml.append(i == 0 ? "?" : ",?");
+            }
+            dml.append(")");
+        }
+
+        final String DML = dml.toString();
+        try (PreparedStatement stmt = conn.prepareStatement(DML)) {
+            for (Long logicalResourceId : logicalResourceIds) {
+                stmt.setLong(1, logicalResourceId);
+                if (parameterNameIds != null) {
+                    int a = 2;
+                    for (Integer parameterNameId : parameterNameIds) {
+                        stmt.setInt(a++, parameterNameId);
+                    }
+                }
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        } catch (SQLException x) {
+            logger.log(Level.SEVERE, DML, x);
+            throw translator.translate(x);
+        }
+    }
+}
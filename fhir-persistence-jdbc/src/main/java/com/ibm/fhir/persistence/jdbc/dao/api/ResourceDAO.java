@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2017, 2020
+ * (C) Copyright IBM Corp. 2017, 2021
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -7,6 +7,7 @@
 package com.ibm.fhir.persistence.jdbc.dao.api;
 
 import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -139,6 +140,17 @@ public interface ResourceDAO extends FHIRDbDAO {
      */
     int searchCount(SqlQueryData queryData) throws FHIRPersistenceDataAccessException, FHIRPersistenceDBConnectException;
 
+    /**
+     * Estimates the result of a count query based on the data contained in the passed SqlQueryData, using the
+     * statistics of the database instead of running the query.
+     * @param queryData - Contains a search string and (optionally) bind variables.
+     * @return Integer An estimated count of FHIR Resources satisfying the passed search, or null if the count can't
+     *         be estimated for this database.
+     * @throws FHIRPersistenceDataAccessException
+     * @throws FHIRPersistenceDBConnectException
+     */
+    Integer searchCountEstimate(SqlQueryData queryData) throws FHIRPersistenceDataAccessException, FHIRPersistenceDBConnectException;
+
     /**
      * Executes the passed fully-formed SQL Select COUNT statement and returns the integer count.
      *
@@ -196,4 +208,32 @@ public interface ResourceDAO extends FHIRDbDAO {
      */
     Resource insert(Resource resource, List<ExtractedParameterValue> parameters, ParameterDAO parameterDao)
             throws FHIRPersistenceException;
+
+    /**
+     * Reads the current version id of each of the passed logical ids of the given resource type.
+     * @param resourceType A valid FHIR Resource type
+     * @param logicalIds The logical ids of the resources to check
+     * @return Map of logical id to current version id. Logical ids which do not exist are not included in the map.
+     * @throws FHIRPersistenceDataAccessException
+     * @throws FHIRPersistenceDBConnectException
+     */
+    Map<String, Integer> readCurrentVersionIds(String resourceType, Collection<String> logicalIds)
+            throws FHIRPersistenceDataAccessException, FHIRPersistenceDBConnectException;
+
+    /**
+     * Inserts the passed Resource DTOs and their associated search parameters to the appropriate FHIR resource tables
+     * using JDBC batches, rather than one round trip per row. Each of the resources must be the first version of a
+     * logical resource which does not yet exist (the caller is expected to check this first with
+     * {@link #readCurrentVersionIds(String, Collection)}); new versions of existing resources must be inserted with
+     * {@link #insert(Resource, List, ParameterDAO)}.
+     * After insert, the generated primary key is acquired and set in each Resource object.
+     * @param resources The Resource Data Transfer Objects
+     * @param parameters The search parameters of each resource, in the same order as resources
+     * @param parameterDao The Parameter DAO
+     * @throws FHIRPersistenceDataAccessException
+     * @throws FHIRPersistenceDBConnectException
+     * @throws FHIRPersistenceException
+     */
+    void insertBatch(List<Resource> resources, List<List<ExtractedParameterValue>> parameters, ParameterDAO parameterDao)
+            throws FHIRPersistenceException;
 }
\ No newline at end of file
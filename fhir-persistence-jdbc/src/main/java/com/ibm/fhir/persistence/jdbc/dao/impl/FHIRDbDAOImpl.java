@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2017, 2020
+ * (C) Copyright IBM Corp. 2017, 2021
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -15,6 +15,8 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 
 import com.ibm.fhir.database.utils.model.DbType;
@@ -44,6 +46,7 @@ public class FHIRDbDAOImpl implements FHIRDbDAO {
     private static final Logger log = Logger.getLogger(FHIRDbDAOImpl.class.getName());
     private static final String CLASSNAME = FHIRDbDAOImpl.class.getName();
     private static final String NEWLINE = System.getProperty("line.separator");
+    private static final Pattern PLAN_ROWS = Pattern.compile("rows=(\\d+)");
 
     // The connection the DAO operates against
     private final Connection connection;
@@ -292,6 +295,79 @@ public class FHIRDbDAOImpl implements FHIRDbDAO {
         return rowCount;
     }
 
+    /**
+     * Estimates the value of the passed 'SELECT COUNT...' sql from the statistics of the query planner, without
+     * running the query. This is only supported for PostgreSQL, where the estimate is the number of rows which the
+     * plan of the query expects to feed into the count.
+     *
+     * @param sql        - The SQL SELECT COUNT template to estimate.
+     * @param searchArgs - An array of arguments to be substituted into the SQL template.
+     * @return Integer - The estimated count, or null if the count can't be estimated for this database.
+     * @throws FHIRPersistenceDataAccessException
+     * @throws FHIRPersistenceDBConnectException
+     */
+    protected Integer runCountEstimateQuery(String sql, Object... searchArgs)
+            throws FHIRPersistenceDataAccessException, FHIRPersistenceDBConnectException {
+        final String METHODNAME = "runCountEstimateQuery";
+        log.entering(CLASSNAME, METHODNAME);
+
+        if (this.flavor.getType() != DbType.POSTGRESQL) {
+            log.exiting(CLASSNAME, METHODNAME);
+            return null;
+        }
+
+        Integer rowCount = null;
+        PreparedStatement stmt = null;
+        ResultSet resultSet = null;
+        String errMsg =
+                "Failure estimating count. SQL=" + sql + NEWLINE + "  searchArgs=" + Arrays.toString(searchArgs);
+        long dbCallStartTime;
+        double dbCallDuration;
+
+        try {
+            stmt = connection.prepareStatement("EXPLAIN " + sql);
+            // Inject arguments into the prepared stmt.
+            for (int i = 0; i < searchArgs.length; i++) {
+                if (searchArgs[i] instanceof Timestamp) {
+                    stmt.setTimestamp(i + 1, (Timestamp) searchArgs[i], JDBCConstants.UTC);
+                } else {
+                    stmt.setObject(i + 1, searchArgs[i]);
+                }
+            }
+            dbCallStartTime = System.nanoTime();
+            resultSet = stmt.executeQuery();
+            dbCallDuration = (System.nanoTime() - dbCallStartTime) / 1e6;
+
+            // The first line of the plan is the aggregate which produces the count (rows=1); the first
+            // line after it is the node which feeds the aggregate, and its row estimate is the count estimate
+            boolean first = true;
+            while (rowCount == null && resultSet.next()) {
+                Matcher matcher = PLAN_ROWS.matcher(resultSet.getString(1));
+                if (matcher.find()) {
+                    if (!first) {
+                        rowCount = (int) Math.min(Long.parseLong(matcher.group(1)), Integer.MAX_VALUE);
+                    }
+                    first = false;
+                }
+            }
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Successfully estimated count. SQL=" + sql + NEWLINE + "  searchArgs="
+                        + Arrays.toString(searchArgs) + NEWLINE + "  count=" + rowCount + " executionTime="
+                        + dbCallDuration + "ms");
+            }
+        } catch (Throwable e) {
+            // Don't emit the SQL text in an exception - it risks returning it to the client in a response
+            FHIRPersistenceDataAccessException fx =
+                    new FHIRPersistenceDataAccessException("Server error: failure estimating count");
+            throw severe(log, fx, errMsg, e);
+        } finally {
+            this.cleanup(resultSet, stmt);
+            log.exiting(CLASSNAME, METHODNAME);
+        }
+
+        return rowCount;
+    }
+
     /**
      * An method for creating a collection of Data Transfer Objects of type T from the contents of the passed ResultSet.
      *
@@ -19,10 +19,12 @@ import java.util.List;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.zip.GZIPInputStream;
 
 import com.ibm.fhir.persistence.ResourcePayload;
 import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
+import com.ibm.fhir.persistence.jdbc.util.PayloadCodec;
+import com.ibm.fhir.persistence.jdbc.util.PayloadReference;
+import com.ibm.fhir.persistence.payload.PayloadStore;
 
 /**
  * DAO to fetch the payload objects for a list of resource ids
@@ -42,6 +44,12 @@ public class FetchPayloadsForIdsDAO {
     // The consumer accept is called for each record
     private final Consumer<ResourcePayload> consumer;
 
+    // Where the payloads referenced by the DATA column are stored. Can be null
+    private final PayloadStore payloadStore;
+
+    // Decompresses the payloads
+    private final PayloadCodec payloadCodec;
+
     /**
      * Public constructor
      * @param schemaName the FHIR data schema
@@ -50,6 +58,22 @@ public class FetchPayloadsForIdsDAO {
      * @param consumer the consumer to process each result. The stream must be processed before returning from the accept method
      */
     public FetchPayloadsForIdsDAO(String schemaName, String resourceType, List<Long> resourceIds, Consumer<ResourcePayload> consumer) {
+        this(schemaName, resourceType, resourceIds, consumer, null, PayloadCodec.gzip());
+    }
+
+    /**
+     * Public constructor
+     * @param schemaName the FHIR data schema
+     * @param the resource type name
+     * @param resourceIds the list of database resource_id values
+     * @param consumer the consumer to process each result. The stream must be processed before returning from the accept method
+     * @param payloadStore where the payloads referenced by the DATA column are stored. Can be null
+     * @param payloadCodec decompresses the payloads
+     */
+    public FetchPayloadsForIdsDAO(String schemaName, String resourceType, List<Long> resourceIds, Consumer<ResourcePayload> consumer,
+        PayloadStore payloadStore, PayloadCodec payloadCodec) {
+        this.payloadStore = payloadStore;
+        this.payloadCodec = payloadCodec;
         this.schemaName = schemaName;
         this.resourceType = resourceType;
 
@@ -109,7 +133,7 @@ public class FetchPayloadsForIdsDAO {
                 String logicalId = rs.getString(1);
                 Instant lastUpdated = Instant.ofEpochMilli(rs.getTimestamp(2).getTime());
                 long resourceId = rs.getLong(3);
-                InputStream is = new GZIPInputStream(rs.getBinaryStream(4));
+                InputStream is = payloadCodec.decompress(PayloadReference.resolve(rs.getBinaryStream(4), payloadStore));
                 ResourcePayload rp =  new ResourcePayload(logicalId, lastUpdated, resourceId, is);
                 consumer.accept(rp);
             }
@@ -21,12 +21,14 @@ import java.util.TimeZone;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.zip.GZIPInputStream;
 
 import com.ibm.fhir.database.utils.api.IDatabaseTranslator;
 import com.ibm.fhir.persistence.ResourcePayload;
 import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
 import com.ibm.fhir.persistence.jdbc.exception.FHIRPersistenceDataAccessException;
+import com.ibm.fhir.persistence.jdbc.util.PayloadCodec;
+import com.ibm.fhir.persistence.jdbc.util.PayloadReference;
+import com.ibm.fhir.persistence.payload.PayloadStore;
 
 /**
  * DAO to fetch resource ids using a time range and optional current resource id as a filter.
@@ -56,9 +58,22 @@ public class FetchResourcePayloadsDAO {
     // The database translator to help tweak the syntax needed for different DB support
     private final IDatabaseTranslator translator;
 
+    // Where the payloads referenced by the DATA column are stored. Can be null
+    private final PayloadStore payloadStore;
+
+    // Decompresses the payloads
+    private final PayloadCodec payloadCodec;
+
     public FetchResourcePayloadsDAO(IDatabaseTranslator translator, String schemaName, String resourceType, Instant fromLastUpdated, Instant toLastUpdated,
         Function<ResourcePayload,Boolean> processor) {
+        this(translator, schemaName, resourceType, fromLastUpdated, toLastUpdated, processor, null, PayloadCodec.gzip());
+    }
+
+    public FetchResourcePayloadsDAO(IDatabaseTranslator translator, String schemaName, String resourceType, Instant fromLastUpdated, Instant toLastUpdated,
+        Function<ResourcePayload,Boolean> processor, PayloadStore payloadStore, PayloadCodec payloadCodec) {
         this.translator = translator;
+        this.payloadStore = payloadStore;
+        this.payloadCodec = payloadCodec;
         this.schemaName = schemaName;
         this.resourceType = resourceType;
         this.fromLastUpdated = fromLastUpdated;
@@ -132,7 +147,7 @@ public class FetchResourcePayloadsDAO {
                 String logicalId = rs.getString(1);
                 Instant lastUpdated = rs.getTimestamp(2, UTC_CALENDAR).toInstant();
                 long resourceId = rs.getLong(3);
-                InputStream is = new GZIPInputStream(rs.getBinaryStream(4));
+                InputStream is = payloadCodec.decompress(PayloadReference.resolve(rs.getBinaryStream(4), payloadStore));
                 result = new ResourcePayload(logicalId, lastUpdated, resourceId, is);
                 Boolean cont = processor.apply(result);
                 if (cont == null || !cont) {
@@ -54,7 +54,7 @@ public class ParameterVisitorBatchDAO implements ExtractedParameterValueVisitor,
     private final int batchSize;
 
     // FK to the logical resource for the parameters being added
-    private final long logicalResourceId;
+    private long logicalResourceId;
 
     // Maintainers: remember to close all statements in AutoCloseable#close()
     private final String insertString;
@@ -170,6 +170,29 @@ public class ParameterVisitorBatchDAO implements ExtractedParameterValueVisitor,
         systemDates = c.prepareStatement(insertSystemDate);
     }
 
+    /**
+     * Switch to the given logical resource. Allows a single visitor to batch the parameter
+     * inserts for several resources of the same type. Any rows already added to the current
+     * batches keep the logical resource id they were added with.
+     * @param logicalResourceId
+     */
+    public void setLogicalResourceId(long logicalResourceId) {
+        setLogicalResourceId(logicalResourceId, 0);
+    }
+
+    /**
+     * Switch to the given logical resource, numbering its composites from the given composite id. Used
+     * when only some of the parameters of the resource are replaced, so that the composites which are
+     * added don't reuse the composite ids of those the resource still has.
+     * @param logicalResourceId
+     * @param firstCompositeId
+     */
+    public void setLogicalResourceId(long logicalResourceId, int firstCompositeId) {
+        this.logicalResourceId = logicalResourceId;
+        this.compositeIdCounter = firstCompositeId;
+        this.currentCompositeId = null;
+    }
+
     /**
      * Look up the normalized id for the parameter, adding it to the parameter_names table if it doesn't yet exist
      * @param parameterName
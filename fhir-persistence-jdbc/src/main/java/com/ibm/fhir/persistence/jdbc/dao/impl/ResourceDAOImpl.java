@@ -21,6 +21,7 @@ import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -34,6 +35,7 @@ import com.ibm.fhir.persistence.context.FHIRPersistenceContext;
 import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
 import com.ibm.fhir.persistence.exception.FHIRPersistenceVersionIdMismatchException;
 import com.ibm.fhir.persistence.jdbc.FHIRPersistenceJDBCCache;
+import com.ibm.fhir.persistence.jdbc.FHIRResourceDAOFactory;
 import com.ibm.fhir.persistence.jdbc.JDBCConstants;
 import com.ibm.fhir.persistence.jdbc.connection.FHIRDbFlavor;
 import com.ibm.fhir.persistence.jdbc.dao.api.IResourceReferenceDAO;
@@ -120,6 +122,25 @@ public class ResourceDAOImpl extends FHIRDbDAOImpl implements ResourceDAO {
 
     private static final String DB2_PAGINATION_PARMS = "LIMIT ? OFFSET ?";
 
+    // Read the current version of each of a list of logical resources
+    private static final String SQL_READ_CURRENT_VERSION_IDS = "SELECT LR.LOGICAL_ID, R.VERSION_ID " +
+            "FROM %s_RESOURCES R, %s_LOGICAL_RESOURCES LR WHERE " +
+            "R.RESOURCE_ID = LR.CURRENT_RESOURCE_ID AND LR.LOGICAL_ID IN ";
+
+    // Read the ids assigned to a list of logical resources of the same type
+    private static final String SQL_READ_LOGICAL_RESOURCE_IDS = "SELECT LOGICAL_ID, LOGICAL_RESOURCE_ID " +
+            "FROM LOGICAL_RESOURCES WHERE RESOURCE_TYPE_ID = ? AND LOGICAL_ID IN ";
+
+    // Read the ids assigned to the resource versions of a list of logical resources
+    private static final String SQL_READ_RESOURCE_IDS = "SELECT LOGICAL_RESOURCE_ID, RESOURCE_ID " +
+            "FROM %s_RESOURCES WHERE LOGICAL_RESOURCE_ID IN ";
+
+    // The number of rows added to a JDBC batch before it is executed
+    private static final int BATCH_SIZE = 100;
+
+    // The max number of bind markers in the IN list of a single query
+    private static final int IN_LIST_SIZE = 500;
+
     @SuppressWarnings("unused")
     private FHIRPersistenceContext context;
 
@@ -246,6 +267,7 @@ public class ResourceDAOImpl extends FHIRDbDAOImpl implements ResourceDAO {
         try {
             resource.setData(resultSet.getBytes("DATA"));
             resource.setId(resultSet.getLong("RESOURCE_ID"));
+            resource.setLogicalResourceId(resultSet.getLong("LOGICAL_RESOURCE_ID"));
             resource.setLastUpdated(resultSet.getTimestamp("LAST_UPDATED"));
             resource.setLogicalId(resultSet.getString("LOGICAL_ID"));
             resource.setVersionId(resultSet.getInt("VERSION_ID"));
@@ -352,6 +374,23 @@ public class ResourceDAOImpl extends FHIRDbDAOImpl implements ResourceDAO {
         return count;
     }
 
+    @Override
+    public Integer searchCountEstimate(SqlQueryData queryData) throws FHIRPersistenceDataAccessException, FHIRPersistenceDBConnectException {
+        final String METHODNAME = "searchCountEstimate(SqlQueryData)";
+        log.entering(CLASSNAME, METHODNAME);
+
+        Integer count;
+        String sqlSelectCount = queryData.getQueryString();
+        Object[] bindVariables = queryData.getBindVariables().toArray();
+
+        try {
+            count = this.runCountEstimateQuery(sqlSelectCount, bindVariables);
+        } finally {
+            log.exiting(CLASSNAME, METHODNAME);
+        }
+        return count;
+    }
+
     @Override
     public void setPersistenceContext(FHIRPersistenceContext context) {
         this.context = context;
@@ -640,6 +679,296 @@ public class ResourceDAOImpl extends FHIRDbDAOImpl implements ResourceDAO {
         return resource;
     }
 
+    @Override
+    public Map<String, Integer> readCurrentVersionIds(String resourceType, Collection<String> logicalIds)
+            throws FHIRPersistenceDataAccessException, FHIRPersistenceDBConnectException {
+        final String METHODNAME = "readCurrentVersionIds";
+        log.entering(CLASSNAME, METHODNAME);
+
+        final Connection connection = getConnection(); // do not close
+        Map<String, Integer> result = new HashMap<>();
+        List<String> ids = new ArrayList<>(logicalIds);
+        try {
+            for (int start = 0; start < ids.size(); start += IN_LIST_SIZE) {
+                List<String> chunk = ids.subList(start, Math.min(ids.size(), start + IN_LIST_SIZE));
+                String sql = String.format(SQL_READ_CURRENT_VERSION_IDS, resourceType, resourceType) + inList(chunk.size());
+                try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                    int i = 1;
+                    for (String logicalId: chunk) {
+                        ps.setString(i++, logicalId);
+                    }
+                    ResultSet rs = ps.executeQuery();
+                    while (rs.next()) {
+                        result.put(rs.getString(1), rs.getInt(2));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            FHIRPersistenceDataAccessException fx = new FHIRPersistenceDataAccessException("Failure reading current version ids.");
+            throw severe(log, fx, e);
+        } finally {
+            log.exiting(CLASSNAME, METHODNAME);
+        }
+        return result;
+    }
+
+    @Override
+    public void insertBatch(List<Resource> resources, List<List<ExtractedParameterValue>> parameters, ParameterDAO parameterDao)
+            throws FHIRPersistenceException {
+        final String METHODNAME = "insertBatch";
+        log.entering(CLASSNAME, METHODNAME);
+
+        if (resources.size() != parameters.size()) {
+            throw new IllegalArgumentException("resources and parameters must be the same size");
+        }
+
+        // The statements are specific to the resource type, so group the batch by type
+        Map<String, List<Integer>> indexesByType = new HashMap<>();
+        for (int i = 0; i < resources.size(); i++) {
+            indexesByType.computeIfAbsent(resources.get(i).getResourceType(), k -> new ArrayList<>()).add(i);
+        }
+
+        long dbCallStartTime = System.nanoTime();
+        try {
+            for (Map.Entry<String, List<Integer>> entry: indexesByType.entrySet()) {
+                List<Resource> typeResources = new ArrayList<>(entry.getValue().size());
+                List<List<ExtractedParameterValue>> typeParameters = new ArrayList<>(entry.getValue().size());
+                for (Integer index: entry.getValue()) {
+                    typeResources.add(resources.get(index));
+                    typeParameters.add(parameters.get(index));
+                }
+                insertBatch(entry.getKey(), typeResources, typeParameters, parameterDao);
+            }
+
+            if (log.isLoggable(Level.FINE)) {
+                double totalDuration = (System.nanoTime() - dbCallStartTime) / 1e6;
+                log.fine("Successfully inserted batch of " + resources.size() + " resources. total=" + totalDuration + "ms");
+            }
+        } catch (FHIRPersistenceDBConnectException | FHIRPersistenceDataAccessException e) {
+            throw e;
+        } catch (SQLIntegrityConstraintViolationException e) {
+            FHIRPersistenceFKVException fx = new FHIRPersistenceFKVException("Encountered FK violation while inserting Resource batch.");
+            throw severe(log, fx, e);
+        } catch (SQLException e) {
+            SQLException cause = e.getNextException() != null ? e.getNextException() : e;
+            if ("23505".equals(cause.getSQLState())) {
+                // another transaction created one of the logical resources after we checked for it
+                throw new FHIRPersistenceVersionIdMismatchException("Encountered concurrent create while inserting Resource batch");
+            } else {
+                FHIRPersistenceDataAccessException fx = new FHIRPersistenceDataAccessException("SQLException encountered while inserting Resource batch.");
+                throw severe(log, fx, cause);
+            }
+        } catch (Throwable e) {
+            FHIRPersistenceDataAccessException fx = new FHIRPersistenceDataAccessException("Failure inserting Resource batch.");
+            throw severe(log, fx, e);
+        } finally {
+            log.exiting(CLASSNAME, METHODNAME);
+        }
+    }
+
+    /**
+     * Insert a batch of new resources of the same type. Follows the same steps as the add_any_resource
+     * stored procedure for a new logical resource, but each step is a single JDBC batch for all the
+     * resources rather than one round trip per resource:
+     * <pre>
+     *   INSERT logical_resources            -- batch, ids from fhir_sequence
+     *   SELECT logical_resource_ids          -- one query to fetch the assigned ids
+     *   INSERT xx_logical_resources         -- batch
+     *   INSERT xx_resources                 -- batch, ids from fhir_sequence
+     *   SELECT resource_ids                  -- one query to fetch the assigned ids
+     *   UPDATE xx_logical_resources         -- batch, set current_resource_id
+     *   INSERT resource_change_log          -- batch
+     *   INSERT parameters                   -- batched by ParameterVisitorBatchDAO
+     * </pre>
+     * Because the logical resources are new, inserting the logical_resources rows gives us the same
+     * locks the stored procedure acquires with its SELECT FOR UPDATE.
+     */
+    private void insertBatch(String resourceType, List<Resource> resources, List<List<ExtractedParameterValue>> parameters, ParameterDAO parameterDao)
+            throws Exception {
+        final Connection connection = getConnection(); // do not close
+        final boolean multitenant = getFlavor().isMultitenant();
+        final String tenantId = multitenant ? "FHIR_ADMIN.sv_tenant_id, " : "";
+        final String mtColumn = multitenant ? "mt_id, " : "";
+        final String nextVal = FHIRResourceDAOFactory.getTranslatorForFlavor(getFlavor()).nextValue(getSchemaName(), "fhir_sequence");
+        final int resourceTypeId = getResourceTypeIdForInsert(resourceType);
+
+        final String insertLogicalResources = "INSERT INTO logical_resources (" + mtColumn + "logical_resource_id, resource_type_id, logical_id, reindex_tstamp) "
+                + "VALUES (" + tenantId + nextVal + ", ?, ?, ?)";
+        try (PreparedStatement ps = connection.prepareStatement(insertLogicalResources)) {
+            int count = 0;
+            for (Resource resource: resources) {
+                ps.setInt(1, resourceTypeId);
+                ps.setString(2, resource.getLogicalId());
+                ps.setTimestamp(3, Timestamp.valueOf(DEFAULT_VALUE_REINDEX_TSTAMP));
+                ps.addBatch();
+                if (++count == BATCH_SIZE) {
+                    ps.executeBatch();
+                    count = 0;
+                }
+            }
+            if (count > 0) {
+                ps.executeBatch();
+            }
+        }
+
+        // Fetch the logical_resource_id values assigned by the sequence
+        Map<String, Long> logicalResourceIds = new HashMap<>();
+        List<String> logicalIds = new ArrayList<>(resources.size());
+        for (Resource resource: resources) {
+            logicalIds.add(resource.getLogicalId());
+        }
+        for (int start = 0; start < logicalIds.size(); start += IN_LIST_SIZE) {
+            List<String> chunk = logicalIds.subList(start, Math.min(logicalIds.size(), start + IN_LIST_SIZE));
+            final String select = SQL_READ_LOGICAL_RESOURCE_IDS + inList(chunk.size());
+            try (PreparedStatement ps = connection.prepareStatement(select)) {
+                int i = 1;
+                ps.setInt(i++, resourceTypeId);
+                for (String logicalId: chunk) {
+                    ps.setString(i++, logicalId);
+                }
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) {
+                    logicalResourceIds.put(rs.getString(1), rs.getLong(2));
+                }
+            }
+        }
+
+        final String insertTypeLogicalResources = "INSERT INTO " + resourceType + "_logical_resources (" + mtColumn + "logical_resource_id, logical_id, is_deleted, last_updated) "
+                + "VALUES (" + tenantId + "?, ?, ?, ?)";
+        final String insertResources = "INSERT INTO " + resourceType + "_resources (" + mtColumn + "resource_id, logical_resource_id, version_id, data, last_updated, is_deleted) "
+                + "VALUES (" + tenantId + nextVal + ", ?, ?, ?, ?, ?)";
+        try (PreparedStatement lrps = connection.prepareStatement(insertTypeLogicalResources);
+                PreparedStatement rps = connection.prepareStatement(insertResources)) {
+            int count = 0;
+            for (Resource resource: resources) {
+                long logicalResourceId = logicalResourceIds.get(resource.getLogicalId());
+                resource.setId(logicalResourceId);
+
+                lrps.setLong(1, logicalResourceId);
+                lrps.setString(2, resource.getLogicalId());
+                lrps.setString(3, resource.isDeleted() ? "Y" : "N");
+                lrps.setTimestamp(4, resource.getLastUpdated(), UTC);
+                lrps.addBatch();
+
+                rps.setLong(1, logicalResourceId);
+                rps.setInt(2, resource.getVersionId());
+                rps.setBytes(3, resource.getData());
+                rps.setTimestamp(4, resource.getLastUpdated(), UTC);
+                rps.setString(5, resource.isDeleted() ? "Y" : "N");
+                rps.addBatch();
+
+                if (++count == BATCH_SIZE) {
+                    // the resources reference the logical resources, so the order matters
+                    lrps.executeBatch();
+                    rps.executeBatch();
+                    count = 0;
+                }
+            }
+            if (count > 0) {
+                lrps.executeBatch();
+                rps.executeBatch();
+            }
+        }
+
+        // Fetch the resource_id values assigned by the sequence. Each logical resource is new, so
+        // it has exactly one version
+        Map<Long, Long> resourceIds = new HashMap<>();
+        List<Long> ids = new ArrayList<>(logicalResourceIds.values());
+        for (int start = 0; start < ids.size(); start += IN_LIST_SIZE) {
+            List<Long> chunk = ids.subList(start, Math.min(ids.size(), start + IN_LIST_SIZE));
+            final String select = String.format(SQL_READ_RESOURCE_IDS, resourceType) + inList(chunk.size());
+            try (PreparedStatement ps = connection.prepareStatement(select)) {
+                int i = 1;
+                for (Long id: chunk) {
+                    ps.setLong(i++, id);
+                }
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) {
+                    resourceIds.put(rs.getLong(1), rs.getLong(2));
+                }
+            }
+        }
+
+        final String updateCurrent = "UPDATE " + resourceType + "_logical_resources SET current_resource_id = ? WHERE logical_resource_id = ?";
+        final String insertChangeLog = "INSERT INTO resource_change_log(" + mtColumn + "resource_id, change_tstamp, resource_type_id, logical_resource_id, version_id, change_type) "
+                + "VALUES (" + tenantId + "?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement ups = connection.prepareStatement(updateCurrent);
+                PreparedStatement cps = connection.prepareStatement(insertChangeLog)) {
+            int count = 0;
+            for (Resource resource: resources) {
+                long resourceId = resourceIds.get(resource.getId());
+                ups.setLong(1, resourceId);
+                ups.setLong(2, resource.getId());
+                ups.addBatch();
+
+                cps.setLong(1, resourceId);
+                cps.setTimestamp(2, resource.getLastUpdated(), UTC);
+                cps.setInt(3, resourceTypeId);
+                cps.setLong(4, resource.getId());
+                cps.setInt(5, resource.getVersionId());
+                cps.setString(6, resource.isDeleted() ? "D" : "C");
+                cps.addBatch();
+
+                if (++count == BATCH_SIZE) {
+                    ups.executeBatch();
+                    cps.executeBatch();
+                    count = 0;
+                }
+            }
+            if (count > 0) {
+                ups.executeBatch();
+                cps.executeBatch();
+            }
+        }
+
+        // A single visitor accumulates the parameters of all the resources, so each parameter table
+        // and the token values for the whole batch are written together when it is closed
+        JDBCIdentityCache identityCache = new JDBCIdentityCacheImpl(cache, this, parameterDao, getResourceReferenceDAO());
+        try (ParameterVisitorBatchDAO pvd = new ParameterVisitorBatchDAO(connection, "FHIR_ADMIN", resourceType, multitenant,
+            resources.get(0).getId(), BATCH_SIZE, identityCache, getResourceReferenceDAO(), getTransactionData())) {
+            for (int i = 0; i < resources.size(); i++) {
+                if (parameters.get(i) != null) {
+                    pvd.setLogicalResourceId(resources.get(i).getId());
+                    for (ExtractedParameterValue p: parameters.get(i)) {
+                        p.accept(pvd);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the resource type id for the given resource type, creating it if it doesn't yet exist
+     * @param resourceType
+     * @return
+     * @throws Exception
+     */
+    protected int getResourceTypeIdForInsert(String resourceType) throws Exception {
+        Integer resourceTypeId = getResourceTypeIdFromCaches(resourceType);
+        if (resourceTypeId == null) {
+            resourceTypeId = this.readResourceTypeId(resourceType);
+            this.addResourceTypeCacheCandidate(resourceType, resourceTypeId);
+        }
+        return resourceTypeId;
+    }
+
+    /**
+     * Build a list of n bind markers for an IN clause
+     * @param n
+     * @return
+     */
+    private static String inList(int n) {
+        StringBuilder result = new StringBuilder("(");
+        for (int i = 0; i < n; i++) {
+            if (i > 0) {
+                result.append(",");
+            }
+            result.append("?");
+        }
+        result.append(")");
+        return result.toString();
+    }
+
     @Override
     public List<Resource> search(String sqlSelect) throws FHIRPersistenceDataAccessException, FHIRPersistenceDBConnectException {
         final String METHODNAME = "search";
@@ -162,6 +162,17 @@ public class DerbyResourceDAO extends ResourceDAOImpl {
 
     }
 
+    @Override
+    protected int getResourceTypeIdForInsert(String resourceType) throws Exception {
+        // Derby has no add_resource_type procedure, so create the resource type directly if needed
+        Integer resourceTypeId = getResourceTypeIdFromCaches(resourceType);
+        if (resourceTypeId == null) {
+            resourceTypeId = getOrCreateResourceType(resourceType, getConnection());
+            this.addResourceTypeCacheCandidate(resourceType, resourceTypeId);
+        }
+        return resourceTypeId;
+    }
+
     /**
      * Store the resource in the database, creating a new logical_resource entry if this is
      * the first version of this resource, or creating a new resource entry if this a new
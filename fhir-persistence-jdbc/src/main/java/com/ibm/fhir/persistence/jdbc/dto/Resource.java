@@ -14,6 +14,7 @@ import java.sql.Timestamp;
 public class Resource {
     
     private long id;
+    private long logicalResourceId;
     private String logicalId;
     private int versionId;
     private String resourceType;
@@ -50,6 +51,14 @@ public class Resource {
         this.id = id;
     }
 
+    public long getLogicalResourceId() {
+        return logicalResourceId;
+    }
+
+    public void setLogicalResourceId(long logicalResourceId) {
+        this.logicalResourceId = logicalResourceId;
+    }
+
     public String getLogicalId() {
         return logicalId;
     }
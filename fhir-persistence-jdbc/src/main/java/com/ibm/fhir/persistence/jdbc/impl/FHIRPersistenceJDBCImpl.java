@@ -6,9 +6,11 @@
 
 package com.ibm.fhir.persistence.jdbc.impl;
 
+import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_JDBC_COMPRESSION_DICTIONARY_DIRECTORY;
 import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_JDBC_ENABLE_CODE_SYSTEMS_CACHE;
 import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_JDBC_ENABLE_PARAMETER_NAMES_CACHE;
 import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_JDBC_ENABLE_RESOURCE_TYPES_CACHE;
+import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_JDBC_PAYLOAD_STORE_DIRECTORY;
 import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_UPDATE_CREATE_ENABLED;
 import static com.ibm.fhir.model.type.String.string;
 import static com.ibm.fhir.model.util.ModelSupport.getResourceType;
@@ -17,6 +19,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Timestamp;
@@ -28,6 +31,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -37,8 +41,7 @@ import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.zip.DeflaterOutputStream;
 
 import javax.naming.InitialContext;
 import javax.transaction.TransactionSynchronizationRegistry;
@@ -85,6 +88,7 @@ import com.ibm.fhir.path.evaluator.FHIRPathEvaluator.EvaluationContext;
 import com.ibm.fhir.persistence.FHIRPersistence;
 import com.ibm.fhir.persistence.FHIRPersistenceTransaction;
 import com.ibm.fhir.persistence.MultiResourceResult;
+import com.ibm.fhir.persistence.ReindexCheckpoint;
 import com.ibm.fhir.persistence.ResourceChangeLogRecord;
 import com.ibm.fhir.persistence.ResourcePayload;
 import com.ibm.fhir.persistence.SingleResourceResult;
@@ -137,15 +141,23 @@ import com.ibm.fhir.persistence.jdbc.exception.FHIRPersistenceFKVException;
 import com.ibm.fhir.persistence.jdbc.util.CodeSystemsCache;
 import com.ibm.fhir.persistence.jdbc.util.JDBCParameterBuildingVisitor;
 import com.ibm.fhir.persistence.jdbc.util.JDBCQueryBuilder;
+import com.ibm.fhir.persistence.jdbc.util.KeysetCursor;
+import com.ibm.fhir.persistence.jdbc.util.ParallelResourceConverter;
 import com.ibm.fhir.persistence.jdbc.util.ParameterNamesCache;
+import com.ibm.fhir.persistence.jdbc.util.PayloadCodec;
+import com.ibm.fhir.persistence.jdbc.util.PayloadReference;
 import com.ibm.fhir.persistence.jdbc.util.ResourceTypesCache;
 import com.ibm.fhir.persistence.jdbc.util.SqlQueryData;
 import com.ibm.fhir.persistence.jdbc.util.TimestampPrefixedUUID;
+import com.ibm.fhir.persistence.payload.FileSystemPayloadStore;
+import com.ibm.fhir.persistence.payload.PayloadStore;
 import com.ibm.fhir.persistence.util.FHIRPersistenceUtil;
 import com.ibm.fhir.persistence.util.LogicalIdentityProvider;
+import com.ibm.fhir.schema.compression.CompressionDictionaries;
 import com.ibm.fhir.schema.control.FhirSchemaConstants;
 import com.ibm.fhir.search.SearchConstants;
 import com.ibm.fhir.search.SummaryValueSet;
+import com.ibm.fhir.search.TotalValueSet;
 import com.ibm.fhir.search.compartment.CompartmentUtil;
 import com.ibm.fhir.search.context.FHIRSearchContext;
 import com.ibm.fhir.search.date.DateTimeHandler;
@@ -201,6 +213,12 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
     // The transactionDataImpl for use when collecting data across multiple resources in a transaction bundle
     private TransactionDataImpl<ParameterTransactionDataImpl> transactionDataImpl;
 
+    // Where the resource payloads are stored instead of the DATA column. Null when the payloads are stored in the database
+    private final PayloadStore payloadStore;
+
+    // Compresses the resource payloads, with the dictionary of their resource type if there is one
+    private final PayloadCodec payloadCodec;
+
     /**
      * Constructor for use when running as web application in WLP.
      * @throws Exception
@@ -232,6 +250,18 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
         ResourceTypesCache.setEnabled(fhirConfig.getBooleanProperty(PROPERTY_JDBC_ENABLE_RESOURCE_TYPES_CACHE,
                                       Boolean.TRUE));
 
+        // The payloads of each tenant and datastore are kept in their own directory
+        String payloadStoreDirectory = fhirConfig.getStringProperty(PROPERTY_JDBC_PAYLOAD_STORE_DIRECTORY, null);
+        if (payloadStoreDirectory != null) {
+            FHIRRequestContext requestContext = FHIRRequestContext.get();
+            this.payloadStore = new FileSystemPayloadStore(Paths.get(payloadStoreDirectory, requestContext.getTenantId(), requestContext.getDataStoreId()));
+        } else {
+            this.payloadStore = null;
+        }
+
+        String compressionDictionaryDirectory = fhirConfig.getStringProperty(PROPERTY_JDBC_COMPRESSION_DICTIONARY_DIRECTORY, null);
+        this.payloadCodec = compressionDictionaryDirectory != null
+                ? new PayloadCodec(CompressionDictionaries.load(Paths.get(compressionDictionaryDirectory))) : PayloadCodec.gzip();
 
         // Set up the connection strategy for use within a JEE container. The actions
         // are processed the first time a connection is established to a particular tenant/datasource.
@@ -307,6 +337,13 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
         // TODO connect the transactionAdapter to our cache so that we can handle tx events in a non-JEE world
         this.transactionDataImpl = null;
 
+        String payloadStoreDirectory = configProps.getProperty("payloadStoreDirectory");
+        this.payloadStore = payloadStoreDirectory != null ? new FileSystemPayloadStore(Paths.get(payloadStoreDirectory)) : null;
+
+        String compressionDictionaryDirectory = configProps.getProperty("compressionDictionaryDirectory");
+        this.payloadCodec = compressionDictionaryDirectory != null
+                ? new PayloadCodec(CompressionDictionaries.load(Paths.get(compressionDictionaryDirectory))) : PayloadCodec.gzip();
+
         log.exiting(CLASSNAME, METHODNAME);
     }
 
@@ -378,10 +415,10 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
             resourceDTO.setResourceType(updatedResource.getClass().getSimpleName());
 
             // Serialize and compress the Resource
-            GZIPOutputStream zipStream = new GZIPOutputStream(stream);
+            DeflaterOutputStream zipStream = payloadCodec.compress(resourceDTO.getResourceType(), stream);
             FHIRGenerator.generator( Format.JSON, false).generate(updatedResource, zipStream);
             zipStream.finish();
-            resourceDTO.setData(stream.toByteArray());
+            setPayload(resourceDTO, stream.toByteArray());
             zipStream.close();
 
             // The DAO objects are now created on-the-fly (not expensive to construct) and
@@ -569,10 +606,10 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
             resourceDTO.setResourceType(updatedResource.getClass().getSimpleName());
 
             // Serialize and compress the Resource
-            GZIPOutputStream zipStream = new GZIPOutputStream(stream);
+            DeflaterOutputStream zipStream = payloadCodec.compress(resourceDTO.getResourceType(), stream);
             FHIRGenerator.generator(Format.JSON, false).generate(updatedResource, zipStream);
             zipStream.finish();
-            resourceDTO.setData(stream.toByteArray());
+            setPayload(resourceDTO, stream.toByteArray());
             zipStream.close();
 
             // Persist the Resource DTO.
@@ -614,6 +651,151 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
         }
     }
 
+    @Override
+    public List<SingleResourceResult<Resource>> createOrUpdateBatch(FHIRPersistenceContext context, List<Resource> resources)
+            throws FHIRPersistenceException {
+        final String METHODNAME = "createOrUpdateBatch";
+        log.entering(CLASSNAME, METHODNAME);
+
+        try (Connection connection = openConnection()) {
+            ResourceDAO resourceDao = makeResourceDAO(connection);
+            ParameterDAO parameterDao = makeParameterDAO(connection);
+            resourceDao.setPersistenceContext(context);
+
+            // Read the current version of all the resources with an id, one query per resource type
+            Map<String, Set<String>> logicalIdsByType = new HashMap<>();
+            for (Resource resource : resources) {
+                if (resource.getId() != null) {
+                    logicalIdsByType.computeIfAbsent(resource.getClass().getSimpleName(), k -> new HashSet<>()).add(resource.getId());
+                }
+            }
+            Map<String, Map<String, Integer>> versionsByType = new HashMap<>();
+            for (Entry<String, Set<String>> entry : logicalIdsByType.entrySet()) {
+                versionsByType.put(entry.getKey(), new HashMap<>(resourceDao.readCurrentVersionIds(entry.getKey(), entry.getValue())));
+            }
+
+            // The first version of a new logical resource can be inserted in a batch. Anything else
+            // needs the stored procedure to replace the parameters of the current version
+            List<com.ibm.fhir.persistence.jdbc.dto.Resource> batchDTOs = new ArrayList<>();
+            List<List<ExtractedParameterValue>> batchParameters = new ArrayList<>();
+            List<com.ibm.fhir.persistence.jdbc.dto.Resource> versionDTOs = new ArrayList<>();
+            List<List<ExtractedParameterValue>> versionParameters = new ArrayList<>();
+            List<SingleResourceResult<Resource>> results = new ArrayList<>(resources.size());
+
+            for (Resource resource : resources) {
+                String resourceType = resource.getClass().getSimpleName();
+                String logicalId = resource.getId();
+                int existingVersion = 0;
+                if (logicalId == null) {
+                    logicalId = generateResourceId();
+                } else {
+                    Integer version = versionsByType.get(resourceType).get(logicalId);
+                    if (version != null) {
+                        existingVersion = version;
+                    } else if (!updateCreateEnabled) {
+                        String msg = "Resource '" + resourceType + "/" + logicalId + "' not found.";
+                        log.log(Level.SEVERE, msg);
+                        results.add(new SingleResourceResult.Builder<Resource>()
+                                .success(false)
+                                .outcome(FHIRUtil.buildOperationOutcome(new FHIRPersistenceResourceNotFoundException(msg), false))
+                                .build());
+                        continue;
+                    }
+                }
+
+                // Only the issues raised for this resource go into its outcome
+                int firstIssue = supplementalIssues.size();
+                int newVersionNumber = existingVersion + 1;
+                try {
+                    Instant lastUpdated = Instant.now(ZoneOffset.UTC);
+                    Meta meta = resource.getMeta();
+                    Meta.Builder metaBuilder = meta == null ? Meta.builder() : meta.toBuilder();
+                    metaBuilder.versionId(Id.of(Integer.toString(newVersionNumber)));
+                    metaBuilder.lastUpdated(lastUpdated);
+                    Resource updatedResource = resource.toBuilder()
+                            .id(logicalId)
+                            .meta(metaBuilder.build())
+                            .build();
+
+                    com.ibm.fhir.persistence.jdbc.dto.Resource resourceDTO = new com.ibm.fhir.persistence.jdbc.dto.Resource();
+                    resourceDTO.setLogicalId(logicalId);
+                    resourceDTO.setVersionId(newVersionNumber);
+                    resourceDTO.setLastUpdated(FHIRUtilities.convertToTimestamp(lastUpdated.getValue()));
+                    resourceDTO.setResourceType(resourceType);
+
+                    // Serialize and compress the Resource
+                    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+                    try (DeflaterOutputStream zipStream = payloadCodec.compress(resourceDTO.getResourceType(), stream)) {
+                        FHIRGenerator.generator(Format.JSON, false).generate(updatedResource, zipStream);
+                        zipStream.finish();
+                        setPayload(resourceDTO, stream.toByteArray());
+                    }
+
+                    List<ExtractedParameterValue> parameters = this.extractSearchParameters(updatedResource, resourceDTO);
+                    if (existingVersion == 0) {
+                        batchDTOs.add(resourceDTO);
+                        batchParameters.add(parameters);
+                    } else {
+                        versionDTOs.add(resourceDTO);
+                        versionParameters.add(parameters);
+                    }
+
+                    // Remember the new version in case the same resource appears again later in the batch
+                    versionsByType.computeIfAbsent(resourceType, k -> new HashMap<>()).put(logicalId, newVersionNumber);
+
+                    SingleResourceResult.Builder<Resource> resultBuilder = new SingleResourceResult.Builder<Resource>()
+                            .success(true)
+                            .resource(updatedResource);
+                    if (supplementalIssues.size() > firstIssue) {
+                        resultBuilder.outcome(OperationOutcome.builder()
+                            .issue(new ArrayList<>(supplementalIssues.subList(firstIssue, supplementalIssues.size())))
+                            .build());
+                    }
+                    results.add(resultBuilder.build());
+                } catch (FHIRException | IOException | RuntimeException e) {
+                    // A resource which can't be prepared fails on its own; nothing has been written for it yet
+                    log.log(Level.WARNING, "Failed to prepare '" + resourceType + "/" + logicalId + "' for the batch", e);
+                    FHIRPersistenceException fx = e instanceof FHIRPersistenceException ? (FHIRPersistenceException) e
+                            : new FHIRPersistenceException("Unexpected error while preparing '" + resourceType + "/" + logicalId + "'");
+                    results.add(new SingleResourceResult.Builder<Resource>()
+                            .success(false)
+                            .outcome(FHIRUtil.buildOperationOutcome(fx, false))
+                            .build());
+                }
+            }
+
+            if (!batchDTOs.isEmpty()) {
+                resourceDao.insertBatch(batchDTOs, batchParameters, parameterDao);
+            }
+
+            // New versions are inserted after the batch, which may contain their first version
+            for (int i = 0; i < versionDTOs.size(); i++) {
+                resourceDao.insert(versionDTOs.get(i), versionParameters.get(i), parameterDao);
+            }
+
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Persisted " + batchDTOs.size() + " new FHIR Resources in a batch and " + versionDTOs.size() + " new versions");
+            }
+            return results;
+        }
+        catch(FHIRPersistenceFKVException e) {
+            log.log(Level.SEVERE, this.performCacheDiagnostics());
+            throw e;
+        }
+        catch(FHIRPersistenceException e) {
+            throw e;
+        }
+        catch(Throwable e) {
+            // don't chain the exception to avoid leaking secrets
+            FHIRPersistenceException fx = new FHIRPersistenceException("Unexpected error while performing a batch create or update operation.");
+            log.log(Level.SEVERE, fx.getMessage(), e);
+            throw fx;
+        }
+        finally {
+            log.exiting(CLASSNAME, METHODNAME);
+        }
+    }
+
     @Override
     public MultiResourceResult<Resource> search(FHIRPersistenceContext context, Class<? extends Resource> resourceType)
             throws FHIRPersistenceException {
@@ -622,6 +804,88 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
 
         List<Resource> resources = Collections.emptyList();
         MultiResourceResult.Builder<Resource> resultBuilder = new MultiResourceResult.Builder<>();
+
+        try {
+            ResourceDTOSearchResult dtoResult = searchResourceDTOs(context, resourceType);
+            if (!dtoResult.issues.isEmpty()) {
+                resultBuilder.outcome(OperationOutcome.builder()
+                    .issue(dtoResult.issues)
+                    .build());
+                if (!dtoResult.success) {
+                    return resultBuilder.success(false).build();
+                }
+            }
+
+            // Convert resources; _elements processing is not done for 'include' resources
+            if (!dtoResult.matches.isEmpty() || !dtoResult.includes.isEmpty()) {
+                resources = this.convertResourceDTOList(dtoResult.matches, resourceType, dtoResult.elements);
+                resources.addAll(this.convertResourceDTOList(dtoResult.includes, resourceType, null));
+            }
+
+            return resultBuilder
+                    .success(true)
+                    .resource(resources)
+                    .build();
+        } catch (FHIRPersistenceException e) {
+            throw e;
+        } catch (Throwable e) {
+            FHIRPersistenceException fx = new FHIRPersistenceException("Unexpected error while performing a search operation.");
+            log.log(Level.SEVERE, fx.getMessage(), e);
+            throw fx;
+        } finally {
+            log.exiting(CLASSNAME, METHODNAME);
+        }
+    }
+
+    @Override
+    public List<ResourcePayload> searchPayloads(FHIRPersistenceContext context, Class<? extends Resource> resourceType)
+            throws FHIRPersistenceException {
+        final String METHODNAME = "searchPayloads";
+        log.entering(CLASSNAME, METHODNAME);
+
+        FHIRSearchContext searchContext = context.getSearchContext();
+
+        try {
+            // The payloads are stored unfiltered, and system-level and _include/_revinclude searches
+            // return resources of other types
+            if (isSystemLevelSearch(resourceType)
+                    || searchContext.hasElementsParameters()
+                    || searchContext.hasSummaryParameter()
+                    || searchContext.hasIncludeParameters()
+                    || searchContext.hasRevIncludeParameters()) {
+                return null;
+            }
+
+            // From here on, the result must not be null, because the caller would run the queries again
+            ResourceDTOSearchResult dtoResult = searchResourceDTOs(context, resourceType);
+            if (!dtoResult.success) {
+                // an invalid paging context in strict mode; search returns no resources either
+                return Collections.emptyList();
+            }
+
+            return convertResourceDTOListToPayloads(dtoResult.matches, resourceType);
+        } catch (FHIRPersistenceException e) {
+            throw e;
+        } catch (Throwable e) {
+            FHIRPersistenceException fx = new FHIRPersistenceException("Unexpected error while performing a search operation.");
+            log.log(Level.SEVERE, fx.getMessage(), e);
+            throw fx;
+        } finally {
+            log.exiting(CLASSNAME, METHODNAME);
+        }
+    }
+
+    /**
+     * Runs the count and search queries for the given search context, and returns the resource DTOs of the
+     * requested page, without converting them to FHIR resources.
+     * @param context
+     * @param resourceType
+     * @return
+     * @throws Exception
+     */
+    private ResourceDTOSearchResult searchResourceDTOs(FHIRPersistenceContext context, Class<? extends Resource> resourceType)
+            throws Exception {
+        ResourceDTOSearchResult result = new ResourceDTOSearchResult();
         FHIRSearchContext searchContext = context.getSearchContext();
         JDBCQueryBuilder queryBuilder;
         int searchResultCount = 0;
@@ -641,27 +905,35 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
 
             countQuery = queryBuilder.buildCountQuery(resourceType, searchContext);
             if (countQuery != null) {
-                searchResultCount = resourceDao.searchCount(countQuery);
-                if (log.isLoggable(Level.FINE)) {
-                    log.fine("searchResultCount = " + searchResultCount);
-                }
-                searchContext.setTotalCount(searchResultCount);
-
-                List<OperationOutcome.Issue> issues = validatePagingContext(searchContext);
-                if (!issues.isEmpty()) {
-                    resultBuilder.outcome(OperationOutcome.builder()
-                        .issue(issues)
-                        .build());
-                    if (!searchContext.isLenient()) {
-                        return resultBuilder.success(false).build();
+                TotalValueSet total = getTotal(searchContext, resourceType);
+                if (total != TotalValueSet.NONE) {
+                    Integer estimate = null;
+                    if (total == TotalValueSet.ESTIMATE) {
+                        estimate = resourceDao.searchCountEstimate(countQuery);
+                        if (estimate == null) {
+                            // the count can't be estimated for this database
+                            total = TotalValueSet.ACCURATE;
+                        }
+                    }
+                    searchResultCount = estimate != null ? estimate : resourceDao.searchCount(countQuery);
+                    if (log.isLoggable(Level.FINE)) {
+                        log.fine("searchResultCount = " + searchResultCount + (estimate != null ? " (estimated)" : ""));
                     }
+                    searchContext.setTotalCount(searchResultCount);
+                }
+
+                // Unless the count is accurate, the page query looks one row ahead to find the last page
+                result.issues = validatePagingContext(searchContext, total == TotalValueSet.ACCURATE);
+                if (!result.issues.isEmpty() && !searchContext.isLenient()) {
+                    result.success = false;
+                    return result;
                 }
 
                 // For _summary=count or pageSize == 0, we return only the count
-                if (searchResultCount > 0
+                if ((searchResultCount > 0 || total != TotalValueSet.ACCURATE)
                         && !SummaryValueSet.COUNT.equals(searchContext.getSummaryParameter())
                         && searchContext.getPageSize() > 0) {
-                    query = queryBuilder.buildQuery(resourceType, searchContext);
+                    query = queryBuilder.buildQuery(resourceType, searchContext, total != TotalValueSet.ACCURATE);
 
                     List<String> elements = searchContext.getElementsParameters();
 
@@ -689,23 +961,25 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
                             elements.addAll(summaryElements);
                         }
                     }
+                    result.elements = elements;
 
                     if (searchContext.hasSortParameters()) {
                         // Sorting results of a system-level search is limited, and has a different logic path
                         // than other sorted searches.
                         if (resourceType.equals(Resource.class)) {
-                           resources = this.convertResourceDTOList(resourceDao.search(query), resourceType, elements);
+                            result.matches = trimToPage(resourceDao.search(query), searchContext, total);
                         } else {
-                            resources = this.buildSortedFhirResources(resourceDao, context, resourceType, resourceDao.searchForIds(query), elements);
+                            List<Long> sortedIdList = trimToPage(resourceDao.searchForIds(query), searchContext, total);
+                            result.matches = this.buildSortedResourceDTOs(resourceDao, resourceType, sortedIdList);
                         }
                     } else {
-                        List<com.ibm.fhir.persistence.jdbc.dto.Resource> resultsList = resourceDao.search(query);
+                        List<com.ibm.fhir.persistence.jdbc.dto.Resource> resultsList =
+                                trimToPage(resourceDao.search(query), searchContext, total);
                         List<com.ibm.fhir.persistence.jdbc.dto.Resource> matchResultList = resultsList;
                         List<com.ibm.fhir.persistence.jdbc.dto.Resource> includeResultList = new ArrayList<>();
 
                         // Check if _include or _revinclude search. If so, remove duplicates from 'include' resources
-                        // (duplicates of both 'match' and 'include' resources) and make sure _elements processing
-                        // is not done for 'include' resources.
+                        // (duplicates of both 'match' and 'include' resources).
                         if (searchContext.hasIncludeParameters() || searchContext.hasRevIncludeParameters()) {
                             // Calculate 'match' results count
                             int pageSize = searchContext.getPageSize();
@@ -735,26 +1009,77 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
                             }
                         }
 
-                        // Convert resources
-                        resources = this.convertResourceDTOList(matchResultList, resourceType, elements);
-                        resources.addAll(this.convertResourceDTOList(includeResultList, resourceType, null));
+                        result.matches = matchResultList;
+                        result.includes = includeResultList;
+
+                        // A full page of a type-level search in the default ordering; the next page can be
+                        // requested with a cursor, so that it seeks past this page instead of using an offset
+                        if (!isSystemLevelSearch(resourceType)
+                                && !searchContext.hasIncludeParameters() && !searchContext.hasRevIncludeParameters()
+                                && searchContext.getPageNumber() < searchContext.getLastPageNumber()
+                                && resultsList.size() == searchContext.getPageSize()) {
+                            long lastLogicalResourceId = resultsList.get(resultsList.size() - 1).getLogicalResourceId();
+                            searchContext.setNextCursor(KeysetCursor.encode(lastLogicalResourceId));
+                        }
                     }
                 }
             }
+        }
 
-            return resultBuilder
-                    .success(true)
-                    .resource(resources)
-                    .build();
-        } catch (FHIRPersistenceException e) {
-            throw e;
-        } catch (Throwable e) {
-            FHIRPersistenceException fx = new FHIRPersistenceException("Unexpected error while performing a search operation.");
-            log.log(Level.SEVERE, fx.getMessage(), e);
-            throw fx;
-        } finally {
-            log.exiting(CLASSNAME, METHODNAME);
+        fetchPayloads(result.matches);
+        fetchPayloads(result.includes);
+        return result;
+    }
+
+    /**
+     * Determine how the total number of resources matching a search is obtained. The _total parameter is only a
+     * hint: the count is always accurate for _summary=count (or _count=0) and for _include/_revinclude searches,
+     * which need it to tell the 'match' results from the 'include' results, and a system-level count can't be
+     * estimated.
+     *
+     * @return NONE if the count is skipped, ESTIMATE if it may be estimated, or ACCURATE
+     */
+    private TotalValueSet getTotal(FHIRSearchContext searchContext, Class<? extends Resource> resourceType) {
+        TotalValueSet total = searchContext.getTotalParameter();
+        if (total == null
+                || SummaryValueSet.COUNT.equals(searchContext.getSummaryParameter()) || searchContext.getPageSize() <= 0
+                || searchContext.hasIncludeParameters() || searchContext.hasRevIncludeParameters()
+                || (total == TotalValueSet.ESTIMATE && isSystemLevelSearch(resourceType))) {
+            return TotalValueSet.ACCURATE;
+        }
+        return total;
+    }
+
+    /**
+     * When the search results are not accurately counted, the page query fetches one row beyond the page to tell
+     * whether there is a next page. Remove that row, and set the last page number accordingly.
+     *
+     * @param results the rows returned by the page query
+     * @return the rows of the page
+     */
+    private <T> List<T> trimToPage(List<T> results, FHIRSearchContext searchContext, TotalValueSet total) {
+        if (total == TotalValueSet.ACCURATE) {
+            return results;
+        }
+        int pageSize = searchContext.getPageSize();
+        if (results.size() > pageSize) {
+            searchContext.setLastPageNumber(searchContext.getPageNumber() + 1);
+            return results.subList(0, pageSize);
         }
+        searchContext.setLastPageNumber(searchContext.getPageNumber());
+        return results;
+    }
+
+    /**
+     * The resource DTOs selected by a search, before they are converted to FHIR resources or payloads.
+     */
+    private static class ResourceDTOSearchResult {
+        boolean success = true;
+        List<OperationOutcome.Issue> issues = Collections.emptyList();
+        List<com.ibm.fhir.persistence.jdbc.dto.Resource> matches = Collections.emptyList();
+        List<com.ibm.fhir.persistence.jdbc.dto.Resource> includes = Collections.emptyList();
+        // the elements to include in the 'match' resources, or null for all elements
+        List<String> elements;
     }
 
     /**
@@ -854,17 +1179,17 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
             com.ibm.fhir.persistence.jdbc.dto.Resource resourceDTO = new com.ibm.fhir.persistence.jdbc.dto.Resource();
             resourceDTO.setLogicalId(logicalId);
             resourceDTO.setVersionId(newVersionNumber);
+            resourceDTO.setResourceType(resourceType.getSimpleName());
 
             // Serialize and compress the Resource
-            GZIPOutputStream zipStream = new GZIPOutputStream(stream);
+            DeflaterOutputStream zipStream = payloadCodec.compress(resourceDTO.getResourceType(), stream);
             FHIRGenerator.generator(Format.JSON, false).generate(updatedResource, zipStream);
             zipStream.finish();
-            resourceDTO.setData(stream.toByteArray());
+            setPayload(resourceDTO, stream.toByteArray());
             zipStream.close();
 
             Timestamp timestamp = FHIRUtilities.convertToTimestamp(lastUpdated.getValue());
             resourceDTO.setLastUpdated(timestamp);
-            resourceDTO.setResourceType(resourceType.getSimpleName());
             resourceDTO.setDeleted(true);
 
             // Persist the logically deleted Resource DTO.
@@ -1055,6 +1380,22 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
      *     a list of operation outcome issues if the paging context has invalid parameters
      */
     private List<OperationOutcome.Issue> validatePagingContext(FHIRPagingContext pagingContext) {
+        return validatePagingContext(pagingContext, true);
+    }
+
+    /**
+     * Validate pageSize and pageNumber in the FHIRPagingContext instance and update
+     * paging context parameters accordingly.
+     *
+     * @param pagingContext
+     *     the FHIRPagingContext instance (FHIRSearchContext or FHIRHistoryContext)
+     * @param accurateTotal
+     *     whether the total count of the paging context is accurate; if not, the last page number is unknown, so the
+     *     page number is only checked against the first page
+     * @return
+     *     a list of operation outcome issues if the paging context has invalid parameters
+     */
+    private List<OperationOutcome.Issue> validatePagingContext(FHIRPagingContext pagingContext, boolean accurateTotal) {
         List<OperationOutcome.Issue> issues = new ArrayList<>();
 
         int pageSize = pagingContext.getPageSize();
@@ -1069,7 +1410,7 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
             pagingContext.setPageSize(10);
         }
 
-        int lastPageNumber = Math.max(((pagingContext.getTotalCount() + pageSize - 1) / pageSize), 1);
+        int lastPageNumber = accurateTotal ? Math.max(((pagingContext.getTotalCount() + pageSize - 1) / pageSize), 1) : Integer.MAX_VALUE;
         pagingContext.setLastPageNumber(lastPageNumber);
 
         int pageNumber = pagingContext.getPageNumber();
@@ -1176,55 +1517,40 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
     }
 
     /**
-     * This method takes the passed list of sorted Resource ids, acquires the Resource corresponding to each id, and returns those Resources in a List,
-     * sorted according to the input sorted ids.
-     * @param context - The FHIR persistence context for the current request.
+     * This method takes the passed list of sorted Resource ids, acquires the Resource DTO corresponding to each id, and returns
+     * those Resource DTOs in a List, sorted according to the input sorted ids.
+     * @param resourceDao - The ResourceDAO for the current connection.
      * @param resourceType - The type of Resource that each id in the passed list represents.
      * @param sortedIdList - A list of Resource ids representing the proper sort order for the list of Resources to be returned.
-     * @param elements - An optional list of element names to include in the resources. If null, filtering will be skipped.
-     * @return List<Resource> - A list of Resources of the passed resourceType, sorted according the order of ids in the passed sortedIdList.
+     * @return List - A list of Resource DTOs of the passed resourceType, sorted according the order of ids in the passed sortedIdList.
      * @throws FHIRPersistenceException
-     * @throws IOException
      */
-    protected List<Resource> buildSortedFhirResources(ResourceDAO resourceDao, FHIRPersistenceContext context, Class<? extends Resource> resourceType, List<Long> sortedIdList,
-            List<String> elements) throws FHIRException, FHIRPersistenceException, IOException {
-        final String METHOD_NAME = "buildSortedFhirResources";
+    protected List<com.ibm.fhir.persistence.jdbc.dto.Resource> buildSortedResourceDTOs(ResourceDAO resourceDao,
+            Class<? extends Resource> resourceType, List<Long> sortedIdList) throws FHIRPersistenceException {
+        final String METHOD_NAME = "buildSortedResourceDTOs";
         log.entering(this.getClass().getName(), METHOD_NAME);
 
-        long resourceId;
-        Resource[] sortedFhirResources = new Resource[sortedIdList.size()];
-        Resource fhirResource;
-        int sortIndex;
-        List<Resource> sortedResourceList = new ArrayList<>();
-        List<com.ibm.fhir.persistence.jdbc.dto.Resource> resourceDTOList;
+        com.ibm.fhir.persistence.jdbc.dto.Resource[] sortedResourceDTOs = new com.ibm.fhir.persistence.jdbc.dto.Resource[sortedIdList.size()];
+        List<com.ibm.fhir.persistence.jdbc.dto.Resource> sortedResourceDTOList = new ArrayList<>();
         Map<Long,Integer> idPositionMap = new HashMap<>();
 
         // This loop builds a Map where key=resourceId, and value=its proper position in the returned sorted collection.
         for(int i = 0; i < sortedIdList.size(); i++) {
-            resourceId = sortedIdList.get(i);
-            idPositionMap.put(Long.valueOf(resourceId), Integer.valueOf(i));
+            idPositionMap.put(sortedIdList.get(i), Integer.valueOf(i));
         }
 
-        resourceDTOList = this.getResourceDTOs(resourceDao, resourceType, sortedIdList);
-
-
-        // Convert the returned JPA Resources to FHIR Resources, and store each FHIRResource in its proper position
-        // in the returned sorted resource list.
-        for (com.ibm.fhir.persistence.jdbc.dto.Resource resourceDTO : resourceDTOList) {
-            fhirResource = this.convertResourceDTO(resourceDTO, resourceType, elements);
-            if (fhirResource != null) {
-                sortIndex = idPositionMap.get(resourceDTO.getId());
-                sortedFhirResources[sortIndex] = fhirResource;
-            }
+        // Store each Resource DTO in its proper position in the returned sorted list.
+        for (com.ibm.fhir.persistence.jdbc.dto.Resource resourceDTO : this.getResourceDTOs(resourceDao, resourceType, sortedIdList)) {
+            sortedResourceDTOs[idPositionMap.get(resourceDTO.getId())] = resourceDTO;
         }
 
-        for (int i = 0; i <sortedFhirResources.length; i++) {
-            if (sortedFhirResources[i] != null) {
-                sortedResourceList.add(sortedFhirResources[i]);
+        for (int i = 0; i < sortedResourceDTOs.length; i++) {
+            if (sortedResourceDTOs[i] != null) {
+                sortedResourceDTOList.add(sortedResourceDTOs[i]);
             }
         }
         log.exiting(this.getClass().getName(), METHOD_NAME);
-        return sortedResourceList;
+        return sortedResourceDTOList;
     }
 
     /**
@@ -1243,6 +1569,7 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
 
     /**
      * Converts the passed Resource Data Transfer Object collection to a collection of FHIR Resource objects.
+     * Large lists are converted in parallel (see {@link ParallelResourceConverter}); the order of the list is kept.
      * @param resourceDTOList
      * @param resourceType
      * @return
@@ -1254,17 +1581,15 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
         final String METHODNAME = "convertResourceDTO List";
         log.entering(CLASSNAME, METHODNAME);
 
-        List<Resource> resources = new ArrayList<>();
+        List<Resource> resources;
         try {
-            for (com.ibm.fhir.persistence.jdbc.dto.Resource resourceDTO : resourceDTOList) {
+            resources = ParallelResourceConverter.convert(resourceDTOList, resourceDTO -> {
                 Resource existingResource = this.convertResourceDTO(resourceDTO, resourceType, elements);
                 if (resourceDTO.isDeleted()) {
-                    Resource deletedResourceMarker = FHIRPersistenceUtil.createDeletedResourceMarker(existingResource);
-                    resources.add(deletedResourceMarker);
-                } else {
-                    resources.add(existingResource);
+                    return FHIRPersistenceUtil.createDeletedResourceMarker(existingResource);
                 }
-            }
+                return existingResource;
+            });
         }
         finally {
             log.exiting(CLASSNAME, METHODNAME);
@@ -1272,6 +1597,78 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
         return resources;
     }
 
+    /**
+     * Wraps the stored payload of each of the passed Resource DTOs in a ResourcePayload, without parsing it.
+     * The payloads are read from the in-memory DTO data, so they remain readable after the connection is closed.
+     * A deleted resource is returned as the same deleted resource marker as returned by search.
+     * @param resourceDTOList
+     * @param resourceType
+     * @return the payloads
+     * @throws FHIRException
+     * @throws IOException
+     */
+    protected List<ResourcePayload> convertResourceDTOListToPayloads(List<com.ibm.fhir.persistence.jdbc.dto.Resource> resourceDTOList,
+            Class<? extends Resource> resourceType) throws FHIRException, IOException {
+        List<ResourcePayload> payloads = new ArrayList<>(resourceDTOList.size());
+        for (com.ibm.fhir.persistence.jdbc.dto.Resource resourceDTO : resourceDTOList) {
+            InputStream payload;
+            if (resourceDTO.isDeleted()) {
+                Resource marker = FHIRPersistenceUtil.createDeletedResourceMarker(convertResourceDTO(resourceDTO, resourceType, null));
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                FHIRGenerator.generator(Format.JSON, false).generate(marker, out);
+                payload = new ByteArrayInputStream(out.toByteArray());
+            } else {
+                payload = payloadCodec.decompress(PayloadReference.resolve(resourceDTO.getData(), payloadStore));
+            }
+            payloads.add(new ResourcePayload(resourceDTO.getLogicalId(), resourceDTO.getLastUpdated().toInstant(),
+                resourceDTO.getId(), payload));
+        }
+        return payloads;
+    }
+
+    /**
+     * Set the compressed payload of the given Resource DTO. When a payload store is configured, the payload is
+     * written to the store and the DTO only holds the reference to it.
+     * @param resourceDTO a Resource DTO with its resource type, logical id and version
+     * @param payload
+     * @throws FHIRPersistenceException
+     */
+    private void setPayload(com.ibm.fhir.persistence.jdbc.dto.Resource resourceDTO, byte[] payload) throws FHIRPersistenceException {
+        if (payloadStore != null) {
+            String payloadKey = payloadStore.storePayload(resourceDTO.getResourceType(), resourceDTO.getLogicalId(), resourceDTO.getVersionId(), payload);
+            resourceDTO.setData(PayloadReference.encode(payloadKey));
+        } else {
+            resourceDTO.setData(payload);
+        }
+    }
+
+    /**
+     * Replace the payload references in the passed Resource DTOs with the payloads read from the payload store.
+     * The payloads of a page are read in parallel, so the page waits for about as long as its slowest read.
+     * @param resourceDTOList
+     * @throws FHIRPersistenceException
+     */
+    private void fetchPayloads(List<com.ibm.fhir.persistence.jdbc.dto.Resource> resourceDTOList) throws FHIRPersistenceException {
+        if (payloadStore == null || resourceDTOList.isEmpty()) {
+            return;
+        }
+
+        try {
+            ParallelResourceConverter.convert(resourceDTOList, resourceDTO -> {
+                if (PayloadReference.isReference(resourceDTO.getData())) {
+                    resourceDTO.setData(PayloadReference.resolve(resourceDTO.getData(), payloadStore));
+                }
+                return resourceDTO;
+            }, 2);
+        } catch (FHIRPersistenceException x) {
+            throw x;
+        } catch (FHIRException | IOException x) {
+            FHIRPersistenceException fx = new FHIRPersistenceException("Failed to read payloads from the payload store");
+            log.log(Level.SEVERE, fx.getMessage(), x);
+            throw fx;
+        }
+    }
+
    /**
      * Calls some cache analysis methods and aggregates the output into a single String.
      * @return
@@ -1323,6 +1720,19 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
      */
     private List<ExtractedParameterValue> extractSearchParameters(Resource fhirResource, com.ibm.fhir.persistence.jdbc.dto.Resource resourceDTOx)
                  throws Exception {
+        return extractSearchParameters(fhirResource, resourceDTOx, null);
+    }
+
+    /**
+     * Extracts the given search parameters for the passed FHIR Resource.
+     * @param fhirResource - Some FHIR Resource
+     * @param resourceDTO - A Resource DTO representation of the passed FHIR Resource.
+     * @param searchParameters - The search parameters to extract, or null to extract all of them along with the
+     *     compartment relationships of the resource.
+     * @throws Exception
+     */
+    private List<ExtractedParameterValue> extractSearchParameters(Resource fhirResource, com.ibm.fhir.persistence.jdbc.dto.Resource resourceDTOx,
+                 List<SearchParameter> searchParameters) throws Exception {
         final String METHODNAME = "extractSearchParameters";
         log.entering(CLASSNAME, METHODNAME);
 
@@ -1334,7 +1744,11 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
         List<ExtractedParameterValue> allParameters = new ArrayList<>();
 
         try {
-            map = SearchUtil.extractParameterValues(fhirResource);
+            if (searchParameters == null) {
+                map = SearchUtil.extractParameterValues(fhirResource);
+            } else {
+                map = SearchUtil.extractParameterValues(fhirResource, true, searchParameters);
+            }
 
             for (Entry<SearchParameter, List<FHIRPathNode>> entry : map.entrySet()) {
                 SearchParameter sp = entry.getKey();
@@ -1535,7 +1949,9 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
             // Augment the extracted parameter list with special values we use to represent compartment relationships.
             // These references are stored as tokens and are used by the search query builder
             // for compartment-based searches
-            addCompartmentParams(allParameters, fhirResource);
+            if (searchParameters == null) {
+                addCompartmentParams(allParameters, fhirResource);
+            }
         } finally {
             log.exiting(CLASSNAME, METHODNAME);
         }
@@ -1741,10 +2157,13 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
         InputStream in = null;
         try {
             if (resourceDTO != null) {
-                in = new GZIPInputStream(new ByteArrayInputStream(resourceDTO.getData()));
+                in = payloadCodec.decompress(PayloadReference.resolve(resourceDTO.getData(), payloadStore));
                 if (elements != null) {
-                    // parse/filter the resource using elements
-                    resource = FHIRParser.parser(Format.JSON).as(FHIRJsonParser.class).parseAndFilter(in, elements);
+                    // parse/filter the resource using elements; the streaming parser reads straight from the
+                    // decompressing stream and skips the excluded top-level elements without building them first
+                    FHIRParser parser = FHIRParser.parser(Format.JSON);
+                    parser.setProperty(FHIRParser.PROPERTY_STREAMING, true);
+                    resource = parser.as(FHIRJsonParser.class).parseAndFilter(in, elements);
                     if (resourceType.equals(resource.getClass()) && !FHIRUtil.hasTag(resource, SearchConstants.SUBSETTED_TAG)) {
                         // add a SUBSETTED tag to this resource to indicate that its elements have been filtered
                         resource = FHIRUtil.addTag(resource, SearchConstants.SUBSETTED_TAG);
@@ -1871,6 +2290,12 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
     @Override
     public int reindex(FHIRPersistenceContext context, OperationOutcome.Builder operationOutcomeResult, java.time.Instant tstamp, String resourceLogicalId)
         throws FHIRPersistenceException {
+        return reindex(context, operationOutcomeResult, tstamp, resourceLogicalId, null);
+    }
+
+    @Override
+    public int reindex(FHIRPersistenceContext context, OperationOutcome.Builder operationOutcomeResult, java.time.Instant tstamp, String resourceLogicalId,
+        Set<String> searchParameters) throws FHIRPersistenceException {
         final String METHODNAME = "reindex";
         log.entering(CLASSNAME, METHODNAME);
 
@@ -1932,7 +2357,12 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
                 com.ibm.fhir.persistence.jdbc.dto.Resource existingResourceDTO = resourceDao.read(rir.getLogicalId(), rir.getResourceType());
                 Class<? extends Resource> resourceTypeClass = getResourceType(resourceType);
                 reindexDAO.setPersistenceContext(context);
-                updateParameters(rir, resourceTypeClass, existingResourceDTO, reindexDAO, operationOutcomeResult);
+                if (searchParameters == null) {
+                    updateParameters(rir, resourceTypeClass, existingResourceDTO, reindexDAO, operationOutcomeResult);
+                } else {
+                    List<SearchParameter> selected = SearchUtil.getApplicableSearchParameters(rir.getResourceType(), searchParameters);
+                    updateParameters(rir, resourceTypeClass, existingResourceDTO, reindexDAO, operationOutcomeResult, selected);
+                }
             }
 
         } catch(FHIRPersistenceFKVException e) {
@@ -1968,6 +2398,126 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
         return result;
     }
 
+    @Override
+    public ReindexCheckpoint reindex(FHIRPersistenceContext context, OperationOutcome.Builder operationOutcomeResult, java.time.Instant tstamp,
+        String resourceType, long afterLogicalResourceId, Long toLogicalResourceId, int resourceCount, Set<String> searchParameters)
+        throws FHIRPersistenceException {
+        final String METHODNAME = "reindex";
+        log.entering(CLASSNAME, METHODNAME);
+
+        if (log.isLoggable(Level.FINE)) {
+            log.fine("reindex tstamp=" + tstamp.toString() + " range=(" + afterLogicalResourceId + ", " + toLogicalResourceId + "]");
+        }
+
+        if (tstamp.isAfter(java.time.Instant.now())) {
+            // protect against setting a future timestamp, which could otherwise
+            // disable the ability to reindex anything
+            throw new FHIRPersistenceException("Reindex tstamp cannot be in the future");
+        }
+
+        try (Connection connection = openConnection()) {
+            ParameterDAO parameterDao = makeParameterDAO(connection);
+            ReindexResourceDAO reindexDAO = FHIRResourceDAOFactory.getReindexResourceDAO(connection, FhirSchemaConstants.FHIR_ADMIN, schemaNameSupplier.getSchemaForRequestContext(connection), connectionStrategy.getFlavor(), this.trxSynchRegistry, this.cache, parameterDao);
+            reindexDAO.setPersistenceContext(context);
+
+            Integer resourceTypeId = null;
+            if (resourceType != null) {
+                resourceTypeId = cache.getResourceTypeCache().getId(resourceType);
+                if (resourceTypeId == null) {
+                    // no resource of this type has ever been stored, so there's nothing to do
+                    return new ReindexCheckpoint(0, afterLogicalResourceId, reindexDAO.getMaxLogicalResourceId());
+                }
+            }
+
+            // Claim the batch. The records stay locked until this transaction ends
+            long start = System.nanoTime();
+            List<ResourceIndexRecord> records = reindexDAO.getResourcesToReindex(tstamp, resourceTypeId, afterLogicalResourceId, toLogicalResourceId, resourceCount);
+            long end = System.nanoTime();
+
+            if (log.isLoggable(Level.FINER)) {
+                double elapsed = (end-start)/1e6;
+                log.finer(String.format("Selected %d resources for reindexing in %.3f ms ", records.size(), elapsed));
+            }
+
+            // The parameters are written per resource type, so that all the resources of a type share
+            // one read and one batch of parameter deletes and inserts
+            Map<String, List<ResourceIndexRecord>> recordsByType = new LinkedHashMap<>();
+            for (ResourceIndexRecord rir : records) {
+                recordsByType.computeIfAbsent(rir.getResourceType(), k -> new ArrayList<>()).add(rir);
+            }
+
+            for (Map.Entry<String, List<ResourceIndexRecord>> entry : recordsByType.entrySet()) {
+                // When reindexing selected search parameters, the resources of a type to which none of them
+                // applies are claimed, but there's nothing to extract or replace
+                List<SearchParameter> selected = null;
+                if (searchParameters != null) {
+                    selected = SearchUtil.getApplicableSearchParameters(entry.getKey(), searchParameters);
+                    if (selected.isEmpty()) {
+                        continue;
+                    }
+                }
+
+                Class<? extends Resource> resourceTypeClass = getResourceType(entry.getKey());
+                List<Long> logicalResourceIds = entry.getValue().stream().map(ResourceIndexRecord::getLogicalResourceId).collect(Collectors.toList());
+                Map<Long, com.ibm.fhir.persistence.jdbc.dto.Resource> resourceDTOs = reindexDAO.readCurrentResources(entry.getKey(), logicalResourceIds);
+
+                Map<Long, List<ExtractedParameterValue>> parameters = new LinkedHashMap<>();
+                for (ResourceIndexRecord rir : entry.getValue()) {
+                    com.ibm.fhir.persistence.jdbc.dto.Resource existingResourceDTO = resourceDTOs.get(rir.getLogicalResourceId());
+                    if (existingResourceDTO != null && !existingResourceDTO.isDeleted()) {
+                        Resource existingResource = this.convertResourceDTO(existingResourceDTO, resourceTypeClass, null);
+                        parameters.put(rir.getLogicalResourceId(), this.extractSearchParameters(existingResource, existingResourceDTO, selected));
+                    } else {
+                        // Reasonable to assume that this resource was deleted because we can't read it
+                        final String diag = "Failed to read resource: " + rir.getResourceType() + "/" + rir.getLogicalId();
+                        operationOutcomeResult.issue(Issue.builder().code(IssueType.NOT_FOUND).severity(IssueSeverity.WARNING).diagnostics(string(diag)).build());
+                    }
+                }
+
+                if (!parameters.isEmpty()) {
+                    reindexDAO.updateParameters(entry.getKey(), parameters, getParameterNames(entry.getKey(), selected));
+                }
+            }
+
+            long lastLogicalResourceId = records.isEmpty() ? afterLogicalResourceId : records.get(records.size() - 1).getLogicalResourceId();
+            if (!records.isEmpty()) {
+                // Use an OperationOutcome Issue to let the caller know that some work was performed
+                final String diag = "Processed " + records.size() + " resources up to logical resource id " + lastLogicalResourceId;
+                operationOutcomeResult.issue(Issue.builder().code(IssueType.INFORMATIONAL).severity(IssueSeverity.INFORMATION).diagnostics(string(diag)).build());
+            }
+
+            return new ReindexCheckpoint(records.size(), lastLogicalResourceId, reindexDAO.getMaxLogicalResourceId());
+        } catch(FHIRPersistenceFKVException e) {
+            getTransaction().setRollbackOnly();
+            throw e;
+        } catch(FHIRPersistenceException e) {
+            getTransaction().setRollbackOnly();
+            throw e;
+        } catch (DataAccessException dax) {
+            getTransaction().setRollbackOnly();
+
+            // It's possible this is a deadlock exception, in which case it could be considered retryable
+            if (dax.isTransactionRetryable()) {
+                log.log(Level.SEVERE, "retryable error", dax);
+                FHIRPersistenceDataAccessException fpx = new FHIRPersistenceDataAccessException("Data access error while performing a reindex operation.");
+                fpx.setTransactionRetryable(true);
+                throw fpx;
+            } else {
+                log.log(Level.SEVERE, "non-retryable error", dax);
+                throw new FHIRPersistenceDataAccessException("Data access error while performing a reindex operation.");
+            }
+        } catch(Throwable e) {
+            getTransaction().setRollbackOnly();
+            // don't chain the exception to avoid leaking secrets
+            FHIRPersistenceException fx = new FHIRPersistenceException("Unexpected error while performing a reindex operation.");
+            log.log(Level.SEVERE, fx.getMessage(), e);
+            throw fx;
+        }
+        finally {
+            log.exiting(CLASSNAME, METHODNAME);
+        }
+    }
+
     /**
      * Update the parameters for the resource described by the given DTO
      * @param <T>
@@ -1980,12 +2530,29 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
      */
     public <T extends Resource> void updateParameters(ResourceIndexRecord rir, Class<T> resourceTypeClass, com.ibm.fhir.persistence.jdbc.dto.Resource existingResourceDTO,
         ReindexResourceDAO reindexDAO, OperationOutcome.Builder operationOutcomeResult) throws Exception {
+        updateParameters(rir, resourceTypeClass, existingResourceDTO, reindexDAO, operationOutcomeResult, null);
+    }
+
+    /**
+     * Update the values of the given search parameters for the resource described by the given DTO
+     * @param <T>
+     * @param rir
+     * @param resourceTypeClass
+     * @param existingResourceDTO
+     * @param reindexDAO
+     * @param operationOutcomeResult
+     * @param searchParameters the search parameters to update, or null to update all of them
+     * @throws Exception
+     */
+    public <T extends Resource> void updateParameters(ResourceIndexRecord rir, Class<T> resourceTypeClass, com.ibm.fhir.persistence.jdbc.dto.Resource existingResourceDTO,
+        ReindexResourceDAO reindexDAO, OperationOutcome.Builder operationOutcomeResult, List<SearchParameter> searchParameters) throws Exception {
         if (existingResourceDTO != null && !existingResourceDTO.isDeleted()) {
             T existingResource = this.convertResourceDTO(existingResourceDTO, resourceTypeClass, null);
 
             // Extract parameters from the resource payload we just read and store them, replacing
             // the existing set
-            reindexDAO.updateParameters(rir.getResourceType(), this.extractSearchParameters(existingResource, existingResourceDTO), rir.getLogicalId(), rir.getLogicalResourceId());
+            reindexDAO.updateParameters(rir.getResourceType(), this.extractSearchParameters(existingResource, existingResourceDTO, searchParameters),
+                rir.getLogicalId(), rir.getLogicalResourceId(), getParameterNames(rir.getResourceType(), searchParameters));
 
             // Use an OperationOutcome Issue to let the caller know that some work was performed
             final String diag = "Processed " + rir.getResourceType() + "/" + rir.getLogicalId();
@@ -1998,6 +2565,34 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
 
     }
 
+    /**
+     * Get the names under which the values of the given search parameters are stored. These are the codes
+     * of the search parameters and, for composites, the names of their components.
+     * @param resourceType
+     * @param searchParameters the search parameters, or null for all of them
+     * @return the parameter names, or null for all of them
+     * @throws Exception
+     */
+    private Set<String> getParameterNames(String resourceType, List<SearchParameter> searchParameters) throws Exception {
+        if (searchParameters == null) {
+            return null;
+        }
+        Set<String> result = new HashSet<>();
+        for (SearchParameter sp : searchParameters) {
+            String code = sp.getCode().getValue();
+            result.add(code);
+            if (SearchParamType.COMPOSITE.equals(sp.getType())) {
+                for (Component component : sp.getComponent()) {
+                    SearchParameter compSP = SearchUtil.getSearchParameter(resourceType, component.getDefinition());
+                    if (compSP != null) {
+                        result.add(SearchUtil.makeCompositeSubCode(code, compSP.getCode().getValue()));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
     @Override
     public String generateResourceId() {
         return logicalIdentityProvider.createNewIdentityValue();
@@ -2075,7 +2670,8 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
             // translator is required to handle some simple SQL syntax differences. This is easier
             // than creating separate DAO implementations for each database type
             IDatabaseTranslator translator = FHIRResourceDAOFactory.getTranslatorForFlavor(connectionStrategy.getFlavor());
-            FetchResourcePayloadsDAO dao = new FetchResourcePayloadsDAO(translator, schemaNameSupplier.getSchemaForRequestContext(connection), resourceType.getSimpleName(), fromLastModified, toLastModified, processor);
+            FetchResourcePayloadsDAO dao = new FetchResourcePayloadsDAO(translator, schemaNameSupplier.getSchemaForRequestContext(connection), resourceType.getSimpleName(), fromLastModified, toLastModified, processor,
+                payloadStore, payloadCodec);
 
             if (log.isLoggable(Level.FINEST)) {
                 int count = dao.count(connection);
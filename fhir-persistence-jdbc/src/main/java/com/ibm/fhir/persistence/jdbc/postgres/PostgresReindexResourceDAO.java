@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2020
+ * (C) Copyright IBM Corp. 2020, 2021
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -13,6 +13,8 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -163,4 +165,62 @@ public class PostgresReindexResourceDAO extends ReindexResourceDAO {
 
         return result;
     }
+
+    @Override
+    protected List<ResourceIndexRecord> getNextResources(Instant reindexTstamp, Integer resourceTypeId, long afterLogicalResourceId,
+            Long toLogicalResourceId, int count) throws Exception {
+        List<ResourceIndexRecord> result = new ArrayList<>(count);
+
+        // no need to close
+        Connection connection = getConnection();
+        IDatabaseTranslator translator = getTranslator();
+
+        // Claim the whole batch in one statement. SKIP LOCKED lets concurrent workers (and other
+        // transactions holding row locks) pass each other instead of queuing on the same rows
+        final StringBuilder update = new StringBuilder();
+        update.append("   UPDATE logical_resources ");
+        update.append("      SET reindex_tstamp = ?, ");
+        update.append("          reindex_txid = COALESCE(reindex_txid + 1, 1) ");
+        update.append("    WHERE logical_resource_id IN ( ");
+        update.append("       SELECT lr.logical_resource_id ");
+        update.append("         FROM logical_resources lr ");
+        update.append("        WHERE lr.logical_resource_id > ? ");
+        if (toLogicalResourceId != null) {
+            update.append("      AND lr.logical_resource_id <= ? ");
+        }
+        if (resourceTypeId != null) {
+            update.append("      AND lr.resource_type_id = ? ");
+        }
+        update.append("          AND lr.reindex_tstamp < ? ");
+        update.append("     ORDER BY lr.logical_resource_id ");
+        update.append("   FOR UPDATE SKIP LOCKED LIMIT ?) ");
+        update.append("RETURNING logical_resource_id, resource_type_id, logical_id, reindex_txid ");
+
+        try (PreparedStatement stmt = connection.prepareStatement(update.toString())) {
+            int a = 1;
+            stmt.setTimestamp(a++, Timestamp.from(reindexTstamp));
+            stmt.setLong(a++, afterLogicalResourceId);
+            if (toLogicalResourceId != null) {
+                stmt.setLong(a++, toLogicalResourceId);
+            }
+            if (resourceTypeId != null) {
+                stmt.setInt(a++, resourceTypeId);
+            }
+            stmt.setTimestamp(a++, Timestamp.from(reindexTstamp));
+            stmt.setInt(a++, count);
+
+            stmt.execute();
+            ResultSet rs = stmt.getResultSet();
+            while (rs.next()) {
+                result.add(new ResourceIndexRecord(rs.getLong(1), rs.getInt(2), rs.getString(3), rs.getLong(4)));
+            }
+        } catch (SQLException x) {
+            logger.log(Level.SEVERE, update.toString(), x);
+            throw translator.translate(x);
+        }
+
+        // RETURNING gives no guarantee about the order of the rows
+        result.sort((r1, r2) -> Long.compare(r1.getLogicalResourceId(), r2.getLogicalResourceId()));
+        return result;
+    }
 }
\ No newline at end of file
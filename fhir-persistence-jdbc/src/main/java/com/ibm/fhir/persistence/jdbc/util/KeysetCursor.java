@@ -0,0 +1,68 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.util;
+
+import static com.ibm.fhir.model.type.String.string;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.ibm.fhir.model.resource.OperationOutcome;
+import com.ibm.fhir.model.type.CodeableConcept;
+import com.ibm.fhir.model.type.code.IssueSeverity;
+import com.ibm.fhir.model.type.code.IssueType;
+import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
+
+/**
+ * Encodes and decodes the opaque _cursor value used for keyset pagination of searches which are ordered by
+ * LOGICAL_RESOURCE_ID (the default ordering). The cursor holds the LOGICAL_RESOURCE_ID of the last resource
+ * of the previous page, so the next page can be selected with LOGICAL_RESOURCE_ID &gt; ? instead of skipping
+ * all of the preceding rows with OFFSET.
+ */
+public class KeysetCursor {
+    private static final String PREFIX = "lr.";
+
+    private KeysetCursor() {
+        // No Operation
+    }
+
+    /**
+     * @param lastLogicalResourceId the LOGICAL_RESOURCE_ID of the last resource of a page
+     * @return the cursor for the page which follows it
+     */
+    public static String encode(long lastLogicalResourceId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastLogicalResourceId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor a cursor created by {@link #encode(long)}
+     * @return the LOGICAL_RESOURCE_ID of the last resource of the previous page
+     * @throws FHIRPersistenceException if the cursor is not valid
+     */
+    public static long decode(String cursor) throws FHIRPersistenceException {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (value.startsWith(PREFIX)) {
+                long lastLogicalResourceId = Long.parseLong(value.substring(PREFIX.length()));
+                if (lastLogicalResourceId >= 0) {
+                    return lastLogicalResourceId;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException is an IllegalArgumentException; fall through
+        }
+        String msg = "Invalid _cursor value: '" + cursor + "'";
+        throw new FHIRPersistenceException(msg).withIssue(OperationOutcome.Issue.builder()
+                .severity(IssueSeverity.ERROR)
+                .code(IssueType.INVALID)
+                .details(CodeableConcept.builder()
+                    .text(string(msg))
+                    .build())
+                .build());
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import com.ibm.fhir.exception.FHIRException;
+
+/**
+ * Converts the resource DTOs of a search result page (decompression and parsing of the payloads) in parallel on a
+ * bounded fork-join pool which is shared by all requests.
+ *
+ * <p>Lists smaller than the threshold are converted on the calling thread, where the cost of handing the work to
+ * the pool would outweigh the gain. Each conversion creates its own parser, so no parser instance is shared between
+ * the worker threads. Results are returned in the same order as the input, so the ordering of sorted searches is
+ * preserved.
+ */
+public class ParallelResourceConverter {
+    private static final Logger log = Logger.getLogger(ParallelResourceConverter.class.getName());
+
+    public static final int DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors();
+    public static final int DEFAULT_THRESHOLD = 32;
+
+    private static int threshold = DEFAULT_THRESHOLD;
+
+    // Created on first use; no pool is created when the parallelism is 1
+    private static int parallelism = DEFAULT_PARALLELISM;
+    private static ForkJoinPool pool;
+
+    private ParallelResourceConverter() {
+        // No Operation
+    }
+
+    /**
+     * Set the size of the shared pool and the minimum number of DTOs for which the conversion is done in parallel.
+     * The server calls this once when it starts. The parallelism can't be changed after the pool has been created.
+     *
+     * @param parallelism the number of worker threads; 1 to always convert on the calling thread
+     * @param threshold the minimum list size for a parallel conversion
+     */
+    public static synchronized void configure(int parallelism, int threshold) {
+        if (pool != null && parallelism != ParallelResourceConverter.parallelism) {
+            log.warning("Search conversion pool already created with parallelism " + ParallelResourceConverter.parallelism
+                    + "; ignoring parallelism " + parallelism);
+        } else {
+            ParallelResourceConverter.parallelism = Math.max(parallelism, 1);
+        }
+        ParallelResourceConverter.threshold = Math.max(threshold, 2);
+    }
+
+    private static synchronized ForkJoinPool getPool(int size, int threshold) {
+        if (parallelism < 2 || size < threshold) {
+            return null;
+        }
+        if (pool == null) {
+            pool = new ForkJoinPool(parallelism);
+        }
+        return pool;
+    }
+
+    /**
+     * Convert each item.
+     *
+     * @param items the items to convert
+     * @param converter the conversion, which must be safe to call from several threads at once
+     * @return the converted items, in the same order as the input
+     * @throws FHIRException if a conversion failed with a FHIRException or the parallel conversion could not be run
+     * @throws IOException if a conversion failed with an IOException
+     */
+    public static <T, R> List<R> convert(List<T> items, Converter<T, R> converter) throws FHIRException, IOException {
+        return convert(items, converter, threshold);
+    }
+
+    /**
+     * Convert each item, using the pool for lists of at least the given size instead of the configured threshold.
+     * This suits conversions which mostly wait for I/O, for which even a small list gains from the pool.
+     *
+     * @param items the items to convert
+     * @param converter the conversion, which must be safe to call from several threads at once
+     * @param minParallelSize the minimum list size for a parallel conversion
+     * @return the converted items, in the same order as the input
+     * @throws FHIRException if a conversion failed with a FHIRException or the parallel conversion could not be run
+     * @throws IOException if a conversion failed with an IOException
+     */
+    public static <T, R> List<R> convert(List<T> items, Converter<T, R> converter, int minParallelSize) throws FHIRException, IOException {
+        ForkJoinPool pool = getPool(items.size(), Math.max(minParallelSize, 2));
+        if (pool == null) {
+            List<R> results = new ArrayList<>(items.size());
+            for (T item : items) {
+                results.add(converter.convert(item));
+            }
+            return results;
+        }
+
+        try {
+            // An ordered parallel stream keeps the encounter order when collected.
+            return pool.submit(() -> items.parallelStream()
+                        .map(item -> {
+                            try {
+                                return converter.convert(item);
+                            } catch (FHIRException | IOException e) {
+                                throw new CompletionException(e);
+                            }
+                        })
+                        .collect(Collectors.toList()))
+                    .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FHIRException("Interrupted while converting the search results", e);
+        } catch (ExecutionException e) {
+            // the fork-join framework may wrap the exception again when it crosses threads
+            Throwable cause = e.getCause();
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof FHIRException) {
+                throw (FHIRException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new FHIRException("Failed to convert the search results", cause);
+        }
+    }
+
+    /**
+     * A conversion of a single item.
+     */
+    @FunctionalInterface
+    public interface Converter<T, R> {
+        R convert(T item) throws FHIRException, IOException;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import com.ibm.fhir.schema.compression.CompressionDictionaries;
+import com.ibm.fhir.schema.compression.CompressionDictionary;
+
+/**
+ * Compresses and decompresses the resource payloads stored in the DATA column (or a payload store). The first byte
+ * of a compressed payload identifies its codec:
+ *
+ * <ul>
+ * <li>0x1f - GZIP, the first byte of the GZIP header. Used when no dictionary is configured for the resource type,
+ *     and by all the payloads written before dictionaries were introduced</li>
+ * <li>0x01 - raw deflate with a preset dictionary. The codec id is followed by the 4 byte id of the
+ *     {@link CompressionDictionary} and the deflate stream</li>
+ * </ul>
+ *
+ * <p>The value 0 is taken by {@link PayloadReference}, and must not be used as a codec id.
+ *
+ * <p>A preset dictionary primes the deflate window with content shared by most payloads of a resource type, such as
+ * the element names and common code systems, which each small payload would otherwise have to spell out itself.
+ */
+public class PayloadCodec {
+    public static final byte CODEC_DEFLATE_DICTIONARY = 0x01;
+
+    private static final int GZIP_ID1 = 0x1f;
+
+    // The codec used when no dictionaries are configured
+    private static final PayloadCodec GZIP = new PayloadCodec(null);
+
+    // The dictionaries, or null when all payloads are written with GZIP
+    private final CompressionDictionaries dictionaries;
+
+    /**
+     * Public constructor
+     * @param dictionaries the compression dictionaries. Can be null, in which case payloads are compressed with GZIP
+     */
+    public PayloadCodec(CompressionDictionaries dictionaries) {
+        this.dictionaries = dictionaries;
+    }
+
+    /**
+     * @return a codec which compresses all payloads with GZIP
+     */
+    public static PayloadCodec gzip() {
+        return GZIP;
+    }
+
+    /**
+     * Get a stream which compresses a payload of the given resource type into the given output stream. The codec
+     * header is written to the output stream before this method returns.
+     * @param resourceType the resource type name of the payload
+     * @param out
+     * @return the stream to write the payload to. The caller must call finish or close when the payload is written
+     * @throws IOException
+     */
+    public DeflaterOutputStream compress(String resourceType, OutputStream out) throws IOException {
+        CompressionDictionary dictionary = dictionaries != null ? dictionaries.getDictionary(resourceType) : null;
+        if (dictionary == null) {
+            return new GZIPOutputStream(out);
+        }
+
+        DataOutputStream header = new DataOutputStream(out);
+        header.writeByte(CODEC_DEFLATE_DICTIONARY);
+        header.writeInt(dictionary.getId());
+        header.flush();
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setDictionary(dictionary.getData());
+        return new DeflaterOutputStream(out, deflater) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    deflater.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Get a stream which decompresses the given compressed payload
+     * @param data a payload compressed by {@link #compress(String, OutputStream)} with any codec
+     * @return
+     * @throws IOException
+     */
+    public InputStream decompress(byte[] data) throws IOException {
+        return decompress(new ByteArrayInputStream(data));
+    }
+
+    /**
+     * Get a stream which decompresses the given compressed payload
+     * @param data a payload compressed by {@link #compress(String, OutputStream)} with any codec
+     * @return
+     * @throws IOException if the codec or the dictionary of the payload is unknown
+     */
+    public InputStream decompress(InputStream data) throws IOException {
+        PushbackInputStream in = new PushbackInputStream(data, 1);
+        int codec = in.read();
+        if (codec == GZIP_ID1) {
+            in.unread(codec);
+            return new GZIPInputStream(in);
+        } else if (codec == CODEC_DEFLATE_DICTIONARY) {
+            int dictionaryId = new DataInputStream(in).readInt();
+            CompressionDictionary dictionary = dictionaries != null ? dictionaries.getDictionary(dictionaryId) : null;
+            if (dictionary == null) {
+                throw new IOException("Payload was compressed with unknown dictionary " + String.format("%08x", dictionaryId));
+            }
+
+            Inflater inflater = new Inflater(true);
+            inflater.setDictionary(dictionary.getData());
+            return new InflaterInputStream(in, inflater) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        inflater.end();
+                    }
+                }
+            };
+        } else {
+            throw new IOException("Unknown payload codec: " + codec);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
+import com.ibm.fhir.persistence.payload.PayloadStore;
+
+/**
+ * Encodes the reference to a payload in a {@link PayloadStore} in the DATA column of a resource version.
+ *
+ * <p>A reference is a marker byte followed by the UTF-8 payload key. The marker is 0, which can't be the first byte
+ * of a payload stored in the column itself (see the codec ids of {@link PayloadCodec}), so rows written with and
+ * without a payload store can be read side by side.
+ */
+public class PayloadReference {
+    private static final byte MARKER = 0;
+
+    private PayloadReference() {
+        // No Operation
+    }
+
+    /**
+     * @param payloadKey the key returned by the payload store
+     * @return the value stored in the DATA column
+     */
+    public static byte[] encode(String payloadKey) {
+        byte[] key = payloadKey.getBytes(StandardCharsets.UTF_8);
+        byte[] result = new byte[key.length + 1];
+        result[0] = MARKER;
+        System.arraycopy(key, 0, result, 1, key.length);
+        return result;
+    }
+
+    /**
+     * @param data the value of the DATA column
+     * @return true if the value is a reference to a payload in a payload store
+     */
+    public static boolean isReference(byte[] data) {
+        return data != null && data.length > 0 && data[0] == MARKER;
+    }
+
+    /**
+     * Get the payload of the given DATA column value, reading it from the payload store if the value is a reference.
+     * @param data the value of the DATA column
+     * @param payloadStore the payload store. Can be null if no payload store is configured
+     * @return the payload
+     * @throws FHIRPersistenceException if the value is a reference which can't be read
+     */
+    public static byte[] resolve(byte[] data, PayloadStore payloadStore) throws FHIRPersistenceException {
+        if (!isReference(data)) {
+            return data;
+        }
+        String payloadKey = new String(data, 1, data.length - 1, StandardCharsets.UTF_8);
+        if (payloadStore == null) {
+            throw new FHIRPersistenceException("Payload '" + payloadKey + "' is in a payload store, but no payload store is configured");
+        }
+        return payloadStore.readPayload(payloadKey);
+    }
+
+    /**
+     * Get the payload of the given DATA column stream, reading it from the payload store if the stream holds a
+     * reference. Payloads stored in the column are streamed without being copied.
+     * @param data the stream of the DATA column
+     * @param payloadStore the payload store. Can be null if no payload store is configured
+     * @return the stream of the payload
+     * @throws IOException
+     * @throws FHIRPersistenceException if the stream holds a reference which can't be read
+     */
+    public static InputStream resolve(InputStream data, PayloadStore payloadStore) throws IOException, FHIRPersistenceException {
+        PushbackInputStream in = new PushbackInputStream(data, 1);
+        int first = in.read();
+        if (first != MARKER) {
+            if (first != -1) {
+                in.unread(first);
+            }
+            return in;
+        }
+
+        // a reference is short, so it's fine to read it all
+        byte[] buffer = new byte[256];
+        int length = 0;
+        int n;
+        while ((n = in.read(buffer, length, buffer.length - length)) != -1) {
+            length += n;
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+        }
+        byte[] reference = new byte[length + 1];
+        reference[0] = MARKER;
+        System.arraycopy(buffer, 0, reference, 1, length);
+        return new ByteArrayInputStream(resolve(reference, payloadStore));
+    }
+}
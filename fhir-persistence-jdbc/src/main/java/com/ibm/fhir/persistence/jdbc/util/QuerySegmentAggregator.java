@@ -103,6 +103,9 @@ public class QuerySegmentAggregator {
 
     private int offset;
     protected int pageSize;
+
+    // for keyset pagination; the LOGICAL_RESOURCE_ID of the last resource of the previous page
+    private Long lastLogicalResourceId;
     protected ParameterDAO parameterDao;
     protected ResourceDAO resourceDao;
 
@@ -130,6 +133,17 @@ public class QuerySegmentAggregator {
         this.resourceTypes = resourceTypes;
     }
 
+    /**
+     * Use keyset pagination for the query; instead of skipping the rows of the previous pages with an offset, the
+     * query selects the rows which follow the last resource of the previous page in the default ordering.
+     * This is only supported for type-level queries with the default ordering.
+     *
+     * @param lastLogicalResourceId the LOGICAL_RESOURCE_ID of the last resource of the previous page
+     */
+    public void setLastLogicalResourceId(Long lastLogicalResourceId) {
+        this.lastLogicalResourceId = lastLogicalResourceId;
+    }
+
     /**
      * Adds a query segment, which is a where clause segment corresponding to the
      * passed query Parameter and its encapsulated search values.
@@ -215,6 +229,12 @@ public class QuerySegmentAggregator {
                 allBindVariables.addAll(querySegment.getBindVariables());
             }
 
+            // Keyset pagination: seek past the previous page instead of skipping it with an offset
+            if (this.lastLogicalResourceId != null) {
+                queryString.append(" AND LR.LOGICAL_RESOURCE_ID > ?");
+                allBindVariables.add(this.lastLogicalResourceId);
+            }
+
             // Add default ordering
             queryString.append(DEFAULT_ORDERING);
             this.addPaginationClauses(queryString);
@@ -721,11 +741,13 @@ public class QuerySegmentAggregator {
      * @throws Exception
      */
     protected void addPaginationClauses(StringBuilder queryString) throws Exception {
+        // with keyset pagination, the previous pages are already excluded by the query
+        int offset = this.lastLogicalResourceId != null ? 0 : this.offset;
 
         if (this.parameterDao.isDb2Database()) {
-            queryString.append(LIMIT).append(this.pageSize).append(OFFSET).append(this.offset);
+            queryString.append(LIMIT).append(this.pageSize).append(OFFSET).append(offset);
         } else {
-            queryString.append(OFFSET).append(this.offset).append(ROWS)
+            queryString.append(OFFSET).append(offset).append(ROWS)
                     .append(FETCH_NEXT).append(this.pageSize).append(ROWS_ONLY);
         }
     }
@@ -9,6 +9,7 @@ package com.ibm.fhir.persistence.jdbc.util;
 import java.util.logging.Logger;
 
 import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
 import com.ibm.fhir.persistence.jdbc.connection.QueryHints;
 import com.ibm.fhir.persistence.jdbc.dao.api.JDBCIdentityCache;
 import com.ibm.fhir.persistence.jdbc.dao.api.ParameterDAO;
@@ -28,7 +29,7 @@ public class QuerySegmentAggregatorFactory {
      */
     public static QuerySegmentAggregator buildQuerySegmentAggregator(Class<?> resourceType, int offset, int pageSize, 
                                     ParameterDAO parameterDao, ResourceDAO resourceDao, FHIRSearchContext searchContext, QueryHints queryHints,
-                                    JDBCIdentityCache identityCache) {
+                                    JDBCIdentityCache identityCache) throws FHIRPersistenceException {
         final String METHODNAME = "buildQuerySegmentAggregator";
         log.entering(CLASSNAME, METHODNAME);
         
@@ -43,6 +44,10 @@ public class QuerySegmentAggregatorFactory {
         }
         else {
             qsa = new QuerySegmentAggregator(resourceType, offset, pageSize, parameterDao, resourceDao, queryHints);
+            // Keyset pagination is only supported for the default ordering of a type-level search
+            if (searchContext.getCursor() != null && !Resource.class.equals(resourceType)) {
+                qsa.setLastLogicalResourceId(KeysetCursor.decode(searchContext.getCursor()));
+            }
         }
         
         if( Resource.class.equals(resourceType) && searchContext.getSearchResourceTypes()!= null) {
@@ -0,0 +1,112 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.cache.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.persistence.jdbc.cache.StripedLRUCache;
+
+/**
+ * Unit tests for {@link StripedLRUCache}
+ */
+public class StripedLRUCacheTest {
+
+    @Test
+    public void testSmallCache() {
+        // small caches use a single stripe, so they behave like LRUCache
+        StripedLRUCache<String,Long> cache = new StripedLRUCache<>(2);
+        assertEquals(cache.getStripeCount(), 1);
+
+        LinkedHashMap<String,Long> updates = new LinkedHashMap<>();
+        updates.put("system1", 1L);
+        updates.put("system2", 2L);
+        cache.update(updates);
+        updates.clear();
+        assertEquals(1L, (long)cache.get("system1"));
+        assertEquals(2L, (long)cache.get("system2"));
+
+        // Add a new value to the updates. Should push out system1
+        updates.put("system3", 3L);
+        cache.update(updates);
+        updates.clear();
+        assertEquals(2L, (long)cache.get("system2"));
+        assertEquals(3L, (long)cache.get("system3"));
+        assertNull(cache.get("system1"));
+
+        // refresh system2, then put back system1, should lose system3
+        updates.put("system2", 2L);
+        updates.put("system1", 1L);
+        cache.update(updates);
+        assertEquals(1L, (long)cache.get("system1"));
+        assertEquals(2L, (long)cache.get("system2"));
+        assertNull(cache.get("system3"));
+
+        cache.clear();
+        assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void testStripedCache() {
+        StripedLRUCache<Integer,Integer> cache = new StripedLRUCache<>(1024);
+        assertEquals(cache.getStripeCount(), 16);
+
+        LinkedHashMap<Integer,Integer> updates = new LinkedHashMap<>();
+        for (int i = 0; i < 4096; i++) {
+            updates.put(i, i);
+        }
+        cache.update(updates);
+
+        // each stripe is bounded, so the cache as a whole is bounded
+        assertTrue(cache.size() <= 1024);
+        assertTrue(cache.size() > 512);
+
+        // the most recent updates are still there
+        assertEquals((int) cache.get(4095), 4095);
+        assertNull(cache.get(0));
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        StripedLRUCache<Integer,Integer> cache = new StripedLRUCache<>(1000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int offset = t * 100;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        LinkedHashMap<Integer,Integer> updates = new LinkedHashMap<>();
+                        int key = offset + (i % 100);
+                        updates.put(key, key);
+                        cache.update(updates);
+                        Integer value = cache.get(key);
+                        if (value != null && value != key) {
+                            throw new IllegalStateException("wrong value for key " + key);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(cache.size() <= 1000);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.test;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.database.utils.api.IConnectionProvider;
+import com.ibm.fhir.database.utils.pool.PoolConnectionProvider;
+import com.ibm.fhir.model.format.Format;
+import com.ibm.fhir.model.generator.FHIRGenerator;
+import com.ibm.fhir.model.parser.FHIRParser;
+import com.ibm.fhir.model.resource.Basic;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.test.TestUtil;
+import com.ibm.fhir.persistence.FHIRPersistence;
+import com.ibm.fhir.persistence.jdbc.FHIRPersistenceJDBCCache;
+import com.ibm.fhir.persistence.jdbc.cache.CommonTokenValuesCacheImpl;
+import com.ibm.fhir.persistence.jdbc.cache.FHIRPersistenceJDBCCacheImpl;
+import com.ibm.fhir.persistence.jdbc.cache.NameIdCache;
+import com.ibm.fhir.persistence.jdbc.dao.api.ICommonTokenValuesCache;
+import com.ibm.fhir.persistence.jdbc.impl.FHIRPersistenceJDBCImpl;
+import com.ibm.fhir.persistence.jdbc.test.util.DerbyInitializer;
+import com.ibm.fhir.persistence.test.common.AbstractPersistenceTest;
+import com.ibm.fhir.schema.compression.CompressionDictionaries;
+import com.ibm.fhir.schema.compression.DictionaryTrainer;
+
+/**
+ * Tests the JDBC persistence layer with the resource payloads compressed with a preset dictionary
+ */
+public class JDBCCompressionDictionaryTest extends AbstractPersistenceTest {
+    private static final Path DICTIONARY_DIRECTORY = Paths.get("target", "dictionaries", "jdbc");
+
+    // Rows written by this test can't be read without its configuration, so it doesn't share the database of the other tests
+    private static final String DB_NAME = "target/derby/dictionaryDB";
+
+    private Properties testProps;
+
+    private PoolConnectionProvider connectionPool;
+
+    private FHIRPersistenceJDBCCache cache;
+
+    public JDBCCompressionDictionaryTest() throws Exception {
+        this.testProps = TestUtil.readTestProperties("test.jdbc.properties");
+
+        // Train the Basic dictionary on variations of the test resource
+        Basic resource = TestUtil.readExampleResource("json/ibm/minimal/Basic-1.json");
+        DictionaryTrainer trainer = new DictionaryTrainer("Basic", DictionaryTrainer.MAX_DICTIONARY_SIZE);
+        for (int i = 0; i < 10; i++) {
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            FHIRGenerator.generator(Format.JSON, false).generate(resource.toBuilder().id("basic" + i).build(), stream);
+            trainer.addSample(stream.toByteArray());
+        }
+        CompressionDictionaries.store(DICTIONARY_DIRECTORY, trainer.train());
+        this.testProps.setProperty("compressionDictionaryDirectory", DICTIONARY_DIRECTORY.toString());
+    }
+
+    @Override
+    public void bootstrapDatabase() throws Exception {
+        DerbyInitializer derbyInit;
+        String dbDriverName = this.testProps.getProperty("dbDriverName");
+        if (dbDriverName != null && dbDriverName.contains("derby")) {
+            derbyInit = new DerbyInitializer(this.testProps, DB_NAME);
+            IConnectionProvider cp = derbyInit.getConnectionProvider(false);
+            this.connectionPool = new PoolConnectionProvider(cp, 1);
+            ICommonTokenValuesCache rrc = new CommonTokenValuesCacheImpl(100, 100);
+            cache = new FHIRPersistenceJDBCCacheImpl(new NameIdCache<Integer>(), new NameIdCache<Integer>(), rrc);
+        }
+    }
+
+    @Override
+    public FHIRPersistence getPersistenceImpl() throws Exception {
+        if (this.connectionPool == null) {
+            throw new IllegalStateException("Database not bootstrapped");
+        }
+        return new FHIRPersistenceJDBCImpl(this.testProps, this.connectionPool, cache);
+    }
+
+    @Override
+    protected void shutdownPools() throws Exception {
+        // Mark the pool as no longer in use. This allows the pool to check for
+        // lingering open connections/transactions.
+        if (this.connectionPool != null) {
+            this.connectionPool.close();
+        }
+    }
+
+    @Test
+    public void testCreateRead() throws Exception {
+        Basic resource = TestUtil.readExampleResource("json/ibm/minimal/Basic-1.json");
+        Instant start = Instant.now();
+        Basic created = persistence.create(getDefaultPersistenceContext(), resource).getResource();
+        String id = created.getId();
+        Basic updated = persistence.update(getDefaultPersistenceContext(), id, created).getResource();
+
+        assertEquals(persistence.read(getDefaultPersistenceContext(), Basic.class, id).getResource(), updated);
+        assertEquals(persistence.vread(getDefaultPersistenceContext(), Basic.class, id, "1").getResource(), created);
+
+        // the payloads streamed for export are decompressed with the dictionary too
+        List<Resource> exported = new ArrayList<>();
+        persistence.fetchResourcePayloads(Basic.class, start, null, payload -> {
+            if (payload.getLogicalId().equals(id)) {
+                try {
+                    ByteArrayOutputStream os = new ByteArrayOutputStream();
+                    payload.transferTo(os);
+                    exported.add(FHIRParser.parser(Format.JSON).parse(new ByteArrayInputStream(os.toByteArray())));
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return true;
+        });
+        assertEquals(exported, Collections.singletonList(updated));
+    }
+
+    @Test
+    public void testReadGzipPayload() throws Exception {
+        // a resource written before the dictionary was configured
+        Properties gzipProps = new Properties();
+        gzipProps.putAll(testProps);
+        gzipProps.remove("compressionDictionaryDirectory");
+        FHIRPersistence gzipPersistence = new FHIRPersistenceJDBCImpl(gzipProps, this.connectionPool, cache);
+        Basic resource = TestUtil.readExampleResource("json/ibm/minimal/Basic-1.json");
+        Basic created = gzipPersistence.create(getDefaultPersistenceContext(), resource).getResource();
+
+        assertEquals(persistence.read(getDefaultPersistenceContext(), Basic.class, created.getId()).getResource(), created);
+    }
+}
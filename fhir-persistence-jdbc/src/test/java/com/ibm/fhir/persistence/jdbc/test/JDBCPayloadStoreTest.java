@@ -0,0 +1,156 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.database.utils.api.IConnectionProvider;
+import com.ibm.fhir.database.utils.pool.PoolConnectionProvider;
+import com.ibm.fhir.model.format.Format;
+import com.ibm.fhir.model.parser.FHIRParser;
+import com.ibm.fhir.model.resource.Basic;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.test.TestUtil;
+import com.ibm.fhir.persistence.FHIRPersistence;
+import com.ibm.fhir.persistence.MultiResourceResult;
+import com.ibm.fhir.persistence.context.FHIRHistoryContext;
+import com.ibm.fhir.persistence.context.FHIRPersistenceContextFactory;
+import com.ibm.fhir.persistence.exception.FHIRPersistenceResourceDeletedException;
+import com.ibm.fhir.persistence.jdbc.FHIRPersistenceJDBCCache;
+import com.ibm.fhir.persistence.jdbc.cache.CommonTokenValuesCacheImpl;
+import com.ibm.fhir.persistence.jdbc.cache.FHIRPersistenceJDBCCacheImpl;
+import com.ibm.fhir.persistence.jdbc.cache.NameIdCache;
+import com.ibm.fhir.persistence.jdbc.dao.api.ICommonTokenValuesCache;
+import com.ibm.fhir.persistence.jdbc.impl.FHIRPersistenceJDBCImpl;
+import com.ibm.fhir.persistence.jdbc.test.util.DerbyInitializer;
+import com.ibm.fhir.persistence.test.common.AbstractPersistenceTest;
+
+/**
+ * Tests the JDBC persistence layer with the resource payloads kept in a payload store instead of the database
+ */
+public class JDBCPayloadStoreTest extends AbstractPersistenceTest {
+    private static final Path PAYLOAD_DIRECTORY = Paths.get("target", "payloads");
+
+    // Rows written by this test can't be read without its configuration, so it doesn't share the database of the other tests
+    private static final String DB_NAME = "target/derby/payloadStoreDB";
+
+    private Properties testProps;
+
+    private PoolConnectionProvider connectionPool;
+
+    private FHIRPersistenceJDBCCache cache;
+
+    public JDBCPayloadStoreTest() throws Exception {
+        this.testProps = TestUtil.readTestProperties("test.jdbc.properties");
+        this.testProps.setProperty("payloadStoreDirectory", PAYLOAD_DIRECTORY.toString());
+    }
+
+    @Override
+    public void bootstrapDatabase() throws Exception {
+        DerbyInitializer derbyInit;
+        String dbDriverName = this.testProps.getProperty("dbDriverName");
+        if (dbDriverName != null && dbDriverName.contains("derby")) {
+            derbyInit = new DerbyInitializer(this.testProps, DB_NAME);
+            IConnectionProvider cp = derbyInit.getConnectionProvider(false);
+            this.connectionPool = new PoolConnectionProvider(cp, 1);
+            ICommonTokenValuesCache rrc = new CommonTokenValuesCacheImpl(100, 100);
+            cache = new FHIRPersistenceJDBCCacheImpl(new NameIdCache<Integer>(), new NameIdCache<Integer>(), rrc);
+        }
+    }
+
+    @Override
+    public FHIRPersistence getPersistenceImpl() throws Exception {
+        if (this.connectionPool == null) {
+            throw new IllegalStateException("Database not bootstrapped");
+        }
+        return new FHIRPersistenceJDBCImpl(this.testProps, this.connectionPool, cache);
+    }
+
+    @Override
+    protected void shutdownPools() throws Exception {
+        // Mark the pool as no longer in use. This allows the pool to check for
+        // lingering open connections/transactions.
+        if (this.connectionPool != null) {
+            this.connectionPool.close();
+        }
+    }
+
+    @Test
+    public void testVersions() throws Exception {
+        long before = countPayloads();
+
+        Basic resource = TestUtil.readExampleResource("json/ibm/minimal/Basic-1.json");
+        Basic created = persistence.create(getDefaultPersistenceContext(), resource).getResource();
+        String id = created.getId();
+        Basic updated = persistence.update(getDefaultPersistenceContext(), id, created).getResource();
+        assertEquals(updated.getMeta().getVersionId().getValue(), "2");
+
+        // each version has its own payload
+        assertEquals(countPayloads(), before + 2);
+
+        assertEquals(persistence.read(getDefaultPersistenceContext(), Basic.class, id).getResource(), updated);
+        assertEquals(persistence.vread(getDefaultPersistenceContext(), Basic.class, id, "1").getResource(), created);
+
+        FHIRHistoryContext historyContext = FHIRPersistenceContextFactory.createHistoryContext();
+        MultiResourceResult<Basic> history = persistence.history(FHIRPersistenceContextFactory.createPersistenceContext(null, historyContext), Basic.class, id);
+        assertEquals(history.getResource().size(), 2);
+
+        persistence.delete(getDefaultPersistenceContext(), Basic.class, id);
+        assertEquals(countPayloads(), before + 3);
+        try {
+            persistence.read(getDefaultPersistenceContext(), Basic.class, id);
+            throw new AssertionError("deleted resource was read");
+        } catch (FHIRPersistenceResourceDeletedException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testExport() throws Exception {
+        Basic resource = TestUtil.readExampleResource("json/ibm/minimal/Basic-1.json");
+        Instant start = Instant.now();
+        String id = persistence.create(getDefaultPersistenceContext(), resource).getResource().getId();
+
+        // the payloads are streamed from the payload store
+        List<String> ids = new ArrayList<>();
+        persistence.fetchResourcePayloads(Basic.class, start.minusSeconds(1), null, payload -> {
+            try {
+                ByteArrayOutputStream os = new ByteArrayOutputStream();
+                payload.transferTo(os);
+                Resource r = FHIRParser.parser(Format.JSON).parse(new ByteArrayInputStream(os.toByteArray()));
+                ids.add(r.getId());
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            return true;
+        });
+        assertTrue(ids.contains(id));
+    }
+
+    private long countPayloads() throws Exception {
+        if (!Files.exists(PAYLOAD_DIRECTORY)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.walk(PAYLOAD_DIRECTORY)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Properties;
+
+import com.ibm.fhir.database.utils.api.IConnectionProvider;
+import com.ibm.fhir.database.utils.pool.PoolConnectionProvider;
+import com.ibm.fhir.model.test.TestUtil;
+import com.ibm.fhir.persistence.FHIRPersistence;
+import com.ibm.fhir.persistence.jdbc.FHIRPersistenceJDBCCache;
+import com.ibm.fhir.persistence.jdbc.cache.CommonTokenValuesCacheImpl;
+import com.ibm.fhir.persistence.jdbc.cache.FHIRPersistenceJDBCCacheImpl;
+import com.ibm.fhir.persistence.jdbc.cache.NameIdCache;
+import com.ibm.fhir.persistence.jdbc.dao.api.ICommonTokenValuesCache;
+import com.ibm.fhir.persistence.jdbc.impl.FHIRPersistenceJDBCImpl;
+import com.ibm.fhir.persistence.jdbc.test.util.DerbyInitializer;
+import com.ibm.fhir.persistence.test.common.AbstractReindexTest;
+
+/**
+ * JDBC test implementation of the range reindex provided by the persistence layer
+ */
+public class JDBCReindexTest extends AbstractReindexTest {
+    // The parameter tables which hold the values extracted from the test resources
+    private static final String[] PARAMETER_TABLES = { "STR_VALUES", "DATE_VALUES", "RESOURCE_TOKEN_REFS" };
+
+    private Properties testProps;
+
+    private PoolConnectionProvider connectionPool;
+
+    private FHIRPersistenceJDBCCache cache;
+
+    public JDBCReindexTest() throws Exception {
+        this.testProps = TestUtil.readTestProperties("test.jdbc.properties");
+    }
+
+    @Override
+    public void bootstrapDatabase() throws Exception {
+        DerbyInitializer derbyInit;
+        String dbDriverName = this.testProps.getProperty("dbDriverName");
+        if (dbDriverName != null && dbDriverName.contains("derby")) {
+            derbyInit = new DerbyInitializer(this.testProps);
+            IConnectionProvider cp = derbyInit.getConnectionProvider(false);
+            this.connectionPool = new PoolConnectionProvider(cp, 1);
+            ICommonTokenValuesCache rrc = new CommonTokenValuesCacheImpl(100, 100);
+            cache = new FHIRPersistenceJDBCCacheImpl(new NameIdCache<Integer>(), new NameIdCache<Integer>(), rrc);
+        }
+    }
+
+    @Override
+    public FHIRPersistence getPersistenceImpl() throws Exception {
+        if (this.connectionPool == null) {
+            throw new IllegalStateException("Database not bootstrapped");
+        }
+        return new FHIRPersistenceJDBCImpl(this.testProps, this.connectionPool, cache);
+    }
+
+    @Override
+    protected void shutdownPools() throws Exception {
+        // Mark the pool as no longer in use. This allows the pool to check for
+        // lingering open connections/transactions.
+        if (this.connectionPool != null) {
+            this.connectionPool.close();
+        }
+    }
+
+    @Override
+    protected void deleteSearchParameterValues(String resourceType, String logicalId) throws Exception {
+        try (Connection c = connectionPool.getConnection()) {
+            for (String table : PARAMETER_TABLES) {
+                try (PreparedStatement ps = c.prepareStatement("DELETE FROM " + parameterTable(resourceType, table)
+                        + " WHERE logical_resource_id = (" + logicalResourceIdQuery(resourceType) + ")")) {
+                    ps.setString(1, logicalId);
+                    ps.executeUpdate();
+                }
+            }
+        }
+    }
+
+    @Override
+    protected int countSearchParameterValues(String resourceType, String logicalId) throws Exception {
+        int count = 0;
+        try (Connection c = connectionPool.getConnection()) {
+            for (String table : PARAMETER_TABLES) {
+                try (PreparedStatement ps = c.prepareStatement("SELECT COUNT(*) FROM " + parameterTable(resourceType, table)
+                        + " WHERE logical_resource_id = (" + logicalResourceIdQuery(resourceType) + ")")) {
+                    ps.setString(1, logicalId);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        rs.next();
+                        count += rs.getInt(1);
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private String parameterTable(String resourceType, String table) {
+        return testProps.getProperty("schemaName") + "." + resourceType + "_" + table;
+    }
+
+    private String logicalResourceIdQuery(String resourceType) {
+        return "SELECT logical_resource_id FROM " + parameterTable(resourceType, "LOGICAL_RESOURCES") + " WHERE logical_id = ?";
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2017, 2020
+ * (C) Copyright IBM Corp. 2017, 2021
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -37,6 +37,9 @@ public class DerbyInitializer {
 
     private Properties dbProps;
 
+    // The database to bootstrap and connect to
+    private final String dbName;
+
     /**
      * Main method to facilitate standalone testing of this class.
      * @param args
@@ -55,16 +58,24 @@ public class DerbyInitializer {
      * Constructs a new DerbyInitializer using default database properties.
      */
     public DerbyInitializer() {
-        super();
-        this.dbProps = new Properties();
+        this(new Properties());
     }
 
     /**
      * Constructs a new DerbyInitializer using the passed database properties.
      */
     public DerbyInitializer(Properties props) {
+        this(props, DB_NAME);
+    }
+
+    /**
+     * Constructs a new DerbyInitializer for a database of its own, for tests which write data that
+     * the other tests sharing {@link #DB_NAME} can't read.
+     */
+    public DerbyInitializer(Properties props, String dbName) {
         super();
         this.dbProps = props;
+        this.dbName = dbName;
     }
 
     /**
@@ -91,12 +102,12 @@ public class DerbyInitializer {
         if (reset) {
             // wipes the disk content of the database. Hopefully there aren't any
             // open connections at this point
-            DerbyMaster.dropDatabase(DB_NAME);
+            DerbyMaster.dropDatabase(dbName);
         }
 
-        // Inject the DB_NAME into the dbProps
+        // Inject the dbName into the dbProps
         DerbyPropertyAdapter adapter = new DerbyPropertyAdapter(dbProps);
-        adapter.setDatabase(DB_NAME);
+        adapter.setDatabase(dbName);
 
         // Only bootstrap the database if it is new
         boolean exists;
@@ -112,7 +123,7 @@ public class DerbyInitializer {
         }
         else {
             System.out.println("Bootstrapping database");
-            return new DerbyFhirDatabase(DB_NAME);
+            return new DerbyFhirDatabase(dbName);
         }
     }
 
@@ -0,0 +1,38 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.test.util;
+
+import static org.testng.Assert.assertEquals;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.model.type.code.IssueType;
+import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
+import com.ibm.fhir.persistence.jdbc.util.KeysetCursor;
+
+public class KeysetCursorTest {
+    @Test
+    public void testRoundTrip() throws Exception {
+        assertEquals(KeysetCursor.decode(KeysetCursor.encode(0)), 0);
+        assertEquals(KeysetCursor.decode(KeysetCursor.encode(12345)), 12345);
+        assertEquals(KeysetCursor.decode(KeysetCursor.encode(Long.MAX_VALUE)), Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testInvalid() {
+        String[] cursors = { "", "not a cursor", "bHIu", "bHIuLTE", "eHguMTI", "bHIuYWJj" };
+        for (String cursor : cursors) {
+            try {
+                KeysetCursor.decode(cursor);
+                throw new AssertionError("expected an exception for cursor '" + cursor + "'");
+            } catch (FHIRPersistenceException e) {
+                assertEquals(e.getIssues().size(), 1);
+                assertEquals(e.getIssues().get(0).getCode(), IssueType.INVALID);
+            }
+        }
+    }
+}
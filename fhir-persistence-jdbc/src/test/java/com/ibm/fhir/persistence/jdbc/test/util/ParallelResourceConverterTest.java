@@ -0,0 +1,83 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.test.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.exception.FHIRException;
+import com.ibm.fhir.persistence.jdbc.util.ParallelResourceConverter;
+
+public class ParallelResourceConverterTest {
+    @BeforeClass
+    public void configure() {
+        ParallelResourceConverter.configure(4, 8);
+    }
+
+    @AfterClass
+    public void reset() {
+        ParallelResourceConverter.configure(4, ParallelResourceConverter.DEFAULT_THRESHOLD);
+    }
+
+    private List<Integer> items(int count) {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(i);
+        }
+        return items;
+    }
+
+    @Test
+    public void testOrder() throws Exception {
+        // below and above the threshold
+        for (int count : new int[] { 0, 3, 1000 }) {
+            List<String> results = ParallelResourceConverter.convert(items(count), i -> "r" + i);
+            assertEquals(results.size(), count);
+            for (int i = 0; i < count; i++) {
+                assertEquals(results.get(i), "r" + i);
+            }
+        }
+    }
+
+    @Test
+    public void testFHIRException() throws Exception {
+        try {
+            ParallelResourceConverter.convert(items(100), i -> {
+                if (i == 50) {
+                    throw new FHIRException("bad payload " + i);
+                }
+                return i;
+            });
+            fail("expected a FHIRException");
+        } catch (FHIRException e) {
+            assertEquals(e.getMessage(), "bad payload 50");
+        }
+    }
+
+    @Test
+    public void testIOException() throws Exception {
+        try {
+            ParallelResourceConverter.convert(items(100), i -> {
+                if (i == 99) {
+                    throw new IOException("truncated payload");
+                }
+                return i;
+            });
+            fail("expected an IOException");
+        } catch (IOException e) {
+            assertEquals(e.getMessage(), "truncated payload");
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.test.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.persistence.jdbc.util.PayloadCodec;
+import com.ibm.fhir.schema.compression.CompressionDictionaries;
+import com.ibm.fhir.schema.compression.CompressionDictionary;
+import com.ibm.fhir.schema.compression.DictionaryTrainer;
+
+public class PayloadCodecTest {
+
+    private static byte[] observation(int i) {
+        return ("{\"resourceType\":\"Observation\",\"id\":\"obs" + i + "\",\"meta\":{\"versionId\":\"1\",\"lastUpdated\":\"2021-03-0" + (i % 9 + 1)
+                + "T10:00:00Z\"},\"status\":\"final\",\"code\":{\"coding\":[{\"system\":\"http://loinc.org\",\"code\":\"8867-4\",\"display\":\"Heart rate\"}]},"
+                + "\"subject\":{\"reference\":\"Patient/p" + i + "\"},\"valueQuantity\":{\"value\":" + (60 + i)
+                + ",\"unit\":\"beats/minute\",\"system\":\"http://unitsofmeasure.org\",\"code\":\"/min\"}}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static CompressionDictionary train(String resourceType, int first, int count) {
+        DictionaryTrainer trainer = new DictionaryTrainer(resourceType, DictionaryTrainer.MAX_DICTIONARY_SIZE);
+        for (int i = first; i < first + count; i++) {
+            trainer.addSample(observation(i));
+        }
+        return trainer.train();
+    }
+
+    private static byte[] compress(PayloadCodec codec, String resourceType, byte[] payload) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try (DeflaterOutputStream zipStream = codec.compress(resourceType, stream)) {
+            zipStream.write(payload);
+            zipStream.finish();
+        }
+        return stream.toByteArray();
+    }
+
+    private static byte[] decompress(PayloadCodec codec, byte[] data) throws IOException {
+        try (InputStream in = codec.decompress(data)) {
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                stream.write(buffer, 0, n);
+            }
+            return stream.toByteArray();
+        }
+    }
+
+    @Test
+    public void testGzip() throws Exception {
+        byte[] payload = observation(1);
+        byte[] compressed = compress(PayloadCodec.gzip(), "Observation", payload);
+        assertEquals(compressed[0], (byte) 0x1f);
+        assertEquals(decompress(PayloadCodec.gzip(), compressed), payload);
+    }
+
+    @Test
+    public void testDictionary() throws Exception {
+        Path dir = Paths.get("target", "dictionaries", "codec");
+        CompressionDictionaries.store(dir, train("Observation", 0, 50));
+        PayloadCodec codec = new PayloadCodec(CompressionDictionaries.read(dir));
+
+        byte[] payload = observation(100);
+        byte[] compressed = compress(codec, "Observation", payload);
+        assertEquals(compressed[0], PayloadCodec.CODEC_DEFLATE_DICTIONARY);
+        assertEquals(decompress(codec, compressed), payload);
+
+        // the dictionary holds most of the payload, so it compresses far better than GZIP
+        byte[] gzip = compress(PayloadCodec.gzip(), "Observation", payload);
+        assertTrue(compressed.length * 2 < gzip.length, compressed.length + " vs " + gzip.length);
+
+        // payloads written before the dictionary was introduced are still read
+        assertEquals(decompress(codec, gzip), payload);
+
+        // resource types without a dictionary fall back to GZIP
+        assertEquals(compress(codec, "Patient", payload)[0], (byte) 0x1f);
+    }
+
+    @Test
+    public void testRetrainedDictionary() throws Exception {
+        Path dir = Paths.get("target", "dictionaries", "retrained");
+        CompressionDictionaries.store(dir, train("Observation", 0, 20));
+        byte[] payload = observation(100);
+        byte[] compressed = compress(new PayloadCodec(CompressionDictionaries.read(dir)), "Observation", payload);
+
+        // the payloads compressed with the old dictionary remain readable
+        CompressionDictionary retrained = train("Observation", 1000, 30);
+        CompressionDictionaries.store(dir, retrained);
+        CompressionDictionaries dictionaries = CompressionDictionaries.read(dir);
+        assertEquals(dictionaries.getDictionary("Observation").getId(), retrained.getId());
+        assertEquals(decompress(new PayloadCodec(dictionaries), compressed), payload);
+    }
+
+    @Test
+    public void testUnknownDictionary() throws Exception {
+        Path dir = Paths.get("target", "dictionaries", "unknown");
+        CompressionDictionaries.store(dir, train("Observation", 0, 10));
+        byte[] compressed = compress(new PayloadCodec(CompressionDictionaries.read(dir)), "Observation", observation(1));
+        try {
+            decompress(PayloadCodec.gzip(), compressed);
+            fail("payload decompressed without its dictionary");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testUnknownCodec() throws Exception {
+        decompress(PayloadCodec.gzip(), new byte[] { 0x7f, 1, 2, 3 });
+    }
+
+    @Test
+    public void testLegacyGzip() throws Exception {
+        // GZIP payloads written by GZIPOutputStream directly, as all rows were before codecs
+        byte[] payload = observation(7);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try (GZIPOutputStream zipStream = new GZIPOutputStream(stream)) {
+            zipStream.write(payload);
+        }
+        assertEquals(decompress(PayloadCodec.gzip(), stream.toByteArray()), payload);
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.schema.app;
+
+import static com.ibm.fhir.schema.app.util.CommonUtil.configureLogger;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import com.ibm.fhir.model.format.Format;
+import com.ibm.fhir.model.generator.FHIRGenerator;
+import com.ibm.fhir.model.parser.FHIRParser;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.schema.compression.CompressionDictionaries;
+import com.ibm.fhir.schema.compression.CompressionDictionary;
+import com.ibm.fhir.schema.compression.DictionaryTrainer;
+
+/**
+ * Trains the payload compression dictionaries of the JDBC persistence layer from a sample of resources, one
+ * dictionary per resource type. The sample is a directory of NDJSON files, e.g. the output of a bulk export, and
+ * JSON files holding one resource each.<br>
+ * <br>
+ * To run this code, build the cli jar of fhir-persistence-schema:<br>
+ * java -cp ./fhir-persistence-schema-cli.jar com.ibm.fhir.schema.app.TrainCompressionDictionary --sample-dir dir
+ * --output-dir dir [--dictionary-size bytes] [--max-samples count]<br>
+ * <br>
+ * The output directory is the one configured as fhirServer/persistence/jdbc/compressionDictionaryDirectory. The
+ * dictionaries it already holds are kept, because the payloads compressed with them can only be read with them.
+ */
+public class TrainCompressionDictionary {
+    private static final Logger logger = Logger.getLogger(TrainCompressionDictionary.class.getName());
+
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_BAD_ARGS = 1;
+    private static final int EXIT_RUNTIME_ERROR = 2;
+
+    private Path sampleDir;
+    private Path outputDir;
+    private int dictionarySize = DictionaryTrainer.MAX_DICTIONARY_SIZE;
+    private int maxSamples = 10000;
+
+    // The trainer and the payloads used for the size report, by resource type
+    private final Map<String, DictionaryTrainer> trainers = new TreeMap<>();
+    private final Map<String, List<byte[]>> payloads = new TreeMap<>();
+
+    /**
+     * Parse the command line arguments
+     * @param args
+     */
+    protected void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+            case "--sample-dir":
+                if (++i < args.length) {
+                    this.sampleDir = Paths.get(args[i]);
+                } else {
+                    throw new IllegalArgumentException("Missing value for argument at posn: " + i);
+                }
+                break;
+            case "--output-dir":
+                if (++i < args.length) {
+                    this.outputDir = Paths.get(args[i]);
+                } else {
+                    throw new IllegalArgumentException("Missing value for argument at posn: " + i);
+                }
+                break;
+            case "--dictionary-size":
+                if (++i < args.length) {
+                    this.dictionarySize = Integer.parseInt(args[i]);
+                } else {
+                    throw new IllegalArgumentException("Missing value for argument at posn: " + i);
+                }
+                break;
+            case "--max-samples":
+                if (++i < args.length) {
+                    this.maxSamples = Integer.parseInt(args[i]);
+                } else {
+                    throw new IllegalArgumentException("Missing value for argument at posn: " + i);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid argument: " + arg);
+            }
+        }
+
+        if (sampleDir == null || outputDir == null) {
+            throw new IllegalArgumentException("--sample-dir and --output-dir are required");
+        }
+    }
+
+    /**
+     * Read the sample, then train and store a dictionary for each resource type in it
+     * @throws Exception
+     */
+    protected void process() throws Exception {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(sampleDir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".ndjson")) {
+                    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            if (!line.trim().isEmpty()) {
+                                addSample(line);
+                            }
+                        }
+                    }
+                } else if (name.endsWith(".json")) {
+                    addSample(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+                }
+            }
+        }
+
+        for (Map.Entry<String, DictionaryTrainer> entry : trainers.entrySet()) {
+            String resourceType = entry.getKey();
+            DictionaryTrainer trainer = entry.getValue();
+            CompressionDictionary dictionary = trainer.train();
+            if (dictionary == null) {
+                logger.warning(resourceType + ": the " + trainer.getSampleCount() + " samples share no content, no dictionary stored");
+                continue;
+            }
+            CompressionDictionaries.store(outputDir, dictionary);
+
+            long gzipSize = 0;
+            long dictionaryPayloadSize = 0;
+            for (byte[] payload : payloads.get(resourceType)) {
+                gzipSize += gzip(payload);
+                dictionaryPayloadSize += deflate(payload, dictionary.getData());
+            }
+            int count = trainer.getSampleCount();
+            logger.info(String.format("%s: %d samples, dictionary %d bytes [id=%08x], average payload %d bytes with GZIP, %d bytes with the dictionary",
+                resourceType, count, dictionary.getData().length, dictionary.getId(), gzipSize / count, dictionaryPayloadSize / count));
+        }
+    }
+
+    /**
+     * Add the given resource to the sample of its resource type, unless the sample is already full
+     * @param json
+     * @throws Exception
+     */
+    private void addSample(String json) throws Exception {
+        Resource resource = FHIRParser.parser(Format.JSON).parse(new StringReader(json));
+        String resourceType = resource.getClass().getSimpleName();
+        DictionaryTrainer trainer = trainers.computeIfAbsent(resourceType, rt -> new DictionaryTrainer(rt, dictionarySize));
+        if (trainer.getSampleCount() < maxSamples) {
+            // Generate the payload exactly as the persistence layer does before compressing it
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            FHIRGenerator.generator(Format.JSON, false).generate(resource, stream);
+            byte[] payload = stream.toByteArray();
+            trainer.addSample(payload);
+            payloads.computeIfAbsent(resourceType, rt -> new ArrayList<>()).add(payload);
+        }
+    }
+
+    private static int gzip(byte[] payload) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try (GZIPOutputStream zipStream = new GZIPOutputStream(stream)) {
+            zipStream.write(payload);
+        }
+        return stream.size();
+    }
+
+    private static int deflate(byte[] payload, byte[] dictionary) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setDictionary(dictionary);
+            deflater.setInput(payload);
+            deflater.finish();
+            byte[] buffer = new byte[4096];
+            int size = 0;
+            while (!deflater.finished()) {
+                size += deflater.deflate(buffer);
+            }
+            return size;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: TrainCompressionDictionary --sample-dir <dir> --output-dir <dir> [--dictionary-size <bytes>] [--max-samples <count>]");
+        System.err.println("  --sample-dir       directory of .ndjson and .json resource files");
+        System.err.println("  --output-dir       the compression dictionary directory of the FHIR server");
+        System.err.println("  --dictionary-size  the maximum size of each dictionary, default and maximum " + DictionaryTrainer.MAX_DICTIONARY_SIZE);
+        System.err.println("  --max-samples      the maximum number of samples per resource type, default 10000");
+    }
+
+    /**
+     * Main entry point
+     * @param args
+     */
+    public static void main(String[] args) {
+        int exitStatus;
+        TrainCompressionDictionary app = new TrainCompressionDictionary();
+        try {
+            configureLogger();
+            app.parseArgs(args);
+            app.process();
+            exitStatus = EXIT_OK;
+        } catch (IllegalArgumentException x) {
+            logger.log(Level.SEVERE, "bad argument", x);
+            printUsage();
+            exitStatus = EXIT_BAD_ARGS;
+        } catch (Exception x) {
+            logger.log(Level.SEVERE, "dictionary training failed", x);
+            exitStatus = EXIT_RUNTIME_ERROR;
+        }
+        System.exit(exitStatus);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.schema.compression;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * The payload compression dictionaries in a directory. The current dictionary of a resource type is stored in the
+ * file {@code <resourceType>.dict}. When a dictionary is replaced, the old one is kept as
+ * {@code <resourceType>.<id>.dict}, because the payloads compressed with it can only be read with it:
+ *
+ * <pre>
+ * Patient.dict           - used to compress new Patient payloads
+ * Patient.1a2b3c4d.dict  - only used to read older Patient payloads
+ * </pre>
+ *
+ * <p>Instances are immutable and safe to share between threads.
+ */
+public class CompressionDictionaries {
+    private static final Logger logger = Logger.getLogger(CompressionDictionaries.class.getName());
+
+    public static final String FILE_SUFFIX = ".dict";
+
+    // The dictionaries loaded by load(Path), which are read once per directory
+    private static final Map<Path, CompressionDictionaries> loaded = new ConcurrentHashMap<>();
+
+    // The current dictionary of each resource type
+    private final Map<String, CompressionDictionary> byResourceType;
+
+    // All the dictionaries, current and old, by id
+    private final Map<Integer, CompressionDictionary> byId;
+
+    /**
+     * Private constructor
+     * @param byResourceType
+     * @param byId
+     */
+    private CompressionDictionaries(Map<String, CompressionDictionary> byResourceType, Map<Integer, CompressionDictionary> byId) {
+        this.byResourceType = Collections.unmodifiableMap(byResourceType);
+        this.byId = Collections.unmodifiableMap(byId);
+    }
+
+    /**
+     * Get the dictionaries in the given directory. Each directory is read only once, so dictionaries added later
+     * are picked up after a restart.
+     * @param directory
+     * @return
+     * @throws IOException
+     */
+    public static CompressionDictionaries load(Path directory) throws IOException {
+        try {
+            return loaded.computeIfAbsent(directory.toAbsolutePath().normalize(), dir -> {
+                try {
+                    return read(dir);
+                } catch (IOException x) {
+                    throw new UncheckedIOException(x);
+                }
+            });
+        } catch (UncheckedIOException x) {
+            throw x.getCause();
+        }
+    }
+
+    /**
+     * Read the dictionaries in the given directory
+     * @param directory
+     * @return
+     * @throws IOException
+     */
+    public static CompressionDictionaries read(Path directory) throws IOException {
+        Map<String, CompressionDictionary> byResourceType = new HashMap<>();
+        Map<Integer, CompressionDictionary> byId = new HashMap<>();
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    name = name.substring(0, name.length() - FILE_SUFFIX.length());
+                    int dot = name.indexOf('.');
+                    String resourceType = dot < 0 ? name : name.substring(0, dot);
+
+                    CompressionDictionary dictionary = new CompressionDictionary(resourceType, Files.readAllBytes(file));
+                    CompressionDictionary other = byId.put(dictionary.getId(), dictionary);
+                    if (other != null && !Arrays.equals(other.getData(), dictionary.getData())) {
+                        // Payloads refer to dictionaries by id, so ids must be unique
+                        throw new IOException("Dictionary '" + file + "' has the same id as a dictionary for '" + other.getResourceType() + "'");
+                    }
+                    if (dot < 0) {
+                        byResourceType.put(resourceType, dictionary);
+                    }
+                }
+            }
+        }
+        logger.info("Loaded " + byId.size() + " compression dictionaries from '" + directory + "'");
+        return new CompressionDictionaries(byResourceType, byId);
+    }
+
+    /**
+     * Store the given dictionary as the current dictionary of its resource type. The dictionary it replaces is kept
+     * so that the payloads compressed with it remain readable.
+     * @param directory
+     * @param dictionary
+     * @throws IOException
+     */
+    public static void store(Path directory, CompressionDictionary dictionary) throws IOException {
+        Files.createDirectories(directory);
+        Path current = directory.resolve(dictionary.getResourceType() + FILE_SUFFIX);
+        if (Files.exists(current)) {
+            CompressionDictionary old = new CompressionDictionary(dictionary.getResourceType(), Files.readAllBytes(current));
+            if (old.getId() == dictionary.getId()) {
+                return;
+            }
+            Files.move(current, directory.resolve(dictionary.getResourceType() + "." + String.format("%08x", old.getId()) + FILE_SUFFIX),
+                StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.write(current, dictionary.getData());
+    }
+
+    /**
+     * @param resourceType
+     * @return the dictionary used to compress new payloads of the given resource type, or null if there is none
+     */
+    public CompressionDictionary getDictionary(String resourceType) {
+        return byResourceType.get(resourceType);
+    }
+
+    /**
+     * @param id
+     * @return the dictionary with the given id, or null if there is none
+     */
+    public CompressionDictionary getDictionary(int id) {
+        return byId.get(id);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.schema.compression;
+
+import java.util.zip.Adler32;
+
+/**
+ * A preset dictionary for the payload compression of one resource type. The dictionary is identified by the Adler-32
+ * checksum of its content, which is the same identifier zlib uses for preset dictionaries.
+ */
+public class CompressionDictionary {
+    private final String resourceType;
+    private final byte[] data;
+    private final int id;
+
+    /**
+     * Public constructor
+     * @param resourceType the resource type the dictionary was trained for
+     * @param data the dictionary content
+     */
+    public CompressionDictionary(String resourceType, byte[] data) {
+        this.resourceType = resourceType;
+        this.data = data;
+        this.id = computeId(data);
+    }
+
+    /**
+     * @return the resource type the dictionary was trained for
+     */
+    public String getResourceType() {
+        return resourceType;
+    }
+
+    /**
+     * @return the dictionary content. Must not be modified
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * @return the identifier of the dictionary
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Compute the identifier of the given dictionary content
+     * @param data
+     * @return
+     */
+    public static int computeId(byte[] data) {
+        Adler32 adler = new Adler32();
+        adler.update(data);
+        return (int) adler.getValue();
+    }
+}
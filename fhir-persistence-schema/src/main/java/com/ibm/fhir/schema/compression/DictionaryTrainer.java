@@ -0,0 +1,171 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.schema.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Trains a preset compression dictionary from a sample of the compact JSON payloads of one resource type.
+ *
+ * <p>Each payload is cut into fragments after every ',', '{' and '[', so a fragment is typically a key with its
+ * value, e.g. {@code "system":"http://loinc.org",}. The fragments are scored by the number of sample payloads they
+ * appear in times their length, which estimates the bytes a dictionary match saves. The best fragments are written
+ * to the end of the dictionary, where deflate reaches them with the shortest distances.
+ */
+public class DictionaryTrainer {
+    // Deflate can't refer back further than its 32K window, so a larger dictionary is of no use
+    public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+    // Deflate only encodes matches of 3 or more bytes
+    private static final int MIN_FRAGMENT_LENGTH = 4;
+
+    // Long fragments, like narrative text, rarely repeat exactly
+    private static final int MAX_FRAGMENT_LENGTH = 256;
+
+    private final String resourceType;
+
+    private final int dictionarySize;
+
+    // The number of samples each fragment appears in
+    private final Map<Fragment, Integer> counts = new HashMap<>();
+
+    private int sampleCount;
+
+    /**
+     * Public constructor
+     * @param resourceType the resource type of the samples
+     * @param dictionarySize the maximum size of the dictionary, at most {@link #MAX_DICTIONARY_SIZE}
+     */
+    public DictionaryTrainer(String resourceType, int dictionarySize) {
+        if (dictionarySize < 1 || dictionarySize > MAX_DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("Dictionary size must be between 1 and " + MAX_DICTIONARY_SIZE);
+        }
+        this.resourceType = resourceType;
+        this.dictionarySize = dictionarySize;
+    }
+
+    /**
+     * Add a sample payload
+     * @param payload the compact JSON of a resource, as it is stored
+     */
+    public void addSample(byte[] payload) {
+        sampleCount++;
+
+        Set<Fragment> fragments = new HashSet<>();
+        int start = 0;
+        for (int i = 0; i < payload.length; i++) {
+            byte b = payload[i];
+            if (b == ',' || b == '{' || b == '[' || i == payload.length - 1) {
+                int length = i + 1 - start;
+                if (length >= MIN_FRAGMENT_LENGTH && length <= MAX_FRAGMENT_LENGTH) {
+                    fragments.add(new Fragment(payload, start, length));
+                }
+                start = i + 1;
+            }
+        }
+        for (Fragment fragment : fragments) {
+            counts.merge(fragment, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * @return the number of samples added
+     */
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Build the dictionary from the samples added so far
+     * @return the dictionary, or null if no fragment appears in more than one sample
+     */
+    public CompressionDictionary train() {
+        List<Map.Entry<Fragment, Integer>> candidates = new ArrayList<>();
+        for (Map.Entry<Fragment, Integer> entry : counts.entrySet()) {
+            // a fragment must be shared by payloads to be of use in a dictionary
+            if (entry.getValue() > 1) {
+                candidates.add(entry);
+            }
+        }
+        candidates.sort((a, b) -> Long.compare(score(b), score(a)));
+
+        List<Fragment> selected = new ArrayList<>();
+        int size = 0;
+        for (Map.Entry<Fragment, Integer> entry : candidates) {
+            Fragment fragment = entry.getKey();
+            if (size + fragment.length <= dictionarySize) {
+                selected.add(fragment);
+                size += fragment.length;
+            }
+        }
+        if (selected.isEmpty()) {
+            return null;
+        }
+
+        // The best fragments go last, closest to the data being compressed
+        ByteArrayOutputStream dictionary = new ByteArrayOutputStream(size);
+        for (int i = selected.size() - 1; i >= 0; i--) {
+            Fragment fragment = selected.get(i);
+            dictionary.write(fragment.data, fragment.offset, fragment.length);
+        }
+        return new CompressionDictionary(resourceType, dictionary.toByteArray());
+    }
+
+    private static long score(Map.Entry<Fragment, Integer> entry) {
+        return (long) entry.getValue() * entry.getKey().length;
+    }
+
+    /**
+     * A range of bytes in a sample payload
+     */
+    private static class Fragment {
+        private final byte[] data;
+        private final int offset;
+        private final int length;
+        private final int hash;
+
+        private Fragment(byte[] data, int offset, int length) {
+            this.data = data;
+            this.offset = offset;
+            this.length = length;
+
+            int h = 1;
+            for (int i = offset; i < offset + length; i++) {
+                h = 31 * h + data[i];
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Fragment)) {
+                return false;
+            }
+            Fragment other = (Fragment) obj;
+            if (other.length != length || other.hash != hash) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (data[offset + i] != other.data[other.offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.schema.compression;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.testng.annotations.Test;
+
+public class DictionaryTrainerTest {
+
+    private static byte[] patient(int i) {
+        return ("{\"resourceType\":\"Patient\",\"id\":\"p" + i + "\",\"active\":true,\"gender\":\"" + (i % 2 == 0 ? "female" : "male")
+                + "\",\"birthDate\":\"19" + (50 + i % 50) + "-01-01\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testTrain() {
+        DictionaryTrainer trainer = new DictionaryTrainer("Patient", 1024);
+        for (int i = 0; i < 10; i++) {
+            trainer.addSample(patient(i));
+        }
+        CompressionDictionary dictionary = trainer.train();
+        assertNotNull(dictionary);
+        assertEquals(dictionary.getResourceType(), "Patient");
+        assertEquals(dictionary.getId(), CompressionDictionary.computeId(dictionary.getData()));
+
+        String content = new String(dictionary.getData(), StandardCharsets.UTF_8);
+        assertTrue(content.contains("\"resourceType\":\"Patient\","));
+        assertTrue(content.contains("\"gender\":\"female\","));
+
+        // fragments unique to one sample are left out
+        assertFalse(content.contains("\"id\":\"p3\","));
+
+        // the fragment with the highest score is last
+        assertTrue(content.endsWith("\"resourceType\":\"Patient\","), content);
+    }
+
+    @Test
+    public void testDictionarySize() {
+        DictionaryTrainer trainer = new DictionaryTrainer("Patient", 40);
+        for (int i = 0; i < 10; i++) {
+            trainer.addSample(patient(i));
+        }
+        assertTrue(trainer.train().getData().length <= 40);
+    }
+
+    @Test
+    public void testNothingShared() {
+        DictionaryTrainer trainer = new DictionaryTrainer("Patient", 1024);
+        trainer.addSample(patient(1));
+        assertNull(trainer.train());
+    }
+
+    @Test
+    public void testStore() throws Exception {
+        Path dir = Paths.get("target", "dictionaries");
+        CompressionDictionary first = new CompressionDictionary("Patient", "\"resourceType\":\"Patient\",".getBytes(StandardCharsets.UTF_8));
+        CompressionDictionary second = new CompressionDictionary("Patient", "\"gender\":\"female\",".getBytes(StandardCharsets.UTF_8));
+        CompressionDictionaries.store(dir, first);
+        CompressionDictionaries.store(dir, second);
+
+        // the replaced dictionary is kept for reading
+        assertTrue(Files.exists(dir.resolve(String.format("Patient.%08x.dict", first.getId()))));
+        CompressionDictionaries dictionaries = CompressionDictionaries.read(dir);
+        assertEquals(dictionaries.getDictionary("Patient").getId(), second.getId());
+        assertEquals(dictionaries.getDictionary(first.getId()).getData(), first.getData());
+        assertNull(dictionaries.getDictionary("Observation"));
+    }
+}
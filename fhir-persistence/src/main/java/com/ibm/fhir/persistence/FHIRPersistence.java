@@ -7,14 +7,18 @@
 package com.ibm.fhir.persistence;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Function;
 
 import com.ibm.fhir.model.resource.OperationOutcome;
 import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.util.FHIRUtil;
 import com.ibm.fhir.persistence.context.FHIRPersistenceContext;
 import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
 import com.ibm.fhir.persistence.exception.FHIRPersistenceNotSupportedException;
+import com.ibm.fhir.persistence.exception.FHIRPersistenceResourceNotFoundException;
 
 /**
  * This interface defines the contract between the FHIR Server's REST API layer and the underlying
@@ -34,6 +38,43 @@ public interface FHIRPersistence {
      */
     <T extends Resource> SingleResourceResult<T> create(FHIRPersistenceContext context, T resource) throws FHIRPersistenceException;
 
+    /**
+     * Stores a batch of FHIR Resources in the datastore. Resources without an id are created with a new
+     * system-generated id; resources with an id are stored as a new version of that logical resource, as in
+     * {@link #update(FHIRPersistenceContext, String, Resource)}. This is intended for bulk loads, where
+     * implementations can write the whole batch with far fewer round trips to the datastore.
+     *
+     * <p>A resource which cannot be updated because it does not exist (and update-or-create is disabled) does not
+     * fail the batch; its result has success set to false and an OperationOutcome describing the problem. Any other
+     * failure fails the whole batch.
+     *
+     * @param context the FHIRPersistenceContext instance associated with the current request
+     * @param resources the FHIR Resource instances to be stored in the datastore
+     * @return a list of SingleResourceResult, in the same order as resources, each with a copy of the corresponding
+     *         resource with Meta fields updated by the persistence layer and/or an OperationOutcome with hints, warnings,
+     *         or errors related to the interaction
+     * @throws FHIRPersistenceException
+     */
+    default List<SingleResourceResult<Resource>> createOrUpdateBatch(FHIRPersistenceContext context, List<Resource> resources)
+            throws FHIRPersistenceException {
+        List<SingleResourceResult<Resource>> results = new ArrayList<>(resources.size());
+        for (Resource resource : resources) {
+            if (resource.getId() == null) {
+                results.add(create(context, resource));
+            } else {
+                try {
+                    results.add(update(context, resource.getId(), resource));
+                } catch (FHIRPersistenceResourceNotFoundException e) {
+                    results.add(new SingleResourceResult.Builder<Resource>()
+                            .success(false)
+                            .outcome(FHIRUtil.buildOperationOutcome(e, false))
+                            .build());
+                }
+            }
+        }
+        return results;
+    }
+
     /**
      * Retrieves the most recent version of a FHIR Resource from the datastore.
      *
@@ -167,6 +208,52 @@ public interface FHIRPersistence {
     int reindex(FHIRPersistenceContext context, OperationOutcome.Builder operationOutcomeResult, Instant tstamp, String resourceLogicalId)
             throws FHIRPersistenceException;
 
+    /**
+     * Initiates reindexing of only the given search parameters for resources not yet processed. The stored values
+     * of all the other search parameters are left as they are, which makes this much cheaper than a full reindex
+     * after a single search parameter has been added or changed.
+     * @param context the FHIRPersistenceContext instance associated with the current request.
+     * @param operationOutcomeResult accumulate issues in this {@link Builder}
+     * @param tstamp reindex any resources with an index_tstamp less than this.
+     * @param resourceLogicalId optional resourceType/logicalId value to reindex a specific resource
+     * @param searchParameters the codes or canonical URLs of the search parameters to reindex, or null to reindex
+     *     all of them
+     * @return count of the number of resources reindexed by this call (0 or 1)
+     * @throws FHIRPersistenceException
+     */
+    default int reindex(FHIRPersistenceContext context, OperationOutcome.Builder operationOutcomeResult, Instant tstamp, String resourceLogicalId,
+            Set<String> searchParameters) throws FHIRPersistenceException {
+        if (searchParameters != null) {
+            throw new FHIRPersistenceNotSupportedException("Reindexing selected search parameters is not supported by this persistence implementation");
+        }
+        return reindex(context, operationOutcomeResult, tstamp, resourceLogicalId);
+    }
+
+    /**
+     * Reindexes a batch of resources from a range of logical resource ids, in ascending order of logical resource id.
+     * Callers partition the resources into disjoint ranges and run one worker per range, each of which calls this
+     * method repeatedly with the last logical resource id of the previous {@link ReindexCheckpoint}, until a call
+     * claims no resources. Implementations skip resources which are locked by another transaction, so a worker
+     * which has reached the end of its range should make one more pass from the start of the range to pick up any
+     * skipped resources.
+     * @param context the FHIRPersistenceContext instance associated with the current request.
+     * @param operationOutcomeResult accumulate issues in this {@link Builder}
+     * @param tstamp reindex any resources with an index_tstamp less than this.
+     * @param resourceType optional resource type to limit the reindex to
+     * @param afterLogicalResourceId reindex resources with a logical resource id greater than this
+     * @param toLogicalResourceId reindex resources with a logical resource id less than or equal to this. Optional.
+     * @param resourceCount the max number of resources to reindex
+     * @param searchParameters the codes or canonical URLs of the search parameters to reindex, or null to reindex
+     *     all of them
+     * @return the progress of the call
+     * @throws FHIRPersistenceException
+     */
+    default ReindexCheckpoint reindex(FHIRPersistenceContext context, OperationOutcome.Builder operationOutcomeResult, Instant tstamp,
+            String resourceType, long afterLogicalResourceId, Long toLogicalResourceId, int resourceCount, Set<String> searchParameters)
+            throws FHIRPersistenceException {
+        throw new FHIRPersistenceNotSupportedException("The range 'reindex' operation is not supported by this persistence implementation");
+    }
+
     /**
      * Special function for high speed export of resource payloads. The process
      * function must process the InputStream before returning. Result processing
@@ -185,6 +272,28 @@ public interface FHIRPersistence {
         Instant fromLastModified, Instant toLastModified,
         Function<ResourcePayload,Boolean> process) throws FHIRPersistenceException;
 
+    /**
+     * Performs a search like {@link #search(FHIRPersistenceContext, Class)}, but returns the stored JSON payloads
+     * of the resources instead of parsing them, so that they can be copied as-is into the response. The search
+     * context of the persistence context is updated in the same way as by search (e.g. the total count).
+     *
+     * <p>Implementations return null when they cannot serve the search this way, for example when the
+     * search context requires the resources to be filtered (_elements or _summary) or includes other
+     * resources (_include or _revinclude), in which case the caller should fall back to
+     * {@link #search(FHIRPersistenceContext, Class)}. Implementations must decide this before running any query,
+     * so that the fallback doesn't run the queries a second time.
+     *
+     * @param context the FHIRPersistenceContext instance associated with the current request
+     * @param resourceType the resource type which is the target of the search
+     * @return the stored payloads of the 'match' resources, in search result order, or null if the payloads
+     *         cannot be returned
+     * @throws FHIRPersistenceException
+     */
+    default List<ResourcePayload> searchPayloads(FHIRPersistenceContext context, Class<? extends Resource> resourceType)
+            throws FHIRPersistenceException {
+        return null;
+    }
+
     /**
      * Returns true iff the persistence layer implementation supports the "changes" special operation
      * @return
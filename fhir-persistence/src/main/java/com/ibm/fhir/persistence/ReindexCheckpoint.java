@@ -0,0 +1,51 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence;
+
+/**
+ * The progress of a range reindex call. A caller resumes the range after {@link #getLastLogicalResourceId()}
+ * with its next call.
+ */
+public class ReindexCheckpoint {
+
+    // The number of resources reindexed by the call
+    private final int resourceCount;
+
+    // The highest logical resource id claimed by the call, or the start of the range if nothing was claimed
+    private final long lastLogicalResourceId;
+
+    // The highest logical resource id currently in the database
+    private final long maxLogicalResourceId;
+
+    public ReindexCheckpoint(int resourceCount, long lastLogicalResourceId, long maxLogicalResourceId) {
+        this.resourceCount = resourceCount;
+        this.lastLogicalResourceId = lastLogicalResourceId;
+        this.maxLogicalResourceId = maxLogicalResourceId;
+    }
+
+    /**
+     * @return the number of resources reindexed by the call
+     */
+    public int getResourceCount() {
+        return resourceCount;
+    }
+
+    /**
+     * @return the highest logical resource id claimed by the call, or the start of the range if nothing was claimed
+     */
+    public long getLastLogicalResourceId() {
+        return lastLogicalResourceId;
+    }
+
+    /**
+     * @return the highest logical resource id currently in the database, which callers use to partition the
+     *         resources into ranges
+     */
+    public long getMaxLogicalResourceId() {
+        return maxLogicalResourceId;
+    }
+}
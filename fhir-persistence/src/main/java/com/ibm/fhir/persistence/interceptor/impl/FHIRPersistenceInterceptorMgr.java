@@ -181,4 +181,24 @@ public class FHIRPersistenceInterceptorMgr {
             interceptor.afterSearch(event);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * @return true if at least one registered interceptor implements afterSearch, and therefore
+     *         needs to see the resources of the search result bundle
+     */
+    public boolean hasAfterSearchInterceptors() {
+        for (FHIRPersistenceInterceptor interceptor : interceptors) {
+            try {
+                Class<?> declaringClass = interceptor.getClass()
+                        .getMethod("afterSearch", FHIRPersistenceEvent.class).getDeclaringClass();
+                if (!FHIRPersistenceInterceptor.class.equals(declaringClass)) {
+                    return true;
+                }
+            } catch (NoSuchMethodException e) {
+                // not possible, afterSearch is defined by the interface
+                return true;
+            }
+        }
+        return false;
+    }
+}
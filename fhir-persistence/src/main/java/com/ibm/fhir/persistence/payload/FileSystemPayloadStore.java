@@ -0,0 +1,117 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.payload;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
+import com.ibm.fhir.persistence.exception.FHIRPersistenceResourceNotFoundException;
+
+/**
+ * A {@link PayloadStore} which keeps each payload in its own file under a root directory. The files of a resource
+ * type are sharded over two levels of 256 directories by a hash of the logical id, so that no directory grows too
+ * large, and all the versions of a resource end up in the same directory:
+ *
+ * <pre>
+ * root/Patient/3f/a1/{logicalId}_{version}_{unique}
+ * </pre>
+ *
+ * <p>A payload is written to a temporary file, forced to disk and then atomically renamed, so a reader never sees a
+ * partially written payload. The key of a payload is its path relative to the root.
+ */
+public class FileSystemPayloadStore implements PayloadStore {
+    private static final Logger logger = Logger.getLogger(FileSystemPayloadStore.class.getName());
+
+    private final Path root;
+
+    /**
+     * Public constructor
+     * @param root the directory under which the payloads are stored. Created when the first payload is stored
+     */
+    public FileSystemPayloadStore(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    @Override
+    public String storePayload(String resourceType, String logicalId, int version, byte[] payload) throws FHIRPersistenceException {
+        // The '_' separator can't be part of a FHIR id, so the file name is unambiguous
+        int hash = logicalId.hashCode();
+        String payloadKey = resourceType + "/" + String.format("%02x/%02x", (hash >>> 8) & 0xff, hash & 0xff) + "/"
+                + logicalId + "_" + version + "_" + UUID.randomUUID().toString();
+        Path file = resolve(payloadKey);
+
+        try {
+            Path dir = file.getParent();
+            Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                    ByteBuffer buffer = ByteBuffer.wrap(payload);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    channel.force(true);
+                }
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException x) {
+            FHIRPersistenceException fx = new FHIRPersistenceException("Failed to store payload for '" + resourceType + "/" + logicalId + "'");
+            logger.log(Level.SEVERE, fx.getMessage() + ": " + file, x);
+            throw fx;
+        }
+        return payloadKey;
+    }
+
+    @Override
+    public byte[] readPayload(String payloadKey) throws FHIRPersistenceException {
+        Path file = resolve(payloadKey);
+        try {
+            return Files.readAllBytes(file);
+        } catch (NoSuchFileException x) {
+            throw new FHIRPersistenceResourceNotFoundException("Payload not found: " + payloadKey);
+        } catch (IOException x) {
+            FHIRPersistenceException fx = new FHIRPersistenceException("Failed to read payload: " + payloadKey);
+            logger.log(Level.SEVERE, fx.getMessage(), x);
+            throw fx;
+        }
+    }
+
+    @Override
+    public void deletePayload(String payloadKey) throws FHIRPersistenceException {
+        Path file = resolve(payloadKey);
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException x) {
+            FHIRPersistenceException fx = new FHIRPersistenceException("Failed to delete payload: " + payloadKey);
+            logger.log(Level.SEVERE, fx.getMessage(), x);
+            throw fx;
+        }
+    }
+
+    /**
+     * Get the file of the given payload key, which must be within the root directory
+     */
+    private Path resolve(String payloadKey) throws FHIRPersistenceException {
+        Path file = root.resolve(payloadKey).normalize();
+        if (!file.startsWith(root) || file.equals(root)) {
+            throw new FHIRPersistenceException("Invalid payload key: " + payloadKey);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.payload;
+
+import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
+
+/**
+ * Stores the serialized payloads of resource versions outside the database. The persistence layer keeps only the
+ * key returned by {@link #storePayload(String, String, int, byte[])} with the resource version, so the database
+ * holds the resource metadata and search parameters, while the payload I/O goes to the store.
+ *
+ * <p>Payloads are written before the transaction which stores the resource version commits. Each call to
+ * {@link #storePayload(String, String, int, byte[])} must therefore produce a new key, so that a transaction which
+ * is rolled back (for example after a version conflict) never overwrites the payload of a committed version. The
+ * payloads of rolled back transactions are left in the store, where they are not referenced by any resource.
+ *
+ * <p>Implementations must be safe to call from several threads at once.
+ */
+public interface PayloadStore {
+
+    /**
+     * Store the payload of a resource version.
+     * @param resourceType the resource type name, e.g. "Patient"
+     * @param logicalId the logical id of the resource
+     * @param version the version of the resource
+     * @param payload the serialized (and usually compressed) resource
+     * @return the key with which the payload is read back
+     * @throws FHIRPersistenceException
+     */
+    String storePayload(String resourceType, String logicalId, int version, byte[] payload) throws FHIRPersistenceException;
+
+    /**
+     * Read the payload stored with the given key.
+     * @param payloadKey a key returned by {@link #storePayload(String, String, int, byte[])}
+     * @return the payload
+     * @throws FHIRPersistenceException if the payload does not exist or can't be read
+     */
+    byte[] readPayload(String payloadKey) throws FHIRPersistenceException;
+
+    /**
+     * Delete the payload stored with the given key. Deleting a payload which does not exist is not an error.
+     * @param payloadKey a key returned by {@link #storePayload(String, String, int, byte[])}
+     * @throws FHIRPersistenceException
+     */
+    void deletePayload(String payloadKey) throws FHIRPersistenceException;
+}
@@ -0,0 +1,73 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.payload.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
+import com.ibm.fhir.persistence.exception.FHIRPersistenceResourceNotFoundException;
+import com.ibm.fhir.persistence.payload.FileSystemPayloadStore;
+
+public class FileSystemPayloadStoreTest {
+
+    private final Path root = Paths.get("target", "payload-store-test");
+
+    @Test
+    public void testStoreAndRead() throws Exception {
+        FileSystemPayloadStore store = new FileSystemPayloadStore(root);
+        byte[] payload = "{\"resourceType\":\"Patient\"}".getBytes(StandardCharsets.UTF_8);
+
+        String key1 = store.storePayload("Patient", "abc123", 1, payload);
+        String key2 = store.storePayload("Patient", "abc123", 2, payload);
+        assertTrue(key1.startsWith("Patient/"));
+        assertNotEquals(key1, key2);
+        assertEquals(store.readPayload(key1), payload);
+
+        // all the versions of a resource share a directory
+        assertEquals(Paths.get(key1).getParent(), Paths.get(key2).getParent());
+        assertFalse(Files.list(root.resolve(Paths.get(key1).getParent())).anyMatch(p -> p.toString().endsWith(".tmp")));
+    }
+
+    @Test
+    public void testStoreIsNotOverwritten() throws Exception {
+        // a rolled back transaction may store the same version again
+        FileSystemPayloadStore store = new FileSystemPayloadStore(root);
+        String key1 = store.storePayload("Patient", "xyz", 1, new byte[] { 1 });
+        String key2 = store.storePayload("Patient", "xyz", 1, new byte[] { 2 });
+        assertEquals(store.readPayload(key1), new byte[] { 1 });
+        assertEquals(store.readPayload(key2), new byte[] { 2 });
+    }
+
+    @Test
+    public void testDelete() throws Exception {
+        FileSystemPayloadStore store = new FileSystemPayloadStore(root);
+        String key = store.storePayload("Observation", "obs1", 1, new byte[] { 1, 2, 3 });
+        store.deletePayload(key);
+        store.deletePayload(key);
+        try {
+            store.readPayload(key);
+            throw new AssertionError("deleted payload was read");
+        } catch (FHIRPersistenceResourceNotFoundException e) {
+            // expected
+        }
+    }
+
+    @Test(expectedExceptions = FHIRPersistenceException.class)
+    public void testKeyOutsideRoot() throws Exception {
+        new FileSystemPayloadStore(root).readPayload("../../pom.xml");
+    }
+}
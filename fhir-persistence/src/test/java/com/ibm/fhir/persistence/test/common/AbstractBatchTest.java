@@ -0,0 +1,125 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.test.common;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.config.FHIRRequestContext;
+import com.ibm.fhir.model.resource.Basic;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.test.TestUtil;
+import com.ibm.fhir.model.type.Code;
+import com.ibm.fhir.model.type.Coding;
+import com.ibm.fhir.model.type.Extension;
+import com.ibm.fhir.model.type.Meta;
+import com.ibm.fhir.model.type.Uri;
+import com.ibm.fhir.persistence.MultiResourceResult;
+import com.ibm.fhir.persistence.SingleResourceResult;
+import com.ibm.fhir.persistence.context.FHIRHistoryContext;
+import com.ibm.fhir.persistence.context.FHIRPersistenceContextFactory;
+
+/**
+ * Tests for the multi-resource batch write method in FHIRPersistence.
+ */
+public abstract class AbstractBatchTest extends AbstractPersistenceTest {
+    @Test
+    public void testCreateOrUpdateBatch() throws Exception {
+        Basic resource = TestUtil.readExampleResource("json/ibm/minimal/Basic-1.json");
+        resource = resource.toBuilder()
+                .meta(Meta.builder()
+                    .tag(Coding.builder().system(Uri.of("http://example.org/tag")).code(Code.of("batchTest")).build())
+                    .build())
+                .build();
+
+        String id1 = UUID.randomUUID().toString();
+        String id2 = UUID.randomUUID().toString();
+
+        List<Resource> batch = new ArrayList<>();
+        batch.add(resource);
+        batch.add(resource.toBuilder().id(id1).build());
+        batch.add(resource.toBuilder().id(id2).build());
+        // the same logical resource a second time
+        batch.add(resource.toBuilder().id(id1).build());
+
+        List<SingleResourceResult<Resource>> results = persistence.createOrUpdateBatch(getDefaultPersistenceContext(), batch);
+        assertEquals(results.size(), 4);
+        for (SingleResourceResult<Resource> result : results) {
+            assertTrue(result.isSuccess());
+            assertNotNull(result.getResource().getId());
+        }
+        assertEquals(results.get(1).getResource().getId(), id1);
+        assertEquals(results.get(1).getResource().getMeta().getVersionId().getValue(), "1");
+        assertEquals(results.get(2).getResource().getId(), id2);
+        assertEquals(results.get(2).getResource().getMeta().getVersionId().getValue(), "1");
+        assertEquals(results.get(3).getResource().getId(), id1);
+        assertEquals(results.get(3).getResource().getMeta().getVersionId().getValue(), "2");
+
+        // each resource can be read back at its latest version
+        String id0 = results.get(0).getResource().getId();
+        assertEquals(persistence.read(getDefaultPersistenceContext(), Basic.class, id0).getResource().getMeta().getVersionId().getValue(), "1");
+        assertEquals(persistence.read(getDefaultPersistenceContext(), Basic.class, id1).getResource().getMeta().getVersionId().getValue(), "2");
+        assertEquals(persistence.read(getDefaultPersistenceContext(), Basic.class, id2).getResource().getMeta().getVersionId().getValue(), "1");
+
+        FHIRHistoryContext historyContext = FHIRPersistenceContextFactory.createHistoryContext();
+        MultiResourceResult<Basic> history = persistence.history(FHIRPersistenceContextFactory.createPersistenceContext(null, historyContext), Basic.class, id1);
+        assertEquals(history.getResource().size(), 2);
+
+        // a second batch updates the existing resources
+        batch.clear();
+        batch.add(resource.toBuilder().id(id2).build());
+        results = persistence.createOrUpdateBatch(getDefaultPersistenceContext(), batch);
+        assertEquals(results.size(), 1);
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(results.get(0).getResource().getMeta().getVersionId().getValue(), "2");
+        assertEquals(persistence.read(getDefaultPersistenceContext(), Basic.class, id2).getResource().getMeta().getVersionId().getValue(), "2");
+    }
+
+    @Test
+    public void testCreateOrUpdateBatchIssues() throws Exception {
+        // The "all" tenant has a date search parameter on the http://example.org/date extension, which can't
+        // be extracted from a boolean value
+        FHIRRequestContext.get().setTenantId("all");
+        try {
+            Basic resource = TestUtil.readExampleResource("json/ibm/minimal/Basic-1.json");
+            Basic invalid = resource.toBuilder()
+                    .extension(Extension.builder()
+                        .url("http://example.org/date")
+                        .value(com.ibm.fhir.model.type.Boolean.TRUE)
+                        .build())
+                    .build();
+
+            List<Resource> batch = new ArrayList<>();
+            batch.add(invalid);
+            batch.add(resource);
+            batch.add(invalid);
+
+            List<SingleResourceResult<Resource>> results = persistence.createOrUpdateBatch(getDefaultPersistenceContext(), batch);
+            assertEquals(results.size(), 3);
+            for (SingleResourceResult<Resource> result : results) {
+                assertTrue(result.isSuccess());
+            }
+
+            // each resource only gets the issues raised for it
+            assertNotNull(results.get(0).getOutcome());
+            int issueCount = results.get(0).getOutcome().getIssue().size();
+            assertTrue(issueCount > 0);
+            assertNull(results.get(1).getOutcome());
+            assertEquals(results.get(2).getOutcome().getIssue().size(), issueCount);
+        } finally {
+            FHIRRequestContext.get().setTenantId("default");
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2016, 2019, 2020
+ * (C) Copyright IBM Corp. 2016, 2021
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -35,6 +35,7 @@ import com.ibm.fhir.model.type.Meta;
 import com.ibm.fhir.model.type.code.IssueSeverity;
 import com.ibm.fhir.model.type.code.IssueType;
 import com.ibm.fhir.persistence.MultiResourceResult;
+import com.ibm.fhir.persistence.ResourcePayload;
 import com.ibm.fhir.persistence.context.FHIRHistoryContext;
 import com.ibm.fhir.persistence.context.FHIRPersistenceContext;
 import com.ibm.fhir.persistence.context.FHIRPersistenceContextFactory;
@@ -89,6 +90,26 @@ public abstract class AbstractPagingTest extends AbstractPersistenceTest {
         FHIRRequestContext.get().setTenantId("default");
     }
     
+    @Test
+    public void testSearchPayloadsPastLastPage() throws Exception {
+        Map<String, List<String>> queryParameters = new HashMap<>();
+        queryParameters.put("_count", Collections.singletonList("1"));
+        queryParameters.put("_page", Collections.singletonList("1000000"));
+
+        // lenient: the page number is corrected to the last page, whose payloads are returned
+        FHIRSearchContext searchContext = SearchUtil.parseQueryParameters(Basic.class, queryParameters, true);
+        List<ResourcePayload> payloads = persistence.searchPayloads(getPersistenceContextForSearch(searchContext), Basic.class);
+        assertNotNull(payloads);
+        assertEquals(payloads.size(), 1, "expected number of payloads");
+        assertEquals(searchContext.getPageNumber(), searchContext.getLastPageNumber());
+
+        // strict: the page number is invalid, so there are no payloads, but no fallback to search either
+        searchContext = SearchUtil.parseQueryParameters(Basic.class, queryParameters, false);
+        payloads = persistence.searchPayloads(getPersistenceContextForSearch(searchContext), Basic.class);
+        assertNotNull(payloads);
+        assertTrue(payloads.isEmpty());
+    }
+
     // This test assumes sorting is working, as tested in the AbstractSortTest
     @Test
     public void testSearchPaging() throws Exception {
@@ -120,6 +141,59 @@ public abstract class AbstractPagingTest extends AbstractPersistenceTest {
         assertTrue(isResourceInResponse(resource3, results));
     }
     
+    // keyset pages of the default (unsorted) search should match the corresponding offset pages
+    @Test
+    public void testSearchPagingWithCursor() throws Exception {
+        Map<String, List<String>> queryParameters;
+        FHIRSearchContext searchContext;
+        MultiResourceResult<Resource> offsetResult;
+        MultiResourceResult<Resource> cursorResult;
+        String cursor = null;
+        
+        for (int page = 1; page <= 3; page++) {
+            queryParameters = new HashMap<>();
+            queryParameters.put("_tag", Collections.singletonList("pagingTest"));
+            queryParameters.put("_page", Collections.singletonList(java.lang.Integer.toString(page)));
+            searchContext = SearchUtil.parseQueryParameters(Basic.class, queryParameters);
+            offsetResult = runQueryTest(searchContext, Basic.class, queryParameters, 1);
+            
+            if (page > 1) {
+                assertNotNull(cursor);
+                queryParameters.put("_cursor", Collections.singletonList(cursor));
+            }
+            searchContext = SearchUtil.parseQueryParameters(Basic.class, queryParameters);
+            cursorResult = runQueryTest(searchContext, Basic.class, queryParameters, 1);
+            assertEquals(cursorResult.getResource().size(), 1, "expected number of results");
+            assertEquals(cursorResult.getResource().get(0).getId(), offsetResult.getResource().get(0).getId());
+            
+            cursor = searchContext.getNextCursor();
+        }
+        assertTrue(cursor == null, "expected no cursor for the last page");
+    }
+    
+    // without a count, the last page is found by looking one resource ahead
+    @Test
+    public void testSearchPagingWithoutTotal() throws Exception {
+        Map<String, List<String>> queryParameters;
+        FHIRSearchContext searchContext;
+        MultiResourceResult<Resource> result;
+        
+        Basic[] expected = {resource1, resource2, resource3};
+        for (int page = 1; page <= 3; page++) {
+            queryParameters = new HashMap<>();
+            queryParameters.put("_sort", Collections.singletonList("integer"));
+            queryParameters.put("_tag", Collections.singletonList("pagingTest"));
+            queryParameters.put("_total", Collections.singletonList("none"));
+            queryParameters.put("_page", Collections.singletonList(java.lang.Integer.toString(page)));
+            searchContext = SearchUtil.parseQueryParameters(Basic.class, queryParameters);
+            result = runQueryTest(searchContext, Basic.class, queryParameters, 1);
+            assertTrue(result.isSuccess());
+            assertEquals(result.getResource().size(), 1, "expected number of results");
+            assertTrue(isResourceInResponse(expected[page - 1], result.getResource()));
+            assertEquals(searchContext.getLastPageNumber(), page < 3 ? page + 1 : 3, "expected last page number");
+        }
+    }
+    
     // history results should be sorted with oldest versions last
     @Test
     public void testHistoryPaging() throws Exception {
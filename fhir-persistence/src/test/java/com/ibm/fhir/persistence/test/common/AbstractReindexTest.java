@@ -0,0 +1,127 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.test.common;
+
+import static com.ibm.fhir.model.type.String.string;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.config.FHIRRequestContext;
+import com.ibm.fhir.model.resource.Basic;
+import com.ibm.fhir.model.resource.OperationOutcome;
+import com.ibm.fhir.model.test.TestUtil;
+import com.ibm.fhir.model.type.Extension;
+import com.ibm.fhir.persistence.ReindexCheckpoint;
+
+/**
+ * Tests for the range reindex method in FHIRPersistence.
+ */
+public abstract class AbstractReindexTest extends AbstractPersistenceTest {
+    /**
+     * Delete the search parameter values stored for the given resource
+     */
+    protected abstract void deleteSearchParameterValues(String resourceType, String logicalId) throws Exception;
+
+    /**
+     * Count the search parameter values stored for the given resource
+     */
+    protected abstract int countSearchParameterValues(String resourceType, String logicalId) throws Exception;
+
+    @Test
+    public void testRangeReindex() throws Exception {
+        FHIRRequestContext.get().setTenantId("all");
+        try {
+            // the string extension gives the resources a parameter value to rebuild
+            Basic resource = TestUtil.readExampleResource("json/ibm/minimal/Basic-1.json");
+            resource = resource.toBuilder()
+                    .extension(Extension.builder().url("http://example.org/string").value(string("reindex")).build())
+                    .build();
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                ids.add(persistence.create(getDefaultPersistenceContext(), resource).getResource().getId());
+            }
+
+            // walk the whole range in small batches, each continuing from the previous checkpoint
+            Instant tstamp = Instant.now();
+            long cursor = 0;
+            int total = 0;
+            ReindexCheckpoint checkpoint;
+            do {
+                checkpoint = persistence.reindex(getDefaultPersistenceContext(), OperationOutcome.builder(), tstamp, "Basic", cursor, null, 2, null);
+                assertTrue(checkpoint.getResourceCount() <= 2);
+                if (checkpoint.getResourceCount() > 0) {
+                    assertTrue(checkpoint.getLastLogicalResourceId() > cursor);
+                } else {
+                    assertEquals(checkpoint.getLastLogicalResourceId(), cursor);
+                }
+                assertTrue(checkpoint.getMaxLogicalResourceId() >= checkpoint.getLastLogicalResourceId());
+                cursor = checkpoint.getLastLogicalResourceId();
+                total += checkpoint.getResourceCount();
+            } while (checkpoint.getResourceCount() > 0);
+            assertTrue(total >= 3);
+
+            // reindexing changes only the parameters, not the resources
+            for (String id : ids) {
+                assertEquals(persistence.read(getDefaultPersistenceContext(), Basic.class, id).getResource().getMeta().getVersionId().getValue(), "1");
+            }
+
+            // the parameter values of every resource in the range are rebuilt
+            int expected = countSearchParameterValues("Basic", ids.get(0));
+            assertTrue(expected > 0);
+            deleteSearchParameterValues("Basic", ids.get(0));
+            assertEquals(countSearchParameterValues("Basic", ids.get(0)), 0);
+            tstamp = Instant.now();
+            cursor = 0;
+            do {
+                checkpoint = persistence.reindex(getDefaultPersistenceContext(), OperationOutcome.builder(), tstamp, "Basic", cursor, null, 2, null);
+                cursor = checkpoint.getLastLogicalResourceId();
+            } while (checkpoint.getResourceCount() > 0);
+            assertEquals(countSearchParameterValues("Basic", ids.get(0)), expected);
+
+            // everything in the range has been reindexed for this tstamp
+            checkpoint = persistence.reindex(getDefaultPersistenceContext(), OperationOutcome.builder(), tstamp, "Basic", 0, null, 2, null);
+            assertEquals(checkpoint.getResourceCount(), 0);
+            assertEquals(checkpoint.getLastLogicalResourceId(), 0);
+        } finally {
+            FHIRRequestContext.get().setTenantId("default");
+        }
+    }
+
+    @Test
+    public void testSelectiveRangeReindex() throws Exception {
+        Basic resource = TestUtil.readExampleResource("json/ibm/minimal/Basic-1.json");
+        String id = persistence.create(getDefaultPersistenceContext(), resource).getResource().getId();
+
+        // only the values of the selected search parameter are replaced, but every resource in the range is claimed
+        Set<String> searchParameters = Collections.singleton("http://hl7.org/fhir/SearchParameter/Basic-code");
+        Instant tstamp = Instant.now();
+        long cursor = 0;
+        int total = 0;
+        ReindexCheckpoint checkpoint;
+        do {
+            checkpoint = persistence.reindex(getDefaultPersistenceContext(), OperationOutcome.builder(), tstamp, "Basic", cursor, null, 10, searchParameters);
+            cursor = checkpoint.getLastLogicalResourceId();
+            total += checkpoint.getResourceCount();
+        } while (checkpoint.getResourceCount() > 0);
+        assertTrue(total >= 1);
+        assertEquals(persistence.read(getDefaultPersistenceContext(), Basic.class, id).getResource().getMeta().getVersionId().getValue(), "1");
+
+        // a search parameter which applies to none of the resources still completes the range
+        tstamp = Instant.now();
+        checkpoint = persistence.reindex(getDefaultPersistenceContext(), OperationOutcome.builder(), tstamp, null, 0, null, 1000,
+            Collections.singleton("no-such-parameter"));
+        assertTrue(checkpoint.getResourceCount() >= 1);
+    }
+}
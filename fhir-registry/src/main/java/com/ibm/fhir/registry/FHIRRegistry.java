@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2019, 2020
+ * (C) Copyright IBM Corp. 2019, 2021
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -20,6 +20,7 @@ import java.util.Objects;
 import java.util.ServiceLoader;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -41,6 +42,7 @@ public final class FHIRRegistry {
     private static final FHIRRegistry INSTANCE = new FHIRRegistry();
 
     private final List<FHIRRegistryResourceProvider> providers;
+    private final AtomicLong version = new AtomicLong();
 
     private FHIRRegistry() {
         providers = new CopyOnWriteArrayList<>(loadProviders());
@@ -71,6 +73,28 @@ public final class FHIRRegistry {
     public void register(FHIRRegistryResourceProvider provider) {
         Objects.requireNonNull(provider);
         providers.add(provider);
+        version.incrementAndGet();
+    }
+
+    /**
+     * Notify the registry that resources available through one of its providers were added, changed or removed
+     *
+     * <p>This increments the version of the registry, so that consumers which cache results derived from
+     * registry resources can detect that those results may be stale
+     */
+    public void resourcesChanged() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Get the version of the registry, which changes whenever a provider is added or {@link #resourcesChanged()}
+     * is called
+     *
+     * @return
+     *     the version of the registry
+     */
+    public long getVersion() {
+        return version.get();
     }
 
     /**
@@ -10,6 +10,7 @@ import java.util.List;
 
 import com.ibm.fhir.core.context.FHIRPagingContext;
 import com.ibm.fhir.search.SummaryValueSet;
+import com.ibm.fhir.search.TotalValueSet;
 import com.ibm.fhir.search.parameters.InclusionParameter;
 import com.ibm.fhir.search.parameters.QueryParameter;
 import com.ibm.fhir.search.parameters.SortParameter;
@@ -83,4 +84,42 @@ public interface FHIRSearchContext extends FHIRPagingContext {
      * Set the value of the summary parameter.
      */
     void setSummaryParameter(SummaryValueSet summary);
+
+    /**
+     * Get the total parameter, which tells the persistence layer whether the total number of matching resources
+     * must be counted (accurate, the default), may be estimated (estimate) or may be skipped (none).
+     *
+     * @return the value of the total parameter, or null if the request has no total parameter
+     */
+    TotalValueSet getTotalParameter();
+
+    /**
+     * Set the value of the total parameter.
+     */
+    void setTotalParameter(TotalValueSet total);
+
+    /**
+     * Get the cursor (_cursor) which marks the position after the last resource of the previous page; the
+     * persistence layer can use it to seek directly to the requested page instead of skipping the preceding rows.
+     *
+     * @return the opaque cursor value, or null if the request has no cursor
+     */
+    String getCursor();
+
+    /**
+     * @param cursor the opaque cursor value
+     */
+    void setCursor(String cursor);
+
+    /**
+     * Get the cursor for the next page, as set by the persistence layer.
+     *
+     * @return the opaque cursor value for the next page, or null if the next page can't be requested with a cursor
+     */
+    String getNextCursor();
+
+    /**
+     * @param nextCursor the opaque cursor value for the next page
+     */
+    void setNextCursor(String nextCursor);
 }
@@ -9,7 +9,11 @@ package com.ibm.fhir.search.parameters.cache;
 import java.io.File;
 import java.io.FileReader;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -19,6 +23,11 @@ import com.ibm.fhir.exception.FHIROperationException;
 import com.ibm.fhir.model.format.Format;
 import com.ibm.fhir.model.parser.FHIRParser;
 import com.ibm.fhir.model.resource.Bundle;
+import com.ibm.fhir.model.resource.SearchParameter;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator;
+import com.ibm.fhir.path.evaluator.FHIRPathExpression;
+import com.ibm.fhir.path.evaluator.FHIRPathExpressionGroup;
+import com.ibm.fhir.path.exception.FHIRPathException;
 import com.ibm.fhir.search.parameters.ParametersMap;
 import com.ibm.fhir.search.parameters.ParametersUtil;
 
@@ -29,6 +38,9 @@ import com.ibm.fhir.search.parameters.ParametersUtil;
  * Note: While we support json format only, to enable XML, it's best to create a new cache specific to XML. This change
  * should change one line in this class, and be instantiated in the SearchUtil, and embedded in the call to Parameters.
  * Alternatively, one could, upon not finding the JSON file, load the XML file.
+ *
+ * In addition, this class caches the compiled extraction expressions of the search parameters that apply to each
+ * resource type, organized by tenantId and resource type. See {@link #getExpressionGroup(String, String, List)}.
  */
 public class TenantSpecificSearchParameterCache extends TenantSpecificFileBasedCache<Map<String, ParametersMap>> {
 
@@ -43,10 +55,75 @@ public class TenantSpecificSearchParameterCache extends TenantSpecificFileBasedC
 
     private static final String LOG_FILE_LOAD = "The file loaded is [%s]";
 
+    // tenantId -> resourceType -> compiled extraction expressions
+    private final Map<String, Map<String, ExpressionGroupHolder>> expressionGroupCache = new ConcurrentHashMap<>();
+
     public TenantSpecificSearchParameterCache() {
         super(CACHE_NAME);
     }
 
+    @Override
+    public void clearCache() {
+        super.clearCache();
+        expressionGroupCache.clear();
+    }
+
+    /**
+     * Get the group of compiled expressions used to extract the values of the passed search parameters from resources
+     * of the passed resource type. The group is built on first use and rebuilt when the applicable search parameters
+     * of the tenant change (e.g. after the tenant configuration or extension search parameters are reloaded).
+     *
+     * Search parameters without an expression, or with an expression that fails to compile, are not part of the group.
+     *
+     * @param tenantId
+     *     the tenant id
+     * @param resourceType
+     *     the resource type
+     * @param parameters
+     *     the search parameters applicable to the resource type for the tenant
+     * @return the expression group keyed by search parameter
+     */
+    public FHIRPathExpressionGroup<SearchParameter> getExpressionGroup(String tenantId, String resourceType, List<SearchParameter> parameters) {
+        Map<String, ExpressionGroupHolder> tenantGroups = expressionGroupCache.computeIfAbsent(tenantId, k -> new ConcurrentHashMap<>());
+        ExpressionGroupHolder holder = tenantGroups.get(resourceType);
+        if (holder == null || !holder.parameters.equals(parameters)) {
+            holder = new ExpressionGroupHolder(parameters, createExpressionGroup(parameters));
+            tenantGroups.put(resourceType, holder);
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Compiled search parameter expressions for tenant-id '" + tenantId + "' and resource type '" + resourceType + "'");
+            }
+        }
+        return holder.group;
+    }
+
+    private FHIRPathExpressionGroup<SearchParameter> createExpressionGroup(List<SearchParameter> parameters) {
+        Map<SearchParameter, FHIRPathExpression> expressions = new LinkedHashMap<>();
+        for (SearchParameter parameter : parameters) {
+            if (parameter.getExpression() == null) {
+                continue;
+            }
+            try {
+                expressions.put(parameter, FHIRPathEvaluator.compile(parameter.getExpression().getValue()));
+            } catch (FHIRPathException e) {
+                // reported when the expression is evaluated
+                if (log.isLoggable(Level.FINE)) {
+                    log.fine("Unable to compile expression for search parameter '" + parameter.getCode().getValue() + "': " + e.getMessage());
+                }
+            }
+        }
+        return new FHIRPathExpressionGroup<>(expressions);
+    }
+
+    private static class ExpressionGroupHolder {
+        private final List<SearchParameter> parameters;
+        private final FHIRPathExpressionGroup<SearchParameter> group;
+
+        private ExpressionGroupHolder(List<SearchParameter> parameters, FHIRPathExpressionGroup<SearchParameter> group) {
+            this.parameters = new ArrayList<>(parameters);
+            this.group = group;
+        }
+    }
+
     @Override
     public String getCacheEntryFilename(String tenantId) {
         return FHIRConfiguration.getConfigHome() + FHIRConfiguration.CONFIG_LOCATION + File.separator + tenantId + File.separator + SP_FILE_BASENAME_JSON;
@@ -48,14 +48,17 @@ import com.ibm.fhir.model.type.code.SearchParamType;
 import com.ibm.fhir.model.util.JsonSupport;
 import com.ibm.fhir.model.util.ModelSupport;
 import com.ibm.fhir.path.FHIRPathNode;
+import com.ibm.fhir.path.FHIRPathTree;
 import com.ibm.fhir.path.evaluator.FHIRPathEvaluator;
 import com.ibm.fhir.path.evaluator.FHIRPathEvaluator.EvaluationContext;
+import com.ibm.fhir.path.evaluator.FHIRPathExpressionGroup;
 import com.ibm.fhir.path.exception.FHIRPathException;
 import com.ibm.fhir.search.SearchConstants;
 import com.ibm.fhir.search.SearchConstants.Modifier;
 import com.ibm.fhir.search.SearchConstants.Prefix;
 import com.ibm.fhir.search.SearchConstants.Type;
 import com.ibm.fhir.search.SummaryValueSet;
+import com.ibm.fhir.search.TotalValueSet;
 import com.ibm.fhir.search.compartment.CompartmentUtil;
 import com.ibm.fhir.search.context.FHIRSearchContext;
 import com.ibm.fhir.search.context.FHIRSearchContextFactory;
@@ -656,6 +659,9 @@ public class SearchUtil {
     /**
      * extract parameter values.
      *
+     * The expressions of the applicable search parameters are compiled into a single path-prefix plan per tenant and
+     * resource type, so that the paths shared by several search parameters are only navigated once.
+     *
      * @param resource
      * @param skipEmpty
      * @return
@@ -667,13 +673,19 @@ public class SearchUtil {
         Map<SearchParameter, List<FHIRPathNode>> result = new LinkedHashMap<>();
 
         // Get the Parameters for the class.
-        Class<?> resourceType = resource.getClass();
+        String resourceType = resource.getClass().getSimpleName();
 
-        // Create one time.
+        // Create one time. The tree is created lazily because most expressions only navigate a few paths.
         FHIRPathEvaluator evaluator = FHIRPathEvaluator.evaluator();
-        EvaluationContext evaluationContext = new EvaluationContext(resource);
+        EvaluationContext evaluationContext = new EvaluationContext(FHIRPathTree.lazyTree(resource));
+
+        List<SearchParameter> parameters = getApplicableSearchParameters(resourceType);
 
-        List<SearchParameter> parameters = getApplicableSearchParameters(resourceType.getSimpleName());
+        // Navigate the paths of all the compiled expressions in one pass
+        String tenantId = FHIRRequestContext.get().getTenantId();
+        FHIRPathExpressionGroup<SearchParameter> expressionGroup =
+                searchParameterCache.getExpressionGroup(tenantId, resourceType, parameters);
+        FHIRPathExpressionGroup<SearchParameter>.Evaluation evaluation = expressionGroup.evaluate(evaluationContext);
 
         for (SearchParameter parameter : parameters) {
 
@@ -697,7 +709,8 @@ public class SearchUtil {
                 continue;
             }
             try {
-                Collection<FHIRPathNode> tmpResults = evaluator.evaluate(evaluationContext, expression.getValue());
+                Collection<FHIRPathNode> tmpResults = (expressionGroup.getExpression(parameter) != null) ?
+                        evaluation.getResult(parameter) : evaluator.evaluate(evaluationContext, expression.getValue());
 
                 if (log.isLoggable(Level.FINEST)) {
                     log.finest("Expression [" + expression.getValue() + "] parameter-code ["
@@ -719,6 +732,48 @@ public class SearchUtil {
         return result;
     }
 
+    /**
+     * Extract the values of only the given search parameters, which must be applicable to the resource type of the
+     * passed resource. This is used to reindex a subset of the search parameters, so only those expressions are
+     * evaluated, and the compiled expression group of the resource type (which covers all of its search parameters)
+     * is not used.
+     *
+     * @param resource
+     * @param skipEmpty
+     * @param parameters the search parameters to extract, for example from
+     *     {@link #getApplicableSearchParameters(String, Collection)}
+     * @return
+     * @throws Exception
+     */
+    public static Map<SearchParameter, List<FHIRPathNode>> extractParameterValues(Resource resource, boolean skipEmpty,
+            List<SearchParameter> parameters) throws Exception {
+        Map<SearchParameter, List<FHIRPathNode>> result = new LinkedHashMap<>();
+
+        FHIRPathEvaluator evaluator = FHIRPathEvaluator.evaluator();
+        EvaluationContext evaluationContext = new EvaluationContext(FHIRPathTree.lazyTree(resource));
+
+        for (SearchParameter parameter : parameters) {
+            com.ibm.fhir.model.type.String expression = parameter.getExpression();
+            if (expression == null) {
+                if (log.isLoggable(Level.FINER)) {
+                    log.finer(String.format(UNSUPPORTED_EXPR_NULL, parameter.getType(), parameter.getCode().getValue()));
+                }
+                continue;
+            }
+            try {
+                Collection<FHIRPathNode> tmpResults = evaluator.evaluate(evaluationContext, expression.getValue());
+                if (!tmpResults.isEmpty() || !skipEmpty) {
+                    result.put(parameter, new ArrayList<>(tmpResults));
+                }
+            } catch (java.lang.UnsupportedOperationException | FHIRPathException uoe) {
+                log.warning(String.format(UNSUPPORTED_EXCEPTION, parameter.getCode().getValue(),
+                        expression.getValue(), uoe.getMessage()));
+            }
+        }
+
+        return result;
+    }
+
     public static FHIRSearchContext parseQueryParameters(Class<?> resourceType,
             Map<String, List<String>> queryParameters)
             throws Exception {
@@ -1383,6 +1438,56 @@ public class SearchUtil {
         return result;
     }
 
+    /**
+     * Returns the search parameters applicable to the specified resource type which are selected by the passed
+     * codes or canonical URLs. A URL selects the search parameter with that url, or with that url and version when
+     * it is passed as url|version.
+     *
+     * @param resourceType
+     * @param codesOrUrls
+     * @return the selected search parameters, which is empty if none of them applies to the resource type
+     * @throws Exception
+     */
+    public static List<SearchParameter> getApplicableSearchParameters(String resourceType, Collection<String> codesOrUrls) throws Exception {
+        List<SearchParameter> result = new ArrayList<>();
+        for (SearchParameter parameter : getApplicableSearchParameters(resourceType)) {
+            if (isSelected(parameter, codesOrUrls)) {
+                result.add(parameter);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns those of the passed codes or canonical URLs which select no search parameter applicable to any of the
+     * passed resource types, as described in {@link #getApplicableSearchParameters(String, Collection)}.
+     *
+     * @param resourceTypes
+     * @param codesOrUrls
+     * @return the codes or URLs which select no search parameter, in the order they were passed
+     * @throws Exception
+     */
+    public static Set<String> getUnknownSearchParameters(Collection<String> resourceTypes, Collection<String> codesOrUrls) throws Exception {
+        Set<String> result = new LinkedHashSet<>(codesOrUrls);
+        for (String resourceType : resourceTypes) {
+            if (result.isEmpty()) {
+                break;
+            }
+            for (SearchParameter parameter : getApplicableSearchParameters(resourceType)) {
+                result.removeIf(codeOrUrl -> isSelected(parameter, Collections.singleton(codeOrUrl)));
+            }
+        }
+        return result;
+    }
+
+    private static boolean isSelected(SearchParameter parameter, Collection<String> codesOrUrls) {
+        String url = (parameter.getUrl() != null) ? parameter.getUrl().getValue() : null;
+        String version = (parameter.getVersion() != null) ? parameter.getVersion().getValue() : null;
+        return codesOrUrls.contains(parameter.getCode().getValue())
+                || (url != null && codesOrUrls.contains(url))
+                || (url != null && version != null && codesOrUrls.contains(url + "|" + version));
+    }
+
     /**
      * Parse query parameters for read and vread.
      * @param resourceType the resource type
@@ -1536,6 +1641,9 @@ public class SearchUtil {
             } else if (SearchConstants.PAGE.equals(name)) {
                 int pageNumber = Integer.parseInt(first);
                 context.setPageNumber(pageNumber);
+            } else if (SearchConstants.CURSOR.equals(name) && first != null) {
+                // the cursor is opaque; it is interpreted (and validated) by the persistence layer
+                context.setCursor(first);
             } else if (SearchConstants.SORT.equals(name) && first != null) {
                 // in R4, we only look for _sort
                 // Only first value is used, which matches behavior of other parameters that are supposed to be specified at most once
@@ -1547,6 +1655,8 @@ public class SearchUtil {
                 parseElementsParameter(resourceType, context, first, lenient);
             } else if (SearchConstants.SUMMARY.equals(name) && first != null) {
                 context.setSummaryParameter(SummaryValueSet.from(first));
+            } else if (SearchConstants.TOTAL.equals(name) && first != null) {
+                context.setTotalParameter(TotalValueSet.from(first));
             }
         } catch (FHIRSearchException se) {
             throw se;
@@ -2373,7 +2483,7 @@ public class SearchUtil {
         final String baseUrl = ReferenceUtil.getBaseUrl(null);
 
         try {
-            EvaluationContext resourceContext = new FHIRPathEvaluator.EvaluationContext(fhirResource);
+            EvaluationContext resourceContext = new FHIRPathEvaluator.EvaluationContext(FHIRPathTree.lazyTree(fhirResource));
 
             // Extract any references we find matching parameters representing compartment membership.
             // For example CareTeam.participant can be used to refer to a Patient or RelatedPerson resource:
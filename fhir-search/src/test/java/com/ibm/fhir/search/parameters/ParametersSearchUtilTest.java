@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2019, 2020
+ * (C) Copyright IBM Corp. 2019, 2021
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -11,6 +11,8 @@ import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertTrue;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -153,4 +155,18 @@ public class ParametersSearchUtilTest extends BaseSearchTest {
         printSearchParameters("testGetSearchParameters6/Device", result);
         assertEquals(18, result.size());
     }
+
+    @Test
+    public void testGetUnknownSearchParameters() throws Exception {
+        // Codes and URLs of tenant-specific Patient search parameters (default tenant).
+        FHIRRequestContext.set(new FHIRRequestContext("default"));
+
+        Set<String> result = SearchUtil.getUnknownSearchParameters(Arrays.asList("Observation", "Patient"),
+                Arrays.asList("favorite-color", "http://ibm.com/fhir/SearchParameter/Patient-favorite-number", "favorite-colour"));
+        assertEquals(Collections.singleton("favorite-colour"), result);
+
+        // the search parameters exist, but not for the passed resource types
+        result = SearchUtil.getUnknownSearchParameters(Arrays.asList("Observation"), Arrays.asList("favorite-color"));
+        assertEquals(Collections.singleton("favorite-color"), result);
+    }
 }
@@ -30,6 +30,7 @@ import com.ibm.fhir.server.resources.Search;
 import com.ibm.fhir.server.resources.Update;
 import com.ibm.fhir.server.resources.VRead;
 import com.ibm.fhir.server.resources.WellKnown;
+import com.ibm.fhir.server.util.SearchPayloadBundleProvider;
 
 public class FHIRApplication extends Application {
     private static final Logger log = Logger.getLogger(FHIRApplication.class.getName());
@@ -82,6 +83,7 @@ public class FHIRApplication extends Application {
                 singletons.add(new FHIRProvider(RuntimeType.SERVER));
                 singletons.add(new FHIRJsonProvider(RuntimeType.SERVER));
                 singletons.add(new FHIRJsonPatchProvider(RuntimeType.SERVER));
+                singletons.add(new SearchPayloadBundleProvider());
             }
             return singletons;
         } finally {
@@ -8,6 +8,8 @@ package com.ibm.fhir.server.listener;
 
 import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_CHECK_REFERENCE_TYPES;
 import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_EXTENDED_CODEABLE_CONCEPT_VALIDATION;
+import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_JDBC_SEARCH_CONVERSION_PARALLELISM;
+import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_JDBC_SEARCH_CONVERSION_THRESHOLD;
 import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_KAFKA_CONNECTIONPROPS;
 import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_KAFKA_ENABLED;
 import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_KAFKA_TOPICNAME;
@@ -22,8 +24,12 @@ import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_NATS_TLS_ENABLED;
 import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_NATS_TRUSTSTORE;
 import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_NATS_TRUSTSTORE_PW;
 import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_SERVER_REGISTRY_RESOURCE_PROVIDER_ENABLED;
+import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_TERM_CONCEPT_STORE_DIRECTORY;
+import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_VALIDATION_CACHE_SIZE;
+import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_VALIDATION_PARALLELISM;
 import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_WEBSOCKET_ENABLED;
 
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Properties;
 import java.util.logging.Level;
@@ -36,22 +42,31 @@ import javax.websocket.server.ServerContainer;
 
 import org.owasp.encoder.Encode;
 
+import com.ibm.fhir.audit.AuditLogServiceFactory;
 import com.ibm.fhir.config.FHIRConfiguration;
+import com.ibm.fhir.config.FHIRRequestContext;
 import com.ibm.fhir.config.PropertyGroup;
 import com.ibm.fhir.config.PropertyGroup.PropertyEntry;
 import com.ibm.fhir.model.config.FHIRModelConfig;
 import com.ibm.fhir.model.lang.util.LanguageRegistryUtil;
 import com.ibm.fhir.model.util.FHIRUtil;
+import com.ibm.fhir.notification.FHIRNotificationService;
 import com.ibm.fhir.notification.websocket.impl.FHIRNotificationServiceEndpointConfig;
 import com.ibm.fhir.notifications.kafka.impl.FHIRNotificationKafkaPublisher;
 import com.ibm.fhir.notifications.nats.impl.FHIRNotificationNATSPublisher;
 import com.ibm.fhir.persistence.helper.FHIRPersistenceHelper;
 import com.ibm.fhir.persistence.interceptor.impl.FHIRPersistenceInterceptorMgr;
+import com.ibm.fhir.persistence.jdbc.util.ParallelResourceConverter;
 import com.ibm.fhir.registry.FHIRRegistry;
 import com.ibm.fhir.search.util.SearchUtil;
 import com.ibm.fhir.server.operation.FHIROperationRegistry;
 import com.ibm.fhir.server.registry.ServerRegistryResourceProvider;
 import com.ibm.fhir.server.util.FHIROperationUtil;
+import com.ibm.fhir.server.util.ValidationPool;
+import com.ibm.fhir.term.service.FHIRTermService;
+import com.ibm.fhir.term.service.provider.ConceptStoreTermServiceProvider;
+import com.ibm.fhir.term.util.ValueSetSupport;
+import com.ibm.fhir.validation.cache.ValidationResultCache;
 
 @WebListener("IBM FHIR Server Servlet Context Listener")
 public class FHIRServletContextListener implements ServletContextListener {
@@ -65,6 +80,7 @@ public class FHIRServletContextListener implements ServletContextListener {
     public static final String FHIR_SERVER_INIT_COMPLETE = "com.ibm.fhir.webappInitComplete";
     private static FHIRNotificationKafkaPublisher kafkaPublisher = null;
     private static FHIRNotificationNATSPublisher natsPublisher = null;
+    private static boolean notificationsEnabled = false;
 
     @Override
     public void contextInitialized(ServletContextEvent event) {
@@ -112,6 +128,7 @@ public class FHIRServletContextListener implements ServletContextListener {
             // If websocket notifications are enabled, then initialize the endpoint.
             Boolean websocketEnabled = fhirConfig.getBooleanProperty(PROPERTY_WEBSOCKET_ENABLED, Boolean.FALSE);
             if (websocketEnabled) {
+                notificationsEnabled = true;
                 log.info("Initializing WebSocket notification publisher.");
                 ServerContainer container = (ServerContainer) event.getServletContext().getAttribute(ATTRNAME_WEBSOCKET_SERVERCONTAINER);
                 container.addEndpoint(new FHIRNotificationServiceEndpointConfig());
@@ -138,6 +155,7 @@ public class FHIRServletContextListener implements ServletContextListener {
                 }
 
                 log.info("Initializing Kafka notification publisher.");
+                notificationsEnabled = true;
                 kafkaPublisher = new FHIRNotificationKafkaPublisher(topicName, kafkaProps);
             } else {
                 log.info("Bypassing Kafka notification init.");
@@ -164,6 +182,7 @@ public class FHIRServletContextListener implements ServletContextListener {
                 tlsProps.setProperty("keystorePass", fhirConfig.getStringProperty(PROPERTY_NATS_KEYSTORE_PW));
 
                 log.info("Initializing NATS notification publisher.");
+                notificationsEnabled = true;
                 natsPublisher = new FHIRNotificationNATSPublisher(clusterId, channelName, clientId, servers, tlsProps);
             } else {
                 log.info("Bypassing NATS notification init.");
@@ -175,9 +194,26 @@ public class FHIRServletContextListener implements ServletContextListener {
             Boolean extendedCodeableConceptValidation = fhirConfig.getBooleanProperty(PROPERTY_EXTENDED_CODEABLE_CONCEPT_VALIDATION, Boolean.TRUE);
             FHIRModelConfig.setExtendedCodeableConceptValidation(extendedCodeableConceptValidation);
 
+            Integer validationParallelism = fhirConfig.getIntProperty(PROPERTY_VALIDATION_PARALLELISM, ValidationPool.DEFAULT_PARALLELISM);
+            ValidationPool.configure(validationParallelism);
+
+            Integer validationCacheSize = fhirConfig.getIntProperty(PROPERTY_VALIDATION_CACHE_SIZE, ValidationResultCache.DEFAULT_MAX_ENTRIES);
+            ValidationResultCache.configure(validationCacheSize);
+
+            // the search conversion pool is shared by all requests, so it is configured once rather than per persistence instance
+            ParallelResourceConverter.configure(
+                fhirConfig.getIntProperty(PROPERTY_JDBC_SEARCH_CONVERSION_PARALLELISM, ParallelResourceConverter.DEFAULT_PARALLELISM),
+                fhirConfig.getIntProperty(PROPERTY_JDBC_SEARCH_CONVERSION_THRESHOLD, ParallelResourceConverter.DEFAULT_THRESHOLD));
+
             log.fine("Initializing FHIRRegistry...");
             FHIRRegistry.getInstance();
 
+            // registry resources may be tenant-specific, so cached value set expansions are scoped to the tenant and datastore
+            ValueSetSupport.setCacheScope(() -> {
+                FHIRRequestContext requestContext = FHIRRequestContext.get();
+                return requestContext.getTenantId() + ":" + requestContext.getDataStoreId();
+            });
+
             Boolean serverRegistryResourceProviderEnabled = fhirConfig.getBooleanProperty(PROPERTY_SERVER_REGISTRY_RESOURCE_PROVIDER_ENABLED, Boolean.FALSE);
             if (serverRegistryResourceProviderEnabled) {
                 log.info("Registering ServerRegistryResourceProvider...");
@@ -186,6 +222,12 @@ public class FHIRServletContextListener implements ServletContextListener {
                 FHIRPersistenceInterceptorMgr.getInstance().addInterceptor(provider);
             }
 
+            String conceptStoreDirectory = fhirConfig.getStringProperty(PROPERTY_TERM_CONCEPT_STORE_DIRECTORY);
+            if (conceptStoreDirectory != null) {
+                log.info("Registering ConceptStoreTermServiceProvider for directory: " + conceptStoreDirectory);
+                FHIRTermService.getInstance().register(new ConceptStoreTermServiceProvider(Paths.get(conceptStoreDirectory)));
+            }
+
             // Finally, set our "initComplete" flag to true.
             event.getServletContext().setAttribute(FHIR_SERVER_INIT_COMPLETE, Boolean.TRUE);
         } catch(Throwable t) {
@@ -208,6 +250,12 @@ public class FHIRServletContextListener implements ServletContextListener {
             // Set our "initComplete" flag back to false.
             event.getServletContext().setAttribute(FHIR_SERVER_INIT_COMPLETE, Boolean.FALSE);
 
+            // Deliver the notification events which are still buffered, before the publishers are shut down.
+            if (notificationsEnabled) {
+                FHIRNotificationService.getInstance().shutdown();
+                notificationsEnabled = false;
+            }
+
             // If we previously initialized the Kafka publisher, then shut it down now.
             if (kafkaPublisher != null) {
                 kafkaPublisher.shutdown();
@@ -219,6 +267,12 @@ public class FHIRServletContextListener implements ServletContextListener {
                 natsPublisher.shutdown();
                 natsPublisher = null;
             }
+
+            // Publish any audit events which are still buffered by the audit log service.
+            AuditLogServiceFactory.stopService();
+
+            // Stop the worker threads of the validation pool.
+            ValidationPool.shutdown();
         } catch (Exception e) {
             // Ignore it
         } finally {
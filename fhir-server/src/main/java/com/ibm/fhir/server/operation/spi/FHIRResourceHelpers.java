@@ -8,6 +8,7 @@ package com.ibm.fhir.server.operation.spi;
 
 import java.time.Instant;
 import java.util.Map;
+import java.util.Set;
 
 import javax.ws.rs.core.MultivaluedMap;
 
@@ -16,6 +17,7 @@ import com.ibm.fhir.model.resource.Bundle;
 import com.ibm.fhir.model.resource.OperationOutcome;
 import com.ibm.fhir.model.resource.Resource;
 import com.ibm.fhir.persistence.FHIRPersistenceTransaction;
+import com.ibm.fhir.persistence.ReindexCheckpoint;
 
 /**
  * This interface describes the set of helper methods from the FHIR REST layer that are used by custom operation
@@ -282,4 +284,35 @@ public interface FHIRResourceHelpers {
      * @throws Exception
      */
     public int doReindex(FHIROperationContext operationContext, OperationOutcome.Builder operationOutcomeResult, Instant tstamp, String resourceLogicalId) throws Exception;
+
+    /**
+     * Invoke the FHIR persistence reindex operation for the given search parameters of a randomly chosen
+     * resource which was last reindexed before the given date
+     * @param operationContext
+     * @param operationOutcomeResult
+     * @param tstamp
+     * @param resourceLogicalId a reference to a resource e.g. "Patient/abc123". Can be null
+     * @param searchParameters the codes or canonical URLs of the search parameters to reindex. Can be null to reindex all of them
+     * @return number of resources reindexed (0 if no resources were found to reindex)
+     * @throws Exception
+     */
+    public int doReindex(FHIROperationContext operationContext, OperationOutcome.Builder operationOutcomeResult, Instant tstamp, String resourceLogicalId,
+        Set<String> searchParameters) throws Exception;
+
+    /**
+     * Invoke the FHIR persistence reindex operation for a batch of resources from the given range of
+     * logical resource ids which were last reindexed before the given date
+     * @param operationContext
+     * @param operationOutcomeResult
+     * @param tstamp
+     * @param resourceType the resource type to limit the reindex to. Can be null
+     * @param afterLogicalResourceId reindex resources with a logical resource id greater than this
+     * @param toLogicalResourceId reindex resources with a logical resource id less than or equal to this. Can be null
+     * @param resourceCount the max number of resources to reindex
+     * @param searchParameters the codes or canonical URLs of the search parameters to reindex. Can be null to reindex all of them
+     * @return the checkpoint from which the next call continues the range
+     * @throws Exception
+     */
+    public ReindexCheckpoint doReindex(FHIROperationContext operationContext, OperationOutcome.Builder operationOutcomeResult, Instant tstamp,
+        String resourceType, long afterLogicalResourceId, Long toLogicalResourceId, int resourceCount, Set<String> searchParameters) throws Exception;
 }
\ No newline at end of file
@@ -28,8 +28,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -82,7 +86,9 @@ import com.ibm.fhir.path.evaluator.FHIRPathEvaluator.EvaluationContext;
 import com.ibm.fhir.path.patch.FHIRPathPatch;
 import com.ibm.fhir.persistence.FHIRPersistence;
 import com.ibm.fhir.persistence.FHIRPersistenceTransaction;
+import com.ibm.fhir.persistence.ReindexCheckpoint;
 import com.ibm.fhir.persistence.ResourceChangeLogRecord;
+import com.ibm.fhir.persistence.ResourcePayload;
 import com.ibm.fhir.persistence.SingleResourceResult;
 import com.ibm.fhir.persistence.context.FHIRHistoryContext;
 import com.ibm.fhir.persistence.context.FHIRPersistenceContext;
@@ -100,6 +106,7 @@ import com.ibm.fhir.profile.ProfileSupport;
 import com.ibm.fhir.provider.util.FHIRUrlParser;
 import com.ibm.fhir.search.SearchConstants;
 import com.ibm.fhir.search.SummaryValueSet;
+import com.ibm.fhir.search.TotalValueSet;
 import com.ibm.fhir.search.context.FHIRSearchContext;
 import com.ibm.fhir.search.exception.FHIRSearchException;
 import com.ibm.fhir.search.parameters.QueryParameter;
@@ -115,6 +122,7 @@ import com.ibm.fhir.server.operation.spi.FHIROperationContext;
 import com.ibm.fhir.server.operation.spi.FHIRResourceHelpers;
 import com.ibm.fhir.server.operation.spi.FHIRRestOperationResponse;
 import com.ibm.fhir.validation.FHIRValidator;
+import com.ibm.fhir.validation.cache.ValidationResultCache;
 import com.ibm.fhir.validation.exception.FHIRValidationException;
 
 /**
@@ -1052,6 +1060,115 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
         }
     }
 
+    /**
+     * Performs a 'search' operation like {@link #doSearch(String, String, String, MultivaluedMap, String, Map, Resource)},
+     * but if the fhirServer/core/searchPayloadPassthrough property is enabled, the 'match' resources are returned as their
+     * stored payloads, which are copied into the response as-is by {@link SearchPayloadBundleProvider}.
+     *
+     * <p>The payloads are only used when none of the registered persistence interceptors implements afterSearch, because
+     * those interceptors expect to see (and may modify) the resources of the search result bundle, and when the resources
+     * don't need to be checked or filtered. Otherwise, the result is a regular search result bundle without payload entries.
+     *
+     * @param type
+     *            the resource type associated with the search
+     * @param compartment
+     *            the compartment associated with the search
+     * @param compartmentId
+     *            the ID of the compartment associated with the search
+     * @param queryParameters
+     *            a Map containing the query parameters from the request URL
+     * @param requestUri
+     *            the request URI
+     * @return the search result set
+     * @throws Exception
+     */
+    public SearchPayloadBundle doSearchPayloads(String type, String compartment, String compartmentId,
+            MultivaluedMap<String, String> queryParameters, String requestUri) throws Exception {
+        if (!FHIRConfigHelper.getBooleanProperty(FHIRConfiguration.PROPERTY_SEARCH_PAYLOAD_PASSTHROUGH, false)
+                || getInterceptorMgr().hasAfterSearchInterceptors()
+                || !ModelSupport.isResourceType(type)
+                || Resource.class.equals(getResourceType(type))) {
+            return new SearchPayloadBundle(doSearch(type, compartment, compartmentId, queryParameters, requestUri, null, null));
+        }
+
+        log.entering(this.getClass().getName(), "doSearchPayloads");
+
+        validateInteraction(Interaction.SEARCH.value(), type);
+
+        FHIRTransactionHelper txn = new FHIRTransactionHelper(getTransaction());
+        // Start a new txn in the persistence layer if one is not already active.
+        txn.begin();
+
+        SearchPayloadBundle result = null;
+
+        // Save the current request context.
+        FHIRRequestContext requestContext = FHIRRequestContext.get();
+
+        try {
+            Class<? extends Resource> resourceType = getResourceType(type);
+
+            FHIRSearchContext searchContext = SearchUtil.parseQueryParameters(compartment, compartmentId, resourceType, queryParameters,
+                HTTPHandlingPreference.LENIENT.equals(requestContext.getHandlingPreference()));
+
+            // First, invoke the 'beforeSearch' interceptor methods.
+            FHIRPersistenceEvent event =
+                    new FHIRPersistenceEvent(null, buildPersistenceEventProperties(type, null, null, searchContext));
+            getInterceptorMgr().fireBeforeSearchEvent(event);
+
+            FHIRPersistenceContext persistenceContext =
+                    FHIRPersistenceContextFactory.createPersistenceContext(event, searchContext);
+
+            // The 'match' resources of chained and logical ID reference searches must be checked, so they are parsed
+            List<QueryParameter> chainedSearchParameters = new ArrayList<>();
+            List<QueryParameter> logicalIdReferenceSearchParameters = new ArrayList<>();
+            findSearchReferenceCheckParameters(searchContext, chainedSearchParameters, logicalIdReferenceSearchParameters);
+            List<ResourcePayload> payloads = null;
+            if (chainedSearchParameters.isEmpty() && logicalIdReferenceSearchParameters.isEmpty()) {
+                payloads = persistence.searchPayloads(persistenceContext, resourceType);
+            }
+
+            Bundle bundle;
+            List<SearchPayloadBundle.Entry> entries = new ArrayList<>();
+            if (payloads != null) {
+                // the envelope; the payloads are added as its entries when the response is written
+                bundle = createSearchBundle(Collections.emptyList(), searchContext, type);
+                String baseUri = getRequestBaseUri(type) + "/" + type + "/";
+                for (ResourcePayload payload : payloads) {
+                    entries.add(new SearchPayloadBundle.Entry(baseUri + payload.getLogicalId(), SearchEntryMode.MATCH, payload));
+                }
+            } else {
+                // the persistence layer can't return payloads for this search, and hasn't run any query for it
+                List<Resource> resources =
+                        persistence.search(persistenceContext, resourceType).getResource();
+                bundle = createSearchBundle(resources, searchContext, type);
+            }
+            if (requestUri != null) {
+                bundle = addLinks(searchContext, bundle, requestUri);
+            }
+            event.setFhirResource(bundle);
+            result = new SearchPayloadBundle(bundle, entries);
+
+            // Invoke the 'afterSearch' interceptor methods.
+            getInterceptorMgr().fireAfterSearchEvent(event);
+
+            // Commit our transaction if we started one before.
+            txn.commit();
+            txn = null;
+
+            return result;
+        } finally {
+            // Restore the original request context.
+            FHIRRequestContext.set(requestContext);
+
+            // If we previously started a transaction and it's still active, we need to rollback due to an error.
+            if (txn != null) {
+                txn.rollback();
+            }
+
+            log.exiting(this.getClass().getName(), "doSearchPayloads");
+        }
+    }
+
     /**
      * Helper method which invokes a custom operation.
      *
@@ -1271,7 +1388,12 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
             List<Bundle.Entry> responseList = new ArrayList<Bundle.Entry>();
             Set<String> localIdentifiers = new HashSet<>();
 
-            for (Bundle.Entry requestEntry : bundle.getEntry()) {
+            // If parallel validation is enabled, start validating the entry resources now;
+            // the results are consumed below in entry order
+            List<ForkJoinTask<List<Issue>>> validationTasks = submitValidationTasks(bundle.getEntry());
+
+            for (int i = 0; i < bundle.getEntry().size(); i++) {
+                Bundle.Entry requestEntry = bundle.getEntry().get(i);
                 // Create a corresponding response entry and add it to the response bundle.
                 Bundle.Entry.Response response;
                 Bundle.Entry responseEntry = null;
@@ -1318,7 +1440,7 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
 
                     // If the request entry contains a resource, then validate it now.
                     if (resource != null) {
-                        List<Issue> issues = validateResource(resource);
+                        List<Issue> issues = (validationTasks != null) ? getValidationResult(validationTasks.get(i)) : validateResource(resource);
                         if (!issues.isEmpty()) {
                             if (anyFailureInIssues(issues)) {
                                 if (requestType == BundleType.ValueSet.TRANSACTION) {
@@ -1392,6 +1514,69 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
         }
     }
 
+    /**
+     * Submit the validation of each request entry resource to the validation pool, so that independent entries
+     * are validated concurrently.
+     *
+     * @param entries
+     *            the request entries
+     * @return a list of tasks with one element (null if the entry has no resource) per request entry,
+     *            or null if parallel validation is disabled or there is nothing to parallelize
+     */
+    private List<ForkJoinTask<List<Issue>>> submitValidationTasks(List<Bundle.Entry> entries) {
+        ForkJoinPool pool = ValidationPool.get();
+        if (pool == null || entries.size() < 2) {
+            return null;
+        }
+
+        // The profile configuration is tenant-specific, so the request context is propagated to the workers
+        FHIRRequestContext requestContext = FHIRRequestContext.get();
+        List<ForkJoinTask<List<Issue>>> tasks = new ArrayList<>(entries.size());
+        for (Bundle.Entry entry : entries) {
+            Resource resource = entry.getResource();
+            if (resource == null) {
+                tasks.add(null);
+                continue;
+            }
+            tasks.add(pool.submit(() -> {
+                // A worker may run this task while it is waiting for another one, so restore its previous context
+                FHIRRequestContext previousContext = FHIRRequestContext.get();
+                FHIRRequestContext.set(requestContext);
+                try {
+                    return validateResource(resource);
+                } finally {
+                    FHIRRequestContext.set(previousContext);
+                }
+            }));
+        }
+        return tasks;
+    }
+
+    /**
+     * Wait for a validation task which was submitted by {@link #submitValidationTasks(List)}.
+     *
+     * @param task
+     *            the validation task
+     * @return the list of validation errors and warnings
+     * @throws FHIRValidationException
+     */
+    private List<Issue> getValidationResult(ForkJoinTask<List<Issue>> task) throws FHIRValidationException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FHIRValidationException("Interrupted while waiting for the validation of a bundle entry", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof FHIRValidationException) {
+                throw (FHIRValidationException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new FHIRValidationException("An error occurred during validation", cause);
+        }
+    }
+
     /**
      * Perform method-specific validation of the resource
      */
@@ -2519,21 +2704,29 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
     private Bundle createSearchBundle(List<Resource> resources, FHIRSearchContext searchContext, String type)
         throws Exception {
 
-        // throws if we have a count of more than 2,147,483,647 resources
-        UnsignedInt totalCount = UnsignedInt.of(searchContext.getTotalCount());
-        // generate ID for this bundle and set total
+        // generate ID for this bundle
         Bundle.Builder bundleBuilder = Bundle.builder()
                                             .type(BundleType.SEARCHSET)
-                                            .id(UUID.randomUUID().toString())
-                                            .total(totalCount);
+                                            .id(UUID.randomUUID().toString());
+
+        // set total, unless it was skipped with _total=none; for _total=estimate it may be an estimate
+        if (!TotalValueSet.NONE.equals(searchContext.getTotalParameter())
+                || SummaryValueSet.COUNT.equals(searchContext.getSummaryParameter())) {
+            // throws if we have a count of more than 2,147,483,647 resources
+            bundleBuilder.total(UnsignedInt.of(searchContext.getTotalCount()));
+        }
 
         if (resources.size() > 0) {
-            // Calculate how many resources are 'match' mode
-            int pageSize = searchContext.getPageSize();
-            int offset = (searchContext.getPageNumber() - 1) * pageSize;
-            int matchResourceCount = pageSize;
-            if (totalCount.getValue() < offset + pageSize) {
-                matchResourceCount = totalCount.getValue() - offset;
+            // Calculate how many resources are 'match' mode; the total count is only used (and only accurate)
+            // when there are included resources
+            int matchResourceCount = resources.size();
+            if (searchContext.hasIncludeParameters() || searchContext.hasRevIncludeParameters()) {
+                int pageSize = searchContext.getPageSize();
+                int offset = (searchContext.getPageNumber() - 1) * pageSize;
+                matchResourceCount = pageSize;
+                if (searchContext.getTotalCount() < offset + pageSize) {
+                    matchResourceCount = searchContext.getTotalCount() - offset;
+                }
             }
             List<Resource> matchResources = resources.subList(0,  matchResourceCount);
 
@@ -2545,22 +2738,7 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
             // Find chained search parameters and find reference search parameters containing only a logical ID
             List<QueryParameter> chainedSearchParameters = new ArrayList<>();
             List<QueryParameter> logicalIdReferenceSearchParameters = new ArrayList<>();
-            for (QueryParameter queryParameter : searchContext.getSearchParameters()) {
-                if (!queryParameter.isReverseChained()) {
-                    if (queryParameter.isChained()) {
-                        chainedSearchParameters.add(queryParameter);
-                    } else if (SearchConstants.Type.REFERENCE == queryParameter.getType()) {
-                        // Look for logical ID-only value
-                        for (QueryParameterValue value : queryParameter.getValues()) {
-                            ReferenceValue refVal = ReferenceUtil.createReferenceValueFrom(value.getValueString(), null, ReferenceUtil.getBaseUrl(null));
-                            if (refVal.getType() == ReferenceType.LITERAL_RELATIVE && refVal.getTargetResourceType() == null) {
-                                logicalIdReferenceSearchParameters.add(queryParameter);
-                                break;
-                            }
-                        }
-                    }
-                }
-            }
+            findSearchReferenceCheckParameters(searchContext, chainedSearchParameters, logicalIdReferenceSearchParameters);
             List<Issue> issues = new ArrayList<>();
             if (!chainedSearchParameters.isEmpty() || !logicalIdReferenceSearchParameters.isEmpty()) {
                 // Check 'match' resources for versioned references in chain search parameter fields and
@@ -2608,6 +2786,37 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
         return bundle;
     }
 
+    /**
+     * Find the search parameters whose 'match' resources must be checked by performSearchReferenceChecks.
+     *
+     * @param searchContext
+     *            the FHIRSearchContext object associated with the search
+     * @param chainedSearchParameters
+     *            the list to add the chained search parameters to
+     * @param logicalIdReferenceSearchParameters
+     *            the list to add the reference search parameters containing only a logical ID to
+     * @throws Exception
+     */
+    private void findSearchReferenceCheckParameters(FHIRSearchContext searchContext, List<QueryParameter> chainedSearchParameters,
+            List<QueryParameter> logicalIdReferenceSearchParameters) throws Exception {
+        for (QueryParameter queryParameter : searchContext.getSearchParameters()) {
+            if (!queryParameter.isReverseChained()) {
+                if (queryParameter.isChained()) {
+                    chainedSearchParameters.add(queryParameter);
+                } else if (SearchConstants.Type.REFERENCE == queryParameter.getType()) {
+                    // Look for logical ID-only value
+                    for (QueryParameterValue value : queryParameter.getValues()) {
+                        ReferenceValue refVal = ReferenceUtil.createReferenceValueFrom(value.getValueString(), null, ReferenceUtil.getBaseUrl(null));
+                        if (refVal.getType() == ReferenceType.LITERAL_RELATIVE && refVal.getTargetResourceType() == null) {
+                            logicalIdReferenceSearchParameters.add(queryParameter);
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * For chained search, check 'match' resources for existence of a versioned reference in the field
      * associated with the chain search parameter.
@@ -2769,11 +2978,13 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
     private Bundle addLinks(FHIRPagingContext context, Bundle responseBundle, String requestUri) throws Exception {
         String selfUri = null;
         SummaryValueSet summaryParameter = null;
+        String nextCursor = null;
         Bundle.Builder bundleBuilder = responseBundle.toBuilder();
 
         if (context instanceof FHIRSearchContext) {
             FHIRSearchContext searchContext = (FHIRSearchContext) context;
             summaryParameter = searchContext.getSummaryParameter();
+            nextCursor = searchContext.getNextCursor();
             try {
                 selfUri = SearchUtil.buildSearchSelfUri(requestUri, searchContext);
             } catch (Exception e) {
@@ -2812,6 +3023,11 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
                 // add new _page parameter to the query string
                 nextLinkUrl += "_page=" + nextPageNumber;
 
+                // add the cursor which lets the persistence layer seek directly to the next page
+                if (nextCursor != null) {
+                    nextLinkUrl += "&" + SearchConstants.CURSOR + "=" + nextCursor;
+                }
+
                 // create 'next' link
                 Bundle.Link nextLink =
                         Bundle.Link.builder().relation(string("next")).url(Url.of(nextLinkUrl)).build();
@@ -2821,8 +3037,8 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
             int prevPageNumber = context.getPageNumber() - 1;
             if (prevPageNumber > 0) {
 
-                // starting with the original request URI
-                String prevLinkUrl = requestUri;
+                // starting with the original request URI, without the cursor of the current page
+                String prevLinkUrl = removeQueryParameter(requestUri, SearchConstants.CURSOR);
 
                 // remove existing _page parameters from the query string
                 prevLinkUrl =
@@ -2852,6 +3068,19 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
         return bundleBuilder.build();
     }
 
+    /**
+     * Remove all occurrences of the given parameter from the query string of the given URI.
+     *
+     * @param uri
+     *            the URI
+     * @param name
+     *            the name of the query parameter to remove
+     * @return the URI without the query parameter
+     */
+    private String removeQueryParameter(String uri, String name) {
+        return uri.replaceAll("([?&])" + Pattern.quote(name) + "=[^&]*(&|$)", "$1").replaceAll("&$", "");
+    }
+
     /**
      * Get the original request URI from either the HttpServletRequest or a configured Header (in case of re-writing proxies).
      *
@@ -2963,6 +3192,12 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
 
     @Override
     public int doReindex(FHIROperationContext operationContext, OperationOutcome.Builder operationOutcomeResult, Instant tstamp, String resourceLogicalId) throws Exception {
+        return doReindex(operationContext, operationOutcomeResult, tstamp, resourceLogicalId, null);
+    }
+
+    @Override
+    public int doReindex(FHIROperationContext operationContext, OperationOutcome.Builder operationOutcomeResult, Instant tstamp, String resourceLogicalId,
+        Set<String> searchParameters) throws Exception {
         int result = 0;
         // handle some retries in case of deadlock exceptions
         final int TX_ATTEMPTS = 5;
@@ -2972,7 +3207,37 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
             txn.begin();
             try {
                 FHIRPersistenceContext persistenceContext = null;
-                result = persistence.reindex(persistenceContext, operationOutcomeResult, tstamp, resourceLogicalId);
+                result = persistence.reindex(persistenceContext, operationOutcomeResult, tstamp, resourceLogicalId, searchParameters);
+                attempt = TX_ATTEMPTS; // end the retry loop
+            } catch (FHIRPersistenceDataAccessException x) {
+                if (x.isTransactionRetryable() && attempt < TX_ATTEMPTS) {
+                    log.info("attempt #" + attempt + " failed, retrying transaction");
+                } else {
+                    throw x;
+                }
+            } finally {
+                txn.end();
+            }
+        } while (attempt++ < TX_ATTEMPTS);
+
+        return result;
+    }
+
+    @Override
+    public ReindexCheckpoint doReindex(FHIROperationContext operationContext, OperationOutcome.Builder operationOutcomeResult, Instant tstamp,
+        String resourceType, long afterLogicalResourceId, Long toLogicalResourceId, int resourceCount, Set<String> searchParameters) throws Exception {
+        ReindexCheckpoint result = null;
+        // handle some retries in case of deadlock exceptions. The whole batch is processed in one
+        // transaction, so a retry starts again from the same checkpoint
+        final int TX_ATTEMPTS = 5;
+        int attempt = 1;
+        do {
+            FHIRTransactionHelper txn = new FHIRTransactionHelper(getTransaction());
+            txn.begin();
+            try {
+                FHIRPersistenceContext persistenceContext = null;
+                result = persistence.reindex(persistenceContext, operationOutcomeResult, tstamp, resourceType, afterLogicalResourceId, toLogicalResourceId, resourceCount,
+                    searchParameters);
                 attempt = TX_ATTEMPTS; // end the retry loop
             } catch (FHIRPersistenceDataAccessException x) {
                 if (x.isTransactionRetryable() && attempt < TX_ATTEMPTS) {
@@ -3101,7 +3366,16 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
             }
         }
 
-        return FHIRValidator.validator().validate(resource);
+        ForkJoinPool pool = ValidationPool.get();
+        FHIRValidator validator = (pool != null) ? FHIRValidator.validator(pool) : FHIRValidator.validator();
+        ValidationResultCache cache = ValidationResultCache.getInstance();
+        if (cache != null) {
+            // registry resources may be tenant-specific, so cached results are scoped to the tenant and datastore
+            FHIRRequestContext requestContext = FHIRRequestContext.get();
+            String scope = requestContext.getTenantId() + ":" + requestContext.getDataStoreId();
+            return cache.validate(validator, scope, resource, true);
+        }
+        return validator.validate(resource);
     }
 
     /**
@@ -0,0 +1,138 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.server.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import com.ibm.fhir.model.format.Format;
+import com.ibm.fhir.model.parser.FHIRParser;
+import com.ibm.fhir.model.resource.Bundle;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.type.Decimal;
+import com.ibm.fhir.model.type.Uri;
+import com.ibm.fhir.model.type.code.SearchEntryMode;
+import com.ibm.fhir.persistence.ResourcePayload;
+
+/**
+ * A search result bundle whose entries are carried as the stored JSON payloads of the resources, so that they can
+ * be copied into the response without being parsed and generated again.
+ *
+ * <p>When there are payload entries, the envelope holds everything else (id, type, total and links) and has no
+ * entries of its own.
+ */
+public class SearchPayloadBundle {
+    private final Bundle envelope;
+    private final List<Entry> entries;
+
+    /**
+     * A search result bundle without payload entries.
+     *
+     * @param bundle the complete search result bundle
+     */
+    public SearchPayloadBundle(Bundle bundle) {
+        this(bundle, Collections.emptyList());
+    }
+
+    /**
+     * @param envelope the search result bundle, without any entries
+     * @param entries the payload entries
+     * @throws IllegalArgumentException if there are payload entries and the envelope has entries
+     */
+    public SearchPayloadBundle(Bundle envelope, List<Entry> entries) {
+        this.envelope = Objects.requireNonNull(envelope, "envelope");
+        this.entries = Objects.requireNonNull(entries, "entries");
+        if (!entries.isEmpty() && !envelope.getEntry().isEmpty()) {
+            throw new IllegalArgumentException("The envelope of a search payload bundle must not have entries");
+        }
+    }
+
+    /**
+     * @return the search result bundle, without the payload entries
+     */
+    public Bundle getEnvelope() {
+        return envelope;
+    }
+
+    /**
+     * @return the payload entries
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return true if this bundle has payload entries
+     */
+    public boolean hasPayloads() {
+        return !entries.isEmpty();
+    }
+
+    /**
+     * Parse the payload entries and build the complete search result bundle; this is used when the response is not
+     * written in compact JSON. The payloads can only be read once, so this consumes them.
+     *
+     * @return the complete search result bundle
+     * @throws Exception
+     */
+    public Bundle toBundle() throws Exception {
+        if (entries.isEmpty()) {
+            return envelope;
+        }
+        Bundle.Builder bundleBuilder = envelope.toBuilder();
+        FHIRParser parser = FHIRParser.parser(Format.JSON);
+        for (Entry entry : entries) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            entry.getPayload().transferTo(out);
+            Resource resource = parser.parse(new ByteArrayInputStream(out.toByteArray()));
+            bundleBuilder.entry(Bundle.Entry.builder()
+                    .fullUrl(Uri.of(entry.getFullUrl()))
+                    .resource(resource)
+                    .search(Bundle.Entry.Search.builder()
+                        .mode(entry.getMode())
+                        .score(Decimal.of("1"))
+                        .build())
+                    .build());
+        }
+        return bundleBuilder.build();
+    }
+
+    /**
+     * A search result entry whose resource is a stored payload.
+     */
+    public static class Entry {
+        private final String fullUrl;
+        private final SearchEntryMode mode;
+        private final ResourcePayload payload;
+
+        /**
+         * @param fullUrl the full URL of the resource
+         * @param mode the search mode of the entry
+         * @param payload the stored JSON payload of the resource
+         */
+        public Entry(String fullUrl, SearchEntryMode mode, ResourcePayload payload) {
+            this.fullUrl = Objects.requireNonNull(fullUrl, "fullUrl");
+            this.mode = Objects.requireNonNull(mode, "mode");
+            this.payload = Objects.requireNonNull(payload, "payload");
+        }
+
+        public String getFullUrl() {
+            return fullUrl;
+        }
+
+        public SearchEntryMode getMode() {
+            return mode;
+        }
+
+        public ResourcePayload getPayload() {
+            return payload;
+        }
+    }
+}
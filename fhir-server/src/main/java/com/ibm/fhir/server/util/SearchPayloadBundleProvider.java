@@ -0,0 +1,150 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.server.util;
+
+import static com.ibm.fhir.model.util.FHIRUtil.buildOperationOutcome;
+import static com.ibm.fhir.model.util.FHIRUtil.buildOperationOutcomeIssue;
+import static com.ibm.fhir.provider.util.FHIRProviderUtil.buildResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.ext.MessageBodyWriter;
+
+import org.owasp.encoder.Encode;
+
+import com.ibm.fhir.core.FHIRMediaType;
+import com.ibm.fhir.model.format.Format;
+import com.ibm.fhir.model.generator.FHIRGenerator;
+import com.ibm.fhir.model.type.code.IssueSeverity;
+import com.ibm.fhir.model.type.code.IssueType;
+import com.ibm.fhir.provider.FHIRProvider;
+
+/**
+ * Writes a {@link SearchPayloadBundle}. For compact JSON, the stored payloads are spliced into the generated envelope
+ * as-is; for XML or pretty-printed JSON, the payloads are parsed and the complete bundle is generated instead.
+ */
+@Produces({ FHIRMediaType.APPLICATION_FHIR_JSON, MediaType.APPLICATION_JSON, FHIRMediaType.APPLICATION_FHIR_XML,
+        MediaType.APPLICATION_XML })
+public class SearchPayloadBundleProvider implements MessageBodyWriter<SearchPayloadBundle> {
+    private static final Logger log = Logger.getLogger(SearchPayloadBundleProvider.class.getName());
+
+    private static final byte[] ENTRY_START = ",\"entry\":[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ENTRY_SEPARATOR = ",".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ENTRY_END = "]}".getBytes(StandardCharsets.UTF_8);
+
+    @Context
+    private UriInfo uriInfo;
+    @Context
+    private HttpHeaders requestHeaders;
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return SearchPayloadBundle.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public void writeTo(SearchPayloadBundle t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, Object> httpHeaders,
+            OutputStream entityStream) throws IOException, WebApplicationException {
+        log.entering(this.getClass().getName(), "writeTo");
+        try {
+            Format format = getFormat(mediaType);
+            boolean pretty = FHIRProvider.isPretty(requestHeaders, uriInfo);
+            if (format == Format.JSON && !pretty && t.hasPayloads()) {
+                writePayloads(t, entityStream);
+            } else {
+                FHIRGenerator.generator(format, pretty).generate(t.toBundle(), entityStream);
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            log.log(Level.WARNING, "an error occurred during resource serialization", e);
+            Response response =
+                    buildResponse(
+                        buildOperationOutcome(Collections.singletonList(
+                            buildOperationOutcomeIssue(IssueSeverity.FATAL, IssueType.EXCEPTION,
+                                "SearchPayloadBundleProvider: " + Encode.forHtml(e.getMessage()), null))),
+                        mediaType);
+            throw new WebApplicationException(response);
+        } finally {
+            log.exiting(this.getClass().getName(), "writeTo");
+        }
+    }
+
+    /**
+     * Write the envelope, minus its closing brace, followed by an entry for each payload.
+     */
+    private void writePayloads(SearchPayloadBundle t, OutputStream out) throws Exception {
+        ByteArrayOutputStream envelope = new ByteArrayOutputStream();
+        FHIRGenerator.generator(Format.JSON, false).generate(t.getEnvelope(), envelope);
+        byte[] bytes = envelope.toByteArray();
+        int end = bytes.length - 1;
+        while (end > 0 && bytes[end] != '}') {
+            end--;
+        }
+        out.write(bytes, 0, end);
+
+        out.write(ENTRY_START);
+        for (int i = 0; i < t.getEntries().size(); i++) {
+            SearchPayloadBundle.Entry entry = t.getEntries().get(i);
+            if (i > 0) {
+                out.write(ENTRY_SEPARATOR);
+            }
+            out.write(("{\"fullUrl\":\"" + escape(entry.getFullUrl()) + "\",\"resource\":").getBytes(StandardCharsets.UTF_8));
+            entry.getPayload().transferTo(out);
+            out.write((",\"search\":{\"mode\":\"" + entry.getMode().getValue() + "\",\"score\":1}}").getBytes(StandardCharsets.UTF_8));
+        }
+        out.write(ENTRY_END);
+    }
+
+    /**
+     * Escape a string for use as a JSON string value.
+     */
+    private static String escape(String value) {
+        StringBuilder result = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                result.append('\\').append(c);
+            } else if (c < 0x20) {
+                result.append(String.format("\\u%04x", (int) c));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    @Override
+    public long getSize(SearchPayloadBundle t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return -1;
+    }
+
+    private Format getFormat(MediaType mediaType) {
+        if (mediaType != null && (mediaType.isCompatible(FHIRMediaType.APPLICATION_FHIR_XML_TYPE) ||
+                mediaType.isCompatible(FHIRMediaType.APPLICATION_XML_TYPE))) {
+            return Format.XML;
+        }
+        return Format.JSON;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.server.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+
+/**
+ * Holds the fork-join pool, shared by all requests, which is used to validate the entries of a request bundle
+ * concurrently and to split the validation of large resources.
+ *
+ * <p>Parallel validation is disabled unless the server is configured with a parallelism greater than 1.
+ */
+public class ValidationPool {
+    private static final Logger log = Logger.getLogger(ValidationPool.class.getName());
+
+    public static final int DEFAULT_PARALLELISM = 1;
+
+    private static ForkJoinPool pool;
+
+    private ValidationPool() {
+        // No Operation
+    }
+
+    /**
+     * Set the number of worker threads of the validation pool. This is done once, when the server is started.
+     *
+     * @param parallelism the number of worker threads; 1 to validate on the request thread only
+     */
+    public static synchronized void configure(int parallelism) {
+        if (pool != null) {
+            log.warning("Validation pool already created with parallelism " + pool.getParallelism()
+                    + "; ignoring parallelism " + parallelism);
+        } else if (parallelism > 1) {
+            log.info("Parallel validation enabled with parallelism " + parallelism);
+            pool = new ForkJoinPool(parallelism);
+        }
+    }
+
+    /**
+     * Shut down the worker threads of the validation pool, if any; parallel validation stays disabled until the pool
+     * is configured again. This is done when the server is stopped.
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /**
+     * @return the validation pool, or null if parallel validation is disabled
+     */
+    public static synchronized ForkJoinPool get() {
+        return pool;
+    }
+}
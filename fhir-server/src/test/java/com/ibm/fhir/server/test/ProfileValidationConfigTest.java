@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2020
+ * (C) Copyright IBM Corp. 2020, 2021
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -7,6 +7,7 @@ package com.ibm.fhir.server.test;
 
 import static com.ibm.fhir.model.type.String.string;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.fail;
 
 import java.util.List;
@@ -46,6 +47,7 @@ import com.ibm.fhir.persistence.FHIRPersistence;
 import com.ibm.fhir.registry.FHIRRegistry;
 import com.ibm.fhir.server.operation.spi.FHIRRestOperationResponse;
 import com.ibm.fhir.server.util.FHIRRestHelper;
+import com.ibm.fhir.server.util.ValidationPool;
 import com.ibm.fhir.validation.exception.FHIRValidationException;
 
 public class ProfileValidationConfigTest {
@@ -817,4 +819,65 @@ public class ProfileValidationConfigTest {
         }
     }
 
+    /**
+     * Test batch bundle entries validated concurrently with the tenant's profile configuration.
+     */
+    @Test
+    public void testBatchBundleWithParallelValidation() throws Exception {
+        boolean poolConfigured = ValidationPool.get() != null;
+        ValidationPool.configure(4);
+        assertNotNull(ValidationPool.get());
+        try {
+            validateBatchBundleEntries();
+        } finally {
+            // restore the previous configuration, so that other tests validate on the request thread
+            if (!poolConfigured) {
+                ValidationPool.shutdown();
+            }
+        }
+    }
+
+    private void validateBatchBundleEntries() throws Exception {
+
+        Bundle.Builder requestBundleBuilder = Bundle.builder()
+                .id("bundle1")
+                .type(BundleType.BATCH);
+        for (int i = 0; i < 20; i++) {
+            Patient.Builder patient = Patient.builder()
+                    .id(java.lang.String.valueOf(i))
+                    .text(Narrative.builder()
+                        .div(Xhtml.of("<div xmlns=\"http://www.w3.org/1999/xhtml\">Some narrative</div>"))
+                        .status(NarrativeStatus.GENERATED)
+                        .build());
+            if (i % 2 == 1) {
+                patient.meta(Meta.builder()
+                    .profile(Canonical.of("profile1"), Canonical.of("profile" + (i + 100)))
+                    .build());
+            }
+            requestBundleBuilder.entry(Bundle.Entry.builder()
+                .resource(patient.build())
+                .request(Bundle.Entry.Request.builder()
+                    .method(HTTPVerb.PUT)
+                    .url(Uri.of("Patient/" + i))
+                    .build())
+                .build());
+        }
+
+        // Process request
+        FHIRRequestContext.get().setOriginalRequestUri("test");
+        FHIRRequestContext.get().setReturnPreference(HTTPReturnPreference.OPERATION_OUTCOME);
+        Bundle responseBundle = helper.doBundle(requestBundleBuilder.build(), null);
+
+        // Validate results; each response entry must correspond to its request entry
+        assertEquals(responseBundle.getEntry().size(), 20);
+        for (int i = 0; i < 20; i++) {
+            Bundle.Entry responseEntry = responseBundle.getEntry().get(i);
+            assertEquals(responseEntry.getResponse().getStatus().getValue(), "400");
+            OperationOutcome oo = responseEntry.getResource().as(OperationOutcome.class);
+            java.lang.String expected = (i % 2 == 1) ?
+                    "Profile 'profile" + (i + 100) + "' is not supported" :
+                    "A required profile was not specified. Resources of type 'Patient' must declare conformance to at least one of the following profiles: [profile1, profile2|1, profile3]";
+            assertEquals(oo.getIssue().get(0).getDetails().getText().getValue(), expected);
+        }
+    }
 }
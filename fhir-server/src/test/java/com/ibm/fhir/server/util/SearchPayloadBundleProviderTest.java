@@ -0,0 +1,137 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.server.util;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.UriInfo;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.core.FHIRMediaType;
+import com.ibm.fhir.model.format.Format;
+import com.ibm.fhir.model.generator.FHIRGenerator;
+import com.ibm.fhir.model.parser.FHIRParser;
+import com.ibm.fhir.model.resource.Bundle;
+import com.ibm.fhir.model.resource.Patient;
+import com.ibm.fhir.model.type.Decimal;
+import com.ibm.fhir.model.type.HumanName;
+import com.ibm.fhir.model.type.UnsignedInt;
+import com.ibm.fhir.model.type.Uri;
+import com.ibm.fhir.model.type.code.BundleType;
+import com.ibm.fhir.model.type.code.SearchEntryMode;
+import com.ibm.fhir.persistence.ResourcePayload;
+
+public class SearchPayloadBundleProviderTest {
+
+    private Bundle buildEnvelope() {
+        return Bundle.builder()
+                .id("envelope")
+                .type(BundleType.SEARCHSET)
+                .total(UnsignedInt.of(2))
+                .link(Bundle.Link.builder()
+                    .relation(com.ibm.fhir.model.type.String.of("self"))
+                    .url(Uri.of("https://localhost/fhir-server/api/v4/Patient?_count=10&_page=1"))
+                    .build())
+                .build();
+    }
+
+    private Patient buildPatient(String id, String family) {
+        return Patient.builder()
+                .id(id)
+                .name(HumanName.builder().family(com.ibm.fhir.model.type.String.of(family)).build())
+                .build();
+    }
+
+    private SearchPayloadBundle buildPayloadBundle(List<Patient> patients) throws Exception {
+        List<SearchPayloadBundle.Entry> entries = new ArrayList<>();
+        for (Patient patient : patients) {
+            StringWriter writer = new StringWriter();
+            FHIRGenerator.generator(Format.JSON).generate(patient, writer);
+            ResourcePayload payload = new ResourcePayload(patient.getId(), Instant.now(), 1,
+                new ByteArrayInputStream(writer.toString().getBytes("UTF-8")));
+            entries.add(new SearchPayloadBundle.Entry("https://localhost/fhir-server/api/v4/Patient/" + patient.getId(),
+                SearchEntryMode.MATCH, payload));
+        }
+        return new SearchPayloadBundle(buildEnvelope(), entries);
+    }
+
+    private SearchPayloadBundleProvider buildProvider() throws Exception {
+        SearchPayloadBundleProvider provider = new SearchPayloadBundleProvider();
+        HttpHeaders headers = (HttpHeaders) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] { HttpHeaders.class }, (proxy, method, args) -> null);
+        UriInfo uriInfo = (UriInfo) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] { UriInfo.class },
+            (proxy, method, args) -> "getQueryParameters".equals(method.getName()) ? new MultivaluedHashMap<String, String>() : null);
+        setField(provider, "requestHeaders", headers);
+        setField(provider, "uriInfo", uriInfo);
+        return provider;
+    }
+
+    private void setField(Object target, String name, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private Bundle write(SearchPayloadBundle payloadBundle, MediaType mediaType, Format format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        buildProvider().writeTo(payloadBundle, SearchPayloadBundle.class, SearchPayloadBundle.class, null,
+            mediaType, null, out);
+        return FHIRParser.parser(format).parse(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private Bundle buildExpected(List<Patient> patients) {
+        Bundle.Builder builder = buildEnvelope().toBuilder();
+        for (Patient patient : patients) {
+            builder.entry(Bundle.Entry.builder()
+                .fullUrl(Uri.of("https://localhost/fhir-server/api/v4/Patient/" + patient.getId()))
+                .resource(patient)
+                .search(Bundle.Entry.Search.builder()
+                    .mode(SearchEntryMode.MATCH)
+                    .score(Decimal.of("1"))
+                    .build())
+                .build());
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void testSplicedJson() throws Exception {
+        List<Patient> patients = new ArrayList<>();
+        patients.add(buildPatient("1", "Doe"));
+        patients.add(buildPatient("2", "\"Quoted\""));
+        Bundle bundle = write(buildPayloadBundle(patients), FHIRMediaType.APPLICATION_FHIR_JSON_TYPE, Format.JSON);
+        assertEquals(bundle, buildExpected(patients));
+    }
+
+    @Test
+    public void testXmlFallback() throws Exception {
+        List<Patient> patients = new ArrayList<>();
+        patients.add(buildPatient("1", "Doe"));
+        Bundle bundle = write(buildPayloadBundle(patients), FHIRMediaType.APPLICATION_FHIR_XML_TYPE, Format.XML);
+        assertEquals(bundle, buildExpected(patients));
+    }
+
+    @Test
+    public void testNoPayloads() throws Exception {
+        Bundle bundle = write(new SearchPayloadBundle(buildEnvelope()), FHIRMediaType.APPLICATION_FHIR_JSON_TYPE, Format.JSON);
+        assertEquals(bundle, buildEnvelope());
+    }
+}
@@ -190,16 +190,24 @@ public class FHIRTermService {
     /**
      * Expand the given value set and expansion parameters
      *
+     * <p>Of the expansion parameters, only offset and count are supported. If either is present, a single page of
+     * the expansion is returned.
+     *
      * @param valueSet
      *     the value set to expand
      * @param parameters
      *     the expansion parameters
      * @return
-     *     the expanded value set, or the original value set if already expanded or unable to expand
+     *     the expanded value set, or the original value set if unable to expand
      */
     public ValueSet expand(ValueSet valueSet, ExpansionParameters parameters) {
-        if (!ExpansionParameters.EMPTY.equals(parameters)) {
-            throw new UnsupportedOperationException("Expansion parameters are not supported");
+        if (!ExpansionParameters.EMPTY.equals(parameters.toBuilder().offset(null).count(null).build())) {
+            throw new UnsupportedOperationException("Expansion parameters other than offset and count are not supported");
+        }
+        if (parameters.getOffset() != null || parameters.getCount() != null) {
+            int offset = (parameters.getOffset() != null) ? parameters.getOffset().getValue() : 0;
+            int count = (parameters.getCount() != null) ? parameters.getCount().getValue() : Integer.MAX_VALUE;
+            return ValueSetSupport.expand(valueSet, offset, count);
         }
         return ValueSetSupport.expand(valueSet);
     }
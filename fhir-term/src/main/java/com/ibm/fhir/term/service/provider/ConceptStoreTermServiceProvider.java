@@ -0,0 +1,160 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.term.service.provider;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.ibm.fhir.model.resource.CodeSystem;
+import com.ibm.fhir.model.resource.CodeSystem.Concept;
+import com.ibm.fhir.model.type.Code;
+import com.ibm.fhir.term.spi.FHIRTermServiceProvider;
+import com.ibm.fhir.term.store.ConceptStore;
+
+/**
+ * A {@link FHIRTermServiceProvider} for code systems which are too large to be held in memory as
+ * {@link CodeSystem} resources. The concepts are served from memory-mapped concept stores (see
+ * {@link com.ibm.fhir.term.store.ConceptStoreLoader}) in a directory.
+ *
+ * <p>The code system itself is still resolved through the FHIR registry, typically as a resource with content
+ * "not-present", and is supported by this provider when a store exists for its url and version.
+ */
+public class ConceptStoreTermServiceProvider implements FHIRTermServiceProvider, Closeable {
+    private static final Logger log = Logger.getLogger(ConceptStoreTermServiceProvider.class.getName());
+
+    private final Map<String, ConceptStore> stores = new ConcurrentHashMap<>();
+
+    /**
+     * Open all concept stores in the passed directory.
+     *
+     * @param directory
+     *     the directory which contains the concept stores
+     * @throws IOException
+     *     if the directory can't be read
+     */
+    public ConceptStoreTermServiceProvider(Path directory) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.concepts")) {
+            for (Path file : files) {
+                try {
+                    add(ConceptStore.open(file));
+                } catch (IOException e) {
+                    log.log(Level.WARNING, "Unable to open concept store " + file, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Serve the passed concept store
+     *
+     * @param store
+     *     the concept store
+     */
+    public void add(ConceptStore store) {
+        String key = (store.getVersion() != null) ? store.getUrl() + "|" + store.getVersion() : store.getUrl();
+        ConceptStore previous = stores.put(key, store);
+        if (previous != null) {
+            closeQuietly(previous);
+        }
+        log.info("Serving " + store.size() + " concepts of code system '" + key + "' from a concept store");
+    }
+
+    @Override
+    public boolean isSupported(CodeSystem codeSystem) {
+        return getStore(codeSystem) != null;
+    }
+
+    @Override
+    public Concept findConcept(CodeSystem codeSystem, Code code) {
+        ConceptStore store = getStore(codeSystem);
+        int ordinal = getOrdinal(store, code);
+        return (ordinal != -1) ? store.getConcept(ordinal) : null;
+    }
+
+    @Override
+    public Concept findConcept(CodeSystem codeSystem, Concept concept, Code code) {
+        ConceptStore store = getStore(codeSystem);
+        int ancestor = getOrdinal(store, concept.getCode());
+        int descendant = getOrdinal(store, code);
+        if (ancestor != -1 && descendant != -1 && store.subsumes(ancestor, descendant)) {
+            return store.getConcept(descendant);
+        }
+        return null;
+    }
+
+    @Override
+    public Set<Concept> getConcepts(CodeSystem codeSystem) {
+        ConceptStore store = getStore(codeSystem);
+        if (store == null) {
+            return Collections.emptySet();
+        }
+        Set<Concept> concepts = new LinkedHashSet<>(store.size());
+        for (int ordinal = 0; ordinal < store.size(); ordinal++) {
+            concepts.add(store.getConcept(ordinal));
+        }
+        return concepts;
+    }
+
+    @Override
+    public Set<Concept> getConcepts(CodeSystem codeSystem, Concept concept) {
+        ConceptStore store = getStore(codeSystem);
+        int ordinal = getOrdinal(store, concept.getCode());
+        if (ordinal == -1) {
+            return Collections.emptySet();
+        }
+        int[] closure = store.getClosure(ordinal);
+        Set<Concept> concepts = new LinkedHashSet<>(closure.length);
+        for (int descendant : closure) {
+            concepts.add(store.getConcept(descendant));
+        }
+        return concepts;
+    }
+
+    @Override
+    public void close() {
+        for (ConceptStore store : stores.values()) {
+            closeQuietly(store);
+        }
+        stores.clear();
+    }
+
+    private ConceptStore getStore(CodeSystem codeSystem) {
+        if (codeSystem == null || codeSystem.getUrl() == null || codeSystem.getUrl().getValue() == null) {
+            return null;
+        }
+        String key = codeSystem.getUrl().getValue();
+        if (codeSystem.getVersion() != null && codeSystem.getVersion().getValue() != null) {
+            key = key + "|" + codeSystem.getVersion().getValue();
+        }
+        return stores.get(key);
+    }
+
+    private int getOrdinal(ConceptStore store, Code code) {
+        if (store == null || code == null || code.getValue() == null) {
+            return -1;
+        }
+        return store.getOrdinal(code.getValue());
+    }
+
+    private void closeQuietly(ConceptStore store) {
+        try {
+            store.close();
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Unable to close the concept store of code system '" + store.getUrl() + "'", e);
+        }
+    }
+}
@@ -0,0 +1,370 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.term.store;
+
+import static com.ibm.fhir.core.util.LRUCache.createLRUCache;
+import static com.ibm.fhir.term.store.ConceptStoreFormat.FLAG_CASE_SENSITIVE;
+import static com.ibm.fhir.term.store.ConceptStoreFormat.FORMAT_VERSION;
+import static com.ibm.fhir.term.store.ConceptStoreFormat.MAGIC;
+import static com.ibm.fhir.term.store.ConceptStoreFormat.TYPE_BOOLEAN;
+import static com.ibm.fhir.term.store.ConceptStoreFormat.TYPE_CODE;
+import static com.ibm.fhir.term.store.ConceptStoreFormat.TYPE_CODING;
+import static com.ibm.fhir.term.store.ConceptStoreFormat.TYPE_DATE_TIME;
+import static com.ibm.fhir.term.store.ConceptStoreFormat.TYPE_DECIMAL;
+import static com.ibm.fhir.term.store.ConceptStoreFormat.TYPE_INTEGER;
+import static com.ibm.fhir.term.store.ConceptStoreFormat.TYPE_STRING;
+import static com.ibm.fhir.term.store.ConceptStoreFormat.key;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import com.ibm.fhir.model.resource.CodeSystem.Concept;
+import com.ibm.fhir.model.type.Boolean;
+import com.ibm.fhir.model.type.Code;
+import com.ibm.fhir.model.type.Coding;
+import com.ibm.fhir.model.type.DateTime;
+import com.ibm.fhir.model.type.Decimal;
+import com.ibm.fhir.model.type.Element;
+import com.ibm.fhir.model.type.Integer;
+import com.ibm.fhir.model.type.String;
+import com.ibm.fhir.model.type.Uri;
+
+/**
+ * A read-only, memory-mapped store of the concepts of a single code system version, written by
+ * {@link ConceptStoreWriter}.
+ *
+ * <p>Concepts are identified by their ordinal, which follows the pre-order of the source hierarchy. Codes are found
+ * with a binary search of the sorted code index and subsumption is tested with a binary search of the precomputed
+ * closure (the sorted ordinals of a concept and all of its descendants), so neither needs more than the pages of the
+ * file that are touched to be in memory. Concepts are decoded on demand, with the children of a concept represented
+ * by their code and display only.
+ *
+ * <p>Instances are safe for use by multiple threads.
+ */
+public class ConceptStore implements Closeable {
+    private static final int CONCEPT_CACHE_SIZE = 4096;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final java.lang.String url;
+    private final java.lang.String version;
+    private final boolean caseSensitive;
+    private final int size;
+    private final int recordTable;
+    private final int codeIndex;
+    private final int closure;
+    private final int children;
+    private final Map<java.lang.Integer, Concept> conceptCache = createLRUCache(CONCEPT_CACHE_SIZE);
+
+    private ConceptStore(FileChannel channel, MappedByteBuffer buffer) throws IOException {
+        this.channel = channel;
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a concept store");
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported concept store format version: " + buffer.getInt(4));
+        }
+        caseSensitive = (buffer.getInt(8) & FLAG_CASE_SENSITIVE) != 0;
+        size = buffer.getInt(12);
+        int[] position = { 16 };
+        url = readString(position);
+        version = readString(position);
+        recordTable = (int) buffer.getLong(position[0]);
+        codeIndex = (int) buffer.getLong(position[0] + 8);
+        closure = (int) buffer.getLong(position[0] + 16);
+        children = (int) buffer.getLong(position[0] + 24);
+    }
+
+    /**
+     * Open the concept store in the passed file.
+     *
+     * @param file
+     *     the file written by {@link ConceptStoreWriter}
+     * @return
+     *     the concept store
+     * @throws IOException
+     *     if the file can't be mapped or is not a concept store
+     */
+    public static ConceptStore open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (channel.size() > java.lang.Integer.MAX_VALUE) {
+                throw new IOException("Concept store exceeds 2 GB: " + file);
+            }
+            return new ConceptStore(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public java.lang.String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return the version of the code system, or null
+     */
+    public java.lang.String getVersion() {
+        return version;
+    }
+
+    public boolean isCaseSensitive() {
+        return caseSensitive;
+    }
+
+    /**
+     * @return the number of concepts
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Find the ordinal of the concept with the passed code.
+     *
+     * @param code
+     *     the code
+     * @return
+     *     the ordinal, or -1 if the code system has no concept with this code
+     */
+    public int getOrdinal(java.lang.String code) {
+        java.lang.String key = key(code, caseSensitive);
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int ordinal = buffer.getInt(codeIndex + mid * 4);
+            int comparison = key(readCode(ordinal), caseSensitive).compareTo(key);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return ordinal;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the concept with the passed ordinal.
+     *
+     * @param ordinal
+     *     the ordinal
+     * @return
+     *     the concept
+     */
+    public Concept getConcept(int ordinal) {
+        Concept concept = conceptCache.get(ordinal);
+        if (concept == null) {
+            concept = readConcept(ordinal, true);
+            conceptCache.put(ordinal, concept);
+        }
+        return concept;
+    }
+
+    /**
+     * Indicates whether the concept with ordinal {@code descendant} is the concept with ordinal {@code ancestor} or
+     * one of its descendants.
+     *
+     * @param ancestor
+     *     the ordinal of the ancestor
+     * @param descendant
+     *     the ordinal of the descendant
+     * @return
+     *     true if descendant is subsumed by ancestor, false otherwise
+     */
+    public boolean subsumes(int ancestor, int descendant) {
+        int start = start(closure, ancestor);
+        int low = 0;
+        int high = (end(closure, ancestor) - start) / 4 - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int ordinal = buffer.getInt(start + mid * 4);
+            if (ordinal < descendant) {
+                low = mid + 1;
+            } else if (ordinal > descendant) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the ordinals of the concept and all of its descendants.
+     *
+     * @param ordinal
+     *     the ordinal of the concept
+     * @return
+     *     the sorted ordinals
+     */
+    public int[] getClosure(int ordinal) {
+        return readOrdinals(closure, ordinal);
+    }
+
+    /**
+     * Get the ordinals of the direct children of the concept.
+     *
+     * @param ordinal
+     *     the ordinal of the concept
+     * @return
+     *     the sorted ordinals
+     */
+    public int[] getChildren(int ordinal) {
+        return readOrdinals(children, ordinal);
+    }
+
+    /**
+     * Close the underlying file. The mapping itself is released when the store is garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        conceptCache.clear();
+        channel.close();
+    }
+
+    private int[] readOrdinals(int section, int ordinal) {
+        int start = start(section, ordinal);
+        int[] ordinals = new int[(end(section, ordinal) - start) / 4];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = buffer.getInt(start + i * 4);
+        }
+        return ordinals;
+    }
+
+    /**
+     * @return the position of the first ordinal of the list of the passed concept in an ordinal list section
+     */
+    private int start(int section, int ordinal) {
+        return section + (size + 1) * 8 + (int) buffer.getLong(section + ordinal * 8) * 4;
+    }
+
+    /**
+     * @return the position after the last ordinal of the list of the passed concept in an ordinal list section
+     */
+    private int end(int section, int ordinal) {
+        return section + (size + 1) * 8 + (int) buffer.getLong(section + (ordinal + 1) * 8) * 4;
+    }
+
+    private int recordPosition(int ordinal) {
+        return (int) buffer.getLong(recordTable + ordinal * 8);
+    }
+
+    private java.lang.String readCode(int ordinal) {
+        return readString(new int[] { recordPosition(ordinal) });
+    }
+
+    private Concept readConcept(int ordinal, boolean full) {
+        int[] position = { recordPosition(ordinal) };
+        Concept.Builder builder = Concept.builder()
+                .code(Code.of(readString(position)))
+                .display(string(readString(position)));
+        if (!full) {
+            return builder.build();
+        }
+        builder.definition(string(readString(position)));
+
+        int designationCount = readInt(position);
+        for (int i = 0; i < designationCount; i++) {
+            java.lang.String language = readString(position);
+            Coding use = readCoding(position);
+            builder.designation(Concept.Designation.builder()
+                .language((language != null) ? Code.of(language) : null)
+                .use(use)
+                .value(string(readString(position)))
+                .build());
+        }
+
+        int propertyCount = readInt(position);
+        for (int i = 0; i < propertyCount; i++) {
+            Code code = Code.of(readString(position));
+            byte type = buffer.get(position[0]++);
+            Element value;
+            switch (type) {
+            case TYPE_CODE:
+                value = Code.of(readString(position));
+                break;
+            case TYPE_CODING:
+                value = readCoding(position);
+                break;
+            case TYPE_STRING:
+                value = String.of(readString(position));
+                break;
+            case TYPE_INTEGER:
+                value = Integer.of(readInt(position));
+                break;
+            case TYPE_BOOLEAN:
+                value = Boolean.of(buffer.get(position[0]++) != 0);
+                break;
+            case TYPE_DATE_TIME:
+                value = DateTime.of(readString(position));
+                break;
+            case TYPE_DECIMAL:
+                value = Decimal.of(readString(position));
+                break;
+            default:
+                throw new IllegalStateException("Unknown property type " + type + " in concept store of code system '" + url + "'");
+            }
+            builder.property(Concept.Property.builder().code(code).value(value).build());
+        }
+
+        for (int child : getChildren(ordinal)) {
+            builder.concept(readConcept(child, false));
+        }
+        return builder.build();
+    }
+
+    private Coding readCoding(int[] position) {
+        java.lang.String system = readString(position);
+        java.lang.String code = readString(position);
+        java.lang.String display = readString(position);
+        if (system == null && code == null && display == null) {
+            return null;
+        }
+        return Coding.builder()
+                .system((system != null) ? Uri.of(system) : null)
+                .code((code != null) ? Code.of(code) : null)
+                .display(string(display))
+                .build();
+    }
+
+    private static String string(java.lang.String value) {
+        return (value != null) ? String.of(value) : null;
+    }
+
+    private int readInt(int[] position) {
+        int value = buffer.getInt(position[0]);
+        position[0] += 4;
+        return value;
+    }
+
+    /**
+     * Read a string at the passed position and advance the position past it
+     */
+    private java.lang.String readString(int[] position) {
+        int length = readInt(position);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(position[0]++);
+        }
+        return new java.lang.String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.term.store;
+
+/**
+ * Constants of the concept store file format, which is shared by {@link ConceptStoreWriter} and {@link ConceptStore}.
+ *
+ * <p>All numbers are big-endian. Strings are written as an int byte length (-1 for null) followed by UTF-8 bytes.
+ * <pre>
+ * header:    magic, format version, flags, concept count (int)
+ *            url, version (string)
+ *            section positions: record table, code index, closure, children (long)
+ * records:   one record per concept:
+ *            code, display, definition (string)
+ *            designation count (int), each: language, use system, use code, use display, value (string)
+ *            property count (int), each: code (string), value type (byte), value
+ * record table: the position (long) of the record of each concept
+ * code index: the concept ordinals (int) sorted by code (case-folded if the code system is not case sensitive)
+ * closure:   concept count + 1 offsets (long) into the following ordinals (int); the ordinals of each concept are
+ *            the sorted ordinals of the concept and all of its descendants
+ * children:  concept count + 1 offsets (long) into the following ordinals (int) of the direct children
+ * </pre>
+ * Concept ordinals are assigned in the pre-order of the concept hierarchy of the source code system.
+ */
+final class ConceptStoreFormat {
+    static final int MAGIC = 0x46545331;
+    static final int FORMAT_VERSION = 1;
+
+    static final int FLAG_CASE_SENSITIVE = 1;
+
+    static final byte TYPE_CODE = 1;
+    static final byte TYPE_CODING = 2;
+    static final byte TYPE_STRING = 3;
+    static final byte TYPE_INTEGER = 4;
+    static final byte TYPE_BOOLEAN = 5;
+    static final byte TYPE_DATE_TIME = 6;
+    static final byte TYPE_DECIMAL = 7;
+
+    /**
+     * The file extension of concept store files
+     */
+    static final String FILE_EXTENSION = ".concepts";
+
+    private ConceptStoreFormat() { }
+
+    /**
+     * The key by which concepts are looked up; codes of code systems that are not case sensitive are case-folded
+     * in the same way as {@link String#equalsIgnoreCase(String)}.
+     */
+    static String key(String code, boolean caseSensitive) {
+        if (caseSensitive) {
+            return code;
+        }
+        char[] chars = code.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.term.store;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.ibm.fhir.model.format.Format;
+import com.ibm.fhir.model.generator.FHIRGenerator;
+import com.ibm.fhir.model.parser.FHIRParser;
+import com.ibm.fhir.model.resource.CodeSystem;
+import com.ibm.fhir.model.type.code.CodeSystemContentMode;
+
+/**
+ * Command line tool which loads code systems into concept stores for the
+ * {@link com.ibm.fhir.term.service.provider.ConceptStoreTermServiceProvider}.
+ *
+ * <pre>
+ * java -cp ... com.ibm.fhir.term.store.ConceptStoreLoader --output-dir &lt;dir&gt; [--stub] &lt;CodeSystem file&gt;...
+ * </pre>
+ *
+ * Each CodeSystem resource (JSON, or XML if the file name ends with .xml) is written to a store file in the output
+ * directory. With --stub, a copy of the code system without concepts and with content "not-present" is written next to
+ * each store, for registration in the FHIR registry.
+ */
+public class ConceptStoreLoader {
+    private static final Logger log = Logger.getLogger(ConceptStoreLoader.class.getName());
+
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_BAD_ARGS = 1;
+    private static final int EXIT_RUNTIME_ERROR = 2;
+
+    private Path outputDirectory;
+    private boolean stub;
+    private final List<Path> files = new ArrayList<>();
+
+    protected void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+            case "--output-dir":
+                if (++i < args.length) {
+                    outputDirectory = Paths.get(args[i]);
+                } else {
+                    throw new IllegalArgumentException("Missing value for argument: " + arg);
+                }
+                break;
+            case "--stub":
+                stub = true;
+                break;
+            default:
+                if (arg.startsWith("--")) {
+                    throw new IllegalArgumentException("Invalid argument: " + arg);
+                }
+                files.add(Paths.get(arg));
+                break;
+            }
+        }
+        if (outputDirectory == null || files.isEmpty()) {
+            throw new IllegalArgumentException("An output directory and at least one CodeSystem file are required");
+        }
+    }
+
+    protected void process() throws Exception {
+        Files.createDirectories(outputDirectory);
+        for (Path file : files) {
+            CodeSystem codeSystem;
+            Format format = file.getFileName().toString().endsWith(".xml") ? Format.XML : Format.JSON;
+            try (InputStream in = Files.newInputStream(file)) {
+                codeSystem = FHIRParser.parser(format).parse(in);
+            }
+
+            String url = (codeSystem.getUrl() != null) ? codeSystem.getUrl().getValue() : null;
+            String version = (codeSystem.getVersion() != null) ? codeSystem.getVersion().getValue() : null;
+            if (url == null) {
+                throw new IllegalArgumentException("CodeSystem has no url: " + file);
+            }
+
+            String fileName = ConceptStoreWriter.getFileName(url, version);
+            new ConceptStoreWriter(codeSystem).write(outputDirectory.resolve(fileName));
+
+            if (stub) {
+                CodeSystem stubCodeSystem = codeSystem.toBuilder()
+                        .concept(Collections.emptyList())
+                        .content(CodeSystemContentMode.NOT_PRESENT)
+                        .build();
+                Path stubFile = outputDirectory.resolve(fileName.replaceAll("\\.concepts$", ".json"));
+                try (OutputStream out = Files.newOutputStream(stubFile)) {
+                    FHIRGenerator.generator(Format.JSON, true).generate(stubCodeSystem, out);
+                }
+            }
+        }
+    }
+
+    protected static void printUsage() {
+        System.err.println("Usage: ConceptStoreLoader --output-dir <dir> [--stub] <CodeSystem file>...");
+    }
+
+    public static void main(String[] args) {
+        int exitStatus;
+        ConceptStoreLoader loader = new ConceptStoreLoader();
+        try {
+            loader.parseArgs(args);
+            loader.process();
+            exitStatus = EXIT_OK;
+        } catch (IllegalArgumentException x) {
+            log.log(Level.SEVERE, "bad argument", x);
+            printUsage();
+            exitStatus = EXIT_BAD_ARGS;
+        } catch (Exception x) {
+            log.log(Level.SEVERE, "concept store loader failed", x);
+            exitStatus = EXIT_RUNTIME_ERROR;
+        }
+        System.exit(exitStatus);
+    }
+}
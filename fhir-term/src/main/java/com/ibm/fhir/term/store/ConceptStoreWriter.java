@@ -0,0 +1,428 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.term.store;
+
+import static com.ibm.fhir.term.store.ConceptStoreFormat.FILE_EXTENSION;
+import static com.ibm.fhir.term.store.ConceptStoreFormat.FLAG_CASE_SENSITIVE;
+import static com.ibm.fhir.term.store.ConceptStoreFormat.FORMAT_VERSION;
+import static com.ibm.fhir.term.store.ConceptStoreFormat.MAGIC;
+import static com.ibm.fhir.term.store.ConceptStoreFormat.TYPE_BOOLEAN;
+import static com.ibm.fhir.term.store.ConceptStoreFormat.TYPE_CODE;
+import static com.ibm.fhir.term.store.ConceptStoreFormat.TYPE_CODING;
+import static com.ibm.fhir.term.store.ConceptStoreFormat.TYPE_DATE_TIME;
+import static com.ibm.fhir.term.store.ConceptStoreFormat.TYPE_DECIMAL;
+import static com.ibm.fhir.term.store.ConceptStoreFormat.TYPE_INTEGER;
+import static com.ibm.fhir.term.store.ConceptStoreFormat.TYPE_STRING;
+import static com.ibm.fhir.term.store.ConceptStoreFormat.key;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import com.ibm.fhir.model.resource.CodeSystem;
+import com.ibm.fhir.model.resource.CodeSystem.Concept;
+import com.ibm.fhir.model.resource.CodeSystem.Concept.Designation;
+import com.ibm.fhir.model.type.Boolean;
+import com.ibm.fhir.model.type.Code;
+import com.ibm.fhir.model.type.Coding;
+import com.ibm.fhir.model.type.DateTime;
+import com.ibm.fhir.model.type.Decimal;
+import com.ibm.fhir.model.type.Element;
+import com.ibm.fhir.model.type.Integer;
+import com.ibm.fhir.model.type.String;
+import com.ibm.fhir.term.util.CodeSystemSupport;
+
+/**
+ * Writes the concepts of a {@link CodeSystem} to a concept store file, which can then be served by a
+ * {@link ConceptStore}.
+ *
+ * <p>The hierarchy is taken from the nesting of the concepts and from the "parent" and "child" concept properties,
+ * so code systems with multiple parents per concept are supported. A concept which occurs more than once in the
+ * nested hierarchy is stored once, with all of its parents.
+ */
+public class ConceptStoreWriter {
+    private static final Logger log = Logger.getLogger(ConceptStoreWriter.class.getName());
+
+    private static final java.lang.String PARENT_PROPERTY = "parent";
+    private static final java.lang.String CHILD_PROPERTY = "child";
+
+    private final CodeSystem codeSystem;
+    private final boolean caseSensitive;
+    private final List<Concept> concepts = new ArrayList<>();
+    private final Map<java.lang.String, java.lang.Integer> ordinals = new HashMap<>();
+    private final List<Set<java.lang.Integer>> children = new ArrayList<>();
+
+    public ConceptStoreWriter(CodeSystem codeSystem) {
+        if (codeSystem.getUrl() == null || codeSystem.getUrl().getValue() == null) {
+            throw new IllegalArgumentException("The code system has no url");
+        }
+        this.codeSystem = codeSystem;
+        this.caseSensitive = CodeSystemSupport.isCaseSensitive(codeSystem);
+        for (Concept concept : codeSystem.getConcept()) {
+            add(concept, -1);
+        }
+        addPropertyEdges();
+    }
+
+    /**
+     * The file name of the store of the passed code system (url and version) within a store directory.
+     *
+     * @param url
+     *     the url of the code system
+     * @param version
+     *     the version of the code system, or null
+     * @return
+     *     the file name
+     */
+    public static java.lang.String getFileName(java.lang.String url, java.lang.String version) {
+        java.lang.String name = (version != null) ? url + "|" + version : url;
+        return name.replaceAll("[^A-Za-z0-9._-]", "_") + FILE_EXTENSION;
+    }
+
+    /**
+     * Write the concept store to the passed file. The file is written to a temporary file first and then moved,
+     * so a store which is being served is never seen partially written.
+     *
+     * @param file
+     *     the file to write
+     * @throws IOException
+     *     if the file can't be written or the store would be too large
+     */
+    public void write(Path file) throws IOException {
+        long start = System.nanoTime();
+        int[][] closure = computeClosure();
+
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        long[] sections = new long[4];
+        long sectionsPosition;
+        try (OutputStream os = Files.newOutputStream(tempFile)) {
+            CountingOutputStream counter = new CountingOutputStream(new BufferedOutputStream(os, 65536));
+            DataOutputStream out = new DataOutputStream(counter);
+
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(caseSensitive ? FLAG_CASE_SENSITIVE : 0);
+            out.writeInt(concepts.size());
+            writeString(out, codeSystem.getUrl().getValue());
+            writeString(out, (codeSystem.getVersion() != null) ? codeSystem.getVersion().getValue() : null);
+            sectionsPosition = counter.position();
+            for (int i = 0; i < sections.length; i++) {
+                out.writeLong(0);
+            }
+
+            // records
+            long[] recordPositions = new long[concepts.size()];
+            for (int i = 0; i < concepts.size(); i++) {
+                recordPositions[i] = counter.position();
+                writeRecord(out, concepts.get(i));
+            }
+
+            // record table
+            sections[0] = counter.position();
+            for (long recordPosition : recordPositions) {
+                out.writeLong(recordPosition);
+            }
+
+            // code index
+            sections[1] = counter.position();
+            java.lang.String[] keys = new java.lang.String[concepts.size()];
+            java.lang.Integer[] sorted = new java.lang.Integer[concepts.size()];
+            for (int i = 0; i < sorted.length; i++) {
+                keys[i] = key(concepts.get(i).getCode().getValue(), caseSensitive);
+                sorted[i] = i;
+            }
+            Arrays.sort(sorted, Comparator.comparing(i -> keys[i]));
+            for (int ordinal : sorted) {
+                out.writeInt(ordinal);
+            }
+
+            // closure
+            sections[2] = counter.position();
+            writeOrdinalLists(out, Arrays.asList(closure));
+
+            // children
+            sections[3] = counter.position();
+            List<int[]> childLists = new ArrayList<>(children.size());
+            for (Set<java.lang.Integer> set : children) {
+                childLists.add(set.stream().mapToInt(i -> i).sorted().toArray());
+            }
+            writeOrdinalLists(out, childLists);
+
+            out.flush();
+            if (counter.position() > java.lang.Integer.MAX_VALUE) {
+                throw new IOException("The concept store of code system '" + codeSystem.getUrl().getValue() + "' exceeds 2 GB");
+            }
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(tempFile.toFile(), "rw")) {
+            raf.seek(sectionsPosition);
+            for (long section : sections) {
+                raf.writeLong(section);
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+
+        log.info(java.lang.String.format("Wrote %d concepts of code system '%s' to %s in %.3f s", concepts.size(),
+                codeSystem.getUrl().getValue(), file, (System.nanoTime() - start) / 1e9));
+    }
+
+    private void add(Concept concept, int parent) {
+        if (concept.getCode() == null || concept.getCode().getValue() == null) {
+            return;
+        }
+        java.lang.String key = key(concept.getCode().getValue(), caseSensitive);
+        java.lang.Integer ordinal = ordinals.get(key);
+        if (ordinal == null) {
+            ordinal = concepts.size();
+            ordinals.put(key, ordinal);
+            concepts.add(concept);
+            children.add(new LinkedHashSet<>());
+        }
+        if (parent != -1 && parent != ordinal) {
+            children.get(parent).add(ordinal);
+        }
+        for (Concept child : concept.getConcept()) {
+            add(child, ordinal);
+        }
+    }
+
+    private void addPropertyEdges() {
+        for (int ordinal = 0; ordinal < concepts.size(); ordinal++) {
+            for (Concept.Property property : concepts.get(ordinal).getProperty()) {
+                if (property.getCode() == null || !(property.getValue() instanceof Code)) {
+                    continue;
+                }
+                java.lang.Integer other = ordinals.get(key(property.getValue().as(Code.class).getValue(), caseSensitive));
+                if (other == null || other == ordinal) {
+                    continue;
+                }
+                if (PARENT_PROPERTY.equals(property.getCode().getValue())) {
+                    children.get(other).add(ordinal);
+                } else if (CHILD_PROPERTY.equals(property.getCode().getValue())) {
+                    children.get(ordinal).add(other);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compute the sorted ordinals of each concept and all of its descendants with an iterative depth-first
+     * traversal, so that deep hierarchies don't exhaust the stack. Edges that would close a cycle are ignored.
+     */
+    private int[][] computeClosure() {
+        int size = concepts.size();
+        int[][] closure = new int[size][];
+        byte[] state = new byte[size];
+        int[] stack = new int[size];
+        List<List<java.lang.Integer>> childLists = new ArrayList<>(size);
+        for (Set<java.lang.Integer> set : children) {
+            childLists.add(new ArrayList<>(set));
+        }
+        int[] next = new int[size];
+
+        for (int root = 0; root < size; root++) {
+            if (state[root] != 0) {
+                continue;
+            }
+            int top = 0;
+            stack[top] = root;
+            state[root] = 1;
+            while (top >= 0) {
+                int ordinal = stack[top];
+                List<java.lang.Integer> childList = childLists.get(ordinal);
+                if (next[ordinal] < childList.size()) {
+                    int child = childList.get(next[ordinal]++);
+                    if (state[child] == 0) {
+                        state[child] = 1;
+                        stack[++top] = child;
+                    }
+                    continue;
+                }
+                int count = 1;
+                for (int child : childList) {
+                    if (closure[child] != null) {
+                        count += closure[child].length;
+                    }
+                }
+                int[] ordinals = new int[count];
+                ordinals[0] = ordinal;
+                int pos = 1;
+                for (int child : childList) {
+                    if (closure[child] != null) {
+                        System.arraycopy(closure[child], 0, ordinals, pos, closure[child].length);
+                        pos += closure[child].length;
+                    }
+                }
+                closure[ordinal] = distinct(ordinals);
+                state[ordinal] = 2;
+                top--;
+            }
+        }
+        return closure;
+    }
+
+    private static int[] distinct(int[] ordinals) {
+        Arrays.sort(ordinals);
+        int count = 0;
+        for (int i = 0; i < ordinals.length; i++) {
+            if (i == 0 || ordinals[i] != ordinals[i - 1]) {
+                ordinals[count++] = ordinals[i];
+            }
+        }
+        return (count == ordinals.length) ? ordinals : Arrays.copyOf(ordinals, count);
+    }
+
+    private static void writeOrdinalLists(DataOutputStream out, List<int[]> lists) throws IOException {
+        long offset = 0;
+        out.writeLong(offset);
+        for (int[] list : lists) {
+            offset += list.length;
+            out.writeLong(offset);
+        }
+        for (int[] list : lists) {
+            for (int ordinal : list) {
+                out.writeInt(ordinal);
+            }
+        }
+    }
+
+    private void writeRecord(DataOutputStream out, Concept concept) throws IOException {
+        writeString(out, concept.getCode().getValue());
+        writeString(out, value(concept.getDisplay()));
+        writeString(out, value(concept.getDefinition()));
+
+        out.writeInt(concept.getDesignation().size());
+        for (Designation designation : concept.getDesignation()) {
+            writeString(out, (designation.getLanguage() != null) ? designation.getLanguage().getValue() : null);
+            writeCoding(out, designation.getUse());
+            writeString(out, value(designation.getValue()));
+        }
+
+        List<Concept.Property> properties = new ArrayList<>(concept.getProperty().size());
+        for (Concept.Property property : concept.getProperty()) {
+            if (property.getCode() != null && property.getValue() != null && type(property.getValue()) != 0) {
+                properties.add(property);
+            } else {
+                log.warning("Skipping unsupported property of concept '" + concept.getCode().getValue() + "'");
+            }
+        }
+        out.writeInt(properties.size());
+        for (Concept.Property property : properties) {
+            writeString(out, property.getCode().getValue());
+            Element value = property.getValue();
+            byte type = type(value);
+            out.writeByte(type);
+            switch (type) {
+            case TYPE_CODE:
+                writeString(out, value.as(Code.class).getValue());
+                break;
+            case TYPE_CODING:
+                writeCoding(out, value.as(Coding.class));
+                break;
+            case TYPE_STRING:
+                writeString(out, value.as(String.class).getValue());
+                break;
+            case TYPE_INTEGER:
+                out.writeInt(value.as(Integer.class).getValue());
+                break;
+            case TYPE_BOOLEAN:
+                out.writeBoolean(value.as(Boolean.class).getValue());
+                break;
+            case TYPE_DATE_TIME:
+                writeString(out, DateTime.PARSER_FORMATTER.format(value.as(DateTime.class).getValue()));
+                break;
+            case TYPE_DECIMAL:
+                writeString(out, value.as(Decimal.class).getValue().toString());
+                break;
+            default:
+                break;
+            }
+        }
+    }
+
+    private static byte type(Element value) {
+        if (value instanceof Code) {
+            return (value.as(Code.class).getValue() != null) ? TYPE_CODE : 0;
+        } else if (value instanceof Coding) {
+            return TYPE_CODING;
+        } else if (value instanceof String) {
+            return (value.as(String.class).getValue() != null) ? TYPE_STRING : 0;
+        } else if (value instanceof Integer) {
+            return (value.as(Integer.class).getValue() != null) ? TYPE_INTEGER : 0;
+        } else if (value instanceof Boolean) {
+            return (value.as(Boolean.class).getValue() != null) ? TYPE_BOOLEAN : 0;
+        } else if (value instanceof DateTime) {
+            return (value.as(DateTime.class).getValue() != null) ? TYPE_DATE_TIME : 0;
+        } else if (value instanceof Decimal) {
+            return (value.as(Decimal.class).getValue() != null) ? TYPE_DECIMAL : 0;
+        }
+        return 0;
+    }
+
+    private static java.lang.String value(String string) {
+        return (string != null) ? string.getValue() : null;
+    }
+
+    private static void writeCoding(DataOutputStream out, Coding coding) throws IOException {
+        writeString(out, (coding != null && coding.getSystem() != null) ? coding.getSystem().getValue() : null);
+        writeString(out, (coding != null && coding.getCode() != null) ? coding.getCode().getValue() : null);
+        writeString(out, (coding != null) ? value(coding.getDisplay()) : null);
+    }
+
+    private static void writeString(DataOutputStream out, java.lang.String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Counts the bytes written, so that the positions of the sections can be recorded
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long position;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            position++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            position += len;
+        }
+
+        private long position() {
+            return position;
+        }
+    }
+}
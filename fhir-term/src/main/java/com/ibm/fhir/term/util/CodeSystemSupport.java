@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2019, 2020
+ * (C) Copyright IBM Corp. 2019, 2021
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -8,8 +8,12 @@ package com.ibm.fhir.term.util;
 
 import static com.ibm.fhir.core.util.LRUCache.createLRUCache;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -24,6 +28,7 @@ import com.ibm.fhir.registry.FHIRRegistry;
  */
 public final class CodeSystemSupport {
     private static final Map<String, Boolean> CASE_SENSITIVITY_CACHE = createLRUCache(2048);
+    private static final Map<String, ConceptIndex> CONCEPT_INDEX_CACHE = createLRUCache(1024);
 
     private CodeSystemSupport() { }
 
@@ -38,6 +43,10 @@ public final class CodeSystemSupport {
      *     the code system concept that matches the specified code, or null if no such concept exists
      */
     public static Concept findConcept(CodeSystem codeSystem, Code code) {
+        ConceptIndex index = getConceptIndex(codeSystem);
+        if (index != null) {
+            return index.findConcept(code, 0, index.size());
+        }
         Concept result = null;
         for (Concept concept : codeSystem.getConcept()) {
             result = findConcept(codeSystem, concept, code);
@@ -61,12 +70,23 @@ public final class CodeSystemSupport {
      *     the code system concept that matches the specified code, or null if not such concept exists
      */
     public static Concept findConcept(CodeSystem codeSystem, Concept concept, Code code) {
+        ConceptIndex index = getConceptIndex(codeSystem);
+        if (index != null) {
+            Integer position = index.getPosition(concept);
+            if (position != null) {
+                return index.findConcept(code, position, index.getEnd(position));
+            }
+        }
+        return findConceptInTree(codeSystem, concept, code);
+    }
+
+    private static Concept findConceptInTree(CodeSystem codeSystem, Concept concept, Code code) {
         if (concept.getCode().equals(code) || (!isCaseSensitive(codeSystem)) && concept.getCode().getValue().equalsIgnoreCase(code.getValue())) {
             return concept;
         }
         Concept result = null;
         for (Concept child : concept.getConcept()) {
-            result = findConcept(codeSystem, child, code);
+            result = findConceptInTree(codeSystem, child, code);
             if (result != null) {
                 break;
             }
@@ -176,6 +196,10 @@ public final class CodeSystemSupport {
      *     flattened list of Concept instances for the given code system
      */
     public static Set<Concept> getConcepts(CodeSystem codeSystem) {
+        ConceptIndex index = getConceptIndex(codeSystem);
+        if (index != null) {
+            return index.getConcepts(0, index.size());
+        }
         Set<Concept> concepts = (codeSystem.getCount() != null) ? new LinkedHashSet<>(codeSystem.getCount().getValue()) : new LinkedHashSet<>();
         for (Concept concept : codeSystem.getConcept()) {
             concepts.addAll(getConcepts(concept));
@@ -183,6 +207,31 @@ public final class CodeSystemSupport {
         return concepts;
     }
 
+    /**
+     * Get a set containing {@link CodeSystem.Concept} instances where all structural
+     * hierarchies have been flattened, using the concept index of the code system when possible.
+     *
+     * @param codeSystem
+     *     the code system that contains the concept
+     * @param concept
+     *     the root of the tree containing the Concept instances to be flattened
+     * @return
+     *     flattened set of Concept instances for the given tree
+     */
+    public static Set<Concept> getConcepts(CodeSystem codeSystem, Concept concept) {
+        if (concept == null) {
+            return Collections.emptySet();
+        }
+        ConceptIndex index = getConceptIndex(codeSystem);
+        if (index != null) {
+            Integer position = index.getPosition(concept);
+            if (position != null) {
+                return index.getConcepts(position, index.getEnd(position));
+            }
+        }
+        return getConcepts(concept);
+    }
+
     /**
      * Get a set containing {@link CodeSystem.Concept} instances where all structural
      * hierarchies have been flattened.
@@ -233,4 +282,114 @@ public final class CodeSystemSupport {
     public static boolean hasConceptProperty(Concept concept, Code code) {
         return getConceptProperty(concept, code) != null;
     }
-}
\ No newline at end of file
+
+    /**
+     * Get the concept index of the code system, building it if needed. Indexes are cached by url and version,
+     * and an index is only used for the code system instance that it was built from.
+     *
+     * @return
+     *     the concept index, or null if the code system has no url
+     */
+    private static ConceptIndex getConceptIndex(CodeSystem codeSystem) {
+        if (codeSystem == null || codeSystem.getUrl() == null || codeSystem.getUrl().getValue() == null) {
+            return null;
+        }
+        String key = codeSystem.getUrl().getValue();
+        if (codeSystem.getVersion() != null && codeSystem.getVersion().getValue() != null) {
+            key = key + "|" + codeSystem.getVersion().getValue();
+        }
+        ConceptIndex index = CONCEPT_INDEX_CACHE.get(key);
+        if (index == null || index.codeSystem != codeSystem) {
+            index = new ConceptIndex(codeSystem);
+            CONCEPT_INDEX_CACHE.put(key, index);
+        }
+        return index;
+    }
+
+    /**
+     * An index of the concepts of a code system. The concepts are numbered in pre-order, so the subtree of
+     * a concept is the interval from its own position to the position of its last descendant. This makes
+     * finding a code within a subtree (e.g. a subsumption test) a hash lookup followed by an interval check.
+     */
+    private static final class ConceptIndex {
+        private final CodeSystem codeSystem;
+        private final boolean caseSensitive;
+        // the concepts in pre-order
+        private final List<Concept> concepts = new ArrayList<>();
+        // the end (exclusive) of the subtree of the concept at each position
+        private final List<Integer> ends = new ArrayList<>();
+        private final Map<Concept, Integer> positions = new IdentityHashMap<>();
+        // the positions of the concepts for each code (case-folded if the code system is not case sensitive)
+        private final Map<String, List<Integer>> codePositions = new HashMap<>();
+
+        private ConceptIndex(CodeSystem codeSystem) {
+            this.codeSystem = codeSystem;
+            this.caseSensitive = isCaseSensitive(codeSystem);
+            for (Concept concept : codeSystem.getConcept()) {
+                add(concept);
+            }
+        }
+
+        private void add(Concept concept) {
+            int position = concepts.size();
+            concepts.add(concept);
+            ends.add(null);
+            positions.putIfAbsent(concept, position);
+            if (concept.getCode() != null && concept.getCode().getValue() != null) {
+                codePositions.computeIfAbsent(key(concept.getCode().getValue()), k -> new ArrayList<>(1)).add(position);
+            }
+            for (Concept child : concept.getConcept()) {
+                add(child);
+            }
+            ends.set(position, concepts.size());
+        }
+
+        private String key(String code) {
+            if (caseSensitive) {
+                return code;
+            }
+            // the same folding as String.equalsIgnoreCase
+            char[] chars = code.toCharArray();
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+            }
+            return new String(chars);
+        }
+
+        private int size() {
+            return concepts.size();
+        }
+
+        private Integer getPosition(Concept concept) {
+            return positions.get(concept);
+        }
+
+        private int getEnd(int position) {
+            return ends.get(position);
+        }
+
+        /**
+         * Find the first concept (in pre-order) between start (inclusive) and end (exclusive) that matches the code.
+         */
+        private Concept findConcept(Code code, int start, int end) {
+            if (code == null || code.getValue() == null) {
+                return null;
+            }
+            List<Integer> candidates = codePositions.get(key(code.getValue()));
+            if (candidates != null) {
+                for (int position : candidates) {
+                    // the key is the exact code value (or its case folding), so any candidate within the range
+                    // matches; the extensions and ids of the code elements are not compared
+                    if (position >= start && position < end) {
+                        return concepts.get(position);
+                    }
+                }
+            }
+            return null;
+        }
+
+        private Set<Concept> getConcepts(int start, int end) {
+            return new LinkedHashSet<>(concepts.subList(start, end));
+        }
+    }
+}
@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -61,9 +62,30 @@ public final class ValueSetSupport {
 
     private static final java.lang.String VERSION_UNKNOWN = "<version unknown>";
     private static final Map<java.lang.String, Map<java.lang.String, Set<java.lang.String>>> CODE_SET_MAP_CACHE = createLRUCache(1024);
+    private static final Map<java.lang.String, Set<Contains>> EXPANSION_CACHE = createLRUCache(1024);
+    private static final Map<IncludeKey, Set<Contains>> INCLUDE_CACHE = createLRUCache(4096);
+    private static final Supplier<java.lang.String> SHARED_CACHE_SCOPE = () -> "";
+
+    // the FHIRRegistry version that the cached expansions were computed from
+    private static volatile long registryVersion = -1;
+
+    // identifies the registry content visible to the current thread
+    private static volatile Supplier<java.lang.String> cacheScope = SHARED_CACHE_SCOPE;
 
     private ValueSetSupport() { }
 
+    /**
+     * Set the scope of the cached expansions. Registry resource providers may be tenant-specific, in which case the
+     * same value set or code system url can resolve to different content, so the scope should identify the registry
+     * content visible to the current thread (e.g. the tenant and datastore). By default all expansions are shared.
+     *
+     * @param scope
+     *     supplies the scope of the current thread, or null to share all expansions
+     */
+    public static void setCacheScope(Supplier<java.lang.String> scope) {
+        cacheScope = (scope != null) ? scope : SHARED_CACHE_SCOPE;
+    }
+
     /**
      * Expand the given value set per the algorithm here: http://hl7.org/fhir/valueset.html#expansion
      *
@@ -74,7 +96,7 @@ public final class ValueSetSupport {
      */
     public static ValueSet expand(ValueSet valueSet) {
         if (!isExpanded(valueSet) && isExpandable(valueSet)) {
-            Set<Contains> result = expand(valueSet.getCompose());
+            Set<Contains> result = getExpansion(valueSet);
             return valueSet.toBuilder()
                 .expansion(Expansion.builder()
                     .total(Integer.of(result.size()))
@@ -86,6 +108,77 @@ public final class ValueSetSupport {
         return valueSet;
     }
 
+    /**
+     * Expand the given value set and return a single page of the expansion. Expansions are cached, so paging through
+     * a large expansion only computes it once.
+     *
+     * <p>If the value set is already expanded, the page is taken from its (flattened) expansion.
+     *
+     * @param valueSet
+     *     the value set to be expanded
+     * @param offset
+     *     the index of the first code of the page
+     * @param count
+     *     the maximum number of codes of the page
+     * @return
+     *     the value set with a page of the expansion, or the original value set if unable to expand
+     */
+    public static ValueSet expand(ValueSet valueSet, int offset, int count) {
+        if (offset < 0 || count < 0) {
+            throw new IllegalArgumentException("The offset and count must not be negative");
+        }
+        List<Expansion.Contains> contains;
+        if (isExpanded(valueSet)) {
+            contains = new ArrayList<>(getContains(valueSet.getExpansion()));
+        } else if (isExpandable(valueSet)) {
+            contains = new ArrayList<>(unwrap(getExpansion(valueSet)));
+        } else {
+            return valueSet;
+        }
+        int fromIndex = Math.min(offset, contains.size());
+        int toIndex = (int) Math.min((long) fromIndex + count, contains.size());
+        return valueSet.toBuilder()
+            .expansion(Expansion.builder()
+                .total(Integer.of(contains.size()))
+                .offset(Integer.of(offset))
+                .timestamp(DateTime.now(ZoneOffset.UTC))
+                .contains(contains.subList(fromIndex, toIndex))
+                .build())
+            .build();
+    }
+
+    /**
+     * Get the expansion of the given value set from the cache, or compute it. Expansions are cached per cache scope,
+     * url and version, and the expansions of individual includes and excludes are shared between value sets.
+     */
+    private static Set<Contains> getExpansion(ValueSet valueSet) {
+        checkRegistryVersion();
+        if (valueSet.getUrl() == null || valueSet.getVersion() == null) {
+            return expand(valueSet.getCompose());
+        }
+        java.lang.String key = cacheScope.get() + "|" + valueSet.getUrl().getValue() + "|" + valueSet.getVersion().getValue();
+        Set<Contains> result = EXPANSION_CACHE.get(key);
+        if (result == null) {
+            // computed outside of the cache lock, so concurrent expansions of other value sets aren't blocked
+            result = Collections.unmodifiableSet(expand(valueSet.getCompose()));
+            EXPANSION_CACHE.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Clear the cached expansions if the content of the FHIR registry has changed since they were computed.
+     */
+    private static void checkRegistryVersion() {
+        long currentRegistryVersion = FHIRRegistry.getInstance().getVersion();
+        if (currentRegistryVersion != registryVersion) {
+            EXPANSION_CACHE.clear();
+            INCLUDE_CACHE.clear();
+            CODE_SET_MAP_CACHE.clear();
+            registryVersion = currentRegistryVersion;
+        }
+    }
+
     public static boolean isExpanded(ValueSet valueSet) {
         return valueSet != null && valueSet.getExpansion() != null;
     }
@@ -374,12 +467,12 @@ public final class ValueSetSupport {
 
         Set<Contains> included = new LinkedHashSet<>();
         for (Include include : compose.getInclude()) {
-            included.addAll(expand(include));
+            included.addAll(getExpansion(include));
         }
 
         Set<Contains> excluded = new LinkedHashSet<>();
         for (Include exclude : compose.getExclude()) {
-            excluded.addAll(expand(exclude));
+            excluded.addAll(getExpansion(exclude));
         }
 
         Set<Contains> difference = new LinkedHashSet<>(included);
@@ -389,6 +482,20 @@ public final class ValueSetSupport {
         return result;
     }
 
+    /**
+     * Get the expansion of a single include or exclude from the cache, or compute it. Includes are compared by value,
+     * so value sets which share an include (e.g. all codes of a code system) within a cache scope reuse its expansion.
+     */
+    private static Set<Contains> getExpansion(Include includeOrExclude) {
+        IncludeKey key = new IncludeKey(cacheScope.get(), includeOrExclude);
+        Set<Contains> result = INCLUDE_CACHE.get(key);
+        if (result == null) {
+            result = Collections.unmodifiableSet(expand(includeOrExclude));
+            INCLUDE_CACHE.put(key, result);
+        }
+        return result;
+    }
+
     private static Set<Contains> expand(Include includeOrExclude) {
         if (includeOrExclude == null) {
             return Collections.emptySet();
@@ -430,7 +537,12 @@ public final class ValueSetSupport {
         for (Canonical valueSet : includeOrExclude.getValueSet()) {
             java.lang.String url = valueSet.getValue();
             if (hasResource(url, ValueSet.class)) {
-                valueSetContains.addAll(wrap(getContains(expand(getValueSet(url)).getExpansion())));
+                ValueSet vs = getValueSet(url);
+                if (isExpanded(vs)) {
+                    valueSetContains.addAll(wrap(getContains(vs.getExpansion())));
+                } else if (isExpandable(vs)) {
+                    valueSetContains.addAll(getExpansion(vs));
+                }
             }
         }
 
@@ -486,7 +598,7 @@ public final class ValueSetSupport {
     private static class EqualsFilter implements ConceptFilter {
         private final Code property;
         private final String value;
-        private final Set<Concept> children;
+        private final Set<Code> children;
         private final Concept child;
 
         public EqualsFilter(CodeSystem codeSystem, Code property, String value) {
@@ -496,7 +608,9 @@ public final class ValueSetSupport {
             if ("parent".equals(property.getValue())) {
                 Concept parent = FHIRTermService.getInstance().findConcept(codeSystem, code(value));
                 if (parent != null) {
-                    children.addAll(parent.getConcept());
+                    for (Concept child : parent.getConcept()) {
+                        children.add(child.getCode());
+                    }
                 }
             }
             this.child = "child".equals(property.getValue()) ? FHIRTermService.getInstance().findConcept(codeSystem, code(value)) : null;
@@ -504,11 +618,12 @@ public final class ValueSetSupport {
 
         @Override
         public boolean accept(Concept concept) {
+            // children are compared by code, because providers may return child concepts without their details
             if ("parent".equals(property.getValue())) {
-                return children.contains(concept);
+                return children.contains(concept.getCode());
             }
             if ("child".equals(property.getValue())) {
-                return concept.getConcept().contains(child);
+                return child != null && concept.getConcept().stream().anyMatch(c -> child.getCode().equals(c.getCode()));
             }
             if (hasConceptProperty(concept, property)) {
                 Element value = getConceptPropertyValue(concept, property);
@@ -683,6 +798,40 @@ public final class ValueSetSupport {
         }
     }
 
+    /**
+     * The key of a cached include or exclude expansion
+     */
+    private static class IncludeKey {
+        private final java.lang.String scope;
+        private final Include includeOrExclude;
+
+        public IncludeKey(java.lang.String scope, Include includeOrExclude) {
+            this.scope = scope;
+            this.includeOrExclude = includeOrExclude;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            IncludeKey other = (IncludeKey) obj;
+            return Objects.equals(scope, other.scope) &&
+                    Objects.equals(includeOrExclude, other.includeOrExclude);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(scope, includeOrExclude);
+        }
+    }
+
     public static boolean validateCode(ValueSet valueSet, Code code) {
         return validateCode(getCodeSetMap(valueSet), code);
     }
@@ -767,22 +916,33 @@ public final class ValueSetSupport {
     }
 
     private static Map<java.lang.String, Set<java.lang.String>> getCodeSetMap(ValueSet valueSet) {
+        checkRegistryVersion();
         if (valueSet.getUrl() == null || valueSet.getVersion() == null) {
             return computeCodeSetMap(valueSet);
         }
-        java.lang.String url = valueSet.getUrl().getValue() + "|" + valueSet.getVersion().getValue();
-        return CODE_SET_MAP_CACHE.computeIfAbsent(url, k -> computeCodeSetMap(valueSet));
+        java.lang.String key = cacheScope.get() + "|" + valueSet.getUrl().getValue() + "|" + valueSet.getVersion().getValue();
+        Map<java.lang.String, Set<java.lang.String>> codeSetMap = CODE_SET_MAP_CACHE.get(key);
+        if (codeSetMap == null) {
+            // computed outside of the cache lock, so concurrent validations against other value sets aren't blocked
+            codeSetMap = computeCodeSetMap(valueSet);
+            CODE_SET_MAP_CACHE.put(key, codeSetMap);
+        }
+        return codeSetMap;
     }
 
     private static Map<java.lang.String, Set<java.lang.String>> computeCodeSetMap(ValueSet valueSet) {
         try {
-            ValueSet expanded = expand(valueSet);
-            if (expanded == null || expanded.getExpansion() == null) {
+            Set<Expansion.Contains> expansion;
+            if (isExpanded(valueSet)) {
+                expansion = getContains(valueSet.getExpansion());
+            } else if (isExpandable(valueSet)) {
+                // use the cached expansion directly instead of building an expanded copy of the value set
+                expansion = unwrap(getExpansion(valueSet));
+            } else {
                 return Collections.emptyMap();
             }
             Map<java.lang.String, Set<java.lang.String>> codeSetMap = new LinkedHashMap<>();
-            Expansion expansion = expanded.getExpansion();
-            for (Expansion.Contains contains : getContains(expansion)) {
+            for (Expansion.Contains contains : expansion) {
                 java.lang.String system = (contains.getSystem() != null) ? contains.getSystem().getValue() : null;
                 java.lang.String version = (contains.getVersion() != null && contains.getVersion().getValue() != null) ? contains.getVersion().getValue() : VERSION_UNKNOWN;
                 java.lang.String code = (contains.getCode() != null) ? contains.getCode().getValue() : null;
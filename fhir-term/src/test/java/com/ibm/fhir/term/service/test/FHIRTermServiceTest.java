@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2020
+ * (C) Copyright IBM Corp. 2020, 2021
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -13,7 +13,9 @@ import static com.ibm.fhir.term.util.ConceptMapSupport.getConceptMap;
 import static com.ibm.fhir.term.util.ValueSetSupport.getContains;
 import static com.ibm.fhir.term.util.ValueSetSupport.getValueSet;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 import java.util.Arrays;
@@ -28,6 +30,7 @@ import com.ibm.fhir.model.resource.CodeSystem;
 import com.ibm.fhir.model.resource.CodeSystem.Concept;
 import com.ibm.fhir.model.resource.ConceptMap;
 import com.ibm.fhir.model.resource.ValueSet;
+import com.ibm.fhir.model.resource.ValueSet.Expansion;
 import com.ibm.fhir.model.type.Boolean;
 import com.ibm.fhir.model.type.Code;
 import com.ibm.fhir.model.type.Coding;
@@ -36,10 +39,12 @@ import com.ibm.fhir.model.type.Uri;
 import com.ibm.fhir.model.type.code.ConceptMapEquivalence;
 import com.ibm.fhir.model.type.code.ConceptSubsumptionOutcome;
 import com.ibm.fhir.term.service.FHIRTermService;
+import com.ibm.fhir.term.spi.ExpansionParameters;
 import com.ibm.fhir.term.spi.LookupOutcome;
 import com.ibm.fhir.term.spi.TranslationOutcome;
 import com.ibm.fhir.term.spi.TranslationOutcome.Match;
 import com.ibm.fhir.term.spi.ValidationOutcome;
+import com.ibm.fhir.term.util.ValueSetSupport;
 
 public class FHIRTermServiceTest {
     @Test
@@ -97,6 +102,61 @@ public class FHIRTermServiceTest {
         assertEquals(actual, Arrays.asList("m", "p", "q", "s", "o", "t", "u"));
     }
 
+    @Test
+    public void testExpandWithPaging() throws Exception {
+        ExpansionParameters parameters = ExpansionParameters.builder()
+                .offset(com.ibm.fhir.model.type.Integer.of(2))
+                .count(com.ibm.fhir.model.type.Integer.of(5))
+                .build();
+        ValueSet expanded = FHIRTermService.getInstance().expand(getValueSet("http://ibm.com/fhir/ValueSet/vs4|1.0.0"), parameters);
+
+        List<String> actual = expanded.getExpansion().getContains().stream()
+            .map(contains -> contains.getCode().getValue())
+            .collect(Collectors.toList());
+
+        assertEquals(actual, Arrays.asList("a", "b", "d", "m", "p"));
+        assertEquals(expanded.getExpansion().getTotal().getValue(), Integer.valueOf(12));
+        assertEquals(expanded.getExpansion().getOffset().getValue(), Integer.valueOf(2));
+    }
+
+    @Test
+    public void testExpandIsCached() throws Exception {
+        ValueSet valueSet = getValueSet("http://ibm.com/fhir/ValueSet/vs5|1.0.0");
+
+        ValueSet expanded1 = FHIRTermService.getInstance().expand(valueSet);
+        ValueSet expanded2 = FHIRTermService.getInstance().expand(valueSet);
+
+        assertEquals(expanded2.getExpansion().getContains(), expanded1.getExpansion().getContains());
+        for (int i = 0; i < expanded1.getExpansion().getContains().size(); i++) {
+            assertSame(expanded2.getExpansion().getContains().get(i), expanded1.getExpansion().getContains().get(i));
+        }
+    }
+
+    @Test
+    public void testExpandIsCachedPerScope() throws Exception {
+        // the same value set url and version with different content, as a tenant-specific registry could return
+        ValueSet valueSet = getValueSet("http://ibm.com/fhir/ValueSet/vs1|1.0.0");
+        ValueSet otherValueSet = valueSet.toBuilder()
+                .compose(getValueSet("http://ibm.com/fhir/ValueSet/vs2|1.0.0").getCompose())
+                .build();
+
+        String[] scope = { "tenant1:default" };
+        ValueSetSupport.setCacheScope(() -> scope[0]);
+        try {
+            List<Expansion.Contains> expected = FHIRTermService.getInstance().expand(valueSet).getExpansion().getContains();
+
+            scope[0] = "tenant2:default";
+            List<Expansion.Contains> other = FHIRTermService.getInstance().expand(otherValueSet).getExpansion().getContains();
+            assertNotEquals(other, expected);
+
+            // within a scope, the url and version identify the content, so the cached expansion is reused
+            scope[0] = "tenant1:default";
+            assertEquals(FHIRTermService.getInstance().expand(otherValueSet).getExpansion().getContains(), expected);
+        } finally {
+            ValueSetSupport.setCacheScope(null);
+        }
+    }
+
     @Test
     public void testLookup() throws Exception {
         Coding coding = Coding.builder()
@@ -0,0 +1,187 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.term.store.test;
+
+import static com.ibm.fhir.model.type.String.string;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.model.resource.CodeSystem;
+import com.ibm.fhir.model.resource.CodeSystem.Concept;
+import com.ibm.fhir.model.type.Boolean;
+import com.ibm.fhir.model.type.Code;
+import com.ibm.fhir.model.type.Coding;
+import com.ibm.fhir.model.type.DateTime;
+import com.ibm.fhir.model.type.Decimal;
+import com.ibm.fhir.model.type.Integer;
+import com.ibm.fhir.model.type.Uri;
+import com.ibm.fhir.model.type.code.CodeSystemContentMode;
+import com.ibm.fhir.model.type.code.CodeSystemHierarchyMeaning;
+import com.ibm.fhir.model.type.code.PublicationStatus;
+import com.ibm.fhir.term.service.provider.ConceptStoreTermServiceProvider;
+import com.ibm.fhir.term.service.provider.DefaultTermServiceProvider;
+import com.ibm.fhir.term.store.ConceptStoreWriter;
+
+public class ConceptStoreTest {
+    private static final String URL = "http://ibm.com/fhir/CodeSystem/concept-store-test";
+
+    private Path directory;
+    private CodeSystem codeSystem;
+    private CodeSystem stub;
+    private ConceptStoreTermServiceProvider provider;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("concept-store-test");
+        codeSystem = buildCodeSystem();
+        new ConceptStoreWriter(codeSystem).write(directory.resolve(ConceptStoreWriter.getFileName(URL, "1.0.0")));
+        stub = codeSystem.toBuilder().concept(java.util.Collections.emptyList()).content(CodeSystemContentMode.NOT_PRESENT).build();
+        provider = new ConceptStoreTermServiceProvider(directory);
+    }
+
+    @AfterClass
+    public void tearDown() throws Exception {
+        provider.close();
+        for (Path file : Files.newDirectoryStream(directory)) {
+            Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testIsSupported() {
+        assertTrue(provider.isSupported(stub));
+        assertFalse(provider.isSupported(stub.toBuilder().version(string("2.0.0")).build()));
+    }
+
+    @Test
+    public void testFindConcept() {
+        Concept concept = provider.findConcept(stub, Code.of("c"));
+        assertNotNull(concept);
+        assertEquals(concept.getCode(), Code.of("c"));
+        assertEquals(concept.getDisplay(), string("Concept c"));
+        assertEquals(codes(concept.getConcept()), Arrays.asList("d", "g"));
+
+        // not case sensitive
+        assertNotNull(provider.findConcept(stub, Code.of("C")));
+        assertNull(provider.findConcept(stub, Code.of("x")));
+    }
+
+    @Test
+    public void testProperties() {
+        Concept expected = new DefaultTermServiceProvider().findConcept(codeSystem, Code.of("b"));
+        Concept actual = provider.findConcept(stub, Code.of("b"));
+        assertEquals(actual.getProperty(), expected.getProperty());
+        assertEquals(actual.getDesignation(), expected.getDesignation());
+        assertEquals(actual.getDefinition(), expected.getDefinition());
+    }
+
+    @Test
+    public void testSubsumption() {
+        Concept a = provider.findConcept(stub, Code.of("a"));
+        Concept c = provider.findConcept(stub, Code.of("c"));
+        Concept e = provider.findConcept(stub, Code.of("e"));
+
+        assertNotNull(provider.findConcept(stub, a, Code.of("d")));
+        assertNotNull(provider.findConcept(stub, a, Code.of("a")));
+        assertNull(provider.findConcept(stub, c, Code.of("a")));
+        // g has the parents c (nested) and e (property)
+        assertNotNull(provider.findConcept(stub, c, Code.of("g")));
+        assertNotNull(provider.findConcept(stub, e, Code.of("g")));
+        assertNull(provider.findConcept(stub, e, Code.of("d")));
+    }
+
+    @Test
+    public void testGetConcepts() {
+        assertEquals(codes(provider.getConcepts(stub)), Arrays.asList("a", "b", "c", "d", "g", "e", "f"));
+
+        Concept a = provider.findConcept(stub, Code.of("a"));
+        assertEquals(codes(provider.getConcepts(stub, a)), Arrays.asList("a", "b", "c", "d", "g"));
+
+        Concept e = provider.findConcept(stub, Code.of("e"));
+        assertEquals(codes(provider.getConcepts(stub, e)), Arrays.asList("g", "e", "f"));
+    }
+
+    private List<String> codes(Collection<Concept> concepts) {
+        return concepts.stream().map(concept -> concept.getCode().getValue()).collect(Collectors.toList());
+    }
+
+    /**
+     * a
+     * +- b
+     * +- c
+     *    +- d
+     *    +- g
+     * e
+     * +- f
+     * (g also has the parent e)
+     */
+    private CodeSystem buildCodeSystem() {
+        return CodeSystem.builder()
+                .url(Uri.of(URL))
+                .version(string("1.0.0"))
+                .status(PublicationStatus.ACTIVE)
+                .caseSensitive(Boolean.FALSE)
+                .hierarchyMeaning(CodeSystemHierarchyMeaning.IS_A)
+                .content(CodeSystemContentMode.COMPLETE)
+                .concept(Concept.builder()
+                    .code(Code.of("a"))
+                    .display(string("Concept a"))
+                    .concept(Concept.builder()
+                        .code(Code.of("b"))
+                        .display(string("Concept b"))
+                        .definition(string("The concept b"))
+                        .designation(Concept.Designation.builder()
+                            .language(Code.of("en"))
+                            .use(Coding.builder().system(Uri.of("http://snomed.info/sct")).code(Code.of("900000000000013009")).build())
+                            .value(string("B"))
+                            .build())
+                        .property(property("code", Code.of("x")))
+                        .property(property("coding", Coding.builder().system(Uri.of(URL)).code(Code.of("a")).display(string("Concept a")).build()))
+                        .property(property("string", string("value")))
+                        .property(property("integer", Integer.of(42)))
+                        .property(property("boolean", Boolean.TRUE))
+                        .property(property("dateTime", DateTime.of("2021-01-01T12:00:00Z")))
+                        .property(property("decimal", Decimal.of("1.50")))
+                        .build())
+                    .concept(Concept.builder()
+                        .code(Code.of("c"))
+                        .display(string("Concept c"))
+                        .concept(Concept.builder().code(Code.of("d")).display(string("Concept d")).build())
+                        .concept(Concept.builder()
+                            .code(Code.of("g"))
+                            .display(string("Concept g"))
+                            .property(property("parent", Code.of("e")))
+                            .build())
+                        .build())
+                    .build())
+                .concept(Concept.builder()
+                    .code(Code.of("e"))
+                    .display(string("Concept e"))
+                    .concept(Concept.builder().code(Code.of("f")).display(string("Concept f")).build())
+                    .build())
+                .build();
+    }
+
+    private Concept.Property property(String code, com.ibm.fhir.model.type.Element value) {
+        return Concept.Property.builder().code(Code.of(code)).value(value).build();
+    }
+}
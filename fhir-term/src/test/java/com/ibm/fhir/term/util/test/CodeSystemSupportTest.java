@@ -0,0 +1,151 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.term.util.test;
+
+import static com.ibm.fhir.model.type.String.string;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.model.resource.CodeSystem;
+import com.ibm.fhir.model.resource.CodeSystem.Concept;
+import com.ibm.fhir.model.type.Boolean;
+import com.ibm.fhir.model.type.Code;
+import com.ibm.fhir.model.type.Extension;
+import com.ibm.fhir.model.type.Uri;
+import com.ibm.fhir.model.type.code.CodeSystemContentMode;
+import com.ibm.fhir.model.type.code.CodeSystemHierarchyMeaning;
+import com.ibm.fhir.model.type.code.PublicationStatus;
+import com.ibm.fhir.term.util.CodeSystemSupport;
+
+public class CodeSystemSupportTest {
+    @Test
+    public void testFindConcept() {
+        CodeSystem codeSystem = buildCodeSystem("http://ibm.com/fhir/CodeSystem/index-test", true);
+
+        Concept concept = CodeSystemSupport.findConcept(codeSystem, Code.of("c"));
+        assertNotNull(concept);
+        assertEquals(concept.getCode().getValue(), "c");
+
+        assertNull(CodeSystemSupport.findConcept(codeSystem, Code.of("C")));
+        assertNull(CodeSystemSupport.findConcept(codeSystem, Code.of("x")));
+    }
+
+    @Test
+    public void testFindConceptWithCodeExtension() {
+        CodeSystem codeSystem = buildCodeSystem("http://ibm.com/fhir/CodeSystem/index-test", true);
+        Extension extension = Extension.builder()
+                .url("http://example.org/ext")
+                .value(string("x"))
+                .build();
+
+        // the code value is compared, not the code element
+        Concept concept = CodeSystemSupport.findConcept(codeSystem, Code.builder().value("c").extension(extension).build());
+        assertNotNull(concept);
+        assertEquals(concept.getCode().getValue(), "c");
+
+        CodeSystem codeSystemWithExtension = codeSystem.toBuilder()
+                .concept(Collections.singletonList(Concept.builder()
+                    .code(Code.builder().value("z").extension(extension).build())
+                    .build()))
+                .build();
+        assertNotNull(CodeSystemSupport.findConcept(codeSystemWithExtension, Code.of("z")));
+    }
+
+    @Test
+    public void testFindConceptCaseInsensitive() {
+        CodeSystem codeSystem = buildCodeSystem("http://ibm.com/fhir/CodeSystem/index-test-ci", false);
+
+        Concept concept = CodeSystemSupport.findConcept(codeSystem, Code.of("C"));
+        assertNotNull(concept);
+        assertEquals(concept.getCode().getValue(), "c");
+    }
+
+    @Test
+    public void testFindConceptInSubtree() {
+        CodeSystem codeSystem = buildCodeSystem("http://ibm.com/fhir/CodeSystem/index-test", true);
+
+        Concept a = CodeSystemSupport.findConcept(codeSystem, Code.of("a"));
+        Concept b = CodeSystemSupport.findConcept(codeSystem, Code.of("b"));
+        Concept e = CodeSystemSupport.findConcept(codeSystem, Code.of("e"));
+
+        assertSame(CodeSystemSupport.findConcept(codeSystem, a, Code.of("d")), a.getConcept().get(1).getConcept().get(0));
+        assertNotNull(CodeSystemSupport.findConcept(codeSystem, a, Code.of("a")));
+        assertNotNull(CodeSystemSupport.findConcept(codeSystem, b, Code.of("b")));
+        assertNull(CodeSystemSupport.findConcept(codeSystem, b, Code.of("a")));
+        assertNull(CodeSystemSupport.findConcept(codeSystem, b, Code.of("d")));
+        assertNull(CodeSystemSupport.findConcept(codeSystem, a, Code.of("e")));
+        assertNull(CodeSystemSupport.findConcept(codeSystem, e, Code.of("a")));
+    }
+
+    @Test
+    public void testGetConcepts() {
+        CodeSystem codeSystem = buildCodeSystem("http://ibm.com/fhir/CodeSystem/index-test", true);
+
+        assertEquals(codes(CodeSystemSupport.getConcepts(codeSystem)), Arrays.asList("a", "b", "c", "d", "e", "f"));
+
+        Concept c = CodeSystemSupport.findConcept(codeSystem, Code.of("c"));
+        assertEquals(codes(CodeSystemSupport.getConcepts(codeSystem, c)), Arrays.asList("c", "d"));
+        assertEquals(codes(CodeSystemSupport.getConcepts(codeSystem, c)), codes(CodeSystemSupport.getConcepts(c)));
+    }
+
+    @Test
+    public void testNewInstanceWithSameUrlAndVersion() {
+        CodeSystem codeSystem1 = buildCodeSystem("http://ibm.com/fhir/CodeSystem/index-test-2", true);
+        assertNotNull(CodeSystemSupport.findConcept(codeSystem1, Code.of("f")));
+
+        // a different instance with the same url and version must not use the index of the first one
+        CodeSystem codeSystem2 = codeSystem1.toBuilder()
+                .concept(Concept.builder().code(Code.of("g")).build())
+                .build();
+        assertNotNull(CodeSystemSupport.findConcept(codeSystem2, Code.of("g")));
+        assertNull(CodeSystemSupport.findConcept(codeSystem1, Code.of("g")));
+    }
+
+    private List<String> codes(java.util.Collection<Concept> concepts) {
+        return concepts.stream().map(concept -> concept.getCode().getValue()).collect(Collectors.toList());
+    }
+
+    /**
+     * a
+     * +- b
+     * +- c
+     *    +- d
+     * e
+     * +- f
+     */
+    private CodeSystem buildCodeSystem(String url, boolean caseSensitive) {
+        return CodeSystem.builder()
+                .url(Uri.of(url))
+                .version(string("1.0.0"))
+                .status(PublicationStatus.ACTIVE)
+                .caseSensitive(Boolean.of(caseSensitive))
+                .hierarchyMeaning(CodeSystemHierarchyMeaning.IS_A)
+                .content(CodeSystemContentMode.COMPLETE)
+                .concept(Concept.builder()
+                    .code(Code.of("a"))
+                    .concept(Concept.builder().code(Code.of("b")).build())
+                    .concept(Concept.builder()
+                        .code(Code.of("c"))
+                        .concept(Concept.builder().code(Code.of("d")).build())
+                        .build())
+                    .build())
+                .concept(Concept.builder()
+                    .code(Code.of("e"))
+                    .concept(Concept.builder().code(Code.of("f")).build())
+                    .build())
+                .build();
+    }
+}
@@ -2684,12 +2684,16 @@ public class CodeGenerator {
         cb._import("javax.annotation.Generated");
         cb._import("javax.json.Json");
         cb._import("javax.json.JsonArray");
+        cb._import("javax.json.JsonBuilderFactory");
         cb._import("javax.json.JsonNumber");
         cb._import("javax.json.JsonObject");
+        cb._import("javax.json.JsonObjectBuilder");
         cb._import("javax.json.JsonReader");
         cb._import("javax.json.JsonReaderFactory");
         cb._import("javax.json.JsonString");
         cb._import("javax.json.JsonValue");
+        cb._import("javax.json.stream.JsonParser");
+        cb._import("javax.json.stream.JsonParserFactory");
         cb.newLine();
 
         cb._import("com.ibm.fhir.model.parser.FHIRParser");
@@ -2702,6 +2706,7 @@ public class CodeGenerator {
         cb._import("com.ibm.fhir.model.type.Integer");
         cb._import("com.ibm.fhir.model.type.String");
         cb._import("com.ibm.fhir.model.util.ElementFilter");
+        cb._import("com.ibm.fhir.model.util.ModelSupport");
         cb.newLine();
 
         cb._import("net.jcip.annotations.NotThreadSafe");
@@ -2712,6 +2717,8 @@ public class CodeGenerator {
         cb._class(mods("public"), "FHIRJsonParser", "FHIRAbstractParser");
         cb.field(mods("public", "static"), "boolean", "DEBUG", "false");
         cb.field(mods("private", "static", "final"), "JsonReaderFactory", "JSON_READER_FACTORY", "Json.createReaderFactory(null)");
+        cb.field(mods("private", "static", "final"), "JsonParserFactory", "JSON_PARSER_FACTORY", "Json.createParserFactory(null)");
+        cb.field(mods("private", "static", "final"), "JsonBuilderFactory", "JSON_BUILDER_FACTORY", "Json.createBuilderFactory(null)");
         cb.newLine();
 
         cb.field(mods("private", "final"), "Stack<java.lang.String>", "stack", _new("Stack<>"));
@@ -2731,6 +2738,15 @@ public class CodeGenerator {
 
         // public <T extends Resource> T parseAndFilter(InputStream in, java.util.List<java.lang.String> elementsToInclude) throws FHIRException
         cb.method(mods("public"), "<T extends Resource> T", "parseAndFilter", params("InputStream in", "Collection<java.lang.String> elementsToInclude"), throwsExceptions("FHIRParserException"))
+            ._if("isStreaming()")
+                ._try("JsonParser jsonParser = JSON_PARSER_FACTORY.createParser(nonClosingInputStream(in), StandardCharsets.UTF_8)")
+                    ._return("parseAndFilter(jsonParser, elementsToInclude)")
+                ._catch("FHIRParserException e")
+                    ._throw("e")
+                ._catch("Exception e")
+                    ._throw("new FHIRParserException(e.getMessage(), getPath(), e)")
+                ._end()
+            ._end()
             ._try("JsonReader jsonReader = JSON_READER_FACTORY.createReader(nonClosingInputStream(in), StandardCharsets.UTF_8)")
                 .assign("JsonObject jsonObject", "jsonReader.readObject()")
                 ._return("parseAndFilter(jsonObject, elementsToInclude)")
@@ -2751,6 +2767,15 @@ public class CodeGenerator {
 
         // public <T extends Resource> T parseAndFilter(Reader reader, java.util.List<java.lang.String> elementsToInclude) throws FHIRException
         cb.method(mods("public"), "<T extends Resource> T", "parseAndFilter", params("Reader reader", "Collection<java.lang.String> elementsToInclude"), throwsExceptions("FHIRParserException"))
+            ._if("isStreaming()")
+                ._try("JsonParser jsonParser = JSON_PARSER_FACTORY.createParser(nonClosingReader(reader))")
+                    ._return("parseAndFilter(jsonParser, elementsToInclude)")
+                ._catch("FHIRParserException e")
+                    ._throw("e")
+                ._catch("Exception e")
+                    ._throw("new FHIRParserException(e.getMessage(), getPath(), e)")
+                ._end()
+            ._end()
             ._try("JsonReader jsonReader = JSON_READER_FACTORY.createReader(nonClosingReader(reader))")
                 .assign("JsonObject jsonObject", "jsonReader.readObject()")
                 ._return("parseAndFilter(jsonObject, elementsToInclude)")
@@ -2784,6 +2809,96 @@ public class CodeGenerator {
         .end();
         cb.newLine();
 
+        // private <T extends Resource> T parseAndFilter(JsonParser jsonParser, java.util.List<java.lang.String> elementsToInclude)
+        cb.annotation("SuppressWarnings", quote("unchecked"));
+        cb.method(mods("private"), "<T extends Resource> T", "parseAndFilter", params("JsonParser jsonParser", "Collection<java.lang.String> elementsToInclude"), throwsExceptions("FHIRParserException"))
+            ._try()
+                .invoke("reset", args())
+                .assign("JsonParser.Event event", "jsonParser.next()")
+                ._if("event != JsonParser.Event.START_OBJECT")
+                    ._throw("new IllegalArgumentException(\"Expected: START_OBJECT but found: \" + event)")
+                ._end()
+                .assign("JsonObjectBuilder builder", "JSON_BUILDER_FACTORY.createObjectBuilder()")
+                .assign("java.lang.String resourceTypeName", "null")
+                .assign("ElementFilter elementFilter", "null")
+                .assign("java.util.List<Bundle.Entry> entries", "null")
+                ._while("(event = jsonParser.next()) == JsonParser.Event.KEY_NAME")
+                    .assign("java.lang.String key", "jsonParser.getString()")
+                    .assign("event", "jsonParser.next()")
+                    ._if("elementFilter != null && !elementFilter.includes(key)")
+                        .invoke("skipValue", args("jsonParser", "event"))
+                    ._elseif("\"Bundle\".equals(resourceTypeName) && \"entry\".equals(key)")
+                        .assign("entries", "parseBundleEntries(jsonParser, event)")
+                    ._else()
+                        .assign("JsonValue jsonValue", "jsonParser.getValue()")
+                        ._if("\"resourceType\".equals(key) && jsonValue.getValueType() == JsonValue.ValueType.STRING")
+                            .assign("resourceTypeName", "((JsonString) jsonValue).getString()")
+                            .assign("Class<?> resourceType", "ModelSupport.getResourceType(resourceTypeName)")
+                            ._if("elementsToInclude != null && resourceType != null")
+                                .assign("elementFilter", "new ElementFilter(resourceType, elementsToInclude)")
+                            ._end()
+                        ._end()
+                        .invoke("builder", "add", args("key", "jsonValue"))
+                    ._end()
+                ._end()
+                .assign("JsonObject jsonObject", "builder.build()")
+                .assign("Class<?> resourceType", "getResourceType(jsonObject)")
+                ._if("elementsToInclude != null")
+                    ._if("elementFilter == null")
+                        .assign("elementFilter", "new ElementFilter(resourceType, elementsToInclude)")
+                    ._end()
+                    .assign("jsonObject", "elementFilter.apply(jsonObject)")
+                ._end()
+                .assign("Resource resource", "parseResource(resourceType.getSimpleName(), jsonObject, -1)")
+                ._if("entries != null")
+                    .assign("resource", "((Bundle) resource).toBuilder().entry(entries).build()")
+                ._end()
+                ._return("(T) resource")
+            ._catch("Exception e")
+                ._throw("new FHIRParserException(e.getMessage(), getPath(), e)")
+            ._end()
+        .end();
+        cb.newLine();
+
+        cb.method(mods("private"), "java.util.List<Bundle.Entry>", "parseBundleEntries", params("JsonParser jsonParser", "JsonParser.Event event"))
+            ._if("event != JsonParser.Event.START_ARRAY")
+                ._throw("new IllegalArgumentException(\"Expected: START_ARRAY but found: \" + event + \" for element: entry\")")
+            ._end()
+            .invoke("stackPush", args(quote("Bundle"), "-1"))
+            .assign("java.util.List<Bundle.Entry> entries", "new java.util.ArrayList<>()")
+            .assign("int elementIndex", "0")
+            ._while("(event = jsonParser.next()) != JsonParser.Event.END_ARRAY")
+                ._if("event != JsonParser.Event.START_OBJECT")
+                    ._throw("new IllegalArgumentException(\"Expected: START_OBJECT but found: \" + event + \" for element: entry\")")
+                ._end()
+                .invoke("entries", "add", args("parseBundleEntry(\"entry\", jsonParser.getObject(), elementIndex++)"))
+            ._end()
+            .invoke("stackPop", args())
+            ._return("entries")
+        .end();
+        cb.newLine();
+
+        cb.method(mods("private"), "void", "skipValue", params("JsonParser jsonParser", "JsonParser.Event event"))
+            ._if("event != JsonParser.Event.START_OBJECT && event != JsonParser.Event.START_ARRAY")
+                ._return()
+            ._end()
+            .assign("int depth", "1")
+            ._while("depth > 0")
+                .assign("event", "jsonParser.next()")
+                ._if("event == JsonParser.Event.START_OBJECT || event == JsonParser.Event.START_ARRAY")
+                    .statement("depth++")
+                ._elseif("event == JsonParser.Event.END_OBJECT || event == JsonParser.Event.END_ARRAY")
+                    .statement("depth--")
+                ._end()
+            ._end()
+        .end();
+        cb.newLine();
+
+        cb.method(mods("private"), "boolean", "isStreaming")
+            ._return("getPropertyOrDefault(FHIRParser.PROPERTY_STREAMING, java.lang.Boolean.FALSE, java.lang.Boolean.class)")
+        .end();
+        cb.newLine();
+
         cb.method(mods("private"), "void", "reset")
             .invoke("stack", "clear", args())
         .end();
@@ -2794,6 +2909,9 @@ public class CodeGenerator {
             ._if("FHIRParser.PROPERTY_IGNORE_UNRECOGNIZED_ELEMENTS.equals(name)")
                 ._return("true")
             ._end()
+            ._if("FHIRParser.PROPERTY_STREAMING.equals(name)")
+                ._return("true")
+            ._end()
             ._return("false")
         .end();
         cb.newLine();
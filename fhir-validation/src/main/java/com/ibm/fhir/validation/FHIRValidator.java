@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2019, 2020
+ * (C) Copyright IBM Corp. 2019, 2021
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -21,6 +21,9 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -33,7 +36,6 @@ import com.ibm.fhir.model.type.CodeableConcept;
 import com.ibm.fhir.model.type.Extension;
 import com.ibm.fhir.model.type.code.IssueSeverity;
 import com.ibm.fhir.model.type.code.IssueType;
-import com.ibm.fhir.model.util.ModelSupport;
 import com.ibm.fhir.path.FHIRPathElementNode;
 import com.ibm.fhir.path.FHIRPathNode;
 import com.ibm.fhir.path.FHIRPathResourceNode;
@@ -44,13 +46,22 @@ import com.ibm.fhir.path.visitor.FHIRPathDefaultNodeVisitor;
 import com.ibm.fhir.profile.ProfileSupport;
 import com.ibm.fhir.registry.FHIRRegistry;
 import com.ibm.fhir.validation.exception.FHIRValidationException;
+import com.ibm.fhir.validation.util.ConstraintPlan;
 
 public class FHIRValidator {
     private static final Logger log = Logger.getLogger(FHIRValidator.class.getName());
 
+    // resources with fewer nodes than this are always validated on the calling thread
+    private static final int PARALLEL_THRESHOLD = 1000;
+    // the maximum number of nodes validated by a single fork-join task
+    private static final int PARALLEL_CHUNK_SIZE = 250;
+
     private final ValidatingNodeVisitor visitor = new ValidatingNodeVisitor();
+    private final ForkJoinPool pool;
 
-    private FHIRValidator() { }
+    private FHIRValidator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
 
     /**
      * Validate a {@link Resource} against constraints in the base specification and
@@ -169,7 +180,11 @@ public class FHIRValidator {
         try {
             List<Issue> issues = new ArrayList<>();
             validateProfileReferences(evaluationContext.getTree().getRoot().asResourceNode(), Arrays.asList(profiles), false, issues);
-            issues.addAll(visitor.validate(evaluationContext, includeResourceAssertedProfiles, profiles));
+            if (pool != null) {
+                issues.addAll(validateInParallel(evaluationContext, includeResourceAssertedProfiles, profiles));
+            } else {
+                issues.addAll(visitor.validate(evaluationContext, includeResourceAssertedProfiles, profiles));
+            }
             Collections.sort(issues, ISSUE_COMPARATOR);
             return Collections.unmodifiableList(issues);
         } catch (Exception e) {
@@ -177,8 +192,37 @@ public class FHIRValidator {
         }
     }
 
+    /**
+     * Split the nodes of the tree into contiguous ranges (in visiting order) which are validated by fork-join tasks.
+     * The issues of the ranges are concatenated in the same order, so the result is the same as for a sequential
+     * validation.
+     */
+    private List<Issue> validateInParallel(EvaluationContext evaluationContext, boolean includeResourceAssertedProfiles, String... profiles) {
+        List<FHIRPathNode> nodes = new NodeCollectingVisitor().collect(evaluationContext.getTree().getRoot());
+        if (nodes.size() < PARALLEL_THRESHOLD) {
+            return visitor.validate(evaluationContext, includeResourceAssertedProfiles, profiles);
+        }
+        ValidationTask task = new ValidationTask(evaluationContext, includeResourceAssertedProfiles, Arrays.asList(profiles), nodes, 0, nodes.size());
+        // when already running on a fork-join worker (e.g. one entry of a bundle), fork into that pool
+        return ForkJoinTask.inForkJoinPool() ? task.invoke() : pool.invoke(task);
+    }
+
     public static FHIRValidator validator() {
-        return new FHIRValidator();
+        return new FHIRValidator(null);
+    }
+
+    /**
+     * Get a validator which splits the validation of large resources across the passed fork-join pool.
+     *
+     * <p>The issues are returned in the same order as those of a validator created with {@link #validator()}.
+     *
+     * @param pool
+     *     the fork-join pool used to validate large resources
+     * @return
+     *     a FHIRValidator instance
+     */
+    public static FHIRValidator validator(ForkJoinPool pool) {
+        return new FHIRValidator(Objects.requireNonNull(pool));
     }
 
     /**
@@ -227,6 +271,68 @@ public class FHIRValidator {
             .build();
     }
 
+    /**
+     * Collects the element and resource nodes of a tree in the order in which they are visited by {@link ValidatingNodeVisitor}.
+     */
+    private static class NodeCollectingVisitor extends FHIRPathDefaultNodeVisitor {
+        private final List<FHIRPathNode> nodes = new ArrayList<>();
+
+        private List<FHIRPathNode> collect(FHIRPathNode root) {
+            root.accept(this);
+            return nodes;
+        }
+
+        @Override
+        public void doVisit(FHIRPathElementNode node) {
+            nodes.add(node);
+        }
+
+        @Override
+        public void doVisit(FHIRPathResourceNode node) {
+            nodes.add(node);
+        }
+    }
+
+    /**
+     * Validates a range of nodes, splitting it in half until it is small enough to be validated by a single task.
+     * Each task uses its own visitor and its own copy of the evaluation context.
+     */
+    private static class ValidationTask extends RecursiveTask<List<Issue>> {
+        private static final long serialVersionUID = 1L;
+
+        private final EvaluationContext evaluationContext;
+        private final boolean includeResourceAssertedProfiles;
+        private final List<String> profiles;
+        private final List<FHIRPathNode> nodes;
+        private final int start;
+        private final int end;
+
+        private ValidationTask(EvaluationContext evaluationContext, boolean includeResourceAssertedProfiles, List<String> profiles,
+                List<FHIRPathNode> nodes, int start, int end) {
+            this.evaluationContext = evaluationContext;
+            this.includeResourceAssertedProfiles = includeResourceAssertedProfiles;
+            this.profiles = profiles;
+            this.nodes = nodes;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected List<Issue> compute() {
+            if (end - start <= PARALLEL_CHUNK_SIZE) {
+                return new ValidatingNodeVisitor().validate(evaluationContext.copy(), includeResourceAssertedProfiles, profiles, nodes.subList(start, end));
+            }
+            int middle = (start + end) >>> 1;
+            ValidationTask left = new ValidationTask(evaluationContext, includeResourceAssertedProfiles, profiles, nodes, start, middle);
+            ValidationTask right = new ValidationTask(evaluationContext, includeResourceAssertedProfiles, profiles, nodes, middle, end);
+            left.fork();
+            List<Issue> rightIssues = right.compute();
+            List<Issue> issues = new ArrayList<>(left.join());
+            issues.addAll(rightIssues);
+            return issues;
+        }
+    }
+
     private static class ValidatingNodeVisitor extends FHIRPathDefaultNodeVisitor {
         private FHIRPathEvaluator evaluator = FHIRPathEvaluator.evaluator();
         private EvaluationContext evaluationContext;
@@ -245,6 +351,24 @@ public class FHIRValidator {
             return issues;
         }
 
+        /**
+         * Validate the passed nodes (but not their descendants) in order.
+         */
+        private List<Issue> validate(EvaluationContext evaluationContext, boolean includeResourceAssertedProfiles, List<String> profiles, List<FHIRPathNode> nodes) {
+            reset();
+            this.evaluationContext = evaluationContext;
+            this.includeResourceAssertedProfiles = includeResourceAssertedProfiles;
+            this.profiles = profiles;
+            for (FHIRPathNode node : nodes) {
+                if (node.isResourceNode()) {
+                    validate(node.asResourceNode());
+                } else {
+                    validate(node.asElementNode());
+                }
+            }
+            return issues;
+        }
+
         private void reset() {
             issues.clear();
         }
@@ -264,19 +388,21 @@ public class FHIRValidator {
          */
         private void validate(FHIRPathElementNode elementNode) {
             Class<?> elementType = elementNode.element().getClass();
-            Collection<Constraint> constraints = ModelSupport.getConstraints(elementType);
+            Constraint extensionConstraint = null;
             if (Extension.class.equals(elementType)) {
                 String url = elementNode.element().as(Extension.class).getUrl();
                 if (isAbsolute(url)) {
                     if (FHIRRegistry.getInstance().hasResource(url, StructureDefinition.class)) {
-                        constraints = new ArrayList<>(constraints);
-                        constraints.add(createConstraint("generated-ext-1", Constraint.LEVEL_RULE, Constraint.LOCATION_BASE, "Extension must conform to definition '" + url + "'", "conformsTo('" + url + "')", false, true));
+                        extensionConstraint = createConstraint("generated-ext-1", Constraint.LEVEL_RULE, Constraint.LOCATION_BASE, "Extension must conform to definition '" + url + "'", "conformsTo('" + url + "')", false, true);
                     } else {
                         issues.add(issue(IssueSeverity.WARNING, IssueType.NOT_SUPPORTED, "Extension definition '" + url + "' is not supported", elementNode));
                     }
                 }
             }
-            validate(elementType, elementNode, constraints);
+            validate(elementType, elementNode, ConstraintPlan.getPlan(elementType).getConstraints(elementNode));
+            if (extensionConstraint != null) {
+                validate(elementType, elementNode, Collections.singletonList(extensionConstraint));
+            }
         }
 
         private boolean isAbsolute(String url) {
@@ -293,14 +419,14 @@ public class FHIRValidator {
          */
         private void validate(FHIRPathResourceNode resourceNode) {
             Class<?> resourceType = resourceNode.resource().getClass();
-            validate(resourceType, resourceNode, ModelSupport.getConstraints(resourceType));
+            validate(resourceType, resourceNode, ConstraintPlan.getPlan(resourceType).getConstraints(resourceNode));
             if (includeResourceAssertedProfiles) {
                 List<String> resourceAssertedProfiles = ProfileSupport.getResourceAssertedProfiles(resourceNode.resource());
                 validateProfileReferences(resourceNode, resourceAssertedProfiles, true, issues);
-                validate(resourceType, resourceNode, ProfileSupport.getConstraints(resourceAssertedProfiles, resourceType));
+                validate(resourceType, resourceNode, ConstraintPlan.getPlan(resourceAssertedProfiles, resourceType).getConstraints(resourceNode));
             }
             if (!profiles.isEmpty() && !resourceNode.path().contains(".")) {
-                validate(resourceType, resourceNode, ProfileSupport.getConstraints(profiles, resourceType));
+                validate(resourceType, resourceNode, ConstraintPlan.getPlan(profiles, resourceType).getConstraints(resourceNode));
             }
         }
 
@@ -0,0 +1,262 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.validation.cache;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.Year;
+import java.time.YearMonth;
+import java.time.ZonedDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import com.ibm.fhir.core.util.LRUCache;
+import com.ibm.fhir.model.resource.OperationOutcome.Issue;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.type.Element;
+import com.ibm.fhir.model.visitor.PathAwareVisitor;
+import com.ibm.fhir.registry.FHIRRegistry;
+import com.ibm.fhir.validation.FHIRValidator;
+import com.ibm.fhir.validation.exception.FHIRValidationException;
+
+/**
+ * A bounded cache of validation results, so that identical resource content (e.g. retried updates or bundles with
+ * repeated entries) is only validated once.
+ *
+ * <p>Entries are keyed by a SHA-256 fingerprint of the resource content, the profiles that the resource is
+ * validated against, the version of the {@link FHIRRegistry} and a caller-provided scope. Callers should use
+ * a scope which identifies the registry content visible to them (e.g. the tenant and datastore), because
+ * registry resource providers may be tenant-specific. The cache is cleared whenever the registry version changes.
+ *
+ * <p>The cache is disabled until it is configured with a positive size.
+ */
+public class ValidationResultCache {
+    private static final Logger log = Logger.getLogger(ValidationResultCache.class.getName());
+
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    private static volatile ValidationResultCache instance;
+
+    private final Map<String, List<Issue>> cache;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile long registryVersion;
+
+    private ValidationResultCache(int maxEntries) {
+        this.cache = LRUCache.createLRUCache(maxEntries);
+        this.registryVersion = FHIRRegistry.getInstance().getVersion();
+    }
+
+    /**
+     * Set the maximum number of cached validation results. This is done once, when the server is started.
+     *
+     * @param maxEntries
+     *     the maximum number of cached validation results; 0 to disable the cache
+     */
+    public static synchronized void configure(int maxEntries) {
+        if (maxEntries > 0) {
+            log.info("Validation result cache enabled with " + maxEntries + " entries");
+            instance = new ValidationResultCache(maxEntries);
+        } else {
+            instance = null;
+        }
+    }
+
+    /**
+     * @return the validation result cache, or null if it is disabled
+     */
+    public static ValidationResultCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Validate a resource with the passed validator, or return the cached result of an earlier validation of
+     * the same content.
+     *
+     * @param validator
+     *     the validator used on a cache miss
+     * @param scope
+     *     the scope of the cached result (e.g. the tenant and datastore)
+     * @param resource
+     *     the resource to validate
+     * @param includeResourceAssertedProfiles
+     *     whether or not to consider resource-asserted profiles during validation
+     * @param profiles
+     *     specific profile references to validate the resource against
+     * @return
+     *     a non-null, possibly empty, unmodifiable list of issues (sorted by severity)
+     * @throws FHIRValidationException
+     *     for errors that occur during validation
+     * @see FHIRValidator#validate(Resource, boolean, String...)
+     */
+    public List<Issue> validate(FHIRValidator validator, String scope, Resource resource, boolean includeResourceAssertedProfiles,
+            String... profiles) throws FHIRValidationException {
+        long currentRegistryVersion = FHIRRegistry.getInstance().getVersion();
+        if (currentRegistryVersion != registryVersion) {
+            log.fine("FHIRRegistry changed; clearing the validation result cache");
+            cache.clear();
+            registryVersion = currentRegistryVersion;
+        }
+
+        String key = key(scope, resource, includeResourceAssertedProfiles, profiles, currentRegistryVersion);
+        List<Issue> issues = cache.get(key);
+        if (issues != null) {
+            hits.incrementAndGet();
+            return issues;
+        }
+        misses.incrementAndGet();
+        issues = validator.validate(resource, includeResourceAssertedProfiles, profiles);
+        cache.put(key, issues);
+        return issues;
+    }
+
+    /**
+     * Remove all cached validation results
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * @return the number of validations served from the cache
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of validations that were not served from the cache
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of cached validation results
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    private static String key(String scope, Resource resource, boolean includeResourceAssertedProfiles, String[] profiles, long registryVersion) {
+        FingerprintVisitor visitor = new FingerprintVisitor();
+        resource.accept(visitor);
+        StringBuilder key = new StringBuilder(Base64.getEncoder().encodeToString(visitor.getFingerprint()))
+                .append('|').append(scope)
+                .append('|').append(registryVersion)
+                .append('|').append(includeResourceAssertedProfiles);
+        for (String profile : profiles) {
+            key.append('|').append(profile);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Computes a SHA-256 hash of the paths, types and values of all visited elements. Unlike the fingerprint used by
+     * the persistence layer, nothing is skipped, because constraints may refer to any element of the resource.
+     *
+     * <p>The type of each element and resource is part of the hash, because the path alone doesn't tell apart the
+     * choices of a choice element (e.g. Extension.valueString and Extension.valueUri are both visited as "value") or
+     * the type of a contained resource or bundle entry.
+     */
+    private static class FingerprintVisitor extends PathAwareVisitor {
+        private final MessageDigest digest;
+
+        private FingerprintVisitor() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException x) {
+                throw new IllegalStateException(x);
+            }
+        }
+
+        private byte[] getFingerprint() {
+            return digest.digest();
+        }
+
+        private void update(String value) {
+            digest.update(getPath().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+
+        private void updateType(Class<?> type) {
+            digest.update(getPath().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 1);
+            digest.update(type.getName().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+
+        @Override
+        protected void doVisitStart(java.lang.String elementName, int elementIndex, Element element) {
+            updateType(element.getClass());
+        }
+
+        @Override
+        protected void doVisitStart(java.lang.String elementName, int elementIndex, Resource resource) {
+            updateType(resource.getClass());
+        }
+
+        @Override
+        public void visit(java.lang.String elementName, byte[] value) {
+            update(Base64.getEncoder().encodeToString(value));
+        }
+
+        @Override
+        public void visit(java.lang.String elementName, BigDecimal value) {
+            update(value.toString());
+        }
+
+        @Override
+        public void visit(java.lang.String elementName, java.lang.Boolean value) {
+            update(value.toString());
+        }
+
+        @Override
+        public void visit(java.lang.String elementName, java.lang.Integer value) {
+            update(value.toString());
+        }
+
+        @Override
+        public void visit(java.lang.String elementName, LocalDate value) {
+            update(value.toString());
+        }
+
+        @Override
+        public void visit(java.lang.String elementName, LocalTime value) {
+            update(value.toString());
+        }
+
+        @Override
+        public void doVisit(java.lang.String elementName, java.lang.String value) {
+            update(value);
+        }
+
+        @Override
+        public void visit(java.lang.String elementName, Year value) {
+            update(value.toString());
+        }
+
+        @Override
+        public void visit(java.lang.String elementName, YearMonth value) {
+            update(value.toString());
+        }
+
+        @Override
+        public void visit(java.lang.String elementName, ZonedDateTime value) {
+            update(value.toString());
+        }
+    }
+}
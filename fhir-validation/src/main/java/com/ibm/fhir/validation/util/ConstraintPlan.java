@@ -0,0 +1,200 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.validation.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import com.ibm.fhir.model.annotation.Constraint;
+import com.ibm.fhir.model.resource.StructureDefinition;
+import com.ibm.fhir.model.util.ModelSupport;
+import com.ibm.fhir.path.FHIRPathNode;
+import com.ibm.fhir.path.FHIRPathType;
+import com.ibm.fhir.profile.ProfileSupport;
+
+/**
+ * A precomputed plan for the evaluation of the constraints which apply to a model type, either from the base
+ * specification or from a set of profiles.
+ *
+ * <p>Constraints with a location that is a simple element path (e.g. {@code Patient.name.given}) are indexed by that
+ * path. The location of such a constraint evaluates to an empty collection when the instance has no element at that
+ * path, in which case the constraint is skipped without evaluating its location or expression. All other constraints
+ * are always evaluated. Model-checked constraints are not part of the plan.
+ */
+public final class ConstraintPlan {
+    private static final ConstraintPlan EMPTY = new ConstraintPlan(null, Collections.emptyList());
+    private static final Pattern IDENTIFIER_PATTERN = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    private static final String SYSTEM_NAMESPACE = "System";
+
+    // profile sets are asserted by clients, so the number of profile plans is bounded
+    private static final int MAX_PROFILE_PLANS = 1024;
+
+    private static final Map<Class<?>, ConstraintPlan> MODEL_PLAN_CACHE = new ConcurrentHashMap<>();
+    private static final Map<String, ConstraintPlan> PROFILE_PLAN_CACHE = new ConcurrentHashMap<>();
+
+    private final List<Constraint> constraints;
+    // the element path segments of each constraint, or null if the constraint is always evaluated
+    private final List<String[]> anchors;
+    private final boolean anchored;
+
+    private ConstraintPlan(Class<?> type, Collection<Constraint> constraints) {
+        this.constraints = new ArrayList<>(constraints.size());
+        this.anchors = new ArrayList<>(constraints.size());
+        boolean anchored = false;
+        for (Constraint constraint : constraints) {
+            if (constraint.modelChecked()) {
+                continue;
+            }
+            String[] anchor = getAnchor(type, constraint);
+            this.constraints.add(constraint);
+            this.anchors.add(anchor);
+            anchored |= (anchor != null);
+        }
+        this.anchored = anchored;
+    }
+
+    /**
+     * Get the plan for the constraints of the base specification which apply to the passed model type.
+     *
+     * @param type
+     *     the model type
+     * @return
+     *     the constraint plan
+     */
+    public static ConstraintPlan getPlan(Class<?> type) {
+        return MODEL_PLAN_CACHE.computeIfAbsent(type, t -> new ConstraintPlan(t, ModelSupport.getConstraints(t)));
+    }
+
+    /**
+     * Get the plan for the constraints of the passed profiles which apply to the passed resource type.
+     *
+     * <p>Plans are keyed by the url and version of each applicable profile, so a new version of a profile
+     * in the FHIR registry results in a new plan.
+     *
+     * @param profiles
+     *     the profile references
+     * @param type
+     *     the resource type
+     * @return
+     *     the constraint plan
+     */
+    public static ConstraintPlan getPlan(List<String> profiles, Class<?> type) {
+        if (profiles.isEmpty()) {
+            return EMPTY;
+        }
+        StringBuilder key = new StringBuilder(type.getName());
+        for (String url : profiles) {
+            StructureDefinition profile = ProfileSupport.getProfile(url, type);
+            if (profile != null) {
+                key.append(' ').append(profile.getUrl().getValue());
+                if (profile.getVersion() != null) {
+                    key.append('|').append(profile.getVersion().getValue());
+                }
+            }
+        }
+        ConstraintPlan plan = PROFILE_PLAN_CACHE.get(key.toString());
+        if (plan == null) {
+            if (PROFILE_PLAN_CACHE.size() >= MAX_PROFILE_PLANS) {
+                PROFILE_PLAN_CACHE.clear();
+            }
+            plan = PROFILE_PLAN_CACHE.computeIfAbsent(key.toString(), k -> new ConstraintPlan(type, ProfileSupport.getConstraints(profiles, type)));
+        }
+        return plan;
+    }
+
+    /**
+     * Get the constraints of this plan which need to be evaluated for the passed node.
+     *
+     * @param node
+     *     the node (of the type of this plan) under validation
+     * @return
+     *     the constraints to evaluate, in the order of the plan
+     */
+    public List<Constraint> getConstraints(FHIRPathNode node) {
+        if (!anchored) {
+            return constraints;
+        }
+        List<Constraint> result = new ArrayList<>(constraints.size());
+        Map<String, Boolean> present = new HashMap<>();
+        for (int i = 0; i < constraints.size(); i++) {
+            String[] anchor = anchors.get(i);
+            if (anchor == null || present.computeIfAbsent(String.join(".", anchor), k -> isPresent(node, anchor))) {
+                result.add(constraints.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the element path segments of the location of the passed constraint, or null if the location is not
+     *     a simple element path
+     */
+    private static String[] getAnchor(Class<?> type, Constraint constraint) {
+        String location = constraint.location();
+        if (type == null || Constraint.LOCATION_BASE.equals(location)) {
+            return null;
+        }
+        String[] segments = location.split("\\.", -1);
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if (segment.length() > 2 && segment.startsWith("`") && segment.endsWith("`")) {
+                segment = segment.substring(1, segment.length() - 1);
+            }
+            if (!IDENTIFIER_PATTERN.matcher(segment).matches()) {
+                return null;
+            }
+            segments[i] = segment;
+        }
+        return segments;
+    }
+
+    /**
+     * Navigate the element path from the passed node in the same way as the FHIRPath evaluator does for
+     * a member invocation: a segment which names the type of a single context node (or one of its base types)
+     * selects that node, otherwise the segment selects the children with that name.
+     */
+    private static boolean isPresent(FHIRPathNode node, String[] segments) {
+        Collection<FHIRPathNode> current = Collections.singletonList(node);
+        for (String segment : segments) {
+            if (current.size() == 1 && isTypeName(current.iterator().next().type(), segment)) {
+                continue;
+            }
+            List<FHIRPathNode> next = new ArrayList<>();
+            for (FHIRPathNode contextNode : current) {
+                for (FHIRPathNode child : contextNode.children()) {
+                    if (segment.equals(child.name())) {
+                        next.add(child);
+                    }
+                }
+            }
+            if (next.isEmpty()) {
+                return false;
+            }
+            current = next;
+        }
+        return true;
+    }
+
+    private static boolean isTypeName(FHIRPathType type, String name) {
+        if (type == null || SYSTEM_NAMESPACE.equals(type.namespace())) {
+            return false;
+        }
+        while (type != null && !FHIRPathType.FHIR_ANY.equals(type)) {
+            if (name.equals(type.getName())) {
+                return true;
+            }
+            type = type.baseType();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.validation.test;
+
+import static com.ibm.fhir.model.type.String.string;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.model.annotation.Constraint;
+import com.ibm.fhir.model.resource.Observation;
+import com.ibm.fhir.model.type.CodeableConcept;
+import com.ibm.fhir.model.type.SimpleQuantity;
+import com.ibm.fhir.model.type.code.ObservationStatus;
+import com.ibm.fhir.path.FHIRPathTree;
+import com.ibm.fhir.validation.util.ConstraintPlan;
+
+public class ConstraintPlanTest {
+    private Observation.Builder observation() {
+        return Observation.builder()
+                .status(ObservationStatus.FINAL)
+                .code(CodeableConcept.builder()
+                    .text(string("test"))
+                    .build());
+    }
+
+    private List<String> getConstraintIds(Observation observation) {
+        List<Constraint> constraints = ConstraintPlan.getPlan(Observation.class)
+                .getConstraints(FHIRPathTree.tree(observation).getRoot());
+        return constraints.stream().map(Constraint::id).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testAbsentAnchorsSkipped() {
+        List<String> ids = getConstraintIds(observation().build());
+        assertTrue(ids.contains("obs-6"));
+        assertTrue(ids.contains("obs-7"));
+        assertFalse(ids.contains("obs-3"));
+        assertFalse(ids.contains("observation-11"));
+        assertFalse(ids.contains("observation-12"));
+    }
+
+    @Test
+    public void testPresentAnchorsIncluded() {
+        Observation observation = observation()
+                .referenceRange(Observation.ReferenceRange.builder()
+                    .low(SimpleQuantity.builder()
+                        .value(com.ibm.fhir.model.type.Decimal.of(1))
+                        .build())
+                    .build())
+                .build();
+        List<String> ids = getConstraintIds(observation);
+        assertTrue(ids.contains("obs-3"));
+        // referenceRange is present, but referenceRange.type is not
+        assertFalse(ids.contains("observation-11"));
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2019, 2020
+ * (C) Copyright IBM Corp. 2019, 2021
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -16,6 +16,7 @@ import java.time.LocalDate;
 import java.time.ZoneOffset;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
 
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -23,6 +24,7 @@ import org.testng.annotations.Test;
 import com.ibm.fhir.model.format.Format;
 import com.ibm.fhir.model.generator.FHIRGenerator;
 import com.ibm.fhir.model.parser.FHIRParser;
+import com.ibm.fhir.model.resource.Bundle;
 import com.ibm.fhir.model.resource.Observation;
 import com.ibm.fhir.model.resource.OperationOutcome.Issue;
 import com.ibm.fhir.model.resource.Patient;
@@ -36,6 +38,7 @@ import com.ibm.fhir.model.type.Instant;
 import com.ibm.fhir.model.type.Integer;
 import com.ibm.fhir.model.type.Meta;
 import com.ibm.fhir.model.type.String;
+import com.ibm.fhir.model.type.code.BundleType;
 import com.ibm.fhir.model.type.code.IssueSeverity;
 import com.ibm.fhir.model.type.code.IssueType;
 import com.ibm.fhir.validation.FHIRValidator;
@@ -180,4 +183,36 @@ public class FHIRValidatorTest {
             Assert.assertEquals(countErrors(issues), 0);
         }
     }
+
+    @Test
+    public void testParallelValidation() throws Exception {
+        Bundle.Builder builder = Bundle.builder().type(BundleType.COLLECTION);
+        for (int i = 0; i < 200; i++) {
+            builder.entry(Bundle.Entry.builder()
+                .resource(Patient.builder()
+                    .id("patient-" + i)
+                    .multipleBirth(Integer.of(i))
+                    .name(HumanName.builder()
+                        .given(String.of("John"))
+                        .family(String.of("Doe"))
+                        .extension(Extension.builder()
+                            .url("http://www.ibm.com/someExtension")
+                            .value(String.of("extension " + i))
+                            .build())
+                        .build())
+                    .build())
+                .build());
+        }
+        Bundle bundle = builder.build();
+
+        List<Issue> expected = FHIRValidator.validator().validate(bundle);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<Issue> issues = FHIRValidator.validator(pool).validate(bundle);
+            assertTrue(expected.size() > 200);
+            assertEquals(issues, expected);
+        } finally {
+            pool.shutdown();
+        }
+    }
 }
@@ -0,0 +1,145 @@
+/*
+ * (C) Copyright IBM Corp. 2021
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.validation.test;
+
+import static com.ibm.fhir.model.type.String.string;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertSame;
+
+import java.util.List;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.model.resource.Bundle;
+import com.ibm.fhir.model.resource.OperationOutcome.Issue;
+import com.ibm.fhir.model.resource.Patient;
+import com.ibm.fhir.model.resource.Person;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.type.Extension;
+import com.ibm.fhir.model.type.HumanName;
+import com.ibm.fhir.model.type.Uri;
+import com.ibm.fhir.model.type.code.BundleType;
+import com.ibm.fhir.registry.FHIRRegistry;
+import com.ibm.fhir.validation.FHIRValidator;
+import com.ibm.fhir.validation.cache.ValidationResultCache;
+
+public class ValidationResultCacheTest {
+    private Patient patient(String family) {
+        return Patient.builder()
+                .name(HumanName.builder()
+                    .family(string(family))
+                    .build())
+                .build();
+    }
+
+    private Person person(String family) {
+        return Person.builder()
+                .name(HumanName.builder()
+                    .family(string(family))
+                    .build())
+                .build();
+    }
+
+    private Patient patient(Extension extension) {
+        return Patient.builder()
+                .extension(extension)
+                .build();
+    }
+
+    private Bundle bundle(Resource resource) {
+        return Bundle.builder()
+                .type(BundleType.COLLECTION)
+                .entry(Bundle.Entry.builder()
+                    .resource(resource)
+                    .build())
+                .build();
+    }
+
+    @AfterClass
+    public void tearDown() {
+        ValidationResultCache.configure(0);
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        ValidationResultCache.configure(10);
+        ValidationResultCache cache = ValidationResultCache.getInstance();
+        assertNotNull(cache);
+        FHIRValidator validator = FHIRValidator.validator();
+
+        List<Issue> first = cache.validate(validator, "default:default", patient("Doe"), true);
+        List<Issue> second = cache.validate(validator, "default:default", patient("Doe"), true);
+        assertSame(second, first);
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(cache.getMissCount(), 1);
+
+        // different content, profiles and scope are different entries
+        cache.validate(validator, "default:default", patient("Smith"), true);
+        cache.validate(validator, "default:default", patient("Doe"), false, "http://unknown.profile");
+        cache.validate(validator, "tenant1:default", patient("Doe"), true);
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(cache.getMissCount(), 4);
+        assertEquals(cache.size(), 4);
+
+        // a change to the registry clears the cache
+        FHIRRegistry.getInstance().resourcesChanged();
+        cache.validate(validator, "default:default", patient("Doe"), true);
+        assertEquals(cache.getMissCount(), 5);
+        assertEquals(cache.size(), 1);
+    }
+
+    @Test
+    public void testChoiceTypes() throws Exception {
+        ValidationResultCache.configure(10);
+        ValidationResultCache cache = ValidationResultCache.getInstance();
+        FHIRValidator validator = FHIRValidator.validator();
+
+        // both choices are visited as Extension.value with the same value
+        cache.validate(validator, "default:default", patient(Extension.builder()
+                .url("http://example.org/ext")
+                .value(string("x"))
+                .build()), true);
+        cache.validate(validator, "default:default", patient(Extension.builder()
+                .url("http://example.org/ext")
+                .value(Uri.of("x"))
+                .build()), true);
+        assertEquals(cache.getHitCount(), 0);
+        assertEquals(cache.getMissCount(), 2);
+        assertEquals(cache.size(), 2);
+    }
+
+    @Test
+    public void testResourceTypes() throws Exception {
+        ValidationResultCache.configure(10);
+        ValidationResultCache cache = ValidationResultCache.getInstance();
+        FHIRValidator validator = FHIRValidator.validator();
+
+        // bundle entries with the same fields but different resource types
+        cache.validate(validator, "default:default", bundle(patient("Doe")), true);
+        cache.validate(validator, "default:default", bundle(person("Doe")), true);
+
+        // contained resources with the same fields but different resource types
+        cache.validate(validator, "default:default", Patient.builder()
+                .contained(patient("Doe").toBuilder().id("c1").build())
+                .active(com.ibm.fhir.model.type.Boolean.TRUE)
+                .build(), true);
+        cache.validate(validator, "default:default", Patient.builder()
+                .contained(person("Doe").toBuilder().id("c1").build())
+                .active(com.ibm.fhir.model.type.Boolean.TRUE)
+                .build(), true);
+
+        // resources of different types with the same (id only) content
+        cache.validate(validator, "default:default", Patient.builder().id("1").build(), true);
+        cache.validate(validator, "default:default", Person.builder().id("1").build(), true);
+
+        assertEquals(cache.getHitCount(), 0);
+        assertEquals(cache.getMissCount(), 6);
+        assertEquals(cache.size(), 6);
+    }
+}
@@ -177,6 +177,15 @@ public interface ConfigurationAdapter {
      */
     int getCoreMaxPartitions();
 
+    /**
+     * get the number of threads used to parse and validate the resources of an import chunk in parallel
+     *
+     * @implNote System value.
+     *
+     * @return
+     */
+    int getCoreImportParallelism();
+
     /**
      * get the core iam endpoint (it is set one time for the whole system)
      *
@@ -64,6 +64,7 @@ public abstract class AbstractSystemConfigurationImpl implements ConfigurationAd
     private static final int coreCosSocketTimeout = defaultCoreCosSocketTimeout();
     private static final String coreBatchIdEncryptionKey = defaultCoreBatchIdEncryptionKey();
     private static final int coreMaxParititions = defaultCoreMaxParititions();
+    private static final int coreImportParallelism = defaultCoreImportParallelism();
     private static final int inputLimits = defaultInputLimits();
 
     @Override
@@ -80,6 +81,15 @@ public abstract class AbstractSystemConfigurationImpl implements ConfigurationAd
         return FHIRConfigHelper.getIntProperty("fhirServer/bulkdata/core/maxPartitions", MAX_PARTITIONPROCESSING_THREADNUMBER);
     }
 
+    @Override
+    public int getCoreImportParallelism() {
+        return coreImportParallelism;
+    }
+
+    private static final int defaultCoreImportParallelism() {
+        return FHIRConfigHelper.getIntProperty("fhirServer/bulkdata/core/importParallelism", Runtime.getRuntime().availableProcessors());
+    }
+
     @Override
     public String getCoreBatchIdEncryptionKey() {
         return coreBatchIdEncryptionKey;
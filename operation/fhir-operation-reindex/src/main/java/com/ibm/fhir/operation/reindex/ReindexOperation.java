@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2020
+ * (C) Copyright IBM Corp. 2020, 2021
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -12,9 +12,12 @@ import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
 import java.time.temporal.ChronoField;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 import com.ibm.fhir.exception.FHIROperationException;
 import com.ibm.fhir.model.format.Format;
@@ -23,16 +26,27 @@ import com.ibm.fhir.model.resource.OperationDefinition;
 import com.ibm.fhir.model.resource.OperationOutcome;
 import com.ibm.fhir.model.resource.OperationOutcome.Issue;
 import com.ibm.fhir.model.resource.Parameters;
+import com.ibm.fhir.model.resource.Parameters.Parameter;
 import com.ibm.fhir.model.resource.Resource;
 import com.ibm.fhir.model.type.code.IssueSeverity;
 import com.ibm.fhir.model.type.code.IssueType;
+import com.ibm.fhir.model.util.ModelSupport;
+import com.ibm.fhir.persistence.ReindexCheckpoint;
+import com.ibm.fhir.search.util.SearchUtil;
 import com.ibm.fhir.server.operation.spi.AbstractOperation;
 import com.ibm.fhir.server.operation.spi.FHIROperationContext;
 import com.ibm.fhir.server.operation.spi.FHIRResourceHelpers;
 import com.ibm.fhir.server.util.FHIROperationUtil;
 
 /**
- * Custom operation to invoke the persistence layer reindexing of resources
+ * Custom operation to invoke the persistence layer reindexing of resources.
+ *
+ * <p>When afterLogicalResourceId or toLogicalResourceId is given, the call reindexes a batch of up to resourceCount
+ * resources from that range of logical resource ids in a single transaction, and returns the checkpoint from which
+ * the next call continues the range. Clients run one worker per range to reindex the database in parallel.
+ *
+ * <p>When one or more searchParameter values are given, only the values of those search parameters are extracted
+ * and replaced, which is much cheaper than a full reindex after a search parameter has been added or changed.
  */
 public class ReindexOperation extends AbstractOperation {
     private static final Logger logger = Logger.getLogger(ReindexOperation.class.getName());
@@ -40,6 +54,11 @@ public class ReindexOperation extends AbstractOperation {
     private static final String PARAM_TSTAMP = "tstamp";
     private static final String PARAM_RESOURCE_COUNT = "resourceCount";
     private static final String PARAM_RESOURCE_LOGICAL_ID = "resourceLogicalId";
+    private static final String PARAM_AFTER_LOGICAL_RESOURCE_ID = "afterLogicalResourceId";
+    private static final String PARAM_TO_LOGICAL_RESOURCE_ID = "toLogicalResourceId";
+    private static final String PARAM_LAST_LOGICAL_RESOURCE_ID = "lastLogicalResourceId";
+    private static final String PARAM_MAX_LOGICAL_RESOURCE_ID = "maxLogicalResourceId";
+    private static final String PARAM_SEARCH_PARAMETER = "searchParameter";
 
     // The max number of resources we allow to be processed by one request
     private static final int MAX_RESOURCE_COUNT = 1000;
@@ -78,6 +97,9 @@ public class ReindexOperation extends AbstractOperation {
             Instant tstamp = Instant.now();
             int resourceCount = 10;
             String resourceLogicalId = null;
+            Long afterLogicalResourceId = null;
+            Long toLogicalResourceId = null;
+            Set<String> searchParameters = null;
 
             if (parameters != null) {
                 for (Parameters.Parameter parameter : parameters.getParameter()) {
@@ -109,16 +131,35 @@ public class ReindexOperation extends AbstractOperation {
                     } else if (PARAM_RESOURCE_LOGICAL_ID.equals(parameter.getName().getValue())) {
                         // reindex a specific resource (useful for debug/testing)
                         resourceLogicalId = parameter.getValue().as(com.ibm.fhir.model.type.String.class).getValue();
+                    } else if (PARAM_AFTER_LOGICAL_RESOURCE_ID.equals(parameter.getName().getValue())) {
+                        afterLogicalResourceId = parseLogicalResourceId(parameter);
+                    } else if (PARAM_TO_LOGICAL_RESOURCE_ID.equals(parameter.getName().getValue())) {
+                        toLogicalResourceId = parseLogicalResourceId(parameter);
+                    } else if (PARAM_SEARCH_PARAMETER.equals(parameter.getName().getValue())) {
+                        // the code or canonical URL of a search parameter to reindex
+                        if (searchParameters == null) {
+                            searchParameters = new LinkedHashSet<>();
+                        }
+                        searchParameters.add(parameter.getValue().as(com.ibm.fhir.model.type.String.class).getValue());
                     }
                 }
             }
 
+            if (searchParameters != null) {
+                checkSearchParameters(searchParameters);
+            }
+
+            if (afterLogicalResourceId != null || toLogicalResourceId != null) {
+                return doRangeReindex(operationContext, resourceHelper, tstamp, resourceCount, resourceLogicalId,
+                    afterLogicalResourceId != null ? afterLogicalResourceId : 0, toLogicalResourceId, searchParameters);
+            }
+
             // Delegate the heavy lifting to the helper
             OperationOutcome.Builder result = OperationOutcome.builder();
             int totalProcessed = 0;
             int processed = 1;
             for (int i=0; i<resourceCount && processed > 0; i++) {
-                processed = resourceHelper.doReindex(operationContext, result, tstamp, resourceLogicalId);
+                processed = resourceHelper.doReindex(operationContext, result, tstamp, resourceLogicalId, searchParameters);
                 totalProcessed += processed;
             }
 
@@ -139,6 +180,72 @@ public class ReindexOperation extends AbstractOperation {
         }
     }
 
+    /**
+     * Reindex one batch of resources from the given range in a single transaction
+     * @return the OperationOutcome and the checkpoint of the batch
+     */
+    private Parameters doRangeReindex(FHIROperationContext operationContext, FHIRResourceHelpers resourceHelper, Instant tstamp,
+            int resourceCount, String resourceLogicalId, long afterLogicalResourceId, Long toLogicalResourceId, Set<String> searchParameters)
+            throws Exception {
+        if (resourceLogicalId != null && resourceLogicalId.contains("/")) {
+            throw new FHIROperationException("A range reindex can only be limited to a resource type, not to a single resource: " + resourceLogicalId);
+        }
+        if (resourceLogicalId != null && !ModelSupport.isConcreteResourceType(resourceLogicalId)) {
+            throw new FHIROperationException("Invalid resource type for a range reindex: " + resourceLogicalId);
+        }
+
+        OperationOutcome.Builder result = OperationOutcome.builder();
+        ReindexCheckpoint checkpoint = resourceHelper.doReindex(operationContext, result, tstamp, resourceLogicalId,
+            afterLogicalResourceId, toLogicalResourceId, resourceCount, searchParameters);
+
+        if (checkpoint.getResourceCount() == 0) {
+            // the range has nothing left which needs to be reindexed
+            final String diag = "Reindex complete";
+            result.issue(Issue.builder().code(IssueType.INFORMATIONAL).severity(IssueSeverity.INFORMATION).diagnostics(com.ibm.fhir.model.type.String.of(diag)).build());
+        }
+
+        OperationOutcome operationOutcome = result.build();
+        checkOperationOutcome(operationOutcome);
+        return Parameters.builder()
+                .parameter(Parameter.builder().name(str("return")).resource(operationOutcome).build())
+                .parameter(Parameter.builder().name(str(PARAM_LAST_LOGICAL_RESOURCE_ID)).value(str(Long.toString(checkpoint.getLastLogicalResourceId()))).build())
+                .parameter(Parameter.builder().name(str(PARAM_MAX_LOGICAL_RESOURCE_ID)).value(str(Long.toString(checkpoint.getMaxLogicalResourceId()))).build())
+                .build();
+    }
+
+    /**
+     * Reject search parameter codes or URLs which don't select any search parameter, so that a typo doesn't reindex
+     * nothing while reporting success
+     *
+     * @param searchParameters the codes or canonical URLs of the searchParameter parameters
+     * @throws Exception
+     */
+    private void checkSearchParameters(Set<String> searchParameters) throws Exception {
+        List<String> resourceTypes = ModelSupport.getResourceTypes(false).stream()
+                .map(ModelSupport::getTypeName)
+                .collect(Collectors.toList());
+        Set<String> unknown = SearchUtil.getUnknownSearchParameters(resourceTypes, searchParameters);
+        if (!unknown.isEmpty()) {
+            throw new FHIROperationException("Search parameter(s) not found for any resource type: " + unknown);
+        }
+    }
+
+    /**
+     * Logical resource ids are 64-bit, so they are passed as strings
+     */
+    private Long parseLogicalResourceId(Parameters.Parameter parameter) throws FHIROperationException {
+        String val = parameter.getValue().as(com.ibm.fhir.model.type.String.class).getValue();
+        try {
+            return Long.parseLong(val);
+        } catch (NumberFormatException x) {
+            throw new FHIROperationException("Invalid " + parameter.getName().getValue() + ": " + val);
+        }
+    }
+
+    private static com.ibm.fhir.model.type.String str(String str) {
+        return com.ibm.fhir.model.type.String.of(str);
+    }
+
     /**
      * Check the OperationOutcome for any errors
      * @param oo
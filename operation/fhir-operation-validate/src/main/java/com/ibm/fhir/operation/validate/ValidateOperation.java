@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2016,2019
+ * (C) Copyright IBM Corp. 2016, 2021
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -13,6 +13,7 @@ import java.io.InputStream;
 import java.util.Collections;
 import java.util.List;
 
+import com.ibm.fhir.config.FHIRRequestContext;
 import com.ibm.fhir.exception.FHIROperationException;
 import com.ibm.fhir.model.format.Format;
 import com.ibm.fhir.model.parser.FHIRParser;
@@ -33,6 +34,8 @@ import com.ibm.fhir.server.operation.spi.FHIROperationContext;
 import com.ibm.fhir.server.operation.spi.FHIRResourceHelpers;
 import com.ibm.fhir.server.util.FHIROperationUtil;
 import com.ibm.fhir.validation.FHIRValidator;
+import com.ibm.fhir.validation.cache.ValidationResultCache;
+import com.ibm.fhir.validation.exception.FHIRValidationException;
 
 public class ValidateOperation extends AbstractOperation {
     public ValidateOperation() {
@@ -63,9 +66,9 @@ public class ValidateOperation extends AbstractOperation {
             if (profileParameter != null && profileParameter.getValue() != null) {
                 Uri profileUri = profileParameter.getValue().as(Uri.class);
                 String profile = profileUri == null ? null : profileUri.getValue();
-                issues = FHIRValidator.validator().validate(resource, profile);
+                issues = validate(resource, profile);
             } else {
-                issues = FHIRValidator.validator().validate(resource);
+                issues = validate(resource);
             }
 
             return FHIROperationUtil.getOutputParameters(buildResourceValidOperationOutcome(issues));
@@ -76,6 +79,19 @@ public class ValidateOperation extends AbstractOperation {
         }
     }
 
+    /**
+     * Validate the resource, using the validation result cache if it is enabled
+     */
+    private List<Issue> validate(Resource resource, String... profiles) throws FHIRValidationException {
+        ValidationResultCache cache = ValidationResultCache.getInstance();
+        if (cache != null) {
+            FHIRRequestContext requestContext = FHIRRequestContext.get();
+            String scope = requestContext.getTenantId() + ":" + requestContext.getDataStoreId();
+            return cache.validate(FHIRValidator.validator(), scope, resource, (profiles.length == 0), profiles);
+        }
+        return FHIRValidator.validator().validate(resource, profiles);
+    }
+
     private OperationOutcome buildResourceValidOperationOutcome(List<Issue> issues) {
         if (issues.isEmpty()) {
             issues = Collections.singletonList(Issue.builder()